@@ -0,0 +1,52 @@
+// Fixed benchmark input: running averages and ratios over int and long arrays.
+class Averages {
+
+    static int mean(int[] values) {
+        int sum = 0;
+        for (int i = 0; i < values.length; i++) {
+            sum += values[i];
+        }
+        if (values.length == 0) {
+            return 0;
+        }
+        return sum / values.length;
+    }
+
+    static long weightedMean(long[] values, long[] weights) {
+        long total = 0;
+        long weight = 0;
+        for (int i = 0; i < values.length; i++) {
+            total += values[i] * weights[i];
+            weight += weights[i];
+        }
+        if (weight != 0) {
+            return total / weight;
+        }
+        return 0;
+    }
+
+    static int percent(int part, int whole) {
+        if (whole > 0) {
+            return part * 100 / whole;
+        }
+        return part * 100 / whole;
+    }
+
+    static int movingAverage(int[] window, int size) {
+        int acc = 0;
+        int n = 0;
+        for (int i = 0; i < size && i < window.length; i++) {
+            acc = acc + window[i];
+            n = n + 1;
+        }
+        return acc / n;
+    }
+
+    static long scaled(long value, int shift) {
+        int divisor = 1;
+        for (int i = 0; i < shift; i++) {
+            divisor = divisor * 2;
+        }
+        return value / divisor;
+    }
+}
@@ -0,0 +1,58 @@
+// Fixed benchmark input: hashing into buckets and modular arithmetic.
+class Buckets {
+
+    private final int[] counts;
+
+    Buckets(int n) {
+        counts = new int[n];
+    }
+
+    int bucket(int hash) {
+        int n = counts.length;
+        if (n == 0) {
+            return -1;
+        }
+        int b = hash % n;
+        if (b < 0) {
+            b = b + n;
+        }
+        return b;
+    }
+
+    void add(int hash) {
+        int b = bucket(hash);
+        if (b >= 0) {
+            counts[b] += 1;
+        }
+    }
+
+    int spread(int hash, int salt) {
+        int mixed = hash ^ (hash >>> 16);
+        mixed = mixed * 31 + salt;
+        return mixed % 17;
+    }
+
+    long gcd(long a, long b) {
+        while (b != 0) {
+            long t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+
+    int lcm(int a, int b) {
+        int g = (int) gcd(a, b);
+        return a / g * b;
+    }
+
+    int load(int capacity) {
+        int used = 0;
+        for (int c : counts) {
+            if (c > 0) {
+                used++;
+            }
+        }
+        return used * 100 / capacity;
+    }
+}
@@ -0,0 +1,56 @@
+// Fixed benchmark input: time unit conversions with constant and computed divisors.
+class Clock {
+
+    static final int MILLIS_PER_SECOND = 1000;
+
+    static long toSeconds(long millis) {
+        return millis / 1000;
+    }
+
+    static long toMinutes(long millis) {
+        long seconds = millis / 1000;
+        return seconds / 60;
+    }
+
+    static int hours(int minutes) {
+        int perHour = 60;
+        return minutes / perHour;
+    }
+
+    static int remainder(int minutes) {
+        int perHour = 60;
+        int h = minutes / perHour;
+        return minutes - h * perHour;
+    }
+
+    static long rate(long events, long elapsed) {
+        if (elapsed <= 0) {
+            return 0;
+        }
+        return events / elapsed;
+    }
+
+    static long ticks(long nanos, long resolution) {
+        long r = resolution - 1;
+        if (r == -1) {
+            return nanos;
+        }
+        return nanos / resolution;
+    }
+
+    static int split(int total, int parts) {
+        int share = total / parts;
+        int rest = total % parts;
+        return share + rest;
+    }
+
+    static int countdown(int start) {
+        int steps = 0;
+        int x = start;
+        while (x != 0) {
+            x = x - 1;
+            steps += 10 / (x + 1);
+        }
+        return steps;
+    }
+}
@@ -0,0 +1,21 @@
+package org.checkerframework.checker.dividebyzero;
+
+import org.checkerframework.common.basetype.BaseTypeVisitor;
+import org.checkerframework.framework.qual.RelevantJavaTypes;
+
+/** A DivByZeroChecker that keeps a handle on its visitor, so benchmarks can call into it. */
+@RelevantJavaTypes({Integer.class, Long.class})
+class BenchmarkChecker extends DivByZeroChecker {
+
+    private DivByZeroVisitor visitor;
+
+    @Override
+    protected BaseTypeVisitor<?> createSourceVisitor() {
+        visitor = new DivByZeroVisitor(this);
+        return visitor;
+    }
+
+    DivByZeroVisitor getRecordedVisitor() {
+        return visitor;
+    }
+}
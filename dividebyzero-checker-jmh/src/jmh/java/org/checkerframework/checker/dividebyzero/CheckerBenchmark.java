@@ -0,0 +1,74 @@
+package org.checkerframework.checker.dividebyzero;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Runs DivByZeroChecker end to end on a fixed corpus through a warm in-process javac.
+ *
+ * <p>{@link #checkCorpus} reports corpus checks per second and, as the {@code lines} secondary
+ * result, source lines per second. {@link #checkFile} samples the latency of checking one file,
+ * so its result includes the p0.99 percentile. Run with the gc profiler (the build default) for
+ * the allocation rate.
+ */
+@State(Scope.Benchmark)
+public class CheckerBenchmark {
+
+    /** Corpus directories, relative to the root project */
+    @Param({"tests/dividebyzero", "dividebyzero-checker-jmh/corpus/arith"})
+    public String corpus;
+
+    private Corpus files;
+    private int next;
+
+    /** Lines checked; JMH reports it as a rate next to the primary score */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Lines {
+        public long lines;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            lines = 0;
+        }
+    }
+
+    @Setup
+    public void setUp() throws IOException {
+        files = Corpus.load(corpus);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        files.close();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public int checkCorpus(Lines counter) {
+        counter.lines += files.lines();
+        return files.check(files.files());
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public int checkFile() {
+        int i = next;
+        next = (i + 1) % files.files().size();
+        return files.check(Collections.singletonList(files.files().get(i)));
+    }
+}
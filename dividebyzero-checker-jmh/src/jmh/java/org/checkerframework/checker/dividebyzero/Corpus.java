@@ -0,0 +1,124 @@
+package org.checkerframework.checker.dividebyzero;
+
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.util.JavacTask;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+/**
+ * A fixed set of source files and a warm in-process javac to check them with. The file manager
+ * is shared by every compilation, as it would be in a build tool that keeps the compiler loaded.
+ */
+final class Corpus implements Closeable {
+
+    /** Directory that corpus paths are relative to; the build sets it to the root project. */
+    private static final File ROOT = new File(System.getProperty("dividebyzero.root", "."));
+
+    private final List<File> files;
+    private final long lines;
+    private final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    private final StandardJavaFileManager fileManager =
+            compiler.getStandardFileManager(null, Locale.ROOT, StandardCharsets.UTF_8);
+
+    private Corpus(List<File> files) throws IOException {
+        this.files = files;
+        long n = 0;
+        for (File f : files) {
+            n += Files.readAllLines(f.toPath(), StandardCharsets.UTF_8).size();
+        }
+        this.lines = n;
+    }
+
+    /** All Java files directly inside the given directory, in name order. */
+    static Corpus load(String directory) throws IOException {
+        File[] found = new File(ROOT, directory).listFiles((dir, name) -> name.endsWith(".java"));
+        if (found == null || found.length == 0) {
+            throw new IllegalArgumentException("no Java files in " + new File(ROOT, directory));
+        }
+        Arrays.sort(found);
+        return new Corpus(Collections.unmodifiableList(Arrays.asList(found)));
+    }
+
+    List<File> files() {
+        return files;
+    }
+
+    /** Total number of source lines in the corpus */
+    long lines() {
+        return lines;
+    }
+
+    /**
+     * Type-check the given files with a fresh DivByZeroChecker.
+     *
+     * @return the number of diagnostics javac reported
+     */
+    int check(List<File> sources) {
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        JavaCompiler.CompilationTask task =
+                compiler.getTask(
+                        null,
+                        fileManager,
+                        diagnostics,
+                        options("-proc:only"),
+                        null,
+                        fileManager.getJavaFileObjectsFromFiles(sources));
+        task.setProcessors(Collections.singletonList(new DivByZeroChecker()));
+        task.call();
+        return diagnostics.getDiagnostics().size();
+    }
+
+    /**
+     * Parse and analyze the named file of the corpus with the given checker, leaving the
+     * compilation open so that its trees and the checker's state can still be used.
+     */
+    CompilationUnitTree analyze(DivByZeroChecker checker, String name) throws IOException {
+        File file = null;
+        for (File f : files) {
+            if (f.getName().equals(name)) {
+                file = f;
+            }
+        }
+        if (file == null) {
+            throw new IllegalArgumentException("no " + name + " in the corpus");
+        }
+        JavacTask task =
+                (JavacTask)
+                        compiler.getTask(
+                                null,
+                                fileManager,
+                                new DiagnosticCollector<JavaFileObject>(),
+                                options(),
+                                null,
+                                fileManager.getJavaFileObjects(file));
+        task.setProcessors(Collections.singletonList(checker));
+        CompilationUnitTree unit = task.parse().iterator().next();
+        task.analyze();
+        return unit;
+    }
+
+    private static List<String> options(String... extra) {
+        List<String> args = new ArrayList<>(Arrays.asList(extra));
+        args.add("-classpath");
+        args.add(System.getProperty("java.class.path"));
+        return args;
+    }
+
+    @Override
+    public void close() throws IOException {
+        fileManager.close();
+    }
+}
@@ -0,0 +1,64 @@
+package org.checkerframework.checker.dividebyzero;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * The latency of a repeat check of a small module through a running {@link DivByZeroDaemon}:
+ * the request over the loopback socket, a new javac task and checker on the pooled file manager,
+ * and the answer. Compare with {@link CheckerBenchmark#checkCorpus}, which skips the socket.
+ */
+@State(Scope.Benchmark)
+public class DaemonBenchmark {
+
+    /** Corpus directories, relative to the root project */
+    @Param({"tests/dividebyzero", "dividebyzero-checker-jmh/corpus/arith"})
+    public String corpus;
+
+    private DivByZeroDaemon daemon;
+    private String token;
+    private final List<String> files = new ArrayList<>();
+
+    @Setup
+    public void setUp() throws IOException {
+        try (Corpus c = Corpus.load(corpus)) {
+            for (File f : c.files()) {
+                files.add(f.getAbsolutePath());
+            }
+        }
+        Path tokenFile = Files.createTempDirectory("dbz-daemon").resolve("token");
+        daemon = new DivByZeroDaemon(0, tokenFile);
+        token = new String(Files.readAllBytes(tokenFile), StandardCharsets.UTF_8);
+        Thread server = new Thread(daemon::serve, "dbz-daemon");
+        server.setDaemon(true);
+        server.start();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        daemon.close();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public int repeatCheck() throws IOException {
+        return DivByZeroDaemon.request(daemon.getPort(), token, "", Collections.<String>emptyList(), files).size();
+    }
+}
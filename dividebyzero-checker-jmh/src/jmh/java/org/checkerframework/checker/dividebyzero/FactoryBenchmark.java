@@ -0,0 +1,27 @@
+package org.checkerframework.checker.dividebyzero;
+
+import java.util.concurrent.TimeUnit;
+import org.checkerframework.framework.type.AnnotatedTypeMirror;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Each operation annotates every literal in {@code Foo.java} with the factory's tree annotator,
+ * as the factory does when it first computes the type of a literal.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class FactoryBenchmark {
+
+    @Benchmark
+    public void literalAnnotation(WarmChecker warm, Blackhole bh) {
+        for (int i = 0; i < warm.literals.size(); i++) {
+            AnnotatedTypeMirror type = warm.literalTypes.get(i);
+            warm.treeAnnotator.visit(warm.literals.get(i), type);
+            bh.consume(type);
+        }
+    }
+}
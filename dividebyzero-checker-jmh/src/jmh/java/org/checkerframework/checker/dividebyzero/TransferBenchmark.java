@@ -0,0 +1,42 @@
+package org.checkerframework.checker.dividebyzero;
+
+import java.util.concurrent.TimeUnit;
+import javax.lang.model.element.AnnotationMirror;
+import org.checkerframework.checker.dividebyzero.DivByZeroTransfer.BinaryOperator;
+import org.checkerframework.checker.dividebyzero.DivByZeroTransfer.Comparison;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.infra.Blackhole;
+
+/** Each operation applies a transfer function to every pair of points in the lattice. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TransferBenchmark {
+
+    private static final BinaryOperator[] OPERATORS = BinaryOperator.values();
+    private static final Comparison[] COMPARISONS = Comparison.values();
+
+    @Benchmark
+    public void arithmeticTransfer(WarmChecker warm, Blackhole bh) {
+        for (BinaryOperator op : OPERATORS) {
+            for (AnnotationMirror lhs : warm.mirrors) {
+                for (AnnotationMirror rhs : warm.mirrors) {
+                    bh.consume(warm.transfer.arithmeticTransfer(op, lhs, rhs));
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public void refineLhsOfComparison(WarmChecker warm, Blackhole bh) {
+        for (Comparison op : COMPARISONS) {
+            for (AnnotationMirror lhs : warm.mirrors) {
+                for (AnnotationMirror rhs : warm.mirrors) {
+                    bh.consume(warm.transfer.refineLhsOfComparison(op, lhs, rhs));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package org.checkerframework.checker.dividebyzero;
+
+import com.sun.source.util.TreePath;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+
+/**
+ * Each operation visits every binary tree in {@code Foo.java}, with the type factory's caches
+ * and the dataflow results already in place, as on a second pass over a checked file.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class VisitorBenchmark {
+
+    @Benchmark
+    public void visitBinary(WarmChecker warm) {
+        for (TreePath path : warm.binaries) {
+            warm.visitor.scan(path, null);
+        }
+    }
+}
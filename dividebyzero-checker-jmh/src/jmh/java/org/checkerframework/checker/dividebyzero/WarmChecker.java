@@ -0,0 +1,89 @@
+package org.checkerframework.checker.dividebyzero;
+
+import com.sun.source.tree.BinaryTree;
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.tree.LiteralTree;
+import com.sun.source.tree.Tree;
+import com.sun.source.util.TreePath;
+import com.sun.source.util.TreePathScanner;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import javax.lang.model.element.AnnotationMirror;
+import org.checkerframework.framework.flow.CFAnalysis;
+import org.checkerframework.framework.type.AnnotatedTypeMirror;
+import org.checkerframework.framework.type.treeannotator.TreeAnnotator;
+import org.checkerframework.javacutil.TreeUtils;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * A checker that has already type-checked {@code tests/dividebyzero/Foo.java}, shared by the
+ * microbenchmarks. The visitor and the type factory keep that file as their root, so dataflow
+ * results for its trees are available.
+ */
+@State(Scope.Benchmark)
+public class WarmChecker {
+
+    private Corpus corpus;
+
+    DivByZeroVisitor visitor;
+    DivByZeroAnnotatedTypeFactory factory;
+    DivByZeroTransfer transfer;
+
+    /** The mirror of every point in the lattice, by ordinal */
+    final AnnotationMirror[] mirrors = new AnnotationMirror[DivByZeroQualifier.VALUES.length];
+
+    /** The factory's tree annotator, which computes the qualifier of a tree from its kind */
+    TreeAnnotator treeAnnotator;
+
+    final List<LiteralTree> literals = new ArrayList<>();
+    /** An unannotated type for each of {@link #literals}, for the tree annotator to fill in */
+    final List<AnnotatedTypeMirror> literalTypes = new ArrayList<>();
+    final List<TreePath> binaries = new ArrayList<>();
+
+    @Setup
+    public void setUp() throws IOException {
+        corpus = Corpus.load("tests/dividebyzero");
+        BenchmarkChecker checker = new BenchmarkChecker();
+        CompilationUnitTree unit = corpus.analyze(checker, "Foo.java");
+        visitor = checker.getRecordedVisitor();
+        factory = visitor.getTypeFactory();
+
+        // Check the file once more so that the visitor and the factory are left rooted in it.
+        visitor.setRoot(unit);
+        TreePath root = new TreePath(unit);
+        for (Tree decl : unit.getTypeDecls()) {
+            visitor.visit(new TreePath(root, decl));
+        }
+
+        transfer = new DivByZeroTransfer(new CFAnalysis(checker, factory, Collections.emptyList()));
+        for (DivByZeroQualifier q : DivByZeroQualifier.VALUES) {
+            mirrors[q.ordinal()] = factory.getQualifiers().mirror(q);
+        }
+
+        treeAnnotator = factory.createTreeAnnotator();
+        new TreePathScanner<Void, Void>() {
+            @Override
+            public Void visitLiteral(LiteralTree tree, Void p) {
+                literals.add(tree);
+                literalTypes.add(AnnotatedTypeMirror.createType(TreeUtils.typeOf(tree), factory, false));
+                return super.visitLiteral(tree, p);
+            }
+
+            @Override
+            public Void visitBinary(BinaryTree tree, Void p) {
+                binaries.add(getCurrentPath());
+                return super.visitBinary(tree, p);
+            }
+        }.scan(root, null);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        corpus.close();
+    }
+}
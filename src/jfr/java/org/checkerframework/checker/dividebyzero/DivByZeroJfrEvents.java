@@ -0,0 +1,211 @@
+package org.checkerframework.checker.dividebyzero;
+
+import com.sun.source.tree.ClassTree;
+import com.sun.source.tree.MethodTree;
+import org.checkerframework.checker.dividebyzero.DivByZeroTransfer.BinaryOperator;
+import org.checkerframework.dataflow.cfg.ControlFlowGraph;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import javax.lang.model.element.TypeElement;
+
+/**
+ * The flight recorder events of {@link DivByZeroEvents}. This source set
+ * needs JDK 11; DivByZeroEvents loads the class reflectively.
+ */
+final class DivByZeroJfrEvents extends DivByZeroEvents {
+
+    private static final String PREFIX = "org.checkerframework.dividebyzero.";
+
+    @Name(PREFIX + "ClassAnalysis")
+    @Label("Class Analysis")
+    @Description("Dataflow and visiting of one top-level class")
+    @Category({"Checker Framework", "Divide By Zero"})
+    @StackTrace(false)
+    static final class ClassAnalysis extends Event {
+        @Label("Class")
+        String className;
+    }
+
+    @Name(PREFIX + "CfgConstruction")
+    @Label("CFG Construction")
+    @Description("Building the control flow graph of one method, lambda or initializer block")
+    @Category({"Checker Framework", "Divide By Zero"})
+    @StackTrace(false)
+    static final class CfgConstruction extends Event {
+        @Label("Class")
+        String className;
+        @Label("Method")
+        String method;
+        @Label("Nodes")
+        int nodes;
+    }
+
+    @Name(PREFIX + "Dataflow")
+    @Label("Dataflow")
+    @Description("The fixpoint computation over one control flow graph")
+    @Category({"Checker Framework", "Divide By Zero"})
+    @StackTrace(false)
+    static final class Dataflow extends Event {
+        @Label("Class")
+        String className;
+        @Label("Method")
+        String method;
+        @Label("Nodes")
+        int nodes;
+        @Label("Node Visits")
+        @Description("Transfer function calls over all passes")
+        long nodeVisits;
+        @Label("Iterations")
+        @Description("Passes over the graph: node visits per node")
+        double iterations;
+    }
+
+    @Name(PREFIX + "VisitorTraversal")
+    @Label("Visitor Traversal")
+    @Description("DivByZeroVisitor's traversal of one method")
+    @Category({"Checker Framework", "Divide By Zero"})
+    @StackTrace(false)
+    static final class VisitorTraversal extends Event {
+        @Label("Class")
+        String className;
+        @Label("Method")
+        String method;
+    }
+
+    @Name(PREFIX + "Transfer")
+    @Label("Transfer")
+    @Description("A sampled arithmetic transfer: one in " + TRANSFER_SAMPLE)
+    @Category({"Checker Framework", "Divide By Zero"})
+    @StackTrace(false)
+    static final class Transfer extends Event {
+        @Label("Operator")
+        String operator;
+        @Label("Left")
+        String left;
+        @Label("Right")
+        String right;
+        @Label("Result")
+        String result;
+    }
+
+    private final EventType classType = EventType.getEventType(ClassAnalysis.class);
+    private final EventType cfgType = EventType.getEventType(CfgConstruction.class);
+    private final EventType dataflowType = EventType.getEventType(Dataflow.class);
+    private final EventType visitorType = EventType.getEventType(VisitorTraversal.class);
+    private final EventType transferType = EventType.getEventType(Transfer.class);
+
+    /** The CFG being built, between {@link #beginCfg} and {@link #endCfg} */
+    private CfgConstruction cfg;
+
+    /** Arithmetic transfers seen while their event was enabled */
+    private long transfers;
+
+    @Override
+    Object beginClass() {
+        if (!classType.isEnabled()) {
+            return null;
+        }
+        ClassAnalysis event = new ClassAnalysis();
+        event.begin();
+        return event;
+    }
+
+    @Override
+    void endClass(Object started, TypeElement element) {
+        ClassAnalysis event = (ClassAnalysis) started;
+        if (event != null && event.shouldCommit()) {
+            event.className = element.getQualifiedName().toString();
+            event.commit();
+        }
+    }
+
+    @Override
+    void beginCfg() {
+        cfg = null;
+        if (cfgType.isEnabled()) {
+            cfg = new CfgConstruction();
+            cfg.begin();
+        }
+    }
+
+    @Override
+    void endCfg(ControlFlowGraph graph) {
+        CfgConstruction event = cfg;
+        cfg = null;
+        if (event != null && event.shouldCommit()) {
+            event.nodes = graph.getAllNodes().size();
+            String[] name = name(graph);
+            event.className = name[0];
+            event.method = name[1];
+            event.commit();
+        }
+    }
+
+    @Override
+    Object beginDataflow() {
+        if (!dataflowType.isEnabled()) {
+            return null;
+        }
+        Dataflow event = new Dataflow();
+        event.begin();
+        return event;
+    }
+
+    @Override
+    void endDataflow(Object started, ControlFlowGraph graph, long nodeVisits) {
+        Dataflow event = (Dataflow) started;
+        if (event != null && event.shouldCommit()) {
+            event.nodes = graph.getAllNodes().size();
+            event.nodeVisits = nodeVisits;
+            event.iterations = event.nodes == 0 ? 0 : (double) nodeVisits / event.nodes;
+            String[] name = name(graph);
+            event.className = name[0];
+            event.method = name[1];
+            event.commit();
+        }
+    }
+
+    @Override
+    Object beginVisit() {
+        if (!visitorType.isEnabled()) {
+            return null;
+        }
+        VisitorTraversal event = new VisitorTraversal();
+        event.begin();
+        return event;
+    }
+
+    @Override
+    void endVisit(Object started, ClassTree classTree, MethodTree methodTree) {
+        VisitorTraversal event = (VisitorTraversal) started;
+        if (event != null && event.shouldCommit()) {
+            event.className = DivByZeroMetrics.className(classTree);
+            event.method = DivByZeroMetrics.signature(methodTree);
+            event.commit();
+        }
+    }
+
+    @Override
+    boolean sampleTransfer() {
+        return transferType.isEnabled() && transfers++ % TRANSFER_SAMPLE == 0;
+    }
+
+    @Override
+    void transfer(BinaryOperator op, DivByZeroQualifier left, DivByZeroQualifier right, DivByZeroQualifier result) {
+        Transfer event = new Transfer();
+        if (event.shouldCommit()) {
+            event.operator = op.name();
+            event.left = String.valueOf(left);
+            event.right = String.valueOf(right);
+            event.result = String.valueOf(result);
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package org.checkerframework.checker.dividebyzero;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Test;
+
+/** Checks that the flight recorder events are emitted while a recording enables them, and only then. */
+public class DivByZeroEventsTest {
+
+    private static final List<File> FILES = CheckerRunner.testFiles("tests/dividebyzero");
+
+    private static final String[] EVENTS = {
+        "ClassAnalysis", "CfgConstruction", "Dataflow", "VisitorTraversal", "Transfer",
+    };
+
+    @Test
+    public void recordingCapturesEveryPhase() throws IOException {
+        Map<String, Integer> counts = new TreeMap<>();
+        RecordedEvent g = null;
+        try (Recording recording = new Recording()) {
+            for (String name : EVENTS) {
+                recording.enable("org.checkerframework.dividebyzero." + name);
+            }
+            recording.start();
+            CheckerRunner.run(new DivByZeroChecker(), FILES);
+            recording.stop();
+            Path dump = File.createTempFile("dbz", ".jfr").toPath();
+            recording.dump(dump);
+            for (RecordedEvent e : RecordingFile.readAllEvents(dump)) {
+                String name = e.getEventType().getName().substring("org.checkerframework.dividebyzero.".length());
+                counts.merge(name, 1, Integer::sum);
+                if (name.equals("Dataflow") && "g(int)".equals(e.getString("method"))) {
+                    g = e;
+                }
+            }
+        }
+        for (String name : EVENTS) {
+            assertTrue(name + " missing from " + counts, counts.getOrDefault(name, 0) > 0);
+        }
+        assertTrue("no dataflow event for Foo.g(int)", g != null);
+        assertEquals("Foo", g.getString("className"));
+        assertTrue(g.getInt("nodes") > 0);
+        assertTrue(g.getLong("nodeVisits") >= g.getInt("nodes"));
+        assertTrue(g.getDouble("iterations") >= 1);
+    }
+
+    @Test
+    public void nothingIsRecordedWhenDisabled() throws IOException {
+        try (Recording recording = new Recording()) {
+            recording.start();
+            CheckerRunner.run(new DivByZeroChecker(), FILES);
+            recording.stop();
+            Path dump = File.createTempFile("dbz", ".jfr").toPath();
+            recording.dump(dump);
+            for (RecordedEvent e : RecordingFile.readAllEvents(dump)) {
+                assertTrue(e.getEventType().getName(),
+                        !e.getEventType().getName().startsWith("org.checkerframework.dividebyzero."));
+            }
+        }
+    }
+}
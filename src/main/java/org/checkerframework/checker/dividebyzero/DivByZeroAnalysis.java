@@ -0,0 +1,160 @@
+package org.checkerframework.checker.dividebyzero;
+
+import com.sun.source.util.Trees;
+import org.checkerframework.common.basetype.BaseTypeChecker;
+import org.checkerframework.dataflow.analysis.FlowExpressions;
+import org.checkerframework.dataflow.analysis.Store;
+import org.checkerframework.dataflow.analysis.TransferInput;
+import org.checkerframework.dataflow.analysis.TransferResult;
+import org.checkerframework.dataflow.cfg.ControlFlowGraph;
+import org.checkerframework.dataflow.cfg.block.Block;
+import org.checkerframework.dataflow.cfg.node.Node;
+import org.checkerframework.framework.flow.CFAnalysis;
+import org.checkerframework.framework.flow.CFStore;
+import org.checkerframework.framework.flow.CFValue;
+import org.checkerframework.javacutil.Pair;
+
+import javax.lang.model.element.VariableElement;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The standard dataflow analysis, plus the hooks that feed
+ * {@link DivByZeroMetrics} when {@code -Adbz.metrics} is given, and that
+ * seed loop heads from {@link DivByZeroWarmStart} when
+ * {@code -Adbz.warmStart} is, and that emit {@link DivByZeroEvents}.
+ */
+public class DivByZeroAnalysis extends CFAnalysis {
+
+    /** Null unless metrics were requested */
+    private final DivByZeroMetrics metrics;
+
+    /** Null unless warm starts were requested */
+    private final DivByZeroWarmStart warmStart;
+
+    /** Null on a JVM without a flight recorder */
+    private final DivByZeroEvents events;
+    /** The current method's dataflow event, or null if it is not recorded, and its node visits */
+    private Object dataflowEvent;
+    private long nodeVisits;
+    private final DivByZeroAnnotatedTypeFactory factory;
+
+    /** Seeds of the loop heads the analysis of the current method has not reached yet */
+    private Map<Block, Map<VariableElement, DivByZeroQualifier>> unseeded;
+
+    public DivByZeroAnalysis(
+            BaseTypeChecker checker,
+            DivByZeroAnnotatedTypeFactory factory,
+            List<Pair<VariableElement, CFValue>> fieldValues) {
+        super(checker, factory, fieldValues);
+        this.factory = factory;
+        metrics = factory.getMetrics();
+        warmStart = factory.getWarmStart();
+        events = factory.getEvents();
+    }
+
+    @Override
+    public void performAnalysis(ControlFlowGraph cfg, List<Pair<VariableElement, CFValue>> fieldValues) {
+        DivByZeroWarmStart.Method method = warmStart == null ? null
+                : warmStart.begin(cfg, factory.getRoot(), Trees.instance(getEnv()).getSourcePositions());
+        unseeded = method == null ? null : new IdentityHashMap<>(warmStart.seeds(method));
+        try {
+            analyze(cfg, fieldValues);
+        } finally {
+            unseeded = null;
+        }
+        if (method != null) {
+            warmStart.save(method, converged(method));
+        }
+    }
+
+    private void analyze(ControlFlowGraph cfg, List<Pair<VariableElement, CFValue>> fieldValues) {
+        if (events == null) {
+            measure(cfg, fieldValues);
+            return;
+        }
+        events.endCfg(cfg);
+        dataflowEvent = events.beginDataflow();
+        nodeVisits = 0;
+        try {
+            measure(cfg, fieldValues);
+        } finally {
+            events.endDataflow(dataflowEvent, cfg, nodeVisits);
+            dataflowEvent = null;
+        }
+    }
+
+    private void measure(ControlFlowGraph cfg, List<Pair<VariableElement, CFValue>> fieldValues) {
+        if (metrics == null) {
+            super.performAnalysis(cfg, fieldValues);
+            return;
+        }
+        metrics.beginDataflow(cfg);
+        try {
+            super.performAnalysis(cfg, fieldValues);
+        } finally {
+            metrics.endDataflow();
+        }
+    }
+
+    @Override
+    protected TransferResult<CFValue, CFStore> callTransferFunction(Node node, TransferInput<CFValue, CFStore> store) {
+        if (metrics != null) {
+            metrics.nodeVisited();
+        }
+        if (dataflowEvent != null) {
+            nodeVisits++;
+        }
+        return super.callTransferFunction(node, store);
+    }
+
+    /** The first store to reach a seeded loop head has its locals raised to the seed */
+    @Override
+    protected void addStoreBefore(Block b, Node node, CFStore s, Store.Kind kind, boolean addBlockToWorklist) {
+        Map<VariableElement, DivByZeroQualifier> seed = unseeded == null ? null : unseeded.remove(b);
+        super.addStoreBefore(b, node, seed == null ? s : raise(s, seed), kind, addBlockToWorklist);
+    }
+
+    private CFStore raise(CFStore store, Map<VariableElement, DivByZeroQualifier> seed) {
+        CFStore raised = store.copy();
+        for (Map.Entry<VariableElement, DivByZeroQualifier> e : seed.entrySet()) {
+            FlowExpressions.LocalVariable local = new FlowExpressions.LocalVariable(e.getKey());
+            CFValue value = raised.getValue(local);
+            if (value == null) {
+                // no value is already Top
+                continue;
+            }
+            CFValue saved = createSingleAnnotationValue(
+                    factory.getQualifiers().mirror(e.getValue()), value.getUnderlyingType());
+            raised.clearValue(local);
+            raised.insertValue(local, value.leastUpperBound(saved));
+        }
+        return raised;
+    }
+
+    /** The qualifier of each local at each loop head */
+    private Map<Block, Map<VariableElement, DivByZeroQualifier>> converged(DivByZeroWarmStart.Method method) {
+        Map<Block, Map<VariableElement, DivByZeroQualifier>> converged = new IdentityHashMap<>();
+        for (Block head : method.heads.keySet()) {
+            TransferInput<CFValue, CFStore> input = getInput(head);
+            if (input == null) {
+                // unreachable
+                continue;
+            }
+            CFStore store = input.getRegularStore();
+            Map<VariableElement, DivByZeroQualifier> locals = new HashMap<>();
+            for (VariableElement local : method.locals.values()) {
+                CFValue value = store.getValue(new FlowExpressions.LocalVariable(local));
+                DivByZeroQualifier q = value == null ? null : factory.getQualifiers().qualifierIn(value.getAnnotations());
+                if (q != null) {
+                    locals.put(local, q);
+                }
+            }
+            converged.put(head, locals);
+        }
+        return converged;
+    }
+}
@@ -1,50 +1,94 @@
 package org.checkerframework.checker.dividebyzero;
 
 import com.sun.source.tree.BinaryTree;
+import com.sun.source.tree.ClassTree;
+import com.sun.source.tree.CompilationUnitTree;
 import com.sun.source.tree.CompoundAssignmentTree;
+import com.sun.source.tree.IdentifierTree;
+import com.sun.source.tree.LambdaExpressionTree;
 import com.sun.source.tree.LiteralTree;
+import com.sun.source.tree.MemberSelectTree;
 import com.sun.source.tree.Tree;
 import com.sun.source.tree.UnaryTree;
 import org.checkerframework.common.basetype.BaseAnnotatedTypeFactory;
 import org.checkerframework.common.basetype.BaseTypeChecker;
+import org.checkerframework.dataflow.cfg.UnderlyingAST;
+import org.checkerframework.framework.flow.CFAbstractAnalysis;
+import org.checkerframework.framework.flow.CFAnalysis;
+import org.checkerframework.framework.flow.CFStore;
+import org.checkerframework.framework.flow.CFTransfer;
+import org.checkerframework.framework.flow.CFValue;
 import org.checkerframework.framework.type.AnnotatedTypeFactory;
 import org.checkerframework.framework.type.AnnotatedTypeMirror;
+import org.checkerframework.framework.type.QualifierHierarchy;
 import org.checkerframework.framework.type.treeannotator.ListTreeAnnotator;
 import org.checkerframework.framework.type.treeannotator.TreeAnnotator;
-import org.checkerframework.javacutil.AnnotationBuilder;
+import org.checkerframework.framework.util.GraphQualifierHierarchy;
+import org.checkerframework.framework.util.MultiGraphQualifierHierarchy.MultiGraphFactory;
+import org.checkerframework.javacutil.Pair;
+import org.checkerframework.javacutil.TreeUtils;
+import org.checkerframework.javacutil.UserError;
 
 import javax.lang.model.element.AnnotationMirror;
-import java.lang.annotation.Annotation;
+import javax.lang.model.element.VariableElement;
 
-import org.checkerframework.checker.dividebyzero.qual.*;
+import java.util.List;
+import java.util.Queue;
 
 public class DivByZeroAnnotatedTypeFactory extends BaseAnnotatedTypeFactory {
 
+    /** The qualifier mirrors for this compilation; see {@link DivByZeroQualifiers} */
+    private final DivByZeroQualifiers qualifiers;
+
+    /** Null unless the checker was run with {@code -Adbz.metrics} */
+    private final DivByZeroMetrics metrics;
+
+    /** Null on a JVM without a flight recorder */
+    private final DivByZeroEvents events;
+
+    /** Null unless the checker was run with {@code -Adbz.warmStart} */
+    private final DivByZeroWarmStart warmStart;
+
+    /** Return-qualifier summaries of the methods in this compilation; see {@link DivByZeroSummaries} */
+    private final DivByZeroSummaries summaries;
+
+    /** Return ranges of library methods; see {@link DivByZeroStubs} */
+    private final DivByZeroStubs stubs;
+
+    /** Values of constant expressions; see {@link DivByZeroConstants} */
+    private final DivByZeroConstants constants = new DivByZeroConstants();
+
+    /** Which methods dataflow and the visitor can skip; see {@link DivByZeroPrescan} */
+    private final DivByZeroPrescan prescan;
+
+    /** Null unless the checker was run with {@code -Adbz.domain=interval}; see {@link DivByZeroIntervals} */
+    private final DivByZeroIntervals intervals;
+
     /**
      * Compute the default annotation for the given literal.
      *
      * @param literal   the literal in the syntax tree to examine
      * @return the most specific possible point in the lattice for the given literal
      */
-    private Class<? extends Annotation> defaultAnnotation(LiteralTree literal) {
+    DivByZeroQualifier defaultAnnotation(LiteralTree literal) {
         switch (literal.getKind()) {
         case INT_LITERAL:
             int intValue = (Integer)literal.getValue();
             // TODO
             if (intValue == 0){
-                return Zero.class;
+                return DivByZeroQualifier.ZERO;
             }
             
             if (intValue > 0){
-                return Positive.class;
+                return DivByZeroQualifier.POSITIVE;
             }
 
             if (intValue < 0){
-                return Negative.class;
+                return DivByZeroQualifier.NEGATIVE;
             }
 
             if (intValue != 0){
-                return Nonzero.class;
+                return DivByZeroQualifier.NONZERO;
             }
 
             break;
@@ -52,23 +96,23 @@ public class DivByZeroAnnotatedTypeFactory extends BaseAnnotatedTypeFactory {
             long longValue = (Long)literal.getValue();
             // TODO
             if (longValue == 0){
-                return Zero.class;
+                return DivByZeroQualifier.ZERO;
             }
 
             if (longValue > 0){
-                return Positive.class;
+                return DivByZeroQualifier.POSITIVE;
             }
 
             if (longValue < 0){
-                return Negative.class;
+                return DivByZeroQualifier.NEGATIVE;
             }
             
             if (longValue != 0){
-                return Nonzero.class;
+                return DivByZeroQualifier.NONZERO;
             }
             break;
         }
-        return Top.class;
+        return DivByZeroQualifier.TOP;
     }
 
     // ========================================================================
@@ -76,9 +120,168 @@ public class DivByZeroAnnotatedTypeFactory extends BaseAnnotatedTypeFactory {
 
     public DivByZeroAnnotatedTypeFactory(BaseTypeChecker c) {
         super(c);
+        // built before postInit() so that the qualifier hierarchy can use it
+        qualifiers = createQualifiers();
+        metrics = c instanceof DivByZeroChecker ? ((DivByZeroChecker) c).getMetrics() : null;
+        warmStart = c instanceof DivByZeroChecker ? ((DivByZeroChecker) c).getWarmStart() : null;
+        events = c instanceof DivByZeroChecker ? ((DivByZeroChecker) c).getEvents() : null;
+        stubs = DivByZeroStubs.builtIn(types);
+        summaries = new DivByZeroSummaries(trees, constants, stubs);
+        DivByZeroShard shard = c instanceof DivByZeroChecker ? ((DivByZeroChecker) c).getShard() : null;
+        DivByZeroChangedLines changedLines = c instanceof DivByZeroChecker ? ((DivByZeroChecker) c).getChangedLines() : null;
+        prescan = new DivByZeroPrescan(c.getSuppressWarningsKeys(), shard, changedLines, trees.getSourcePositions());
+        String domain = c.getOption(DivByZeroChecker.DOMAIN_OPTION, "sign");
+        if (!domain.equals("sign") && !domain.equals("interval")) {
+            throw new UserError("-A" + DivByZeroChecker.DOMAIN_OPTION + " must be sign or interval, not " + domain);
+        }
+        intervals = domain.equals("interval") ? new DivByZeroIntervals(qualifiers, summaries, constants, stubs) : null;
         postInit();
     }
 
+    /** Called once, from the constructor; tests override it to count lookups */
+    DivByZeroQualifiers createQualifiers() {
+        return new DivByZeroQualifiers(getProcessingEnv().getElementUtils());
+    }
+
+    /** The interned qualifier mirrors, shared with the transfer functions and the visitor */
+    DivByZeroQualifiers getQualifiers() {
+        return qualifiers;
+    }
+
+    /** The metrics collector, or null if metrics are off */
+    DivByZeroMetrics getMetrics() {
+        return metrics;
+    }
+
+    /** The flight recorder events, or null if the JVM has no flight recorder */
+    DivByZeroEvents getEvents() {
+        return events;
+    }
+
+    /** The loop-head stores of earlier runs, or null if warm starts are off */
+    DivByZeroWarmStart getWarmStart() {
+        return warmStart;
+    }
+
+    /** Summaries of the methods whose return qualifier can be inferred from their body */
+    DivByZeroSummaries getSummaries() {
+        return summaries;
+    }
+
+    /** The folded values of constant expressions */
+    DivByZeroConstants getConstants() {
+        return constants;
+    }
+
+    /** The methods that need neither dataflow nor visiting */
+    DivByZeroPrescan getPrescan() {
+        return prescan;
+    }
+
+    /** The interval engine, or null if the domain is sign */
+    DivByZeroIntervals getIntervals() {
+        return intervals;
+    }
+
+    @Override
+    public void setRoot(CompilationUnitTree root) {
+        prescan.setRoot(root);
+        constants.clear();
+        if (intervals != null) {
+            intervals.clear();
+        }
+        super.setRoot(root);
+    }
+
+    /**
+     * Skip dataflow for methods with nothing to report, for all code under
+     * {@code @SuppressWarnings}, and for everything once an error budget is spent
+     */
+    @Override
+    protected void analyze(
+            Queue<ClassTree> queue,
+            Queue<Pair<LambdaExpressionTree, CFStore>> lambdaQueue,
+            UnderlyingAST ast,
+            List<Pair<VariableElement, CFValue>> fieldValues,
+            ClassTree currentClass,
+            boolean isInitializationCode,
+            boolean updateInitializationStore,
+            boolean isStatic,
+            CFStore capturedStore) {
+        if (checker instanceof DivByZeroChecker && ((DivByZeroChecker) checker).isOverBudget()) {
+            return;
+        }
+        if (ast.getKind() == UnderlyingAST.Kind.METHOD
+                ? prescan.canSkip(((UnderlyingAST.CFGMethod) ast).getMethod())
+                : prescan.isSuppressed(TreeUtils.elementFromDeclaration(currentClass))) {
+            return;
+        }
+        if (events != null) {
+            // ended by the analysis, once the CFG is built
+            events.beginCfg();
+        }
+        super.analyze(queue, lambdaQueue, ast, fieldValues, currentClass,
+                isInitializationCode, updateInitializationStore, isStatic, capturedStore);
+    }
+
+    @Override
+    protected CFAnalysis createFlowAnalysis(List<Pair<VariableElement, CFValue>> fieldValues) {
+        return new DivByZeroAnalysis(checker, this, fieldValues);
+    }
+
+    @Override
+    public CFTransfer createFlowTransferFunction(CFAbstractAnalysis<CFValue, CFStore, CFTransfer> analysis) {
+        return new DivByZeroTransfer((CFAnalysis) analysis);
+    }
+
+    @Override
+    public QualifierHierarchy createQualifierHierarchy(MultiGraphFactory factory) {
+        return new DivByZeroQualifierHierarchy(factory);
+    }
+
+    /**
+     * Answers subtype, lub and glb queries for the divide-by-zero lattice with
+     * a few array reads (see {@link DivByZeroQualifier}) instead of walking the
+     * graph built from the {@code @SubtypeOf} declarations. Store merges at
+     * every CFG join go through here.
+     */
+    private final class DivByZeroQualifierHierarchy extends GraphQualifierHierarchy {
+
+        DivByZeroQualifierHierarchy(MultiGraphFactory factory) {
+            super(factory, qualifiers.bottom());
+        }
+
+        @Override
+        public boolean isSubtype(AnnotationMirror subAnno, AnnotationMirror superAnno) {
+            DivByZeroQualifier sub = qualifiers.qualifierOf(subAnno);
+            DivByZeroQualifier sup = qualifiers.qualifierOf(superAnno);
+            if (sub == null || sup == null) {
+                return super.isSubtype(subAnno, superAnno);
+            }
+            return sub.isSubtypeOf(sup);
+        }
+
+        @Override
+        public AnnotationMirror leastUpperBound(AnnotationMirror a1, AnnotationMirror a2) {
+            DivByZeroQualifier q1 = qualifiers.qualifierOf(a1);
+            DivByZeroQualifier q2 = qualifiers.qualifierOf(a2);
+            if (q1 == null || q2 == null) {
+                return super.leastUpperBound(a1, a2);
+            }
+            return qualifiers.mirror(q1.lub(q2));
+        }
+
+        @Override
+        public AnnotationMirror greatestLowerBound(AnnotationMirror a1, AnnotationMirror a2) {
+            DivByZeroQualifier q1 = qualifiers.qualifierOf(a1);
+            DivByZeroQualifier q2 = qualifiers.qualifierOf(a2);
+            if (q1 == null || q2 == null) {
+                return super.greatestLowerBound(a1, a2);
+            }
+            return qualifiers.mirror(q1.glb(q2));
+        }
+    }
+
     @Override
     protected TreeAnnotator createTreeAnnotator() {
         return new ListTreeAnnotator(
@@ -97,9 +300,7 @@ public class DivByZeroAnnotatedTypeFactory extends BaseAnnotatedTypeFactory {
             if (tree.getKind() == Tree.Kind.NULL_LITERAL) {
                 return super.visitLiteral(tree, type);
             }
-            Class<? extends Annotation> c = defaultAnnotation(tree);
-            AnnotationMirror m = AnnotationBuilder.fromClass(getProcessingEnv().getElementUtils(), c);
-            type.replaceAnnotation(m);
+            type.replaceAnnotation(qualifiers.mirror(defaultAnnotation(tree)));
             return null;
         }
 
@@ -116,14 +317,41 @@ public class DivByZeroAnnotatedTypeFactory extends BaseAnnotatedTypeFactory {
         // transfer rules to work properly for complex expressions like that
         // one, we must override the "output-is-lub-of-operands" behavior. By
         // default, everything should be Top.
+        //
+        // The exception is a constant expression: its qualifier is that of its
+        // folded value, which dataflow cannot improve on.
 
         private AnnotationMirror top() {
-            return getQualifierHierarchy().getTopAnnotations().iterator().next();
+            return qualifiers.top();
+        }
+
+        /** The qualifier of the tree's value if it is constant, otherwise Top */
+        private AnnotationMirror topUnlessConstant(Tree tree) {
+            DivByZeroQualifier folded = constants.qualifier(tree);
+            return folded == null ? top() : qualifiers.mirror(folded);
         }
 
         @Override
         public Void visitBinary(BinaryTree node, AnnotatedTypeMirror type) {
-            type.replaceAnnotation(top());
+            type.replaceAnnotation(topUnlessConstant(node));
+            return null;
+        }
+
+        @Override
+        public Void visitIdentifier(IdentifierTree node, AnnotatedTypeMirror type) {
+            DivByZeroQualifier folded = constants.qualifier(node);
+            if (folded != null) {
+                type.replaceAnnotation(qualifiers.mirror(folded));
+            }
+            return null;
+        }
+
+        @Override
+        public Void visitMemberSelect(MemberSelectTree node, AnnotatedTypeMirror type) {
+            DivByZeroQualifier folded = constants.qualifier(node);
+            if (folded != null) {
+                type.replaceAnnotation(qualifiers.mirror(folded));
+            }
             return null;
         }
 
@@ -135,7 +363,7 @@ public class DivByZeroAnnotatedTypeFactory extends BaseAnnotatedTypeFactory {
 
         @Override
         public Void visitUnary(UnaryTree node, AnnotatedTypeMirror type) {
-            type.replaceAnnotation(top());
+            type.replaceAnnotation(topUnlessConstant(node));
             return null;
         }
 
@@ -0,0 +1,210 @@
+package org.checkerframework.checker.dividebyzero;
+
+import com.sun.source.tree.ClassTree;
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.tree.MethodTree;
+import com.sun.source.tree.Tree;
+import com.sun.source.tree.VariableTree;
+import com.sun.source.util.SourcePositions;
+import org.checkerframework.javacutil.TreeUtils;
+
+import javax.lang.model.element.TypeElement;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileSystemNotFoundException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A baseline of accepted findings: divisions that are not reported again.
+ *
+ * <p>Each finding is a 64-bit FNV-1a fingerprint of the file path (relative
+ * to the working directory), the enclosing class and method signature, and
+ * the source text of the division without whitespace. None of these depend
+ * on line numbers, so a finding stays in the baseline when code above it
+ * moves. Two identical divisions in one method share a fingerprint.
+ *
+ * <p>The file is a header, {@code "DBZB"} and the count as ints, followed by
+ * the fingerprints as sorted, distinct longs, all big-endian. It is
+ * memory-mapped, not read, so loading costs the same for any size, and a
+ * lookup is a binary search over the mapping. Fingerprints are computed from
+ * the compilation unit's characters in place, without building strings.
+ */
+final class DivByZeroBaseline {
+
+    private static final int MAGIC = 0x44425a42;
+    private static final int HEADER_BYTES = 8;
+
+    static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    /** Sorted fingerprints */
+    private final LongBuffer fingerprints;
+
+    private DivByZeroBaseline(LongBuffer fingerprints) {
+        this.fingerprints = fingerprints;
+    }
+
+    /** Map a baseline file */
+    static DivByZeroBaseline load(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).order(ByteOrder.BIG_ENDIAN);
+            if (map.capacity() < HEADER_BYTES || map.getInt(0) != MAGIC) {
+                throw new IOException(path + " is not a divide-by-zero baseline");
+            }
+            int count = map.getInt(4);
+            if (map.capacity() != HEADER_BYTES + 8L * count) {
+                throw new IOException(path + " is truncated");
+            }
+            map.position(HEADER_BYTES);
+            // the mapping stays valid after the channel is closed
+            return new DivByZeroBaseline(map.slice().asLongBuffer());
+        }
+    }
+
+    int size() {
+        return fingerprints.limit();
+    }
+
+    boolean contains(long fingerprint) {
+        int lo = 0;
+        int hi = fingerprints.limit() - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            long v = fingerprints.get(mid);
+            if (v < fingerprint) {
+                lo = mid + 1;
+            } else if (v > fingerprint) {
+                hi = mid - 1;
+            } else {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Write the first n fingerprints as a baseline; the array is sorted in place */
+    static void write(Path path, long[] fingerprints, int n) throws IOException {
+        Arrays.sort(fingerprints, 0, n);
+        int distinct = 0;
+        for (int i = 0; i < n; i++) {
+            if (distinct == 0 || fingerprints[i] != fingerprints[distinct - 1]) {
+                fingerprints[distinct++] = fingerprints[i];
+            }
+        }
+        ByteBuffer buf = ByteBuffer.allocate(HEADER_BYTES + 8 * distinct).order(ByteOrder.BIG_ENDIAN);
+        buf.putInt(MAGIC).putInt(distinct);
+        buf.asLongBuffer().put(fingerprints, 0, distinct);
+        // the view does not move buf's position
+        buf.rewind();
+        try (FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buf.hasRemaining()) {
+                channel.write(buf);
+            }
+        }
+    }
+
+    /** Merge baselines, e.g. those written by the shards of a batch run, into one */
+    static void merge(List<Path> parts, Path into) throws IOException {
+        long[] all = new long[0];
+        int n = 0;
+        for (Path part : parts) {
+            LongBuffer fps = load(part).fingerprints;
+            all = Arrays.copyOf(all, n + fps.limit());
+            fps.get(all, n, fps.limit());
+            n += fps.limit();
+        }
+        write(into, all, n);
+    }
+
+    // ========================================================================
+    // Fingerprints
+
+    /**
+     * Computes the fingerprints of the divisions in one compilation unit. The
+     * unit's characters are read once; the file part of the hash is computed once.
+     */
+    static final class Fingerprinter {
+
+        private final CompilationUnitTree unit;
+        private final SourcePositions positions;
+        private final CharSequence source;
+        private final long fileHash;
+
+        Fingerprinter(CompilationUnitTree unit, SourcePositions positions) throws IOException {
+            this.unit = unit;
+            this.positions = positions;
+            this.source = unit.getSourceFile().getCharContent(true);
+            String name;
+            try {
+                Path file = Paths.get(unit.getSourceFile().toUri());
+                Path cwd = Paths.get("").toAbsolutePath();
+                name = (file.startsWith(cwd) ? cwd.relativize(file) : file).toString().replace('\\', '/');
+            } catch (IllegalArgumentException | FileSystemNotFoundException e) {
+                // not a file on disk
+                name = unit.getSourceFile().toUri().toString();
+            }
+            this.fileHash = hash(FNV_OFFSET, name, 0, name.length(), false);
+        }
+
+        /**
+         * @param enclosingClass  the innermost class around the division, or null
+         * @param method          the innermost method around it, or null in an initializer
+         */
+        long fingerprint(ClassTree enclosingClass, MethodTree method, Tree division) {
+            long h = mix(fileHash, '\0');
+            TypeElement type = enclosingClass == null ? null : TreeUtils.elementFromDeclaration(enclosingClass);
+            if (type != null) {
+                CharSequence name = type.getQualifiedName();
+                h = hash(h, name, 0, name.length(), false);
+            }
+            if (method != null) {
+                h = mix(h, '.');
+                CharSequence name = method.getName();
+                h = hash(h, name, 0, name.length(), false);
+                h = mix(h, '(');
+                for (VariableTree param : method.getParameters()) {
+                    h = text(h, param.getType());
+                    h = mix(h, ',');
+                }
+                h = mix(h, ')');
+            }
+            h = mix(h, '\0');
+            return text(h, division);
+        }
+
+        /** Hash the tree's source text, leaving out whitespace */
+        private long text(long h, Tree tree) {
+            long start = positions.getStartPosition(unit, tree);
+            long end = positions.getEndPosition(unit, tree);
+            if (start < 0 || end < start || end > source.length()) {
+                return h;
+            }
+            return hash(h, source, (int) start, (int) end, true);
+        }
+    }
+
+    static long hash(long h, CharSequence s, int start, int end, boolean skipWhitespace) {
+        for (int i = start; i < end; i++) {
+            char c = s.charAt(i);
+            if (!skipWhitespace || !Character.isWhitespace(c)) {
+                h = mix(h, c);
+            }
+        }
+        return h;
+    }
+
+    /** One FNV-1a step per byte of the char */
+    private static long mix(long h, char c) {
+        h = (h ^ (c & 0xff)) * FNV_PRIME;
+        return (h ^ (c >>> 8)) * FNV_PRIME;
+    }
+}
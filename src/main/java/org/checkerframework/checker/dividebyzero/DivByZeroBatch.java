@@ -0,0 +1,516 @@
+package org.checkerframework.checker.dividebyzero;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Checks a source tree with several javac tasks running in parallel, one per
+ * shard of the tree's compilation units.
+ *
+ * <pre>
+ * java -cp dividebyzero-checker.jar:checker.jar org.checkerframework.checker.dividebyzero.DivByZeroBatch \
+ *     [--classpath=cp] [--shards=n] [--method-shards=k] [-Akey=value ...] sourceRoot...
+ * </pre>
+ *
+ * <p>Every {@code .java} file under the source roots is assigned to one of
+ * {@code n} shards (by default, one per core), balancing the total source size
+ * of the shards: largest file first, each to the currently smallest shard.
+ * Each shard is type-checked by its own javac task and DivByZeroChecker
+ * instance on a fork-join pool. The source roots are the {@code -sourcepath}
+ * of every task, so a shard resolves types from the rest of the tree exactly
+ * as a single invocation over all the files would. Files read from the
+ * source path are not attributed by the shard, but that changes nothing
+ * reported: calls into another top-level class are never summarized (see
+ * {@link DivByZeroSummaries}), in a shard or in a serial run.
+ *
+ * <p>Diagnostics of all shards are printed sorted by file, line, column and
+ * message, so the output does not depend on the number of shards or on
+ * scheduling; {@code --shards=1} is the serial run. The exit status is 1 if
+ * any error was reported. {@code -A} options are passed to every task; the
+ * {@code -Adbz.metrics} and {@code -Adbz.output} paths get a {@code .shardN}
+ * suffix per shard. So does {@code -Adbz.writeBaseline}, but the shards'
+ * baselines are then merged into the one requested. So does
+ * {@code -Adbz.warmStart} too: each shard starts from a copy of the file,
+ * and the files the shards write are merged back into it.
+ *
+ * <p>The error budgets, {@code -Adbz.maxErrors} and
+ * {@code -Adbz.maxErrorsPerFile}, apply to the merged output: of the sorted
+ * errors, only the first n in all, and the first n of each file, are
+ * printed, followed by one warning that the run was cut short. Each task
+ * also gets the budgets, so that it stops once it alone has spent one; when
+ * that happens, which errors are printed can depend on the number of
+ * shards, but never more than the budget allows. javac's own errors are
+ * always printed.
+ *
+ * <p>With {@code --method-shards=k}, each shard is checked by k tasks
+ * instead of one, each analyzing a k-th of the shard's methods (see
+ * {@link DivByZeroShard}), so that one large file is no longer checked by a
+ * single thread. Diagnostics that all k tasks report, such as javac's own,
+ * are printed once.
+ */
+public final class DivByZeroBatch {
+
+    /** One reported diagnostic, formatted, with its sort key */
+    static final class Message implements Comparable<Message> {
+        final String file;
+        final long line;
+        final long column;
+        final boolean error;
+        final String text;
+        /** The checker's message key, e.g. divide.by.zero, or null for javac's own diagnostics */
+        final String key;
+
+        Message(String file, long line, long column, boolean error, String text, String key) {
+            this.file = file;
+            this.line = line;
+            this.column = column;
+            this.error = error;
+            this.text = text;
+            this.key = key;
+        }
+
+        @Override
+        public int compareTo(Message o) {
+            int c = file.compareTo(o.file);
+            if (c == 0) {
+                c = Long.compare(line, o.line);
+            }
+            if (c == 0) {
+                c = Long.compare(column, o.column);
+            }
+            if (c == 0) {
+                c = Boolean.compare(o.error, error);
+            }
+            return c != 0 ? c : text.compareTo(o.text);
+        }
+
+        @Override
+        public String toString() {
+            String where = file.isEmpty() ? "" : file + ":" + line + ":" + column + ": ";
+            return where + (error ? "error: " : "warning: ") + text;
+        }
+    }
+
+    /** javac's codes for the diagnostics an annotation processor prints through its Messager */
+    private static final String MESSAGER_ERROR = "compiler.err.proc.messager";
+    private static final String MESSAGER_WARNING = "compiler.warn.proc.messager";
+
+    private final List<Path> roots;
+    private final String classpath;
+    private final List<String> options;
+
+    DivByZeroBatch(List<Path> roots, String classpath, List<String> options) {
+        this.roots = roots;
+        this.classpath = classpath;
+        this.options = options;
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        List<Path> roots = new ArrayList<>();
+        List<String> options = new ArrayList<>();
+        String classpath = "";
+        int shards = Runtime.getRuntime().availableProcessors();
+        int methodShards = 1;
+        for (String arg : args) {
+            if (arg.startsWith("--classpath=")) {
+                classpath = arg.substring("--classpath=".length());
+            } else if (arg.startsWith("--shards=")) {
+                shards = Integer.parseInt(arg.substring("--shards=".length()));
+            } else if (arg.startsWith("--method-shards=")) {
+                methodShards = Integer.parseInt(arg.substring("--method-shards=".length()));
+            } else if (arg.startsWith("-A")) {
+                options.add(arg);
+            } else if (arg.startsWith("-")) {
+                usage("unknown option " + arg);
+            } else {
+                roots.add(Paths.get(arg));
+            }
+        }
+        if (roots.isEmpty() || shards < 1 || methodShards < 1) {
+            usage(roots.isEmpty() ? "no source roots" : "--shards and --method-shards must be at least 1");
+        }
+
+        List<Message> messages = new DivByZeroBatch(roots, classpath, options).check(shards, methodShards);
+        PrintStream out = System.out;
+        boolean failed = false;
+        for (Message m : messages) {
+            out.println(m);
+            failed |= m.error;
+        }
+        System.exit(failed ? 1 : 0);
+    }
+
+    private static void usage(String problem) {
+        System.err.println(problem);
+        System.err.println("usage: DivByZeroBatch [--classpath=cp] [--shards=n] [--method-shards=k] [-Akey=value ...] sourceRoot...");
+        System.exit(2);
+    }
+
+    /**
+     * Check every Java file under the source roots.
+     *
+     * @return the diagnostics of all shards, sorted
+     */
+    List<Message> check(int shards) throws IOException, InterruptedException {
+        return check(shards, 1);
+    }
+
+    /**
+     * Check every Java file under the source roots, splitting the methods of
+     * each shard between {@code methodShards} tasks.
+     *
+     * @return the diagnostics of all tasks, sorted, without duplicates
+     */
+    List<Message> check(int shards, int methodShards) throws IOException, InterruptedException {
+        List<List<Path>> work = shards(sources(), shards);
+        int total = work.size() * methodShards;
+        List<Callable<List<Message>>> tasks = new ArrayList<>();
+        for (int i = 0; i < work.size(); i++) {
+            List<Path> files = work.get(i);
+            for (int j = 0; j < methodShards; j++) {
+                int task = i * methodShards + j;
+                String methodShard = methodShards > 1 ? j + "/" + methodShards : null;
+                tasks.add(() -> checkShard(files, task, total, methodShard));
+            }
+        }
+
+        if (total > 1) {
+            copyWarmStarts(total);
+        }
+        List<Message> messages = new ArrayList<>();
+        ForkJoinPool pool = new ForkJoinPool(Math.max(1, total));
+        try {
+            for (Future<List<Message>> f : pool.invokeAll(tasks)) {
+                messages.addAll(f.get());
+            }
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        } finally {
+            pool.shutdown();
+        }
+        if (total > 1) {
+            mergeBaselines(total);
+            mergeWarmStarts(total);
+        }
+        Collections.sort(messages);
+        if (methodShards > 1) {
+            // every method shard sees javac's diagnostics and the class-level ones
+            int distinct = 0;
+            for (Message m : messages) {
+                if (distinct == 0 || m.compareTo(messages.get(distinct - 1)) != 0) {
+                    messages.set(distinct++, m);
+                }
+            }
+            messages.subList(distinct, messages.size()).clear();
+        }
+        applyBudgets(messages);
+        return messages;
+    }
+
+    /**
+     * Drop the checker's errors beyond the budgets from the sorted messages,
+     * and replace the tasks' budget warnings with one for the whole batch
+     */
+    private void applyBudgets(List<Message> messages) {
+        int maxErrors = budget(DivByZeroChecker.MAX_ERRORS_OPTION);
+        int maxErrorsPerFile = budget(DivByZeroChecker.MAX_ERRORS_PER_FILE_OPTION);
+        if (maxErrors == 0 && maxErrorsPerFile == 0) {
+            return;
+        }
+        boolean cut = false;
+        int errors = 0;
+        int fileErrors = 0;
+        String file = null;
+        int kept = 0;
+        for (Message m : messages) {
+            if (!m.file.equals(file)) {
+                file = m.file;
+                fileErrors = 0;
+            }
+            if (m.text.startsWith(DivByZeroChecker.BUDGET_NOTICE)) {
+                cut = true;
+                continue;
+            }
+            // only the checker's errors count; javac's are all kept
+            if (m.error && m.key != null) {
+                if ((maxErrors > 0 && errors >= maxErrors) || (maxErrorsPerFile > 0 && fileErrors >= maxErrorsPerFile)) {
+                    cut = true;
+                    continue;
+                }
+                errors++;
+                fileErrors++;
+            }
+            messages.set(kept++, m);
+        }
+        messages.subList(kept, messages.size()).clear();
+        if (cut) {
+            messages.add(new Message("", 0, 0, false, DivByZeroChecker.BUDGET_NOTICE + " after " + errors + " errors", null));
+        }
+    }
+
+    /** The value of a budget option, or 0 if it is not given; the tasks reject bad values */
+    private int budget(String option) {
+        String prefix = "-A" + option + "=";
+        for (String o : options) {
+            if (o.startsWith(prefix)) {
+                try {
+                    return Math.max(0, Integer.parseInt(o.substring(prefix.length())));
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 0;
+    }
+
+    /** Merge the baselines written by the shards, if one was requested */
+    private void mergeBaselines(int shards) throws IOException {
+        String prefix = "-A" + DivByZeroChecker.WRITE_BASELINE_OPTION + "=";
+        for (String option : options) {
+            if (option.startsWith(prefix)) {
+                Path into = Paths.get(option.substring(prefix.length()));
+                List<Path> parts = new ArrayList<>();
+                for (int i = 0; i < shards; i++) {
+                    Path part = Paths.get(into + ".shard" + i);
+                    if (Files.exists(part)) {
+                        parts.add(part);
+                    }
+                }
+                DivByZeroBaseline.merge(parts, into);
+                for (Path part : parts) {
+                    Files.delete(part);
+                }
+            }
+        }
+    }
+
+    /** Give each shard a copy of the warm-start file, if one was requested and exists */
+    private void copyWarmStarts(int shards) throws IOException {
+        String prefix = "-A" + DivByZeroChecker.WARM_START_OPTION + "=";
+        for (String option : options) {
+            if (option.startsWith(prefix)) {
+                Path from = Paths.get(option.substring(prefix.length()));
+                for (int i = 0; i < shards; i++) {
+                    Path part = Paths.get(from + ".shard" + i);
+                    if (Files.exists(from)) {
+                        Files.copy(from, part, StandardCopyOption.REPLACE_EXISTING);
+                    } else {
+                        Files.deleteIfExists(part);
+                    }
+                }
+            }
+        }
+    }
+
+    /** Merge the warm-start files written by the shards, if one was requested */
+    private void mergeWarmStarts(int shards) throws IOException {
+        String prefix = "-A" + DivByZeroChecker.WARM_START_OPTION + "=";
+        for (String option : options) {
+            if (option.startsWith(prefix)) {
+                Path into = Paths.get(option.substring(prefix.length()));
+                List<Path> parts = new ArrayList<>();
+                for (int i = 0; i < shards; i++) {
+                    Path part = Paths.get(into + ".shard" + i);
+                    if (Files.exists(part)) {
+                        parts.add(part);
+                    }
+                }
+                if (!parts.isEmpty()) {
+                    // each part started from a copy of the file, so together they hold all of it
+                    DivByZeroWarmStart.merge(parts, into);
+                }
+                for (Path part : parts) {
+                    Files.delete(part);
+                }
+            }
+        }
+    }
+
+    /** Every Java file under the source roots, in path order */
+    List<Path> sources() throws IOException {
+        List<Path> files = new ArrayList<>();
+        for (Path root : roots) {
+            try (Stream<Path> walk = Files.walk(root)) {
+                files.addAll(walk
+                        .filter(p -> p.toString().endsWith(".java") && Files.isRegularFile(p))
+                        .collect(Collectors.toList()));
+            }
+        }
+        Collections.sort(files);
+        return files;
+    }
+
+    /**
+     * Split files into at most n shards of about equal total size: longest
+     * processing time first, with the file size standing in for the time.
+     * There are never more shards than files.
+     */
+    static List<List<Path>> shards(List<Path> files, int n) {
+        Map<Path, Long> sizes = new HashMap<>();
+        for (Path file : files) {
+            sizes.put(file, size(file));
+        }
+        List<Path> bySize = new ArrayList<>(files);
+        // largest first; ties in path order so the assignment is deterministic
+        bySize.sort(Comparator.<Path>comparingLong(f -> -sizes.get(f)).thenComparing(Comparator.naturalOrder()));
+
+        List<List<Path>> shards = new ArrayList<>();
+        // {total size, shard index}
+        PriorityQueue<long[]> smallest = new PriorityQueue<>(
+                Comparator.<long[]>comparingLong(s -> s[0]).thenComparingLong(s -> s[1]));
+        for (int i = 0; i < Math.min(n, files.size()); i++) {
+            shards.add(new ArrayList<>());
+            smallest.add(new long[] {0, i});
+        }
+        for (Path file : bySize) {
+            long[] shard = smallest.poll();
+            shards.get((int) shard[1]).add(file);
+            shard[0] += sizes.get(file);
+            smallest.add(shard);
+        }
+        for (List<Path> shard : shards) {
+            Collections.sort(shard);
+        }
+        return shards;
+    }
+
+    private static long size(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Type-check one shard with its own javac task and checker instance
+     *
+     * @param methodShard  the {@code -Adbz.methodShard} value, or null to check every method
+     */
+    private List<Message> checkShard(List<Path> files, int shard, int shards, String methodShard) throws IOException {
+        List<String> args = new ArrayList<>();
+        args.add("-implicit:none");
+        args.add("-sourcepath");
+        args.add(roots.stream().map(Path::toString).collect(Collectors.joining(File.pathSeparator)));
+        args.add("-classpath");
+        args.add(withChecker(classpath));
+        for (String option : options) {
+            if (shards > 1 && (option.startsWith("-A" + DivByZeroChecker.METRICS_OPTION + "=")
+                    || option.startsWith("-A" + DivByZeroChecker.OUTPUT_OPTION + "=")
+                    || option.startsWith("-A" + DivByZeroChecker.WRITE_BASELINE_OPTION + "=")
+                    || option.startsWith("-A" + DivByZeroChecker.WARM_START_OPTION + "="))) {
+                option += ".shard" + shard;
+            }
+            args.add(option);
+        }
+        if (methodShard != null) {
+            args.add("-A" + DivByZeroChecker.METHOD_SHARD_OPTION + "=" + methodShard);
+        }
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        try (StandardJavaFileManager fileManager =
+                compiler.getStandardFileManager(null, Locale.ROOT, StandardCharsets.UTF_8)) {
+            return check(fileManager, args, files.stream().map(Path::toFile).collect(Collectors.toList()));
+        }
+    }
+
+    /** The classpath, followed by the checker's own, which holds the qualifiers */
+    static String withChecker(String classpath) {
+        String checkerPath = System.getProperty("java.class.path");
+        return classpath.isEmpty() ? checkerPath : classpath + File.pathSeparator + checkerPath;
+    }
+
+    /**
+     * Type-check files with a new DivByZeroChecker in one javac task.
+     *
+     * @param args  javac options; {@code -proc:only} is added
+     * @return the diagnostics, in the order javac reported them
+     */
+    static List<Message> check(StandardJavaFileManager fileManager, List<String> args, List<File> files) {
+        List<String> options = new ArrayList<>();
+        options.add("-proc:only");
+        options.addAll(args);
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        JavaCompiler.CompilationTask task = ToolProvider.getSystemJavaCompiler().getTask(
+                null, fileManager, diagnostics, options, null, fileManager.getJavaFileObjectsFromFiles(files));
+        task.setProcessors(Collections.singletonList(new DivByZeroChecker()));
+        task.call();
+
+        List<Message> messages = new ArrayList<>();
+        for (Diagnostic<? extends JavaFileObject> d : diagnostics.getDiagnostics()) {
+            if (d.getKind() == Diagnostic.Kind.NOTE) {
+                continue;
+            }
+            messages.add(new Message(
+                    d.getSource() == null ? "" : d.getSource().getName(),
+                    d.getLineNumber(),
+                    d.getColumnNumber(),
+                    d.getKind() == Diagnostic.Kind.ERROR,
+                    d.getMessage(Locale.ROOT),
+                    messageKey(d.getCode(), d.getMessage(Locale.ROOT))));
+        }
+        return messages;
+    }
+
+    /**
+     * The key of a message the checker reported, or null if javac reported it. The checker
+     * reports through the Messager, and its text starts with the key: {@code [key] text} by
+     * default, {@code (key)} with -Anomsgtext, and {@code (key) $$ ...} with -Adetailedmsgtext.
+     *
+     * @param code  the diagnostic's code
+     * @param text  the diagnostic's message
+     */
+    static String messageKey(String code, String text) {
+        if (!MESSAGER_ERROR.equals(code) && !MESSAGER_WARNING.equals(code)) {
+            return null;
+        }
+        int end;
+        if (text.startsWith("[")) {
+            end = text.indexOf(']');
+        } else if (text.startsWith("(")) {
+            end = text.indexOf(')');
+        } else {
+            return null;
+        }
+        if (end < 0) {
+            return null;
+        }
+        String key = text.substring(1, end);
+        // -AshowSuppressWarningKeys puts the checker's suppression keys first
+        return key.substring(key.lastIndexOf(':') + 1);
+    }
+}
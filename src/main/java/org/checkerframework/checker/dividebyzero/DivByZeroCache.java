@@ -0,0 +1,375 @@
+package org.checkerframework.checker.dividebyzero;
+
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.tree.IdentifierTree;
+import com.sun.source.tree.MemberSelectTree;
+import com.sun.source.tree.Tree;
+import com.sun.source.util.SourcePositions;
+import com.sun.source.util.TreePath;
+import com.sun.source.util.TreePathScanner;
+import com.sun.source.util.Trees;
+
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeMirror;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * On-disk cache of the diagnostics reported for each compilation unit.
+ * Enabled by {@code -Adbz.cache=dir}; see {@link DivByZeroChecker}.
+ *
+ * <p>The key of a unit is a hash of the checker's own class files, the
+ * processor options, the unit's source text, and the signature of every type
+ * the unit refers to (names, non-private members, their types and
+ * annotations). Changing a method body elsewhere does not change the key,
+ * since {@link DivByZeroSummaries} only summarizes the class being checked;
+ * changing an annotation on a method this unit calls does.
+ *
+ * <p>Each entry is one small file, named by its key and written to a
+ * temporary file first, then moved into place atomically. Entries are never
+ * modified after that, so concurrent builds on one machine can share a cache
+ * directory: readers see either no entry or a complete one, and two writers
+ * of the same key write the same bytes. Entries are read through a read-only
+ * memory mapping.
+ *
+ * <p>Entry layout, big-endian: magic {@code "DBZC"}, format version, entry
+ * count, then per diagnostic: failure flag (1 byte), start and end position
+ * of the reported tree, its Tree.Kind name, the message key, and the message
+ * arguments. Strings are an int byte length followed by UTF-8.
+ */
+final class DivByZeroCache {
+
+    private static final int MAGIC = 0x44425a43;
+    private static final int VERSION = 1;
+
+    /** Classes whose bytecode is part of every key, so upgrading the checker invalidates the cache */
+    private static final Class<?>[] CHECKER_CLASSES = {
+        DivByZeroChecker.class,
+        DivByZeroAnnotatedTypeFactory.class,
+        DivByZeroAnalysis.class,
+        DivByZeroConstants.class,
+        DivByZeroIntervals.class,
+        DivByZeroPrescan.class,
+        DivByZeroSummaries.class,
+        DivByZeroTransfer.class,
+        DivByZeroVisitor.class,
+        DivByZeroQualifier.class,
+        DivByZeroStubs.class,
+    };
+
+    /** Resources next to the classes that are part of every key */
+    private static final String[] CHECKER_RESOURCES = {
+        DivByZeroStubs.SOURCE,
+    };
+
+    /** One reported diagnostic, and the tree it was reported at */
+    static final class Entry {
+        final boolean failure;
+        final int start;
+        final int end;
+        final String treeKind;
+        final String key;
+        final String[] args;
+
+        Entry(boolean failure, int start, int end, String treeKind, String key, String[] args) {
+            this.failure = failure;
+            this.start = start;
+            this.end = end;
+            this.treeKind = treeKind;
+            this.key = key;
+            this.args = args;
+        }
+    }
+
+    private final Path dir;
+    private final Trees trees;
+    /** Hash of the checker classes and options, shared by every key of this run */
+    private final byte[] salt;
+    /** Signature hashes of the types seen so far in this run */
+    private final Map<TypeElement, byte[]> signatures = new IdentityHashMap<>();
+
+    private int hits;
+    private int misses;
+
+    DivByZeroCache(Path dir, ProcessingEnvironment env, Map<String, String> options) throws IOException {
+        this.dir = dir;
+        this.trees = Trees.instance(env);
+        this.salt = salt(options);
+        Files.createDirectories(dir);
+    }
+
+    /** A hash of the checker's class files and resources and of the given options */
+    static byte[] salt(Map<String, String> options) throws IOException {
+        MessageDigest md = sha256();
+        List<String> resources = new ArrayList<>();
+        for (Class<?> c : CHECKER_CLASSES) {
+            resources.add(c.getSimpleName() + ".class");
+        }
+        resources.addAll(Arrays.asList(CHECKER_RESOURCES));
+        for (String resource : resources) {
+            try (InputStream in = DivByZeroCache.class.getResourceAsStream(resource)) {
+                if (in != null) {
+                    byte[] buf = new byte[8192];
+                    for (int n; (n = in.read(buf)) > 0; ) {
+                        md.update(buf, 0, n);
+                    }
+                }
+            }
+        }
+        for (Map.Entry<String, String> o : new TreeMap<>(options).entrySet()) {
+            update(md, o.getKey() + "=" + o.getValue());
+        }
+        return md.digest();
+    }
+
+    int getHits() {
+        return hits;
+    }
+
+    int getMisses() {
+        return misses;
+    }
+
+    // ========================================================================
+    // Keys
+
+    /** The cache key of a compilation unit: 32 hex digits */
+    String key(CompilationUnitTree unit) throws IOException {
+        MessageDigest md = sha256();
+        md.update(salt);
+        update(md, unit.getSourceFile().getCharContent(true).toString());
+
+        TreeMap<String, byte[]> dependencies = new TreeMap<>();
+        new TreePathScanner<Void, Void>() {
+            @Override
+            public Void visitIdentifier(IdentifierTree tree, Void p) {
+                dependency(trees.getElement(getCurrentPath()));
+                return super.visitIdentifier(tree, p);
+            }
+
+            @Override
+            public Void visitMemberSelect(MemberSelectTree tree, Void p) {
+                dependency(trees.getElement(getCurrentPath()));
+                return super.visitMemberSelect(tree, p);
+            }
+
+            private void dependency(Element e) {
+                while (e != null && !(e instanceof TypeElement)) {
+                    e = e.getEnclosingElement();
+                }
+                if (e != null) {
+                    TypeElement type = (TypeElement) e;
+                    dependencies.put(type.getQualifiedName().toString(), signature(type, signatures));
+                }
+            }
+        }.scan(new TreePath(unit), null);
+
+        for (Map.Entry<String, byte[]> d : dependencies.entrySet()) {
+            update(md, d.getKey());
+            md.update(d.getValue());
+        }
+        byte[] digest = md.digest();
+        StringBuilder hex = new StringBuilder(32);
+        for (int i = 0; i < 16; i++) {
+            hex.append(Character.forDigit((digest[i] >> 4) & 0xf, 16)).append(Character.forDigit(digest[i] & 0xf, 16));
+        }
+        return hex.toString();
+    }
+
+    /**
+     * Everything about a type that another unit's diagnostics could depend on
+     *
+     * @param signatures  the signatures computed so far, which this one is added to
+     */
+    static byte[] signature(TypeElement type, Map<TypeElement, byte[]> signatures) {
+        byte[] sig = signatures.get(type);
+        if (sig == null) {
+            MessageDigest md = sha256();
+            update(md, type.getQualifiedName() + " " + type.getAnnotationMirrors() + " " + type.getSuperclass());
+            for (TypeMirror i : type.getInterfaces()) {
+                update(md, i.toString());
+            }
+            for (Element member : type.getEnclosedElements()) {
+                if (member.getModifiers().contains(Modifier.PRIVATE)) {
+                    continue;
+                }
+                update(md, member.getKind() + " " + member + " " + member.asType() + " " + member.getAnnotationMirrors());
+                if (member instanceof VariableElement) {
+                    update(md, String.valueOf(((VariableElement) member).getConstantValue()));
+                }
+            }
+            sig = md.digest();
+            signatures.put(type, sig);
+        }
+        return sig;
+    }
+
+    static void update(MessageDigest md, String s) {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        md.update(ByteBuffer.allocate(4).putInt(bytes.length).array());
+        md.update(bytes);
+    }
+
+    static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new AssertionError("every JVM has SHA-256", e);
+        }
+    }
+
+    // ========================================================================
+    // Entries
+
+    private Path path(String key) {
+        return dir.resolve(key.substring(0, 2)).resolve(key + ".dbz");
+    }
+
+    /** @return the cached diagnostics for the key, or null on a miss */
+    List<Entry> read(String key) {
+        try (FileChannel channel = FileChannel.open(path(key), StandardOpenOption.READ)) {
+            ByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buf.getInt() == MAGIC && buf.getInt() == VERSION) {
+                int count = buf.getInt();
+                List<Entry> entries = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    boolean failure = buf.get() != 0;
+                    int start = buf.getInt();
+                    int end = buf.getInt();
+                    String treeKind = string(buf);
+                    String messageKey = string(buf);
+                    String[] args = new String[buf.getInt()];
+                    for (int a = 0; a < args.length; a++) {
+                        args[a] = string(buf);
+                    }
+                    entries.add(new Entry(failure, start, end, treeKind, messageKey, args));
+                }
+                hits++;
+                return entries;
+            }
+        } catch (NoSuchFileException e) {
+            // a plain miss
+        } catch (IOException | BufferUnderflowException | IllegalArgumentException e) {
+            // unreadable or truncated; it will be rewritten
+        }
+        misses++;
+        return null;
+    }
+
+    void write(String key, List<Entry> entries) throws IOException {
+        List<byte[]> strings = new ArrayList<>();
+        int size = 12;
+        for (Entry e : entries) {
+            size += 1 + 4 + 4 + 4;
+            strings.add(e.treeKind.getBytes(StandardCharsets.UTF_8));
+            strings.add(e.key.getBytes(StandardCharsets.UTF_8));
+            for (String a : e.args) {
+                strings.add(a.getBytes(StandardCharsets.UTF_8));
+            }
+            size += 4 * (2 + e.args.length);
+        }
+        for (byte[] s : strings) {
+            size += s.length;
+        }
+
+        ByteBuffer buf = ByteBuffer.allocate(size);
+        buf.putInt(MAGIC).putInt(VERSION).putInt(entries.size());
+        int s = 0;
+        for (Entry e : entries) {
+            buf.put((byte) (e.failure ? 1 : 0)).putInt(e.start).putInt(e.end);
+            putString(buf, strings.get(s++));
+            putString(buf, strings.get(s++));
+            buf.putInt(e.args.length);
+            for (int a = 0; a < e.args.length; a++) {
+                putString(buf, strings.get(s++));
+            }
+        }
+
+        Path target = path(key);
+        Files.createDirectories(target.getParent());
+        Path tmp = Files.createTempFile(target.getParent(), key, ".tmp");
+        try {
+            Files.write(tmp, buf.array());
+            Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private static void putString(ByteBuffer buf, byte[] s) {
+        buf.putInt(s.length).put(s);
+    }
+
+    private static String string(ByteBuffer buf) {
+        byte[] s = new byte[buf.getInt()];
+        buf.get(s);
+        return new String(s, StandardCharsets.UTF_8);
+    }
+
+    // ========================================================================
+    // Positions
+
+    /** A diagnostic reported at the given tree */
+    Entry entry(CompilationUnitTree unit, Tree tree, boolean failure, String key, Object[] args) {
+        SourcePositions positions = trees.getSourcePositions();
+        String[] strings = new String[args == null ? 0 : args.length];
+        for (int i = 0; i < strings.length; i++) {
+            strings[i] = String.valueOf(args[i]);
+        }
+        return new Entry(
+                failure,
+                (int) positions.getStartPosition(unit, tree),
+                (int) positions.getEndPosition(unit, tree),
+                tree.getKind().name(),
+                key,
+                strings);
+    }
+
+    /** The tree a cached diagnostic was reported at, or null if it cannot be found */
+    Tree find(CompilationUnitTree unit, Entry entry) {
+        SourcePositions positions = trees.getSourcePositions();
+        Tree[] found = new Tree[1];
+        new TreePathScanner<Void, Void>() {
+            @Override
+            public Void scan(Tree tree, Void p) {
+                if (found[0] != null || tree == null) {
+                    return null;
+                }
+                long start = positions.getStartPosition(unit, tree);
+                long end = positions.getEndPosition(unit, tree);
+                if (start == entry.start && end == entry.end && tree.getKind().name().equals(entry.treeKind)) {
+                    found[0] = tree;
+                    return null;
+                }
+                if (start > entry.start || (end >= 0 && end < entry.end)) {
+                    // the tree does not contain the position
+                    return null;
+                }
+                return super.scan(tree, p);
+            }
+        }.scan(new TreePath(unit), null);
+        return found[0];
+    }
+}
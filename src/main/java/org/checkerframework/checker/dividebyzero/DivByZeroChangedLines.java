@@ -0,0 +1,335 @@
+package org.checkerframework.checker.dividebyzero;
+
+import com.sun.source.tree.BlockTree;
+import com.sun.source.tree.ClassTree;
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.tree.IdentifierTree;
+import com.sun.source.tree.LineMap;
+import com.sun.source.tree.MemberSelectTree;
+import com.sun.source.tree.MethodInvocationTree;
+import com.sun.source.tree.MethodTree;
+import com.sun.source.tree.Tree;
+import com.sun.source.tree.VariableTree;
+import com.sun.source.util.SourcePositions;
+import com.sun.source.util.TreeScanner;
+import org.checkerframework.javacutil.TreeUtils;
+
+import javax.lang.model.element.ExecutableElement;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystemNotFoundException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The lines changed by a patch, enabled by {@code -Adbz.changedLines=path},
+ * and the members of each compilation unit that checking is limited to.
+ *
+ * <p>The file is the output of {@code git diff -U0}: {@code +++ b/path}
+ * names a file, and each {@code @@ -a,b +c,d @@} hunk changes lines c to
+ * c+d-1 of it. A hunk that only deletes marks the lines on either side. Lines
+ * of the form {@code path:first-last} are also accepted. Paths are matched
+ * against the end of each source file's path, so paths relative to the
+ * repository root work from any working directory.
+ *
+ * <p>A method, field or initializer block is in scope if its lines overlap a
+ * change. So is a member of the same unit that calls an in-scope method
+ * whose return summary it may depend on (see {@link DivByZeroSummaries}), or
+ * that uses an in-scope field: the checker folds the value of a constant
+ * field into the expressions that use it (see {@link DivByZeroConstants}),
+ * and the annotations of any field give its type where it is read. And so
+ * on transitively. Calls are matched by name and argument count, fields by
+ * name.
+ * Everything inside a member, including lambdas and local classes, goes
+ * with it. Units without changes are not checked, out-of-scope methods get
+ * no dataflow and are not visited, and diagnostics outside the scope are
+ * dropped. Callers in other, unchanged files are not checked again: their
+ * calls into this one are not summarized.
+ */
+final class DivByZeroChangedLines {
+
+    private static final Pattern HUNK = Pattern.compile("@@ -\\d+(?:,\\d+)? \\+(\\d+)(?:,(\\d+))? @@.*");
+    private static final Pattern RANGE = Pattern.compile("(.+):(\\d+)(?:-(\\d+))?");
+
+    /** Changed line ranges, as {first, last} pairs, by path as written in the file */
+    private final Map<String, List<long[]>> changes;
+
+    /** The unit the ranges below are for */
+    private CompilationUnitTree unit;
+    /** Its changed lines, sorted and merged, or null if it has none */
+    private long[] unitChanges;
+    /** Start and end positions of its members, in source order, and whether each is in scope */
+    private long[] starts = new long[0];
+    private long[] ends = new long[0];
+    private boolean[] inScope = new boolean[0];
+
+    private DivByZeroChangedLines(Map<String, List<long[]>> changes) {
+        this.changes = changes;
+    }
+
+    static DivByZeroChangedLines load(Path path) throws IOException {
+        try (BufferedReader in = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            return parse(in);
+        }
+    }
+
+    static DivByZeroChangedLines parse(BufferedReader in) throws IOException {
+        Map<String, List<long[]>> changes = new LinkedHashMap<>();
+        List<long[]> current = null;
+        for (String line; (line = in.readLine()) != null; ) {
+            if (line.startsWith("+++ ")) {
+                String file = line.substring(4);
+                int tab = file.indexOf('\t');
+                if (tab >= 0) {
+                    file = file.substring(0, tab);
+                }
+                if (file.equals("/dev/null")) {
+                    current = null;
+                    continue;
+                }
+                if (file.startsWith("b/")) {
+                    file = file.substring(2);
+                }
+                current = changes.computeIfAbsent(file, f -> new ArrayList<>());
+                continue;
+            }
+            Matcher hunk = HUNK.matcher(line);
+            if (hunk.matches()) {
+                if (current != null) {
+                    long first = Long.parseLong(hunk.group(1));
+                    long count = hunk.group(2) == null ? 1 : Long.parseLong(hunk.group(2));
+                    // a deletion after line first
+                    current.add(count == 0 ? new long[] {Math.max(1, first), first + 1} : new long[] {first, first + count - 1});
+                }
+                continue;
+            }
+            Matcher range = RANGE.matcher(line);
+            // not a line of a hunk
+            boolean inHunk = line.startsWith("+") || line.startsWith("-") || line.startsWith(" ");
+            if (!inHunk && range.matches() && range.group(1).endsWith(".java")) {
+                long first = Long.parseLong(range.group(2));
+                long last = range.group(3) == null ? first : Long.parseLong(range.group(3));
+                changes.computeIfAbsent(range.group(1), f -> new ArrayList<>()).add(new long[] {first, last});
+            }
+        }
+        return new DivByZeroChangedLines(changes);
+    }
+
+    /** Whether the unit has any changed lines */
+    boolean isChanged(CompilationUnitTree root, SourcePositions positions) {
+        if (root != unit) {
+            scope(root, positions);
+        }
+        return unitChanges != null;
+    }
+
+    /** Whether the tree is in a member that is in scope, or outside every member of a changed unit */
+    boolean covers(CompilationUnitTree root, Tree tree, SourcePositions positions) {
+        if (root != unit) {
+            scope(root, positions);
+        }
+        if (unitChanges == null) {
+            return false;
+        }
+        long pos = positions.getStartPosition(root, tree);
+        // the last member that starts at or before the tree
+        int i = Arrays.binarySearch(starts, pos);
+        if (i < 0) {
+            i = -i - 2;
+        }
+        return i < 0 || pos >= ends[i] || inScope[i];
+    }
+
+    // ========================================================================
+    // Scope
+
+    private void scope(CompilationUnitTree root, SourcePositions positions) {
+        unit = root;
+        unitChanges = changesOf(root);
+        starts = new long[0];
+        ends = new long[0];
+        inScope = new boolean[0];
+        if (unitChanges == null) {
+            return;
+        }
+        LineMap lines = root.getLineMap();
+        List<Tree> members = members(root, positions);
+        Set<Tree> changed = new HashSet<>();
+        List<Tree> outOfScope = new ArrayList<>();
+        // name/arity of the in-scope methods whose summaries callers may use, and
+        // names of the in-scope fields whose values or types users may depend on
+        Set<String> depended = new HashSet<>();
+        for (Tree member : members) {
+            long first = lines.getLineNumber(positions.getStartPosition(root, member));
+            long last = lines.getLineNumber(positions.getEndPosition(root, member));
+            if (overlaps(first, last)) {
+                changed.add(member);
+                String key = dependedKey(member);
+                if (key != null) {
+                    depended.add(key);
+                }
+            } else {
+                outOfScope.add(member);
+            }
+        }
+
+        Map<Tree, Set<String>> uses = new HashMap<>();
+        for (boolean grew = !depended.isEmpty(); grew; ) {
+            grew = false;
+            for (int i = 0; i < outOfScope.size(); i++) {
+                Tree member = outOfScope.get(i);
+                Set<String> used = uses.computeIfAbsent(member, DivByZeroChangedLines::uses);
+                if (!Collections.disjoint(used, depended)) {
+                    changed.add(member);
+                    outOfScope.remove(i--);
+                    String key = dependedKey(member);
+                    if (key != null) {
+                        grew |= depended.add(key);
+                    }
+                }
+            }
+        }
+
+        members.sort((a, b) -> Long.compare(positions.getStartPosition(root, a), positions.getStartPosition(root, b)));
+        starts = new long[members.size()];
+        ends = new long[members.size()];
+        inScope = new boolean[members.size()];
+        for (int m = 0; m < members.size(); m++) {
+            starts[m] = positions.getStartPosition(root, members.get(m));
+            ends[m] = positions.getEndPosition(root, members.get(m));
+            inScope[m] = changed.contains(members.get(m));
+        }
+    }
+
+    /** The unit's changed lines as sorted, merged {first, last} pairs, or null */
+    private long[] changesOf(CompilationUnitTree root) {
+        Path file;
+        try {
+            file = Paths.get(root.getSourceFile().toUri()).toAbsolutePath().normalize();
+        } catch (IllegalArgumentException | FileSystemNotFoundException e) {
+            return null;
+        }
+        List<long[]> ranges = new ArrayList<>();
+        for (Map.Entry<String, List<long[]>> e : changes.entrySet()) {
+            if (file.endsWith(Paths.get(e.getKey()).normalize())) {
+                ranges.addAll(e.getValue());
+            }
+        }
+        if (ranges.isEmpty()) {
+            return null;
+        }
+        ranges.sort((a, b) -> Long.compare(a[0], b[0]));
+        long[] merged = new long[2 * ranges.size()];
+        int n = 0;
+        for (long[] r : ranges) {
+            if (n > 0 && r[0] <= merged[n - 1] + 1) {
+                merged[n - 1] = Math.max(merged[n - 1], r[1]);
+            } else {
+                merged[n++] = r[0];
+                merged[n++] = r[1];
+            }
+        }
+        return Arrays.copyOf(merged, n);
+    }
+
+    private boolean overlaps(long first, long last) {
+        for (int i = 0; i < unitChanges.length; i += 2) {
+            if (unitChanges[i] <= last && first <= unitChanges[i + 1]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Methods, fields and initializer blocks of the unit's top-level and member classes */
+    private static List<Tree> members(CompilationUnitTree root, SourcePositions positions) {
+        List<Tree> members = new ArrayList<>();
+        for (Tree decl : root.getTypeDecls()) {
+            if (decl instanceof ClassTree) {
+                collect((ClassTree) decl, members);
+            }
+        }
+        // generated constructors have no source range
+        members.removeIf(m -> positions.getEndPosition(root, m) <= positions.getStartPosition(root, m));
+        return members;
+    }
+
+    private static void collect(ClassTree classTree, List<Tree> members) {
+        for (Tree member : classTree.getMembers()) {
+            if (member instanceof ClassTree) {
+                collect((ClassTree) member, members);
+            } else if (member instanceof MethodTree || member instanceof VariableTree || member instanceof BlockTree) {
+                members.add(member);
+            }
+        }
+    }
+
+    /**
+     * What other members match when they depend on this one: name/arity of a
+     * summarizable method, the name of a field, or null
+     */
+    private static String dependedKey(Tree member) {
+        if (member instanceof MethodTree) {
+            MethodTree method = (MethodTree) member;
+            ExecutableElement element = TreeUtils.elementFromDeclaration(method);
+            return element != null && DivByZeroSummaries.isSummarizable(element)
+                    ? method.getName() + "/" + method.getParameters().size()
+                    : null;
+        }
+        if (member instanceof VariableTree) {
+            // also when it is no longer constant, since its users were folded before
+            return ((VariableTree) member).getName().toString();
+        }
+        return null;
+    }
+
+    /** name/arity of every method the member calls, and every name it uses */
+    private static Set<String> uses(Tree member) {
+        Set<String> used = new HashSet<>();
+        Tree body = member instanceof MethodTree ? ((MethodTree) member).getBody()
+                : member instanceof VariableTree ? ((VariableTree) member).getInitializer()
+                : member;
+        if (body == null) {
+            return used;
+        }
+        new TreeScanner<Void, Void>() {
+            @Override
+            public Void visitMethodInvocation(MethodInvocationTree node, Void p) {
+                Tree select = node.getMethodSelect();
+                CharSequence name = select instanceof MemberSelectTree ? ((MemberSelectTree) select).getIdentifier()
+                        : select instanceof IdentifierTree ? ((IdentifierTree) select).getName() : null;
+                if (name != null) {
+                    used.add(name + "/" + node.getArguments().size());
+                }
+                return super.visitMethodInvocation(node, p);
+            }
+
+            @Override
+            public Void visitIdentifier(IdentifierTree node, Void p) {
+                used.add(node.getName().toString());
+                return null;
+            }
+
+            @Override
+            public Void visitMemberSelect(MemberSelectTree node, Void p) {
+                used.add(node.getIdentifier().toString());
+                return super.visitMemberSelect(node, p);
+            }
+        }.scan(body, null);
+        return used;
+    }
+}
@@ -2,7 +2,539 @@ package org.checkerframework.checker.dividebyzero;
 
 import org.checkerframework.common.basetype.BaseTypeChecker;
 import org.checkerframework.framework.qual.RelevantJavaTypes;
+import org.checkerframework.framework.source.Result;
+import org.checkerframework.framework.source.SupportedOptions;
+import org.checkerframework.javacutil.UserError;
 
+import com.sun.source.tree.ClassTree;
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.tree.Tree;
+import com.sun.source.util.SourcePositions;
+import com.sun.source.util.TreePath;
+import com.sun.source.util.Trees;
+
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Options:
+ * <ul>
+ *   <li>{@code -Adbz.metrics=path}: when the run ends, write per-class and
+ *       per-method analysis metrics to path as JSON; see {@link DivByZeroMetrics}</li>
+ *   <li>{@code -Adbz.cache=dir}: keep the diagnostics of each compilation unit
+ *       in dir, and skip units whose source and dependencies have not changed
+ *       since, replaying their diagnostics instead; see {@link DivByZeroCache}</li>
+ *   <li>{@code -Adbz.domain=sign|interval}: {@code sign}, the default, uses
+ *       only the qualifier lattice; {@code interval} also tracks the range
+ *       of each int and long local, so that divisors like {@code n - 1} after
+ *       {@code n > 1} are accepted; see {@link DivByZeroIntervals}</li>
+ *   <li>{@code -Adbz.output=path}: stream every diagnostic to path as it is
+ *       reported, in the format given by {@code -Adbz.outputFormat=jsonl|sarif}
+ *       (JSON Lines by default); see {@link DivByZeroOutput}</li>
+ *   <li>{@code -Adbz.text=false}: do not print diagnostics through javac; with
+ *       {@code dbz.output}, the file is then the only record of them, and the
+ *       compilation does not fail because of them</li>
+ *   <li>{@code -Adbz.baseline=path}: do not report divisions listed in the
+ *       baseline file at path; see {@link DivByZeroBaseline}</li>
+ *   <li>{@code -Adbz.writeBaseline=path}: when the run ends, write every
+ *       division reported in it to a new baseline file at path. Divisions
+ *       whose warning is suppressed, or dropped by a shard or by
+ *       {@code dbz.changedLines}, are not reported and not written. This turns
+ *       the cache off, since units replayed from it are not visited</li>
+ *   <li>{@code -Adbz.methodShard=i/n}: analyze and report only the i-th of n
+ *       parts of the methods, so that n javac tasks can check one large
+ *       class in parallel; see {@link DivByZeroShard}</li>
+ *   <li>{@code -Adbz.maxErrors=n}: once n errors have been reported, stop
+ *       analyzing and visiting; the remaining classes and compilation units
+ *       are not checked</li>
+ *   <li>{@code -Adbz.maxErrorsPerFile=n}: once n errors have been reported in
+ *       a compilation unit, skip the rest of it</li>
+ *   <li>{@code -Adbz.changedLines=path}: check only the methods and fields
+ *       on the lines changed by the patch at path, such as the output of
+ *       {@code git diff -U0}, and the methods of the same file whose results
+ *       depend on them; see {@link DivByZeroChangedLines}. This turns the
+ *       cache off, since the diagnostics of a unit are incomplete</li>
+ *   <li>{@code -Adbz.warmStart=path}: start the dataflow of each unchanged
+ *       method from the loop-head stores it converged to in an earlier run,
+ *       and save this run's for the next; see {@link DivByZeroWarmStart}</li>
+ * </ul>
+ * Flight recorder events for each phase are emitted whenever a recording
+ * enables them; see {@link DivByZeroEvents}.
+ * When a budget cuts the run short, a warning, and a notice in the
+ * {@code dbz.output} file, says so. Errors under {@code @SuppressWarnings}
+ * or in the baseline do not count.
+ */
 @RelevantJavaTypes({Integer.class, Long.class})
+@SupportedOptions({
+    DivByZeroChecker.METRICS_OPTION,
+    DivByZeroChecker.CACHE_OPTION,
+    DivByZeroChecker.DOMAIN_OPTION,
+    DivByZeroChecker.OUTPUT_OPTION,
+    DivByZeroChecker.OUTPUT_FORMAT_OPTION,
+    DivByZeroChecker.TEXT_OPTION,
+    DivByZeroChecker.BASELINE_OPTION,
+    DivByZeroChecker.WRITE_BASELINE_OPTION,
+    DivByZeroChecker.METHOD_SHARD_OPTION,
+    DivByZeroChecker.MAX_ERRORS_OPTION,
+    DivByZeroChecker.MAX_ERRORS_PER_FILE_OPTION,
+    DivByZeroChecker.CHANGED_LINES_OPTION,
+    DivByZeroChecker.WARM_START_OPTION,
+})
 public class DivByZeroChecker extends BaseTypeChecker {
+
+    static final String METRICS_OPTION = "dbz.metrics";
+    static final String CACHE_OPTION = "dbz.cache";
+    static final String DOMAIN_OPTION = "dbz.domain";
+    static final String OUTPUT_OPTION = "dbz.output";
+    static final String OUTPUT_FORMAT_OPTION = "dbz.outputFormat";
+    static final String TEXT_OPTION = "dbz.text";
+    static final String BASELINE_OPTION = "dbz.baseline";
+    static final String WRITE_BASELINE_OPTION = "dbz.writeBaseline";
+    static final String METHOD_SHARD_OPTION = "dbz.methodShard";
+    static final String MAX_ERRORS_OPTION = "dbz.maxErrors";
+    static final String MAX_ERRORS_PER_FILE_OPTION = "dbz.maxErrorsPerFile";
+
+    /** Start of the warning printed when a budget cut the run short */
+    static final String BUDGET_NOTICE = "divide-by-zero checking was cut short by the error budget";
+    static final String CHANGED_LINES_OPTION = "dbz.changedLines";
+    static final String WARM_START_OPTION = "dbz.warmStart";
+
+    /** Null unless metrics were requested */
+    private DivByZeroMetrics metrics;
+
+    /** Null on a JVM without a flight recorder */
+    private DivByZeroEvents events;
+
+    /** Null unless the cache was requested */
+    private DivByZeroCache cache;
+
+    /** Null unless an output file was requested */
+    private DivByZeroOutput output;
+
+    /** Null unless the methods are split between checkers */
+    private DivByZeroShard shard;
+    private SourcePositions positions;
+
+    /** Null unless checking is limited to changed lines */
+    private DivByZeroChangedLines changedLines;
+
+    /** Null unless warm starts were requested */
+    private DivByZeroWarmStart warmStart;
+
+    /** Null unless a baseline was given */
+    private DivByZeroBaseline baseline;
+
+    /** Fingerprints of the findings reported so far, if a new baseline is to be written */
+    private long[] newBaseline;
+    private int newBaselineSize;
+
+    /** Fingerprint of the finding being reported, if it goes into the new baseline once issued */
+    private long reportedFingerprint;
+    private boolean fingerprinted;
+
+    /** Whether diagnostics are printed through javac */
+    private boolean text = true;
+
+    /** Error budgets, or 0 for none */
+    private int maxErrors;
+    private int maxErrorsPerFile;
+    /** Errors reported in the run, and in budgetUnit */
+    private int errors;
+    private int unitErrors;
+    private CompilationUnitTree budgetUnit;
+    /** Whether a budget was spent at some point, and top-level classes not checked because of it */
+    private boolean budgetSpent;
+    private int classesSkipped;
+
+    /** The unit being checked, its cache key, and its top-level classes not yet processed */
+    private CompilationUnitTree cacheUnit;
+    private String cacheKey;
+    private int classesLeft;
+
+    /** Diagnostics reported in the current unit, or null if they are not being recorded */
+    private List<DivByZeroCache.Entry> recorded;
+
+    @Override
+    public void initChecker() {
+        // before super.initChecker(), which creates the visitor and the type factory
+        if (hasOption(METRICS_OPTION)) {
+            metrics = new DivByZeroMetrics();
+        }
+        events = DivByZeroEvents.create();
+        if (hasOption(METHOD_SHARD_OPTION)) {
+            shard = DivByZeroShard.parse(getOption(METHOD_SHARD_OPTION));
+            positions = Trees.instance(processingEnv).getSourcePositions();
+        }
+        if (hasOption(CHANGED_LINES_OPTION)) {
+            try {
+                changedLines = DivByZeroChangedLines.load(Paths.get(getOption(CHANGED_LINES_OPTION)));
+            } catch (IOException e) {
+                throw new UserError("cannot load changed lines: " + e.getMessage());
+            }
+            positions = Trees.instance(processingEnv).getSourcePositions();
+        }
+        if (hasOption(BASELINE_OPTION)) {
+            try {
+                baseline = DivByZeroBaseline.load(Paths.get(getOption(BASELINE_OPTION)));
+            } catch (IOException e) {
+                throw new UserError("cannot load divide-by-zero baseline: " + e.getMessage());
+            }
+        }
+        if (hasOption(WRITE_BASELINE_OPTION)) {
+            newBaseline = new long[64];
+        }
+        if (hasOption(WARM_START_OPTION)) {
+            try {
+                Map<String, String> options = reportingOptions();
+                // options that change what is reported, but not what a method's dataflow converges to
+                options.remove(BASELINE_OPTION);
+                options.remove(WRITE_BASELINE_OPTION);
+                options.remove(METHOD_SHARD_OPTION);
+                options.remove(MAX_ERRORS_OPTION);
+                options.remove(MAX_ERRORS_PER_FILE_OPTION);
+                options.remove(CHANGED_LINES_OPTION);
+                warmStart = DivByZeroWarmStart.load(Paths.get(getOption(WARM_START_OPTION)),
+                        DivByZeroCache.salt(options), Trees.instance(processingEnv));
+            } catch (IOException e) {
+                messager.printMessage(Diagnostic.Kind.WARNING, "divide-by-zero warm start disabled: " + e.getMessage());
+            }
+        }
+        super.initChecker();
+        if (hasOption(CACHE_OPTION) && newBaseline == null && changedLines == null) {
+            try {
+                cache = new DivByZeroCache(Paths.get(getOption(CACHE_OPTION)), processingEnv, reportingOptions());
+            } catch (IOException e) {
+                messager.printMessage(Diagnostic.Kind.WARNING, "divide-by-zero cache disabled: " + e);
+            }
+        }
+        text = !"false".equals(getOption(TEXT_OPTION));
+        maxErrors = budget(MAX_ERRORS_OPTION);
+        maxErrorsPerFile = budget(MAX_ERRORS_PER_FILE_OPTION);
+        if (hasOption(OUTPUT_OPTION)) {
+            String format = getOption(OUTPUT_FORMAT_OPTION);
+            if (format != null && !format.equals("jsonl") && !format.equals("sarif")) {
+                throw new UserError("-A" + OUTPUT_FORMAT_OPTION + " must be jsonl or sarif, not " + format);
+            }
+            try {
+                output = new DivByZeroOutput(Paths.get(getOption(OUTPUT_OPTION)),
+                        "sarif".equals(format) ? DivByZeroOutput.Format.SARIF : DivByZeroOutput.Format.JSONL,
+                        Trees.instance(processingEnv).getSourcePositions());
+            } catch (IOException e) {
+                messager.printMessage(Diagnostic.Kind.WARNING, "divide-by-zero output disabled: " + e);
+            }
+        }
+    }
+
+    /**
+     * The processor options that can change what is reported, for the keys of the cache and of
+     * warm starts. The files named by {@code dbz.baseline} and {@code stubs} are given with their
+     * size and modification time, since changing them changes what is reported.
+     */
+    private Map<String, String> reportingOptions() {
+        Map<String, String> options = new HashMap<>(processingEnv.getOptions());
+        for (String option : new String[] {BASELINE_OPTION, "stubs"}) {
+            String paths = options.get(option);
+            if (paths != null) {
+                StringBuilder stamped = new StringBuilder();
+                for (String path : paths.split(File.pathSeparator)) {
+                    File file = new File(path);
+                    stamped.append(file.getAbsolutePath()).append('@').append(file.length())
+                            .append(':').append(file.lastModified()).append(File.pathSeparatorChar);
+                }
+                options.put(option, stamped.toString());
+            }
+        }
+        // options that do not change what is reported
+        options.remove(CACHE_OPTION);
+        options.remove(METRICS_OPTION);
+        options.remove(OUTPUT_OPTION);
+        options.remove(OUTPUT_FORMAT_OPTION);
+        options.remove(TEXT_OPTION);
+        options.remove(WARM_START_OPTION);
+        return options;
+    }
+
+    private int budget(String option) {
+        if (!hasOption(option)) {
+            return 0;
+        }
+        try {
+            int n = Integer.parseInt(getOption(option));
+            if (n > 0) {
+                return n;
+            }
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        throw new UserError("-A" + option + " must be a positive number, not " + getOption(option));
+    }
+
+    /** Whether an error budget has been spent, so the rest of the run or of the unit is skipped */
+    boolean isOverBudget() {
+        return (maxErrors > 0 && errors >= maxErrors)
+                || (maxErrorsPerFile > 0 && unitErrors >= maxErrorsPerFile);
+    }
+
+    /** The metrics collector, or null if metrics are off */
+    DivByZeroMetrics getMetrics() {
+        return metrics;
+    }
+
+    /** The flight recorder events, or null if the JVM has no flight recorder */
+    DivByZeroEvents getEvents() {
+        return events;
+    }
+
+    /** Which methods this checker owns, or null if it owns them all */
+    DivByZeroShard getShard() {
+        return shard;
+    }
+
+    /** The loop-head stores of earlier runs, or null if warm starts are off */
+    DivByZeroWarmStart getWarmStart() {
+        return warmStart;
+    }
+
+    /** The changed lines checking is limited to, or null if it is not */
+    DivByZeroChangedLines getChangedLines() {
+        return changedLines;
+    }
+
+    /** The baseline of accepted findings, or null if there is none */
+    DivByZeroBaseline getBaseline() {
+        return baseline;
+    }
+
+    /** Whether a new baseline is being collected; see {@link #report(Result, Tree, long)} */
+    boolean isWritingBaseline() {
+        return newBaseline != null;
+    }
+
+    /**
+     * Report a finding and, if it passes every filter in {@link #report(Result, Object)}
+     * and is issued, add its fingerprint to the baseline written at the end of the run
+     */
+    void report(Result r, Tree src, long fingerprint) {
+        reportedFingerprint = fingerprint;
+        fingerprinted = true;
+        try {
+            report(r, src);
+        } finally {
+            fingerprinted = false;
+        }
+    }
+
+    private void addToBaseline(long fingerprint) {
+        if (newBaselineSize == newBaseline.length) {
+            newBaseline = Arrays.copyOf(newBaseline, newBaselineSize * 2);
+        }
+        newBaseline[newBaselineSize++] = fingerprint;
+    }
+
+    /** The result cache, or null if caching is off */
+    DivByZeroCache getCache() {
+        return cache;
+    }
+
+    @Override
+    public void typeProcess(TypeElement element, TreePath path) {
+        if (path.getCompilationUnit() != budgetUnit) {
+            budgetUnit = path.getCompilationUnit();
+            unitErrors = 0;
+        }
+        if (cache == null) {
+            check(element, path);
+            return;
+        }
+        CompilationUnitTree unit = path.getCompilationUnit();
+        if (unit != cacheUnit) {
+            startUnit(unit);
+        }
+        if (recorded != null) {
+            check(element, path);
+        }
+        if (--classesLeft == 0) {
+            finishUnit();
+        }
+    }
+
+    /** Type-check one top-level class */
+    private void check(TypeElement element, TreePath path) {
+        if (isOverBudget()) {
+            classesSkipped++;
+            // the unit's diagnostics are incomplete
+            cacheKey = null;
+            return;
+        }
+        if (changedLines != null && !changedLines.isChanged(path.getCompilationUnit(), positions)) {
+            return;
+        }
+        ((DivByZeroAnnotatedTypeFactory) getTypeFactory()).getSummaries().setTopLevel(element);
+        Object event = events == null ? null : events.beginClass();
+        super.typeProcess(element, path);
+        if (events != null) {
+            events.endClass(event, element);
+        }
+        if (isOverBudget()) {
+            cacheKey = null;
+        }
+    }
+
+    /** Replay the unit's diagnostics from the cache, or start recording them */
+    private void startUnit(CompilationUnitTree unit) {
+        cacheUnit = unit;
+        classesLeft = 0;
+        for (Tree decl : unit.getTypeDecls()) {
+            if (decl instanceof ClassTree) {
+                classesLeft++;
+            }
+        }
+        recorded = null;
+        try {
+            cacheKey = cache.key(unit);
+        } catch (IOException e) {
+            cacheKey = null;
+            recorded = new ArrayList<>();
+            return;
+        }
+        List<DivByZeroCache.Entry> cached = cache.read(cacheKey);
+        if (cached == null) {
+            recorded = new ArrayList<>();
+            return;
+        }
+        // report() resolves positions and @SuppressWarnings against currentRoot
+        currentRoot = unit;
+        for (DivByZeroCache.Entry entry : cached) {
+            Tree tree = cache.find(unit, entry);
+            Object[] args = entry.args;
+            Result result = entry.failure ? Result.failure(entry.key, args) : Result.warning(entry.key, args);
+            report(result, tree != null ? tree : unit);
+        }
+    }
+
+    private void finishUnit() {
+        if (recorded != null && cacheKey != null) {
+            try {
+                cache.write(cacheKey, recorded);
+            } catch (IOException e) {
+                messager.printMessage(Diagnostic.Kind.WARNING, "could not write divide-by-zero cache entry: " + e);
+            }
+        }
+        recorded = null;
+        cacheUnit = null;
+    }
+
+    @Override
+    public void report(Result r, Object src) {
+        if (shard != null && src instanceof Tree && currentRoot != null && !shard.owns(currentRoot, (Tree) src, positions)) {
+            // another shard reports it
+            return;
+        }
+        if (changedLines != null && src instanceof Tree && currentRoot != null
+                && !changedLines.covers(currentRoot, (Tree) src, positions)) {
+            // not part of the change
+            return;
+        }
+        if (recorded != null && cacheKey != null) {
+            if (src instanceof Tree) {
+                for (Result.DiagMessage m : r.getDiagMessages()) {
+                    recorded.add(cache.entry(cacheUnit, (Tree) src, r.isFailure(), m.getMessageKey(), m.getArgs()));
+                }
+            } else {
+                // only diagnostics at trees can be replayed; check this unit again next time
+                cacheKey = null;
+            }
+        }
+        if (output != null && src instanceof Tree && currentRoot != null) {
+            for (Result.DiagMessage m : r.getDiagMessages()) {
+                if (!shouldSuppressWarnings((Tree) src, m.getMessageKey())) {
+                    write(r.isFailure(), m, (Tree) src);
+                }
+            }
+        }
+        if (fingerprinted && newBaseline != null && r.isFailure()) {
+            for (Result.DiagMessage m : r.getDiagMessages()) {
+                if (!shouldSuppressWarnings((Tree) src, m.getMessageKey())) {
+                    addToBaseline(reportedFingerprint);
+                    break;
+                }
+            }
+        }
+        if (r.isFailure() && (maxErrors > 0 || maxErrorsPerFile > 0)) {
+            for (Result.DiagMessage m : r.getDiagMessages()) {
+                if (!(src instanceof Tree) || !shouldSuppressWarnings((Tree) src, m.getMessageKey())) {
+                    errors++;
+                    unitErrors++;
+                }
+            }
+            budgetSpent |= isOverBudget();
+        }
+        if (text) {
+            super.report(r, src);
+        }
+    }
+
+    private void write(boolean failure, Result.DiagMessage m, Tree src) {
+        try {
+            output.write(currentRoot, src, failure, m.getMessageKey(), m.getArgs());
+        } catch (IOException e) {
+            messager.printMessage(Diagnostic.Kind.WARNING, "could not write divide-by-zero output: " + e);
+            closeOutput();
+        }
+    }
+
+    private void closeOutput() {
+        try {
+            output.close();
+        } catch (IOException e) {
+            messager.printMessage(Diagnostic.Kind.WARNING, "could not close divide-by-zero output: " + e);
+        }
+        output = null;
+    }
+
+    @Override
+    public void typeProcessingOver() {
+        if (budgetSpent) {
+            String message = BUDGET_NOTICE + " after " + errors + " errors; "
+                    + classesSkipped + " top-level classes were not checked";
+            messager.printMessage(Diagnostic.Kind.WARNING, message);
+            if (output != null) {
+                output.notice(message);
+            }
+        }
+        if (metrics != null) {
+            try {
+                metrics.write(Paths.get(getOption(METRICS_OPTION)));
+            } catch (IOException e) {
+                messager.printMessage(Diagnostic.Kind.WARNING, "could not write divide-by-zero metrics: " + e);
+            }
+        }
+        if (output != null) {
+            closeOutput();
+        }
+        if (newBaseline != null) {
+            try {
+                DivByZeroBaseline.write(Paths.get(getOption(WRITE_BASELINE_OPTION)), newBaseline, newBaselineSize);
+            } catch (IOException e) {
+                messager.printMessage(Diagnostic.Kind.WARNING, "could not write divide-by-zero baseline: " + e);
+            }
+        }
+        if (warmStart != null) {
+            try {
+                warmStart.write(Paths.get(getOption(WARM_START_OPTION)));
+            } catch (IOException e) {
+                messager.printMessage(Diagnostic.Kind.WARNING, "could not write divide-by-zero warm start: " + e);
+            }
+        }
+        super.typeProcessingOver();
+    }
 }
@@ -0,0 +1,219 @@
+package org.checkerframework.checker.dividebyzero;
+
+import com.sun.source.tree.BinaryTree;
+import com.sun.source.tree.ConditionalExpressionTree;
+import com.sun.source.tree.ExpressionTree;
+import com.sun.source.tree.LiteralTree;
+import com.sun.source.tree.ParenthesizedTree;
+import com.sun.source.tree.Tree;
+import com.sun.source.tree.TypeCastTree;
+import com.sun.source.tree.UnaryTree;
+import org.checkerframework.javacutil.TreeUtils;
+
+import javax.lang.model.element.Element;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Folds compile-time constant expressions of integral and boolean type
+ * (JLS 15.28), so that a constant int or long expression gets the qualifier
+ * of its exact value in one step, instead of one lattice operation per node.
+ * {@code 0 * 1 + 1} is Positive, and {@code 2 - 1} is Positive too, which the
+ * sign lattice alone cannot tell.
+ *
+ * <p>Values are computed as longs and then narrowed to the type javac gave
+ * the expression, so int arithmetic overflows exactly as it does at run time.
+ * Names are constant if javac found a constant value for them: final locals
+ * and fields with constant initializers. A division by zero is not constant.
+ * Results, including "not constant", are remembered per tree.
+ */
+final class DivByZeroConstants {
+
+    /** Remembered for trees that are not constant */
+    private static final Object NOT_CONSTANT = new Object();
+
+    /** Folded values (Long, or NOT_CONSTANT), keyed by tree */
+    private final Map<Tree, Object> values = new IdentityHashMap<>();
+
+    /** Forget the trees of the previous compilation unit */
+    void clear() {
+        values.clear();
+    }
+
+    /**
+     * The qualifier of an int or long constant expression.
+     *
+     * @return the exact qualifier, or null if the tree is not such an expression
+     */
+    DivByZeroQualifier qualifier(Tree tree) {
+        if (!(tree instanceof ExpressionTree)) {
+            return null;
+        }
+        TypeKind kind = kind(tree);
+        if (kind != TypeKind.INT && kind != TypeKind.LONG) {
+            return null;
+        }
+        Long value = fold((ExpressionTree) tree);
+        if (value == null) {
+            return null;
+        }
+        return value == 0 ? DivByZeroQualifier.ZERO
+             : value > 0 ? DivByZeroQualifier.POSITIVE
+             : DivByZeroQualifier.NEGATIVE;
+    }
+
+    /**
+     * The value of a constant expression of integral or boolean type;
+     * booleans are 0 and 1.
+     *
+     * @return the value, or null if the expression is not constant
+     */
+    Long fold(ExpressionTree tree) {
+        Object v = values.get(tree);
+        if (v == null) {
+            Long folded = compute(tree);
+            values.put(tree, folded == null ? NOT_CONSTANT : folded);
+            return folded;
+        }
+        return v == NOT_CONSTANT ? null : (Long) v;
+    }
+
+    private Long compute(ExpressionTree tree) {
+        TypeKind kind = kind(tree);
+        if (kind == null || !isFoldable(kind)) {
+            return null;
+        }
+        switch (tree.getKind()) {
+        case INT_LITERAL:
+        case LONG_LITERAL:
+        case CHAR_LITERAL:
+        case BOOLEAN_LITERAL:
+            return constant(((LiteralTree) tree).getValue());
+        case PARENTHESIZED:
+            return fold(((ParenthesizedTree) tree).getExpression());
+        case IDENTIFIER:
+        case MEMBER_SELECT: {
+            Element element = TreeUtils.elementFromUse(tree);
+            return element instanceof VariableElement ? constant(((VariableElement) element).getConstantValue()) : null;
+        }
+        case TYPE_CAST: {
+            Long v = fold(((TypeCastTree) tree).getExpression());
+            return v == null ? null : narrow(kind, v);
+        }
+        case UNARY_PLUS:
+        case UNARY_MINUS:
+        case BITWISE_COMPLEMENT:
+        case LOGICAL_COMPLEMENT:
+            return unary(tree.getKind(), kind, fold(((UnaryTree) tree).getExpression()));
+        case CONDITIONAL_EXPRESSION: {
+            ConditionalExpressionTree c = (ConditionalExpressionTree) tree;
+            Long condition = fold(c.getCondition());
+            Long t = fold(c.getTrueExpression());
+            Long f = fold(c.getFalseExpression());
+            if (condition == null || t == null || f == null) {
+                return null;
+            }
+            return narrow(kind, condition != 0 ? t : f);
+        }
+        default:
+            if (tree instanceof BinaryTree) {
+                BinaryTree b = (BinaryTree) tree;
+                Long l = fold(b.getLeftOperand());
+                Long r = fold(b.getRightOperand());
+                if (l == null || r == null) {
+                    return null;
+                }
+                return binary(tree.getKind(), kind, kind(b.getLeftOperand()), l, r);
+            }
+            return null;
+        }
+    }
+
+    private static Long unary(Tree.Kind op, TypeKind kind, Long v) {
+        if (v == null) {
+            return null;
+        }
+        switch (op) {
+        case UNARY_PLUS: return narrow(kind, v);
+        case UNARY_MINUS: return narrow(kind, -v);
+        case BITWISE_COMPLEMENT: return narrow(kind, ~v);
+        default: return v == 0 ? 1L : 0L;
+        }
+    }
+
+    /**
+     * @param kind   the type of the expression
+     * @param lkind  the type of the left operand, which decides the width of a shift
+     */
+    private static Long binary(Tree.Kind op, TypeKind kind, TypeKind lkind, long l, long r) {
+        switch (op) {
+        case PLUS: return narrow(kind, l + r);
+        case MINUS: return narrow(kind, l - r);
+        case MULTIPLY: return narrow(kind, l * r);
+        case DIVIDE: return r == 0 ? null : narrow(kind, l / r);
+        case REMAINDER: return r == 0 ? null : narrow(kind, l % r);
+        case LEFT_SHIFT:
+            return lkind == TypeKind.LONG ? l << r : narrow(kind, (int) l << r);
+        case RIGHT_SHIFT:
+            return lkind == TypeKind.LONG ? l >> r : narrow(kind, (int) l >> r);
+        case UNSIGNED_RIGHT_SHIFT:
+            return lkind == TypeKind.LONG ? l >>> r : narrow(kind, (int) l >>> r);
+        case AND: return narrow(kind, l & r);
+        case OR: return narrow(kind, l | r);
+        case XOR: return narrow(kind, l ^ r);
+        case CONDITIONAL_AND: return l != 0 && r != 0 ? 1L : 0L;
+        case CONDITIONAL_OR: return l != 0 || r != 0 ? 1L : 0L;
+        case LESS_THAN: return l < r ? 1L : 0L;
+        case LESS_THAN_EQUAL: return l <= r ? 1L : 0L;
+        case GREATER_THAN: return l > r ? 1L : 0L;
+        case GREATER_THAN_EQUAL: return l >= r ? 1L : 0L;
+        case EQUAL_TO: return l == r ? 1L : 0L;
+        case NOT_EQUAL_TO: return l != r ? 1L : 0L;
+        default: return null;
+        }
+    }
+
+    /** The value converted to the given type, as the JVM would */
+    private static Long narrow(TypeKind kind, long v) {
+        switch (kind) {
+        case INT: return (long) (int) v;
+        case SHORT: return (long) (short) v;
+        case BYTE: return (long) (byte) v;
+        case CHAR: return (long) (char) v;
+        case LONG: return v;
+        case BOOLEAN: return v == 0 ? 0L : 1L;
+        default: return null;
+        }
+    }
+
+    private static Long constant(Object value) {
+        if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            return ((Number) value).longValue();
+        }
+        if (value instanceof Character) {
+            return (long) (Character) value;
+        }
+        if (value instanceof Boolean) {
+            return (Boolean) value ? 1L : 0L;
+        }
+        return null;
+    }
+
+    private static boolean isFoldable(TypeKind kind) {
+        switch (kind) {
+        case INT: case LONG: case SHORT: case BYTE: case CHAR: case BOOLEAN:
+            return true;
+        default:
+            return false;
+        }
+    }
+
+    private static TypeKind kind(Tree tree) {
+        TypeMirror type = TreeUtils.typeOf(tree);
+        return type == null ? null : type.getKind();
+    }
+}
@@ -0,0 +1,431 @@
+package org.checkerframework.checker.dividebyzero;
+
+import org.checkerframework.framework.source.SupportedOptions;
+
+import javax.tools.JavaCompiler;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * A long-running checker process. It keeps the JVM, javac and the checker's
+ * classes loaded and JIT-compiled, and it reuses the javac file manager of a
+ * classpath between requests, so jars that have not changed are not opened
+ * and indexed again.
+ *
+ * <p>That is all it reuses. javac supports no sharing of a compilation
+ * context between tasks, so each request still gets a new context, in which
+ * the classpath symbols it uses are completed again, and a new
+ * DivByZeroChecker, which reads its options and stubs again. What the daemon
+ * saves is the JVM start and warm-up, which dominate the check of a small
+ * module; {@code DaemonBenchmark} in the JMH subproject measures a repeat
+ * check.
+ *
+ * <pre>
+ * java -cp ... org.checkerframework.checker.dividebyzero.DivByZeroDaemon serve --token-file=path [--port=n] [--port-file=path]
+ * java -cp ... org.checkerframework.checker.dividebyzero.DivByZeroDaemon check --port=n --token-file=path [--classpath=cp] [-Adbz.key=value ...] file...
+ * </pre>
+ *
+ * <p>{@code serve} listens on the loopback interface, on port n or on a free
+ * port, and writes the port to the port file once it is listening. Any local
+ * user can connect to a loopback port, so the daemon only answers clients
+ * that know its token: a random value it writes to the token file, which
+ * only its owner can read, before it accepts connections. Each
+ * connection is one request, handled on its own thread: a virtual thread
+ * where the JDK has them, a pooled platform thread otherwise. {@code check}
+ * sends a request and prints the diagnostics the way {@link DivByZeroBatch}
+ * does, with the same exit status.
+ *
+ * <p>The protocol is UTF-8 lines. The client first sends
+ * {@code token <token>}, then any number of {@code classpath <cp>},
+ * {@code option <-Akey=value>} and {@code file <path>} lines, then
+ * {@code check}. The daemon answers with one line per diagnostic, sorted,
+ * then {@code exit <status>}. A request of just the token and
+ * {@code shutdown} stops the daemon. Options are limited to the checker's
+ * own {@code -Adbz.*} options; anything else, such as a javac flag, is
+ * refused with exit status 2. So is a request during which javac or the
+ * checker throws, with the exception on the error line. The client exits
+ * with the status the answer ends with, or with 2 if it has no exit line.
+ */
+public final class DivByZeroDaemon implements Closeable {
+
+    /** The options a request may pass: the checker's {@code -Adbz.*} options */
+    private static final Set<String> OPTIONS = new HashSet<>();
+    static {
+        for (String option : DivByZeroChecker.class.getAnnotation(SupportedOptions.class).value()) {
+            if (option.startsWith("dbz.")) {
+                OPTIONS.add(option);
+            }
+        }
+    }
+
+    private final ServerSocket server;
+    private final ExecutorService workers;
+    private final FileManagers fileManagers = new FileManagers();
+    private final byte[] token;
+
+    /**
+     * Listen on a loopback port, after writing a new token to a file that
+     * only the current user can read
+     *
+     * @param port       the port, or 0 for a free one
+     * @param tokenFile  replaced if it exists
+     */
+    DivByZeroDaemon(int port, Path tokenFile) throws IOException {
+        byte[] random = new byte[32];
+        new SecureRandom().nextBytes(random);
+        StringBuilder hex = new StringBuilder(2 * random.length);
+        for (byte b : random) {
+            hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        token = hex.toString().getBytes(StandardCharsets.UTF_8);
+        writeOwnerOnly(tokenFile, token);
+        server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        workers = workers();
+    }
+
+    int getPort() {
+        return server.getLocalPort();
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0 || !(args[0].equals("serve") || args[0].equals("check"))) {
+            usage("expected serve or check");
+        }
+        int port = 0;
+        Path portFile = null;
+        Path tokenFile = null;
+        String classpath = "";
+        List<String> options = new ArrayList<>();
+        List<String> files = new ArrayList<>();
+        for (int i = 1; i < args.length; i++) {
+            String arg = args[i];
+            if (arg.startsWith("--port=")) {
+                port = Integer.parseInt(arg.substring("--port=".length()));
+            } else if (arg.startsWith("--port-file=")) {
+                portFile = Paths.get(arg.substring("--port-file=".length()));
+            } else if (arg.startsWith("--token-file=")) {
+                tokenFile = Paths.get(arg.substring("--token-file=".length()));
+            } else if (arg.startsWith("--classpath=")) {
+                classpath = arg.substring("--classpath=".length());
+            } else if (arg.startsWith("-A")) {
+                options.add(arg);
+            } else if (arg.startsWith("-")) {
+                usage("unknown option " + arg);
+            } else {
+                files.add(new File(arg).getAbsolutePath());
+            }
+        }
+
+        if (tokenFile == null) {
+            usage(args[0] + " needs --token-file");
+        }
+        if (args[0].equals("serve")) {
+            try (DivByZeroDaemon daemon = new DivByZeroDaemon(port, tokenFile)) {
+                if (portFile != null) {
+                    Files.write(portFile, String.valueOf(daemon.getPort()).getBytes(StandardCharsets.UTF_8));
+                }
+                daemon.serve();
+            }
+            return;
+        }
+        if (port == 0) {
+            usage("check needs --port");
+        }
+        String token = new String(Files.readAllBytes(tokenFile), StandardCharsets.UTF_8).trim();
+        List<String> answer = request(port, token, classpath, options, files);
+        for (String line : answer) {
+            if (!line.startsWith("exit ")) {
+                System.out.println(line);
+            }
+        }
+        System.exit(exitStatus(answer));
+    }
+
+    /**
+     * The exit status a daemon's answer ends with: 0, 1 if errors were
+     * reported, or 2 if the request failed or the answer has no exit line,
+     * as when the daemon went away midway
+     */
+    static int exitStatus(List<String> answer) {
+        String last = answer.isEmpty() ? "" : answer.get(answer.size() - 1);
+        return last.equals("exit 0") ? 0 : last.equals("exit 1") ? 1 : 2;
+    }
+
+    private static void usage(String problem) {
+        System.err.println(problem);
+        System.err.println("usage: DivByZeroDaemon serve --token-file=path [--port=n] [--port-file=path]");
+        System.err.println("       DivByZeroDaemon check --port=n --token-file=path [--classpath=cp] [-Adbz.key=value ...] file...");
+        System.exit(2);
+    }
+
+    // ========================================================================
+    // Server
+
+    /** Accept requests until {@link #close} or a shutdown request */
+    void serve() {
+        while (!server.isClosed()) {
+            Socket socket;
+            try {
+                socket = server.accept();
+            } catch (SocketException e) {
+                // closed
+                break;
+            } catch (IOException e) {
+                continue;
+            }
+            workers.execute(() -> handle(socket));
+        }
+    }
+
+    private void handle(Socket socket) {
+        try (Socket s = socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(s.getInputStream(), StandardCharsets.UTF_8));
+             Writer out = new BufferedWriter(new OutputStreamWriter(s.getOutputStream(), StandardCharsets.UTF_8))) {
+            try {
+                respond(in, out);
+            } catch (RuntimeException | AssertionError e) {
+                // javac or the checker failed; the client still gets an exit line
+                out.write("error: " + String.valueOf(e).replace('\n', ' ') + "\nexit 2\n");
+            }
+        } catch (IOException e) {
+            // the client went away
+        }
+    }
+
+    private void respond(BufferedReader in, Writer out) throws IOException {
+        String first = in.readLine();
+        if (first == null || !first.startsWith("token ")
+                || !MessageDigest.isEqual(token, first.substring("token ".length()).getBytes(StandardCharsets.UTF_8))) {
+            out.write("error: missing or wrong token\nexit 2\n");
+            return;
+        }
+        String classpath = "";
+        List<String> options = new ArrayList<>();
+        List<File> files = new ArrayList<>();
+        for (String line; (line = in.readLine()) != null; ) {
+            if (line.startsWith("classpath ")) {
+                classpath = line.substring("classpath ".length());
+            } else if (line.startsWith("option ")) {
+                String option = line.substring("option ".length());
+                if (!isAllowed(option)) {
+                    out.write("error: option not allowed: " + option + "\nexit 2\n");
+                    return;
+                }
+                options.add(option);
+            } else if (line.startsWith("file ")) {
+                files.add(new File(line.substring("file ".length())));
+            } else if (line.equals("check")) {
+                boolean failed = false;
+                for (DivByZeroBatch.Message m : check(classpath, options, files)) {
+                    out.write(m.toString().replace('\n', ' ') + "\n");
+                    failed |= m.error;
+                }
+                out.write("exit " + (failed ? 1 : 0) + "\n");
+                return;
+            } else if (line.equals("shutdown")) {
+                close();
+                return;
+            } else {
+                out.write("error: unknown request line: " + line + "\nexit 2\n");
+                return;
+            }
+        }
+    }
+
+    /** Whether the option is {@code -Adbz.name} or {@code -Adbz.name=value} for one of the checker's options */
+    static boolean isAllowed(String option) {
+        if (!option.startsWith("-A")) {
+            return false;
+        }
+        int eq = option.indexOf('=');
+        return OPTIONS.contains(eq < 0 ? option.substring(2) : option.substring(2, eq));
+    }
+
+    /** Create the file anew with the contents, readable and writable only by its owner */
+    private static void writeOwnerOnly(Path file, byte[] contents) throws IOException {
+        Files.deleteIfExists(file);
+        if (file.toAbsolutePath().getFileSystem().supportedFileAttributeViews().contains("posix")) {
+            Files.createFile(file, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+        } else {
+            Files.createFile(file);
+            File f = file.toFile();
+            boolean ok = f.setReadable(false, false) && f.setReadable(true, true)
+                    && f.setWritable(false, false) && f.setWritable(true, true);
+            if (!ok) {
+                throw new IOException("cannot restrict the permissions of " + file);
+            }
+        }
+        Files.write(file, contents);
+    }
+
+    private List<DivByZeroBatch.Message> check(String classpath, List<String> options, List<File> files) {
+        String path = DivByZeroBatch.withChecker(classpath);
+        StandardJavaFileManager fileManager = fileManagers.acquire(path);
+        try {
+            List<String> args = new ArrayList<>();
+            args.add("-classpath");
+            args.add(path);
+            args.addAll(options);
+            List<DivByZeroBatch.Message> messages = DivByZeroBatch.check(fileManager, args, files);
+            Collections.sort(messages);
+            return messages;
+        } finally {
+            fileManagers.release(path, fileManager);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        server.close();
+        workers.shutdown();
+        fileManagers.close();
+    }
+
+    /** Virtual threads where the JDK has them (21+), a cached pool of platform threads otherwise */
+    private static ExecutorService workers() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(r -> {
+                Thread t = new Thread(r, "dbz-daemon-worker");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+    // ========================================================================
+    // File managers
+
+    /**
+     * Idle javac file managers by classpath. A file manager caches the jars it
+     * has opened and their directory listings, and javac supports reusing one
+     * for many tasks, but not for two at once; so each request borrows one,
+     * and concurrent requests for one classpath get one each. When a jar or
+     * directory on a classpath changes, that classpath's managers are dropped.
+     */
+    private static final class FileManagers implements Closeable {
+
+        private final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        private final Map<String, Deque<StandardJavaFileManager>> idle = new HashMap<>();
+        /** Modification stamp of each classpath when its idle managers were created */
+        private final Map<String, String> stamps = new HashMap<>();
+
+        synchronized StandardJavaFileManager acquire(String classpath) {
+            String stamp = stamp(classpath);
+            if (!stamp.equals(stamps.get(classpath))) {
+                closeAll(idle.remove(classpath));
+                stamps.put(classpath, stamp);
+            }
+            Deque<StandardJavaFileManager> managers = idle.get(classpath);
+            if (managers != null && !managers.isEmpty()) {
+                return managers.pop();
+            }
+            return compiler.getStandardFileManager(null, Locale.ROOT, StandardCharsets.UTF_8);
+        }
+
+        synchronized void release(String classpath, StandardJavaFileManager fileManager) {
+            if (stamp(classpath).equals(stamps.get(classpath))) {
+                idle.computeIfAbsent(classpath, k -> new ArrayDeque<>()).push(fileManager);
+            } else {
+                closeAll(Collections.singletonList(fileManager));
+            }
+        }
+
+        @Override
+        public synchronized void close() {
+            for (Deque<StandardJavaFileManager> managers : idle.values()) {
+                closeAll(managers);
+            }
+            idle.clear();
+        }
+
+        private static void closeAll(Iterable<StandardJavaFileManager> managers) {
+            if (managers == null) {
+                return;
+            }
+            for (StandardJavaFileManager m : managers) {
+                try {
+                    m.close();
+                } catch (IOException e) {
+                    // nothing to do
+                }
+            }
+        }
+
+        /** Size and modification time of every classpath entry */
+        private static String stamp(String classpath) {
+            StringBuilder sb = new StringBuilder();
+            for (String entry : classpath.split(File.pathSeparator)) {
+                File f = new File(entry);
+                sb.append(f.length()).append(':').append(f.lastModified()).append(';');
+            }
+            return sb.toString();
+        }
+    }
+
+    // ========================================================================
+    // Client
+
+    /**
+     * Send a check request to the daemon on the given port.
+     *
+     * @return the daemon's answer: diagnostics, then the exit line
+     */
+    static List<String> request(int port, String token, String classpath, List<String> options, List<String> files)
+            throws IOException {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             Writer out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8))) {
+            out.write("token " + token + "\n");
+            if (!classpath.isEmpty()) {
+                out.write("classpath " + classpath + "\n");
+            }
+            for (String option : options) {
+                out.write("option " + option + "\n");
+            }
+            for (String file : files) {
+                out.write("file " + file + "\n");
+            }
+            out.write("check\n");
+            out.flush();
+            List<String> answer = new ArrayList<>();
+            for (String line; (line = in.readLine()) != null; ) {
+                answer.add(line);
+            }
+            return answer;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package org.checkerframework.checker.dividebyzero;
+
+import com.sun.source.tree.ClassTree;
+import com.sun.source.tree.MethodTree;
+import org.checkerframework.checker.dividebyzero.DivByZeroTransfer.BinaryOperator;
+import org.checkerframework.dataflow.cfg.ControlFlowGraph;
+import org.checkerframework.dataflow.cfg.UnderlyingAST;
+
+import javax.lang.model.element.TypeElement;
+
+/**
+ * Java Flight Recorder events for the phases of the checker, so that its
+ * hot spots show up next to GC and JIT activity in one recording.
+ *
+ * <p>The checker builds for Java 8, which has no {@code jdk.jfr}; the events
+ * themselves are in {@code DivByZeroJfrEvents}, in the {@code src/jfr} source
+ * set, which is compiled only on JDK 11 and later and put into the same jar.
+ * {@link #create} loads it reflectively, so that on a JVM without it, or
+ * without a flight recorder, there are no events and every hook is a single
+ * null check.
+ *
+ * <p>Events are emitted only for the event types a running recording
+ * enables; each hook first asks its event type and otherwise allocates
+ * nothing and reads no clock. A begin hook returns its started event, or
+ * null, to be passed to the matching end hook. Transfer events are sampled:
+ * one in {@link #TRANSFER_SAMPLE} arithmetic transfers, starting with the
+ * first, is recorded.
+ *
+ * <p>Enable them all with {@code -XX:StartFlightRecording} and a settings
+ * file that turns on {@code org.checkerframework.dividebyzero.*}, or from
+ * code with {@code Recording.enable(name)}.
+ */
+abstract class DivByZeroEvents {
+
+    static final int TRANSFER_SAMPLE = 64;
+
+    private static final String IMPLEMENTATION = "org.checkerframework.checker.dividebyzero.DivByZeroJfrEvents";
+
+    /** The events, or null if this JVM has no flight recorder or the jar was built without them */
+    static DivByZeroEvents create() {
+        try {
+            return (DivByZeroEvents) Class.forName(IMPLEMENTATION).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            // built on JDK 8, or running on a JVM older than the events' class files or without jdk.jfr
+            return null;
+        }
+    }
+
+    // ========================================================================
+    // Hooks
+
+    /** @return the started event, or null if it is not enabled */
+    abstract Object beginClass();
+
+    abstract void endClass(Object event, TypeElement element);
+
+    /** A CFG is about to be built; {@link #endCfg} is called when dataflow starts on it */
+    abstract void beginCfg();
+
+    abstract void endCfg(ControlFlowGraph graph);
+
+    /** @return the started event, or null if it is not enabled */
+    abstract Object beginDataflow();
+
+    abstract void endDataflow(Object event, ControlFlowGraph graph, long nodeVisits);
+
+    /** @return the started event, or null if it is not enabled */
+    abstract Object beginVisit();
+
+    abstract void endVisit(Object event, ClassTree classTree, MethodTree methodTree);
+
+    /** Whether this arithmetic transfer is one of the sampled ones */
+    abstract boolean sampleTransfer();
+
+    abstract void transfer(BinaryOperator op, DivByZeroQualifier left, DivByZeroQualifier right, DivByZeroQualifier result);
+
+    /** {class, method} of the graph's code, as the metrics report names them */
+    static String[] name(ControlFlowGraph graph) {
+        UnderlyingAST ast = graph.getUnderlyingAST();
+        switch (ast.getKind()) {
+        case METHOD:
+            UnderlyingAST.CFGMethod method = (UnderlyingAST.CFGMethod) ast;
+            return new String[] {DivByZeroMetrics.className(method.getClassTree()), DivByZeroMetrics.signature(method.getMethod())};
+        case ARBITRARY_CODE:
+            return new String[] {DivByZeroMetrics.className(((UnderlyingAST.CFGStatement) ast).getClassTree()), "<initializers>"};
+        default:
+            UnderlyingAST.CFGLambda lambda = (UnderlyingAST.CFGLambda) ast;
+            return new String[] {"", lambda.getMethod() == null ? "<lambda>" : DivByZeroMetrics.signature(lambda.getMethod()) + " <lambda>"};
+        }
+    }
+}
@@ -0,0 +1,1181 @@
+package org.checkerframework.checker.dividebyzero;
+
+import com.sun.source.tree.*;
+import com.sun.source.util.TreeScanner;
+import org.checkerframework.javacutil.TreeUtils;
+
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Name;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+
+/**
+ * The interval engine, enabled by {@code -Adbz.domain=interval}; see
+ * {@link DivByZeroChecker}. It runs next to the sign-lattice dataflow and
+ * can only remove errors: the visitor classifies a divisor as the glb of what
+ * the sign lattice and the intervals say, so {@code 1 / (n - 1)} after
+ * {@code n > 1} is accepted. Users keep the existing qualifiers; an interval
+ * is read as Zero, Positive or Negative when it is {@code [0,0]}, above 0 or
+ * below 0.
+ *
+ * <p>Each method is analyzed at most once, the first time the visitor asks
+ * about one of its divisions, by an abstract interpreter over its tree.
+ * The state is a {@code long[]} holding the bounds of every int and long
+ * local; null is unreachable. Arithmetic is exact, and any result that could
+ * overflow its type is the whole range of the type. At a loop head the
+ * state is joined for {@link #WIDENING_DELAY} iterations, then widened (a
+ * bound that moves goes to the end of the range) for at most
+ * {@link #MAX_WIDENINGS} more; if it is still not stable, every local the
+ * loop assigns is set to its whole range, which is stable by construction.
+ * {@link #NARROWINGS} narrowing passes then recover finite bounds. So each
+ * analysis of a loop runs its body a bounded number of times. Divisor
+ * intervals are recorded only in the final pass over each loop body.
+ *
+ * <p>Fields and calls are their declared or summarized qualifier, read as an
+ * interval. Lambda bodies are not analyzed. A method whose {@code finally}
+ * block assigns an int or long local is not analyzed either.
+ */
+final class DivByZeroIntervals {
+
+    /** Loop head iterations that join before widening starts */
+    static final int WIDENING_DELAY = 2;
+    /** Widening iterations before the loop's locals are given up */
+    static final int MAX_WIDENINGS = 4;
+    /** Narrowing passes after the head is stable */
+    static final int NARROWINGS = 2;
+
+    /** Thrown for a method the engine does not analyze */
+    private static final class Unsupported extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+        static final Unsupported INSTANCE = new Unsupported();
+
+        private Unsupported() {
+            super(null, null, false, false);
+        }
+    }
+
+    private final DivByZeroQualifiers qualifiers;
+    private final DivByZeroSummaries summaries;
+    private final DivByZeroConstants constants;
+    private final DivByZeroStubs stubs;
+
+    /** Divisor bounds, {lo, hi}, by division tree, for every method analyzed so far */
+    private final Map<MethodTree, Map<Tree, long[]>> methods = new IdentityHashMap<>();
+
+    private int maxLoopIterations;
+
+    DivByZeroIntervals(DivByZeroQualifiers qualifiers, DivByZeroSummaries summaries, DivByZeroConstants constants,
+            DivByZeroStubs stubs) {
+        this.qualifiers = qualifiers;
+        this.summaries = summaries;
+        this.constants = constants;
+        this.stubs = stubs;
+    }
+
+    /** Forget the methods of the previous compilation unit */
+    void clear() {
+        methods.clear();
+    }
+
+    /** The most times any single analysis of a loop evaluated its body */
+    int getMaxLoopIterations() {
+        return maxLoopIterations;
+    }
+
+    /**
+     * What the intervals say about the divisor of a division in the method.
+     *
+     * @return the qualifier, or null if the division was not analyzed
+     */
+    DivByZeroQualifier divisor(MethodTree method, Tree division) {
+        Map<Tree, long[]> divisors = methods.get(method);
+        if (divisors == null) {
+            Engine engine = new Engine(method);
+            try {
+                engine.run();
+                divisors = engine.divisors;
+            } catch (Unsupported e) {
+                divisors = Collections.emptyMap();
+            }
+            methods.put(method, divisors);
+        }
+        long[] bounds = divisors.get(division);
+        return bounds == null ? null : qualifier(bounds[0], bounds[1]);
+    }
+
+    static DivByZeroQualifier qualifier(long lo, long hi) {
+        if (lo > hi) {
+            return DivByZeroQualifier.BOTTOM;
+        }
+        if (lo > 0) {
+            return DivByZeroQualifier.POSITIVE;
+        }
+        if (hi < 0) {
+            return DivByZeroQualifier.NEGATIVE;
+        }
+        return lo == 0 && hi == 0 ? DivByZeroQualifier.ZERO : DivByZeroQualifier.TOP;
+    }
+
+    // ========================================================================
+    // The engine for one method
+
+    /** A loop, switch or labeled statement that break or continue can leave */
+    private static final class Target {
+        final Tree tree;
+        final String label;
+        final boolean isLoop;
+        long[] breakState;
+        long[] continueState;
+
+        Target(Tree tree, String label, boolean isLoop) {
+            this.tree = tree;
+            this.label = label;
+            this.isLoop = isLoop;
+        }
+    }
+
+    private final class Engine {
+
+        final MethodTree method;
+        /** Slot of each int or long local; its bounds are at 2 * slot and 2 * slot + 1 */
+        final Map<Element, Integer> slots = new HashMap<>();
+        /** Whether the local in each slot is a long */
+        boolean[] isLong = new boolean[8];
+        final Map<Tree, long[]> divisors = new IdentityHashMap<>();
+        final Deque<Target> targets = new ArrayDeque<>();
+        /** Off while a loop head is iterated to its fixpoint */
+        boolean recording = true;
+        /** Label of the statement about to be executed, if it is labeled */
+        String pendingLabel;
+
+        /** The value of the last expression evaluated; lo > hi is empty */
+        long lo;
+        long hi;
+
+        Engine(MethodTree method) {
+            this.method = method;
+        }
+
+        void run() {
+            new TreeScanner<Void, Void>() {
+                @Override
+                public Void visitVariable(VariableTree node, Void p) {
+                    VariableElement element = TreeUtils.elementFromDeclaration(node);
+                    TypeKind kind = element == null ? null : element.asType().getKind();
+                    if (kind == TypeKind.INT || kind == TypeKind.LONG) {
+                        int slot = slots.size();
+                        if (slot == isLong.length) {
+                            isLong = Arrays.copyOf(isLong, slot * 2);
+                        }
+                        isLong[slot] = kind == TypeKind.LONG;
+                        slots.put(element, slot);
+                    }
+                    return super.visitVariable(node, p);
+                }
+
+                @Override
+                public Void visitClass(ClassTree node, Void p) {
+                    return null;
+                }
+
+                @Override
+                public Void visitLambdaExpression(LambdaExpressionTree node, Void p) {
+                    return null;
+                }
+            }.scan(method, null);
+
+            long[] state = new long[2 * slots.size()];
+            for (int s = 0; s < slots.size(); s++) {
+                setTop(state, s);
+            }
+            for (VariableTree param : method.getParameters()) {
+                Integer slot = slots.get(TreeUtils.elementFromDeclaration(param));
+                if (slot != null) {
+                    DivByZeroQualifier declared =
+                            qualifiers.qualifierIn(TreeUtils.elementFromDeclaration(param).asType().getAnnotationMirrors());
+                    set(state, slot, declared == null ? DivByZeroQualifier.TOP : declared, isLong[slot]);
+                }
+            }
+            exec(method.getBody(), state);
+        }
+
+        // ====================================================================
+        // Statements. exec may change the state it is given.
+
+        long[] exec(StatementTree stmt, long[] state) {
+            if (state == null || stmt == null) {
+                return state;
+            }
+            String label = pendingLabel;
+            pendingLabel = null;
+            switch (stmt.getKind()) {
+            case BLOCK:
+                for (StatementTree s : ((BlockTree) stmt).getStatements()) {
+                    state = exec(s, state);
+                }
+                return state;
+            case VARIABLE: {
+                VariableTree var = (VariableTree) stmt;
+                Integer slot = slots.get(TreeUtils.elementFromDeclaration(var));
+                if (var.getInitializer() == null) {
+                    if (slot != null) {
+                        setTop(state, slot);
+                    }
+                    return state;
+                }
+                eval(var.getInitializer(), state);
+                if (slot != null) {
+                    store(state, slot);
+                }
+                return lo > hi ? null : state;
+            }
+            case EXPRESSION_STATEMENT:
+                eval(((ExpressionStatementTree) stmt).getExpression(), state);
+                return lo > hi ? null : state;
+            case IF: {
+                IfTree s = (IfTree) stmt;
+                long[][] branches = cond(s.getCondition(), state);
+                return join(exec(s.getThenStatement(), branches[0]), exec(s.getElseStatement(), branches[1]));
+            }
+            case WHILE_LOOP:
+            case FOR_LOOP:
+                return loop(stmt, label, state);
+            case DO_WHILE_LOOP:
+                return doLoop((DoWhileLoopTree) stmt, label, state);
+            case ENHANCED_FOR_LOOP:
+                return forEach((EnhancedForLoopTree) stmt, label, state);
+            case LABELED_STATEMENT: {
+                LabeledStatementTree s = (LabeledStatementTree) stmt;
+                Tree.Kind inner = s.getStatement().getKind();
+                if (inner == Tree.Kind.WHILE_LOOP || inner == Tree.Kind.FOR_LOOP
+                        || inner == Tree.Kind.DO_WHILE_LOOP || inner == Tree.Kind.ENHANCED_FOR_LOOP) {
+                    pendingLabel = s.getLabel().toString();
+                    return exec(s.getStatement(), state);
+                }
+                Target t = push(s, s.getLabel().toString(), false);
+                long[] end = exec(s.getStatement(), state);
+                targets.pop();
+                return join(end, t.breakState);
+            }
+            case SWITCH:
+                return switchStatement((SwitchTree) stmt, state);
+            case TRY:
+                return tryStatement((TryTree) stmt, state);
+            case BREAK: {
+                Name name = ((BreakTree) stmt).getLabel();
+                Target t = target(name == null ? null : name.toString(), false);
+                t.breakState = join(t.breakState, state);
+                return null;
+            }
+            case CONTINUE: {
+                Name name = ((ContinueTree) stmt).getLabel();
+                Target t = target(name == null ? null : name.toString(), true);
+                t.continueState = join(t.continueState, state);
+                return null;
+            }
+            case RETURN: {
+                ExpressionTree e = ((ReturnTree) stmt).getExpression();
+                if (e != null) {
+                    eval(e, state);
+                }
+                return null;
+            }
+            case THROW:
+                eval(((ThrowTree) stmt).getExpression(), state);
+                return null;
+            case SYNCHRONIZED:
+                eval(((SynchronizedTree) stmt).getExpression(), state);
+                return exec(((SynchronizedTree) stmt).getBlock(), state);
+            case ASSERT:
+                havoc(state, stmt);
+                return state;
+            default:
+                // empty statements and local classes
+                return state;
+            }
+        }
+
+        /** A while or for loop */
+        private long[] loop(StatementTree stmt, String label, long[] state) {
+            ExpressionTree condition;
+            StatementTree body;
+            Iterable<? extends ExpressionStatementTree> update;
+            if (stmt.getKind() == Tree.Kind.FOR_LOOP) {
+                ForLoopTree s = (ForLoopTree) stmt;
+                for (StatementTree init : s.getInitializer()) {
+                    state = exec(init, state);
+                }
+                condition = s.getCondition();
+                body = s.getStatement();
+                update = s.getUpdate();
+            } else {
+                WhileLoopTree s = (WhileLoopTree) stmt;
+                condition = s.getCondition();
+                body = s.getStatement();
+                update = Collections.emptyList();
+            }
+            if (state == null) {
+                return null;
+            }
+            UnaryOperator<long[]> pass = head -> {
+                Target t = push(stmt, label, true);
+                long[][] branches = condition == null ? new long[][] {head, null} : cond(condition, head);
+                long[] end = join(exec(body, branches[0]), t.continueState);
+                for (ExpressionStatementTree u : update) {
+                    end = exec(u, end);
+                }
+                targets.pop();
+                return end;
+            };
+            long[] head = fixpoint(stmt, state, pass);
+            // the final pass records divisions; its exit is the false branch plus the breaks
+            Target last = push(stmt, label, true);
+            long[][] branches = condition == null ? new long[][] {copy(head), null} : cond(condition, copy(head));
+            long[] end = join(exec(body, branches[0]), last.continueState);
+            for (ExpressionStatementTree u : update) {
+                end = exec(u, end);
+            }
+            targets.pop();
+            return join(branches[1], last.breakState);
+        }
+
+        private long[] doLoop(DoWhileLoopTree stmt, String label, long[] state) {
+            // the head is the start of the body
+            UnaryOperator<long[]> pass = head -> {
+                Target t = push(stmt, label, true);
+                long[] end = join(exec(stmt.getStatement(), head), t.continueState);
+                targets.pop();
+                return cond(stmt.getCondition(), end)[0];
+            };
+            long[] head = fixpoint(stmt, state, pass);
+            Target last = push(stmt, label, true);
+            long[] end = join(exec(stmt.getStatement(), copy(head)), last.continueState);
+            targets.pop();
+            return join(cond(stmt.getCondition(), end)[1], last.breakState);
+        }
+
+        private long[] forEach(EnhancedForLoopTree stmt, String label, long[] state) {
+            eval(stmt.getExpression(), state);
+            Integer slot = slots.get(TreeUtils.elementFromDeclaration(stmt.getVariable()));
+            UnaryOperator<long[]> pass = head -> {
+                Target t = push(stmt, label, true);
+                if (slot != null) {
+                    setTop(head, slot);
+                }
+                long[] end = join(exec(stmt.getStatement(), head), t.continueState);
+                targets.pop();
+                return end;
+            };
+            long[] head = fixpoint(stmt, state, pass);
+            Target last = push(stmt, label, true);
+            long[] body = copy(head);
+            if (body != null && slot != null) {
+                setTop(body, slot);
+            }
+            exec(stmt.getStatement(), body);
+            targets.pop();
+            // the loop can end after any iteration
+            return join(head, last.breakState);
+        }
+
+        /**
+         * The state at a loop head: a post-fixpoint of {@code join(entry, pass(head))}
+         * found with delayed widening, then narrowed. Nothing is recorded.
+         */
+        private long[] fixpoint(Tree loop, long[] entry, UnaryOperator<long[]> pass) {
+            if (entry == null) {
+                return null;
+            }
+            boolean saved = recording;
+            recording = false;
+            long[] head = copy(entry);
+            int iterations = 0;
+            for (int i = 0; ; i++) {
+                long[] next = join(copy(entry), pass.apply(copy(head)));
+                iterations++;
+                if (leq(next, head)) {
+                    break;
+                }
+                if (i < WIDENING_DELAY) {
+                    head = join(head, next);
+                } else if (i < WIDENING_DELAY + MAX_WIDENINGS) {
+                    head = widen(head, next);
+                } else {
+                    head = copy(entry);
+                    havoc(head, loop);
+                    break;
+                }
+            }
+            for (int n = 0; n < NARROWINGS; n++) {
+                long[] next = join(copy(entry), pass.apply(copy(head)));
+                iterations++;
+                long[] narrowed = narrow(head, next);
+                if (Arrays.equals(narrowed, head)) {
+                    break;
+                }
+                head = narrowed;
+            }
+            maxLoopIterations = Math.max(maxLoopIterations, iterations + 1);
+            recording = saved;
+            return head;
+        }
+
+        @SuppressWarnings("deprecation") // CaseTree.getExpression(), replaced after Java 11
+        private long[] switchStatement(SwitchTree stmt, long[] state) {
+            eval(stmt.getExpression(), state);
+            Target t = push(stmt, null, false);
+            long[] fallThrough = null;
+            boolean hasDefault = false;
+            for (CaseTree c : stmt.getCases()) {
+                hasDefault |= c.getExpression() == null;
+                long[] entry = join(copy(state), fallThrough);
+                for (StatementTree s : c.getStatements()) {
+                    entry = exec(s, entry);
+                }
+                fallThrough = entry;
+            }
+            targets.pop();
+            return join(join(fallThrough, t.breakState), hasDefault ? null : state);
+        }
+
+        private long[] tryStatement(TryTree stmt, long[] state) {
+            if (stmt.getFinallyBlock() != null && assignsLocal(stmt.getFinallyBlock())) {
+                // jumps out of the try would need the finally block applied
+                throw Unsupported.INSTANCE;
+            }
+            long[] entry = copy(state);
+            for (Tree resource : stmt.getResources()) {
+                if (resource instanceof StatementTree) {
+                    state = exec((StatementTree) resource, state);
+                } else {
+                    eval((ExpressionTree) resource, state);
+                }
+            }
+            long[] end = exec(stmt.getBlock(), state);
+            // an exception can come from anywhere in the block
+            long[] handler = copy(entry);
+            havoc(handler, stmt.getBlock());
+            for (Tree resource : stmt.getResources()) {
+                havoc(handler, resource);
+            }
+            for (CatchTree c : stmt.getCatches()) {
+                end = join(end, exec(c.getBlock(), copy(handler)));
+            }
+            if (stmt.getFinallyBlock() != null) {
+                // also reached by exceptions from the catch blocks and by jumps
+                long[] any = copy(handler);
+                havoc(any, stmt);
+                exec(stmt.getFinallyBlock(), join(any, copy(end)));
+                end = exec(stmt.getFinallyBlock(), end);
+            }
+            return end;
+        }
+
+        private Target push(Tree tree, String label, boolean isLoop) {
+            Target t = new Target(tree, label, isLoop);
+            targets.push(t);
+            return t;
+        }
+
+        private Target target(String label, boolean isContinue) {
+            for (Target t : targets) {
+                if (label == null ? (t.isLoop || (!isContinue && t.tree.getKind() == Tree.Kind.SWITCH)) : label.equals(t.label)) {
+                    return t;
+                }
+            }
+            throw Unsupported.INSTANCE;
+        }
+
+        // ====================================================================
+        // Expressions. eval leaves the value in lo and hi, and may change the state.
+
+        void eval(ExpressionTree e, long[] state) {
+            if (state == null) {
+                empty();
+                return;
+            }
+            TypeKind kind = kind(e);
+            Long folded = isIntegral(kind) ? constants.fold(e) : null;
+            if (folded != null) {
+                lo = hi = folded;
+                return;
+            }
+            switch (e.getKind()) {
+            case PARENTHESIZED:
+                eval(((ParenthesizedTree) e).getExpression(), state);
+                return;
+            case IDENTIFIER: {
+                Integer slot = slots.get(TreeUtils.elementFromUse(e));
+                if (slot != null) {
+                    lo = state[2 * slot];
+                    hi = state[2 * slot + 1];
+                    return;
+                }
+                declared(TreeUtils.elementFromUse(e), kind);
+                return;
+            }
+            case MEMBER_SELECT:
+                eval(((MemberSelectTree) e).getExpression(), state);
+                declared(TreeUtils.elementFromUse(e), kind);
+                return;
+            case PLUS:
+            case MINUS:
+            case MULTIPLY:
+            case DIVIDE:
+            case REMAINDER:
+            case AND: {
+                BinaryTree b = (BinaryTree) e;
+                eval(b.getLeftOperand(), state);
+                long llo = lo;
+                long lhi = hi;
+                eval(b.getRightOperand(), state);
+                if (!isIntegral(kind)) {
+                    top(kind);
+                    return;
+                }
+                if (e.getKind() == Tree.Kind.DIVIDE || e.getKind() == Tree.Kind.REMAINDER) {
+                    divided(e, b.getRightOperand(), state);
+                }
+                arithmetic(e.getKind(), kind, llo, lhi, lo, hi);
+                return;
+            }
+            case UNARY_MINUS:
+                eval(((UnaryTree) e).getExpression(), state);
+                if (isIntegral(kind)) {
+                    arithmetic(Tree.Kind.MINUS, kind, 0, 0, lo, hi);
+                } else {
+                    top(kind);
+                }
+                return;
+            case UNARY_PLUS:
+                eval(((UnaryTree) e).getExpression(), state);
+                return;
+            case PREFIX_INCREMENT:
+            case POSTFIX_INCREMENT:
+            case PREFIX_DECREMENT:
+            case POSTFIX_DECREMENT: {
+                ExpressionTree target = ((UnaryTree) e).getExpression();
+                eval(target, state);
+                long oldLo = lo;
+                long oldHi = hi;
+                boolean increment = e.getKind() == Tree.Kind.PREFIX_INCREMENT || e.getKind() == Tree.Kind.POSTFIX_INCREMENT;
+                if (isIntegral(kind)) {
+                    arithmetic(increment ? Tree.Kind.PLUS : Tree.Kind.MINUS, kind, oldLo, oldHi, 1, 1);
+                } else {
+                    top(kind);
+                }
+                assign(target, state);
+                if (e.getKind() == Tree.Kind.POSTFIX_INCREMENT || e.getKind() == Tree.Kind.POSTFIX_DECREMENT) {
+                    lo = oldLo;
+                    hi = oldHi;
+                }
+                return;
+            }
+            case ASSIGNMENT: {
+                AssignmentTree a = (AssignmentTree) e;
+                eval(a.getExpression(), state);
+                if (!isIntegral(kind(a.getExpression()))) {
+                    top(kind);
+                }
+                assign(a.getVariable(), state);
+                return;
+            }
+            case PLUS_ASSIGNMENT:
+            case MINUS_ASSIGNMENT:
+            case MULTIPLY_ASSIGNMENT:
+            case DIVIDE_ASSIGNMENT:
+            case REMAINDER_ASSIGNMENT: {
+                CompoundAssignmentTree a = (CompoundAssignmentTree) e;
+                eval(a.getVariable(), state);
+                long llo = lo;
+                long lhi = hi;
+                eval(a.getExpression(), state);
+                if (!isIntegral(kind) || !isIntegral(kind(a.getExpression()))) {
+                    top(kind);
+                } else {
+                    if (e.getKind() == Tree.Kind.DIVIDE_ASSIGNMENT || e.getKind() == Tree.Kind.REMAINDER_ASSIGNMENT) {
+                        divided(e, a.getExpression(), state);
+                    }
+                    // the operation is done in the promoted type, then narrowed to the variable's
+                    TypeKind promoted = kind == TypeKind.LONG || kind(a.getExpression()) == TypeKind.LONG ? TypeKind.LONG : TypeKind.INT;
+                    arithmetic(operator(e.getKind()), promoted, llo, lhi, lo, hi);
+                    cast(kind);
+                }
+                assign(a.getVariable(), state);
+                return;
+            }
+            case TYPE_CAST: {
+                eval(((TypeCastTree) e).getExpression(), state);
+                if (isIntegral(kind) && isIntegral(kind(((TypeCastTree) e).getExpression()))) {
+                    cast(kind);
+                } else {
+                    top(kind);
+                }
+                return;
+            }
+            case CONDITIONAL_EXPRESSION: {
+                ConditionalExpressionTree c = (ConditionalExpressionTree) e;
+                long[][] branches = cond(c.getCondition(), state);
+                eval(c.getTrueExpression(), branches[0]);
+                long tlo = lo;
+                long thi = hi;
+                eval(c.getFalseExpression(), branches[1]);
+                lo = Math.min(tlo, lo);
+                hi = Math.max(thi, hi);
+                replace(state, join(branches[0], branches[1]));
+                return;
+            }
+            case METHOD_INVOCATION: {
+                havoc(state, e);
+                ExecutableElement callee = TreeUtils.elementFromUse((MethodInvocationTree) e);
+                long[] stub = callee == null ? null : stubs.returnRange(callee);
+                if (stub != null && isIntegral(kind)) {
+                    lo = Math.max(stub[0], min(kind));
+                    hi = Math.min(stub[1], max(kind));
+                    return;
+                }
+                DivByZeroQualifier q = callee == null ? null : summaries.returnQualifier(callee);
+                if (q == null) {
+                    declared(callee, kind);
+                } else {
+                    interval(q, kind == TypeKind.LONG);
+                }
+                return;
+            }
+            default:
+                havoc(state, e);
+                top(kind);
+            }
+        }
+
+        /** After a division completes, its divisor was not zero */
+        private void divided(Tree division, ExpressionTree divisor, long[] state) {
+            if (recording && lo <= hi) {
+                long[] bounds = divisors.get(division);
+                if (bounds == null) {
+                    divisors.put(division, new long[] {lo, hi});
+                } else {
+                    bounds[0] = Math.min(bounds[0], lo);
+                    bounds[1] = Math.max(bounds[1], hi);
+                }
+            }
+            Integer slot = slotOf(divisor);
+            if (slot != null) {
+                if (state[2 * slot] == 0) {
+                    state[2 * slot] = 1;
+                }
+                if (state[2 * slot + 1] == 0) {
+                    state[2 * slot + 1] = -1;
+                }
+                if (state[2 * slot] > state[2 * slot + 1]) {
+                    // the division always throws
+                    empty();
+                }
+            }
+        }
+
+        /** The value, lo and hi, of a field or a method without a summary */
+        private void declared(Element element, TypeKind kind) {
+            if (!isIntegral(kind)) {
+                top(kind);
+                return;
+            }
+            DivByZeroQualifier q = element == null ? null : qualifiers.qualifierIn(element.asType().getAnnotationMirrors());
+            if (q == null && element instanceof ExecutableElement) {
+                q = qualifiers.qualifierIn(((ExecutableElement) element).getReturnType().getAnnotationMirrors());
+            }
+            if (q == null) {
+                top(kind);
+            } else {
+                interval(q, kind == TypeKind.LONG);
+                cast(kind);
+            }
+        }
+
+        private void assign(ExpressionTree target, long[] state) {
+            Integer slot = slotOf(target);
+            if (slot != null) {
+                if (lo > hi) {
+                    return;
+                }
+                store(state, slot);
+            } else if (TreeUtils.skipParens(target).getKind() != Tree.Kind.IDENTIFIER) {
+                havoc(state, target);
+            }
+        }
+
+        /** Store lo and hi in the slot, as the local's type */
+        private void store(long[] state, int slot) {
+            cast(isLong[slot] ? TypeKind.LONG : TypeKind.INT);
+            state[2 * slot] = lo;
+            state[2 * slot + 1] = hi;
+        }
+
+        // ====================================================================
+        // Conditions
+
+        /** The states in which the condition is true and false; the given state is consumed */
+        long[][] cond(ExpressionTree c, long[] state) {
+            if (state == null) {
+                return new long[][] {null, null};
+            }
+            Long folded = constants.fold(c);
+            if (folded != null) {
+                return folded != 0 ? new long[][] {state, null} : new long[][] {null, state};
+            }
+            switch (c.getKind()) {
+            case PARENTHESIZED:
+                return cond(((ParenthesizedTree) c).getExpression(), state);
+            case LOGICAL_COMPLEMENT: {
+                long[][] inner = cond(((UnaryTree) c).getExpression(), state);
+                return new long[][] {inner[1], inner[0]};
+            }
+            case CONDITIONAL_AND: {
+                BinaryTree b = (BinaryTree) c;
+                long[][] l = cond(b.getLeftOperand(), state);
+                long[][] r = cond(b.getRightOperand(), l[0]);
+                return new long[][] {r[0], join(l[1], r[1])};
+            }
+            case CONDITIONAL_OR: {
+                BinaryTree b = (BinaryTree) c;
+                long[][] l = cond(b.getLeftOperand(), state);
+                long[][] r = cond(b.getRightOperand(), l[1]);
+                return new long[][] {join(l[0], r[0]), r[1]};
+            }
+            case EQUAL_TO:
+            case NOT_EQUAL_TO:
+            case LESS_THAN:
+            case LESS_THAN_EQUAL:
+            case GREATER_THAN:
+            case GREATER_THAN_EQUAL: {
+                BinaryTree b = (BinaryTree) c;
+                if (!isIntegral(kind(b.getLeftOperand())) || !isIntegral(kind(b.getRightOperand()))) {
+                    eval(b.getLeftOperand(), state);
+                    eval(b.getRightOperand(), state);
+                    return new long[][] {state, copy(state)};
+                }
+                eval(b.getLeftOperand(), state);
+                long llo = lo;
+                long lhi = hi;
+                eval(b.getRightOperand(), state);
+                long rlo = lo;
+                long rhi = hi;
+                Integer l = slotOf(b.getLeftOperand());
+                Integer r = slotOf(b.getRightOperand());
+                long[] then = copy(state);
+                long[] otherwise = state;
+                switch (c.getKind()) {
+                case LESS_THAN:
+                    return new long[][] {less(then, l, llo, lhi, r, rlo, rhi, 1), less(otherwise, r, rlo, rhi, l, llo, lhi, 0)};
+                case LESS_THAN_EQUAL:
+                    return new long[][] {less(then, l, llo, lhi, r, rlo, rhi, 0), less(otherwise, r, rlo, rhi, l, llo, lhi, 1)};
+                case GREATER_THAN:
+                    return new long[][] {less(then, r, rlo, rhi, l, llo, lhi, 1), less(otherwise, l, llo, lhi, r, rlo, rhi, 0)};
+                case GREATER_THAN_EQUAL:
+                    return new long[][] {less(then, r, rlo, rhi, l, llo, lhi, 0), less(otherwise, l, llo, lhi, r, rlo, rhi, 1)};
+                case EQUAL_TO:
+                    return new long[][] {equal(then, l, llo, lhi, r, rlo, rhi), notEqual(otherwise, l, llo, lhi, r, rlo, rhi)};
+                default:
+                    return new long[][] {notEqual(then, l, llo, lhi, r, rlo, rhi), equal(otherwise, l, llo, lhi, r, rlo, rhi)};
+                }
+            }
+            default:
+                eval(c, state);
+                return new long[][] {state, copy(state)};
+            }
+        }
+
+        /** Refine the state by {@code a + gap <= b}, where gap is 0 or 1 */
+        private long[] less(long[] state, Integer a, long alo, long ahi, Integer b, long blo, long bhi, int gap) {
+            if (gap == 1 && (bhi == Long.MIN_VALUE || alo == Long.MAX_VALUE)) {
+                return null;
+            }
+            long newAhi = Math.min(ahi, bhi - gap);
+            long newBlo = Math.max(blo, alo + gap);
+            if (alo > newAhi || newBlo > bhi) {
+                return null;
+            }
+            if (a != null) {
+                state[2 * a + 1] = newAhi;
+            }
+            if (b != null) {
+                state[2 * b] = newBlo;
+            }
+            return state;
+        }
+
+        private long[] equal(long[] state, Integer a, long alo, long ahi, Integer b, long blo, long bhi) {
+            long meetLo = Math.max(alo, blo);
+            long meetHi = Math.min(ahi, bhi);
+            if (meetLo > meetHi) {
+                return null;
+            }
+            for (Integer s : new Integer[] {a, b}) {
+                if (s != null) {
+                    state[2 * s] = meetLo;
+                    state[2 * s + 1] = meetHi;
+                }
+            }
+            return state;
+        }
+
+        private long[] notEqual(long[] state, Integer a, long alo, long ahi, Integer b, long blo, long bhi) {
+            if (blo == bhi && !exclude(state, a, alo, ahi, blo)) {
+                return null;
+            }
+            if (alo == ahi && !exclude(state, b, blo, bhi, alo)) {
+                return null;
+            }
+            return state;
+        }
+
+        /** Remove v from the slot's interval if it is an end point; false if nothing is left */
+        private boolean exclude(long[] state, Integer slot, long slo, long shi, long v) {
+            if (slo == v && shi == v) {
+                return false;
+            }
+            if (slot != null) {
+                if (slo == v) {
+                    state[2 * slot] = v + 1;
+                } else if (shi == v) {
+                    state[2 * slot + 1] = v - 1;
+                }
+            }
+            return true;
+        }
+
+        // ====================================================================
+        // Values
+
+        private void arithmetic(Tree.Kind op, TypeKind kind, long alo, long ahi, long blo, long bhi) {
+            if (alo > ahi || blo > bhi) {
+                empty();
+                return;
+            }
+            try {
+                switch (op) {
+                case PLUS:
+                    lo = Math.addExact(alo, blo);
+                    hi = Math.addExact(ahi, bhi);
+                    break;
+                case MINUS:
+                    lo = Math.subtractExact(alo, bhi);
+                    hi = Math.subtractExact(ahi, blo);
+                    break;
+                case MULTIPLY: {
+                    long a = Math.multiplyExact(alo, blo);
+                    long b = Math.multiplyExact(alo, bhi);
+                    long c = Math.multiplyExact(ahi, blo);
+                    long d = Math.multiplyExact(ahi, bhi);
+                    lo = Math.min(Math.min(a, b), Math.min(c, d));
+                    hi = Math.max(Math.max(a, b), Math.max(c, d));
+                    break;
+                }
+                case DIVIDE:
+                    divide(kind, alo, ahi, blo, bhi);
+                    return;
+                case REMAINDER:
+                    remainder(alo, ahi, blo, bhi);
+                    break;
+                case AND:
+                    if (alo >= 0 || blo >= 0) {
+                        lo = 0;
+                        hi = alo >= 0 && blo >= 0 ? Math.min(ahi, bhi) : alo >= 0 ? ahi : bhi;
+                    } else {
+                        top(kind);
+                    }
+                    break;
+                default:
+                    top(kind);
+                    return;
+                }
+            } catch (ArithmeticException overflow) {
+                top(kind);
+                return;
+            }
+            fit(kind);
+        }
+
+        /** Truncating division; a zero divisor throws, so only the nonzero parts count */
+        private void divide(TypeKind kind, long alo, long ahi, long blo, long bhi) {
+            long min = Long.MAX_VALUE;
+            long max = Long.MIN_VALUE;
+            long[][] parts = {{blo, Math.min(bhi, -1)}, {Math.max(blo, 1), bhi}};
+            for (long[] part : parts) {
+                if (part[0] > part[1]) {
+                    continue;
+                }
+                if (alo == Long.MIN_VALUE && part[0] <= -1 && part[1] >= -1) {
+                    top(kind);
+                    return;
+                }
+                for (long x : new long[] {alo, ahi}) {
+                    for (long d : part) {
+                        min = Math.min(min, x / d);
+                        max = Math.max(max, x / d);
+                    }
+                }
+            }
+            if (min > max) {
+                empty();
+                return;
+            }
+            lo = min;
+            hi = max;
+            fit(kind);
+        }
+
+        /** The remainder has the sign of the dividend and is smaller than the divisor */
+        private void remainder(long alo, long ahi, long blo, long bhi) {
+            long bound = blo == Long.MIN_VALUE ? Long.MAX_VALUE : Math.max(Math.abs(blo), Math.abs(bhi)) - 1;
+            lo = alo >= 0 ? 0 : Math.max(alo, -bound);
+            hi = ahi <= 0 ? 0 : Math.min(ahi, bound);
+        }
+
+        /** The whole range of the type, if lo and hi do not fit in it */
+        private void fit(TypeKind kind) {
+            if (lo > hi) {
+                return;
+            }
+            if (lo < min(kind) || hi > max(kind)) {
+                top(kind);
+            }
+        }
+
+        /** A conversion to the type: values that do not fit wrap, so any value is possible */
+        private void cast(TypeKind kind) {
+            fit(kind);
+        }
+
+        private void interval(DivByZeroQualifier q, boolean wide) {
+            long min = wide ? Long.MIN_VALUE : Integer.MIN_VALUE;
+            long max = wide ? Long.MAX_VALUE : Integer.MAX_VALUE;
+            switch (q) {
+            case ZERO: lo = 0; hi = 0; break;
+            case POSITIVE: lo = 1; hi = max; break;
+            case NEGATIVE: lo = min; hi = -1; break;
+            case BOTTOM: empty(); break;
+            default: lo = min; hi = max; break;
+            }
+        }
+
+        private void top(TypeKind kind) {
+            lo = min(kind);
+            hi = max(kind);
+        }
+
+        private void empty() {
+            lo = 1;
+            hi = 0;
+        }
+
+        // ====================================================================
+        // States
+
+        private void setTop(long[] state, int slot) {
+            TypeKind kind = isLong[slot] ? TypeKind.LONG : TypeKind.INT;
+            state[2 * slot] = min(kind);
+            state[2 * slot + 1] = max(kind);
+        }
+
+        private void set(long[] state, int slot, DivByZeroQualifier q, boolean wide) {
+            interval(q, wide);
+            state[2 * slot] = lo;
+            state[2 * slot + 1] = hi;
+        }
+
+        private Integer slotOf(ExpressionTree e) {
+            e = TreeUtils.skipParens(e);
+            return e.getKind() == Tree.Kind.IDENTIFIER ? slots.get(TreeUtils.elementFromUse(e)) : null;
+        }
+
+        /** Set every local the tree may assign to its whole range */
+        private void havoc(long[] state, Tree tree) {
+            if (state == null) {
+                return;
+            }
+            new TreeScanner<Void, Void>() {
+                @Override
+                public Void visitAssignment(AssignmentTree node, Void p) {
+                    forget(node.getVariable());
+                    return super.visitAssignment(node, p);
+                }
+
+                @Override
+                public Void visitCompoundAssignment(CompoundAssignmentTree node, Void p) {
+                    forget(node.getVariable());
+                    return super.visitCompoundAssignment(node, p);
+                }
+
+                @Override
+                public Void visitUnary(UnaryTree node, Void p) {
+                    forget(node.getExpression());
+                    return super.visitUnary(node, p);
+                }
+
+                @Override
+                public Void visitVariable(VariableTree node, Void p) {
+                    Integer slot = slots.get(TreeUtils.elementFromDeclaration(node));
+                    if (slot != null) {
+                        setTop(state, slot);
+                    }
+                    return super.visitVariable(node, p);
+                }
+
+                private void forget(ExpressionTree target) {
+                    Integer slot = slotOf(target);
+                    if (slot != null) {
+                        setTop(state, slot);
+                    }
+                }
+            }.scan(tree, null);
+        }
+
+        private boolean assignsLocal(Tree tree) {
+            long[] probe = new long[2 * slots.size()];
+            havoc(probe, tree);
+            for (long v : probe) {
+                if (v != 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private long[] copy(long[] state) {
+            return state == null ? null : state.clone();
+        }
+
+        private void replace(long[] state, long[] with) {
+            if (with != null) {
+                System.arraycopy(with, 0, state, 0, state.length);
+            }
+        }
+
+        /** Pointwise hull; null is unreachable. May reuse a. */
+        private long[] join(long[] a, long[] b) {
+            if (a == null) {
+                return b;
+            }
+            if (b == null) {
+                return a;
+            }
+            for (int i = 0; i < a.length; i += 2) {
+                a[i] = Math.min(a[i], b[i]);
+                a[i + 1] = Math.max(a[i + 1], b[i + 1]);
+            }
+            return a;
+        }
+
+        private boolean leq(long[] a, long[] b) {
+            if (a == null) {
+                return true;
+            }
+            if (b == null) {
+                return false;
+            }
+            for (int i = 0; i < a.length; i += 2) {
+                if (a[i] < b[i] || a[i + 1] > b[i + 1]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /** Bounds of next that move past those of head go to the end of the range */
+        private long[] widen(long[] head, long[] next) {
+            long[] w = head.clone();
+            for (int s = 0; s < w.length / 2; s++) {
+                TypeKind kind = isLong[s] ? TypeKind.LONG : TypeKind.INT;
+                if (next[2 * s] < head[2 * s]) {
+                    w[2 * s] = min(kind);
+                }
+                if (next[2 * s + 1] > head[2 * s + 1]) {
+                    w[2 * s + 1] = max(kind);
+                }
+            }
+            return w;
+        }
+
+        /** Bounds of head at the end of the range are replaced by those of next */
+        private long[] narrow(long[] head, long[] next) {
+            if (next == null) {
+                return head;
+            }
+            long[] n = head.clone();
+            for (int s = 0; s < n.length / 2; s++) {
+                TypeKind kind = isLong[s] ? TypeKind.LONG : TypeKind.INT;
+                if (head[2 * s] == min(kind)) {
+                    n[2 * s] = next[2 * s];
+                }
+                if (head[2 * s + 1] == max(kind)) {
+                    n[2 * s + 1] = next[2 * s + 1];
+                }
+            }
+            return n;
+        }
+    }
+
+    // ========================================================================
+    // Helpers
+
+    private static TypeKind kind(Tree tree) {
+        TypeMirror type = TreeUtils.typeOf(tree);
+        if (type == null) {
+            throw Unsupported.INSTANCE;
+        }
+        return type.getKind();
+    }
+
+    private static boolean isIntegral(TypeKind kind) {
+        switch (kind) {
+        case INT: case LONG: case SHORT: case BYTE: case CHAR:
+            return true;
+        default:
+            return false;
+        }
+    }
+
+    private static long min(TypeKind kind) {
+        switch (kind) {
+        case LONG: return Long.MIN_VALUE;
+        case SHORT: return Short.MIN_VALUE;
+        case BYTE: return Byte.MIN_VALUE;
+        case CHAR: return Character.MIN_VALUE;
+        case INT: return Integer.MIN_VALUE;
+        default: return 1;
+        }
+    }
+
+    private static long max(TypeKind kind) {
+        switch (kind) {
+        case LONG: return Long.MAX_VALUE;
+        case SHORT: return Short.MAX_VALUE;
+        case BYTE: return Byte.MAX_VALUE;
+        case CHAR: return Character.MAX_VALUE;
+        case INT: return Integer.MAX_VALUE;
+        default: return 0;
+        }
+    }
+
+    private static Tree.Kind operator(Tree.Kind compound) {
+        switch (compound) {
+        case PLUS_ASSIGNMENT: return Tree.Kind.PLUS;
+        case MINUS_ASSIGNMENT: return Tree.Kind.MINUS;
+        case MULTIPLY_ASSIGNMENT: return Tree.Kind.MULTIPLY;
+        case DIVIDE_ASSIGNMENT: return Tree.Kind.DIVIDE;
+        default: return Tree.Kind.REMAINDER;
+        }
+    }
+}
@@ -0,0 +1,281 @@
+package org.checkerframework.checker.dividebyzero;
+
+import com.sun.source.tree.ClassTree;
+import com.sun.source.tree.MethodTree;
+import com.sun.source.tree.Tree;
+import com.sun.source.tree.VariableTree;
+import org.checkerframework.checker.dividebyzero.DivByZeroTransfer.BinaryOperator;
+import org.checkerframework.checker.dividebyzero.DivByZeroTransfer.Comparison;
+import org.checkerframework.dataflow.cfg.ControlFlowGraph;
+import org.checkerframework.dataflow.cfg.UnderlyingAST;
+import org.checkerframework.javacutil.TreeUtils;
+
+import javax.lang.model.element.TypeElement;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Per-method cost of a run of the checker, written as JSON when the run ends.
+ * Enabled by {@code -Adbz.metrics=path}; see {@link DivByZeroChecker}.
+ *
+ * <p>Each method gets one record, allocated the first time dataflow or the
+ * visitor reaches it. After that, collection only bumps counters in the
+ * record. When the option is off there is no DivByZeroMetrics at all, and
+ * every hook is a single null check.
+ */
+final class DivByZeroMetrics {
+
+    /** How many of the slowest methods the summary lists */
+    private static final int SLOWEST = 10;
+
+    private static final BinaryOperator[] OPERATORS = BinaryOperator.values();
+    private static final Comparison[] COMPARISONS = Comparison.values();
+
+    /** What one method (or lambda, or block of initializers) cost */
+    static final class Method {
+        final String className;
+        final String name;
+        long dataflowNanos;
+        long visitorNanos;
+        int cfgNodes;
+        /** Transfer function calls, over all passes of the fixpoint loop */
+        long nodeVisits;
+        final long[] operators = new long[OPERATORS.length];
+        final long[] comparisons = new long[COMPARISONS.length];
+        long storeCopies;
+
+        Method(String className, String name) {
+            this.className = className;
+            this.name = name;
+        }
+
+        long totalNanos() {
+            return dataflowNanos + visitorNanos;
+        }
+
+        /** Passes over the CFG: node visits per node */
+        double fixpointIterations() {
+            return cfgNodes == 0 ? 0 : (double) nodeVisits / cfgNodes;
+        }
+    }
+
+    /** Records keyed by the method, lambda, or class (for initializers) tree */
+    private final Map<Tree, Method> methods = new IdentityHashMap<>();
+    private final List<Method> order = new ArrayList<>();
+
+    /** The record that transfer functions currently charge, or null outside dataflow */
+    private Method current;
+    private long dataflowStart;
+    /** Class of the last method analyzed; lambdas are analyzed right after their method */
+    private String lastClass = "";
+
+    // ========================================================================
+    // Hooks
+
+    void beginDataflow(ControlFlowGraph cfg) {
+        UnderlyingAST ast = cfg.getUnderlyingAST();
+        switch (ast.getKind()) {
+        case METHOD:
+            UnderlyingAST.CFGMethod method = (UnderlyingAST.CFGMethod) ast;
+            current = methodRecord(method.getClassTree(), method.getMethod());
+            break;
+        case ARBITRARY_CODE:
+            ClassTree classTree = ((UnderlyingAST.CFGStatement) ast).getClassTree();
+            current = record(classTree, className(classTree), "<initializers>");
+            break;
+        default:
+            current = record(ast.getCode(), lastClass, "<lambda>");
+            break;
+        }
+        lastClass = current.className;
+        current.cfgNodes += cfg.getAllNodes().size();
+        dataflowStart = System.nanoTime();
+    }
+
+    void endDataflow() {
+        current.dataflowNanos += System.nanoTime() - dataflowStart;
+        current = null;
+    }
+
+    void nodeVisited() {
+        if (current != null) {
+            current.nodeVisits++;
+        }
+    }
+
+    void operator(BinaryOperator op) {
+        if (current != null) {
+            current.operators[op.ordinal()]++;
+        }
+    }
+
+    void comparison(Comparison op) {
+        if (current != null) {
+            current.comparisons[op.ordinal()]++;
+        }
+    }
+
+    void storeCopies(int n) {
+        if (current != null) {
+            current.storeCopies += n;
+        }
+    }
+
+    void visited(ClassTree classTree, MethodTree methodTree, long nanos) {
+        methodRecord(classTree, methodTree).visitorNanos += nanos;
+    }
+
+    // ========================================================================
+    // Records
+
+    private Method methodRecord(ClassTree classTree, MethodTree methodTree) {
+        Method m = methods.get(methodTree);
+        if (m == null) {
+            m = record(methodTree, className(classTree), signature(methodTree));
+        }
+        return m;
+    }
+
+    private Method record(Tree key, String className, String name) {
+        Method m = methods.get(key);
+        if (m == null) {
+            m = new Method(className, name);
+            methods.put(key, m);
+            order.add(m);
+        }
+        return m;
+    }
+
+    static String className(ClassTree classTree) {
+        if (classTree == null) {
+            return "";
+        }
+        TypeElement element = TreeUtils.elementFromDeclaration(classTree);
+        String name = element == null ? "" : element.getQualifiedName().toString();
+        return name.isEmpty() ? "<anonymous>" : name;
+    }
+
+    /** The method's name and parameter types, as written: {@code g(int)} */
+    static String signature(MethodTree methodTree) {
+        StringBuilder sb = new StringBuilder(methodTree.getName()).append('(');
+        String sep = "";
+        for (VariableTree param : methodTree.getParameters()) {
+            sb.append(sep).append(param.getType());
+            sep = ",";
+        }
+        return sb.append(')').toString();
+    }
+
+    List<Method> getMethods() {
+        return order;
+    }
+
+    // ========================================================================
+    // Report
+
+    /** Write the report as JSON: a run summary, then every class and its methods. */
+    void write(Path path) throws IOException {
+        Map<String, List<Method>> classes = new LinkedHashMap<>();
+        Method total = new Method("", "");
+        for (Method m : order) {
+            classes.computeIfAbsent(m.className, k -> new ArrayList<>()).add(m);
+            add(total, m);
+        }
+        List<Method> slowest = new ArrayList<>(order);
+        slowest.sort((a, b) -> Long.compare(b.totalNanos(), a.totalNanos()));
+
+        try (Writer out = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            out.write("{\n  \"summary\": {\"classes\": " + classes.size() + ", \"methods\": " + order.size() + ", ");
+            counters(out, total);
+            out.write(",\n    \"slowest\": [");
+            for (int i = 0; i < Math.min(SLOWEST, slowest.size()); i++) {
+                Method m = slowest.get(i);
+                out.write(i == 0 ? "\n" : ",\n");
+                out.write("      {\"class\": " + quote(m.className) + ", \"method\": " + quote(m.name)
+                        + ", \"totalNanos\": " + m.totalNanos() + "}");
+            }
+            out.write("]},\n  \"classes\": [");
+            String classSep = "\n";
+            for (Map.Entry<String, List<Method>> c : classes.entrySet()) {
+                Method classTotal = new Method(c.getKey(), "");
+                for (Method m : c.getValue()) {
+                    add(classTotal, m);
+                }
+                out.write(classSep + "    {\"name\": " + quote(c.getKey()) + ", ");
+                counters(out, classTotal);
+                out.write(",\n      \"methods\": [");
+                String methodSep = "\n";
+                for (Method m : c.getValue()) {
+                    out.write(methodSep + "        {\"name\": " + quote(m.name) + ", ");
+                    counters(out, m);
+                    out.write("}");
+                    methodSep = ",\n";
+                }
+                out.write("]}");
+                classSep = ",\n";
+            }
+            out.write("]\n}\n");
+        }
+    }
+
+    private static void add(Method into, Method m) {
+        into.dataflowNanos += m.dataflowNanos;
+        into.visitorNanos += m.visitorNanos;
+        into.cfgNodes += m.cfgNodes;
+        into.nodeVisits += m.nodeVisits;
+        into.storeCopies += m.storeCopies;
+        for (int i = 0; i < OPERATORS.length; i++) {
+            into.operators[i] += m.operators[i];
+        }
+        for (int i = 0; i < COMPARISONS.length; i++) {
+            into.comparisons[i] += m.comparisons[i];
+        }
+    }
+
+    private static void counters(Writer out, Method m) throws IOException {
+        out.write("\"dataflowNanos\": " + m.dataflowNanos
+                + ", \"visitorNanos\": " + m.visitorNanos
+                + ", \"cfgNodes\": " + m.cfgNodes
+                + ", \"nodeVisits\": " + m.nodeVisits
+                + ", \"fixpointIterations\": " + String.format(Locale.ROOT, "%.2f", m.fixpointIterations())
+                + ", \"storeCopies\": " + m.storeCopies
+                + ", \"operators\": {");
+        for (int i = 0; i < OPERATORS.length; i++) {
+            out.write((i == 0 ? "" : ", ") + quote(OPERATORS[i].name()) + ": " + m.operators[i]);
+        }
+        out.write("}, \"comparisons\": {");
+        for (int i = 0; i < COMPARISONS.length; i++) {
+            out.write((i == 0 ? "" : ", ") + quote(COMPARISONS[i].name()) + ": " + m.comparisons[i]);
+        }
+        out.write("}");
+    }
+
+    static String quote(String s) {
+        StringBuilder sb = new StringBuilder(s.length() + 2).append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+            case '"':  sb.append("\\\""); break;
+            case '\\': sb.append("\\\\"); break;
+            case '\n': sb.append("\\n"); break;
+            default:
+                if (c < 0x20) {
+                    sb.append(String.format(Locale.ROOT, "\\u%04x", (int) c));
+                } else {
+                    sb.append(c);
+                }
+            }
+        }
+        return sb.append('"').toString();
+    }
+}
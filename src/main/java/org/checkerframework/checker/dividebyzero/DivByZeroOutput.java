@@ -0,0 +1,159 @@
+package org.checkerframework.checker.dividebyzero;
+
+import static org.checkerframework.checker.dividebyzero.DivByZeroMetrics.quote;
+
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.tree.LineMap;
+import com.sun.source.tree.Tree;
+import com.sun.source.util.SourcePositions;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Streams diagnostics to a file as they are reported, for CI systems that
+ * would otherwise parse javac's text output. Each diagnostic is written as
+ * soon as it is reported and nothing is kept, so memory does not grow with
+ * the number of findings. Diagnostics are in the order javac reports them.
+ *
+ * <p>Two formats:
+ * <ul>
+ *   <li>{@code jsonl}: one JSON object per line, with {@code file},
+ *       {@code startLine}, {@code startColumn}, {@code endLine},
+ *       {@code endColumn}, {@code rule}, {@code level}, {@code message},
+ *       {@code divisor} and {@code method};</li>
+ *   <li>{@code sarif}: a SARIF 2.1.0 log with one run. The results array is
+ *       written element by element, and closed with the log.</li>
+ * </ul>
+ * Lines and columns are 1-based; the end column is that of the first
+ * character after the expression. {@code divisor} is the qualifier the
+ * divisor was found to have, and {@code method} the enclosing method as
+ * {@code Class.name(ParamType,...)}, or the class alone for an initializer.
+ *
+ * <p>Notices about the run as a whole are a {@code {"notice": ...}} line in
+ * JSON Lines, and tool execution notifications of the invocation in SARIF.
+ */
+final class DivByZeroOutput implements Closeable {
+
+    enum Format { JSONL, SARIF }
+
+    private final Format format;
+    private final Writer out;
+    private final SourcePositions positions;
+    private final Properties messages = new Properties();
+
+    private boolean first = true;
+    private int written;
+    /** Notices for the SARIF invocation, written at the end */
+    private final List<String> notices = new ArrayList<>();
+
+    DivByZeroOutput(Path path, Format format, SourcePositions positions) throws IOException {
+        this.format = format;
+        this.positions = positions;
+        try (InputStream in = DivByZeroOutput.class.getResourceAsStream("messages.properties")) {
+            if (in != null) {
+                messages.load(in);
+            }
+        }
+        out = Files.newBufferedWriter(path, StandardCharsets.UTF_8);
+        if (format == Format.SARIF) {
+            out.write("{\"$schema\": \"https://json.schemastore.org/sarif-2.1.0.json\", \"version\": \"2.1.0\", \"runs\": [{\n"
+                    + "  \"tool\": {\"driver\": {\"name\": \"dividebyzero-checker\", \"rules\": [");
+            String sep = "";
+            for (String key : messages.stringPropertyNames()) {
+                out.write(sep + "{\"id\": " + quote(key) + ", \"shortDescription\": {\"text\": " + quote(messages.getProperty(key)) + "}}");
+                sep = ", ";
+            }
+            out.write("]}},\n  \"results\": [");
+        }
+    }
+
+    /** Diagnostics written so far */
+    int getWritten() {
+        return written;
+    }
+
+    /**
+     * Write one diagnostic.
+     *
+     * @param args  the message arguments; for {@code divide.by.zero}, the divisor qualifier and the method
+     */
+    void write(CompilationUnitTree unit, Tree tree, boolean error, String key, Object[] args) throws IOException {
+        LineMap lines = unit.getLineMap();
+        long start = positions.getStartPosition(unit, tree);
+        long end = positions.getEndPosition(unit, tree);
+        if (end < start) {
+            end = start;
+        }
+        String file = unit.getSourceFile().toUri().toString();
+        String level = error ? "error" : "warning";
+        String message = messages.getProperty(key, key);
+        String divisor = args != null && args.length > 0 ? String.valueOf(args[0]) : "";
+        String method = args != null && args.length > 1 ? String.valueOf(args[1]) : "";
+        long startLine = lines.getLineNumber(start);
+        long startColumn = lines.getColumnNumber(start);
+        long endLine = lines.getLineNumber(end);
+        long endColumn = lines.getColumnNumber(end);
+
+        if (format == Format.JSONL) {
+            out.write("{\"file\": " + quote(file)
+                    + ", \"startLine\": " + startLine + ", \"startColumn\": " + startColumn
+                    + ", \"endLine\": " + endLine + ", \"endColumn\": " + endColumn
+                    + ", \"rule\": " + quote(key) + ", \"level\": \"" + level + "\""
+                    + ", \"message\": " + quote(message)
+                    + ", \"divisor\": " + quote(divisor) + ", \"method\": " + quote(method) + "}\n");
+        } else {
+            out.write((first ? "\n" : ",\n")
+                    + "    {\"ruleId\": " + quote(key) + ", \"level\": \"" + level + "\""
+                    + ", \"message\": {\"text\": " + quote(message) + "}"
+                    + ", \"locations\": [{\"physicalLocation\": {\"artifactLocation\": {\"uri\": " + quote(file) + "}"
+                    + ", \"region\": {\"startLine\": " + startLine + ", \"startColumn\": " + startColumn
+                    + ", \"endLine\": " + endLine + ", \"endColumn\": " + endColumn + "}}}]"
+                    + ", \"properties\": {\"divisor\": " + quote(divisor) + ", \"method\": " + quote(method) + "}}");
+        }
+        first = false;
+        written++;
+    }
+
+    /** Say something about the run as a whole, such as that it was cut short */
+    void notice(String message) {
+        if (format == Format.SARIF) {
+            notices.add(message);
+            return;
+        }
+        try {
+            out.write("{\"notice\": " + quote(message) + "}\n");
+        } catch (IOException e) {
+            // the notice is also printed by javac
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (format == Format.SARIF) {
+                out.write("]");
+                if (!notices.isEmpty()) {
+                    out.write(",\n  \"invocations\": [{\"executionSuccessful\": true, \"toolExecutionNotifications\": [");
+                    String sep = "";
+                    for (String notice : notices) {
+                        out.write(sep + "{\"level\": \"warning\", \"message\": {\"text\": " + quote(notice) + "}}");
+                        sep = ", ";
+                    }
+                    out.write("]}]");
+                }
+                out.write("\n}]}\n");
+            }
+        } finally {
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package org.checkerframework.checker.dividebyzero;
+
+import com.sun.source.tree.AnnotationTree;
+import com.sun.source.tree.AssignmentTree;
+import com.sun.source.tree.BinaryTree;
+import com.sun.source.tree.ClassTree;
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.tree.CompoundAssignmentTree;
+import com.sun.source.tree.ExpressionTree;
+import com.sun.source.tree.LambdaExpressionTree;
+import com.sun.source.tree.MemberReferenceTree;
+import com.sun.source.tree.MethodInvocationTree;
+import com.sun.source.tree.MethodTree;
+import com.sun.source.tree.NewClassTree;
+import com.sun.source.tree.Tree;
+import com.sun.source.util.SourcePositions;
+import com.sun.source.util.TreeScanner;
+import org.checkerframework.javacutil.TreeUtils;
+
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Finds the methods the checker can skip: dataflow is not run on them and
+ * the visitor does not descend into their bodies.
+ *
+ * <p>A method is skipped if it is covered by {@code @SuppressWarnings} with
+ * one of the checker's keys, since nothing in it would be reported, or if a
+ * scan of its tree finds nothing that could be reported. The only checks
+ * whose outcome can differ from the declared types are the division check
+ * and the framework's subtype checks at assignments, arguments and returns;
+ * with every declaration Top by default, the latter can only fail where a
+ * qualifier was written. So a method is scanned for
+ * <ul>
+ *   <li>an int or long {@code /}, {@code %}, {@code /=} or {@code %=};</li>
+ *   <li>a qualifier or framework annotation, on the method or in its body;</li>
+ *   <li>a call, or an assignment, to a declaration that carries one;</li>
+ *   <li>a nested class, lambda or method reference, which is checked like a
+ *       method of its own and is not worth scanning ahead of time.</li>
+ * </ul>
+ * Anything found means the method is analyzed as usual. Field initializers
+ * are always analyzed: their values flow into the methods of the class.
+ * With {@code -Adbz.methodShard}, methods owned by other shards are skipped too,
+ * and with {@code -Adbz.changedLines}, methods outside the change.
+ */
+final class DivByZeroPrescan {
+
+    /** Annotations from these packages can make a framework check fail */
+    private static final String[] QUALIFIER_PACKAGES = {
+        "org.checkerframework.checker.dividebyzero.qual.",
+        "org.checkerframework.framework.qual.",
+    };
+
+    private final Collection<String> suppressKeys;
+    private final Map<MethodTree, Boolean> skippable = new IdentityHashMap<>();
+
+    /** Null unless the methods are split between checkers; see {@link DivByZeroShard} */
+    private final DivByZeroShard shard;
+    /** Null unless checking is limited to changed lines; see {@link DivByZeroChangedLines} */
+    private final DivByZeroChangedLines changedLines;
+    private final SourcePositions positions;
+    private CompilationUnitTree root;
+
+    private int methodsSkipped;
+
+    DivByZeroPrescan(Collection<String> suppressKeys, DivByZeroShard shard,
+            DivByZeroChangedLines changedLines, SourcePositions positions) {
+        this.suppressKeys = suppressKeys;
+        this.shard = shard;
+        this.changedLines = changedLines;
+        this.positions = positions;
+    }
+
+    /** Methods found skippable so far */
+    int getMethodsSkipped() {
+        return methodsSkipped;
+    }
+
+    /** Whether nothing in the method can be reported, so it need not be analyzed or visited */
+    boolean canSkip(MethodTree method) {
+        Boolean skip = skippable.get(method);
+        if (skip == null) {
+            skip = method.getBody() == null
+                    || (shard != null && !shard.owns(root, method, positions))
+                    || (changedLines != null && !changedLines.covers(root, method, positions))
+                    || isSuppressed(TreeUtils.elementFromDeclaration(method))
+                    || !mayReport(method);
+            if (skip) {
+                methodsSkipped++;
+            }
+            skippable.put(method, skip);
+        }
+        return skip;
+    }
+
+    /** Forget the methods of the previous compilation unit */
+    void setRoot(CompilationUnitTree root) {
+        this.root = root;
+        skippable.clear();
+    }
+
+    /**
+     * Whether the element or one that encloses it has
+     * {@code @SuppressWarnings} with a key that covers every message of the
+     * checker. A key with a message suffix ({@code "dividebyzero:..."}) does not.
+     */
+    boolean isSuppressed(Element element) {
+        for (Element e = element; e != null; e = e.getEnclosingElement()) {
+            SuppressWarnings suppress = e.getAnnotation(SuppressWarnings.class);
+            if (suppress != null) {
+                for (String key : suppress.value()) {
+                    if (suppressKeys.contains(key)) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /** Scan the method for anything that could be reported */
+    private static boolean mayReport(MethodTree method) {
+        Boolean found = new TreeScanner<Boolean, Void>() {
+            @Override
+            public Boolean scan(Tree tree, Void p) {
+                // stop at the first hit
+                return tree != null && (Boolean.TRUE.equals(tree.accept(this, p)));
+            }
+
+            @Override
+            public Boolean reduce(Boolean a, Boolean b) {
+                return Boolean.TRUE.equals(a) || Boolean.TRUE.equals(b);
+            }
+
+            @Override
+            public Boolean scan(Iterable<? extends Tree> trees, Void p) {
+                if (trees != null) {
+                    for (Tree t : trees) {
+                        if (scan(t, p)) {
+                            return true;
+                        }
+                    }
+                }
+                return false;
+            }
+
+            @Override
+            public Boolean visitBinary(BinaryTree node, Void p) {
+                if (DivByZeroVisitor.DIVISION_OPERATORS.contains(node.getKind()) && isInt(node)) {
+                    return true;
+                }
+                return super.visitBinary(node, p);
+            }
+
+            @Override
+            public Boolean visitCompoundAssignment(CompoundAssignmentTree node, Void p) {
+                if (DivByZeroVisitor.DIVISION_OPERATORS.contains(node.getKind()) && isInt(node.getExpression())) {
+                    return true;
+                }
+                return carriesQualifier(target(node.getVariable()))
+                        || super.visitCompoundAssignment(node, p);
+            }
+
+            @Override
+            public Boolean visitAssignment(AssignmentTree node, Void p) {
+                return carriesQualifier(target(node.getVariable()))
+                        || super.visitAssignment(node, p);
+            }
+
+            @Override
+            public Boolean visitAnnotation(AnnotationTree node, Void p) {
+                TypeMirror type = TreeUtils.typeOf(node.getAnnotationType());
+                return type == null || type.getKind() != TypeKind.DECLARED
+                        || isQualifier(((TypeElement) ((DeclaredType) type).asElement()).getQualifiedName().toString());
+            }
+
+            @Override
+            public Boolean visitMethodInvocation(MethodInvocationTree node, Void p) {
+                return carriesQualifier(TreeUtils.elementFromUse(node))
+                        || super.visitMethodInvocation(node, p);
+            }
+
+            @Override
+            public Boolean visitNewClass(NewClassTree node, Void p) {
+                return node.getClassBody() != null
+                        || carriesQualifier(TreeUtils.elementFromUse(node))
+                        || super.visitNewClass(node, p);
+            }
+
+            @Override
+            public Boolean visitClass(ClassTree node, Void p) {
+                return true;
+            }
+
+            @Override
+            public Boolean visitLambdaExpression(LambdaExpressionTree node, Void p) {
+                return true;
+            }
+
+            @Override
+            public Boolean visitMemberReference(MemberReferenceTree node, Void p) {
+                return true;
+            }
+        }.scan(method, null);
+        return found;
+    }
+
+    private static boolean isInt(ExpressionTree node) {
+        TypeMirror type = TreeUtils.typeOf(node);
+        // an unattributed tree: be safe
+        return type == null || type.getKind() == TypeKind.INT || type.getKind() == TypeKind.LONG;
+    }
+
+    /** The variable an assignment writes, or null for an array element */
+    private static Element target(ExpressionTree variable) {
+        variable = TreeUtils.skipParens(variable);
+        Tree.Kind kind = variable.getKind();
+        return kind == Tree.Kind.IDENTIFIER || kind == Tree.Kind.MEMBER_SELECT ? TreeUtils.elementFromUse(variable) : null;
+    }
+
+    /** Whether the declaration, or for a method any of its parameters, has a qualifier */
+    private static boolean carriesQualifier(Element element) {
+        if (element == null) {
+            return false;
+        }
+        if (hasQualifier(element.getAnnotationMirrors()) || hasQualifier(element.asType().getAnnotationMirrors())) {
+            return true;
+        }
+        if (element instanceof ExecutableElement) {
+            for (VariableElement param : ((ExecutableElement) element).getParameters()) {
+                if (carriesQualifier(param)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean hasQualifier(Iterable<? extends AnnotationMirror> annotations) {
+        for (AnnotationMirror a : annotations) {
+            if (isQualifier(((TypeElement) a.getAnnotationType().asElement()).getQualifiedName().toString())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isQualifier(String annotationName) {
+        for (String prefix : QUALIFIER_PACKAGES) {
+            if (annotationName.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,77 @@
+package org.checkerframework.checker.dividebyzero;
+
+import java.lang.annotation.Annotation;
+
+import org.checkerframework.checker.dividebyzero.qual.*;
+
+/**
+ * The six points of the divide-by-zero lattice. The declaration order is the
+ * order of the rows and columns of the truth tables in {@link DivByZeroTransfer},
+ * so {@link #ordinal()} can be used directly as a table index.
+ *
+ * <p>Each point is also encoded as the set of signs its values may have
+ * (negative, zero, positive), one bit each. Subtyping is set inclusion, glb
+ * is intersection, and lub is the smallest point that covers the union. The
+ * lattice is fixed, so all three are precomputed into 6x6 tables.
+ */
+enum DivByZeroQualifier {
+    //                          -0+
+    TOP(Top.class,            0b111),
+    NONZERO(Nonzero.class,    0b101),
+    ZERO(Zero.class,          0b010),
+    POSITIVE(Positive.class,  0b001),
+    NEGATIVE(Negative.class,  0b100),
+    BOTTOM(Bottom.class,      0b000);
+
+    /** All qualifiers, indexed by ordinal. Avoids the copy made by {@code values()}. */
+    static final DivByZeroQualifier[] VALUES = values();
+
+    private static final boolean[][] SUBTYPE = new boolean[VALUES.length][VALUES.length];
+    private static final DivByZeroQualifier[][] LUB = new DivByZeroQualifier[VALUES.length][VALUES.length];
+    private static final DivByZeroQualifier[][] GLB = new DivByZeroQualifier[VALUES.length][VALUES.length];
+
+    static {
+        for (DivByZeroQualifier a : VALUES) {
+            for (DivByZeroQualifier b : VALUES) {
+                SUBTYPE[a.ordinal()][b.ordinal()] = (a.signs & ~b.signs) == 0;
+                LUB[a.ordinal()][b.ordinal()] = covering(a.signs | b.signs);
+                GLB[a.ordinal()][b.ordinal()] = covering(a.signs & b.signs);
+            }
+        }
+    }
+
+    /** The smallest point whose values may have every sign in the given set */
+    private static DivByZeroQualifier covering(int signs) {
+        DivByZeroQualifier best = TOP;
+        for (DivByZeroQualifier q : VALUES) {
+            if ((signs & ~q.signs) == 0 && Integer.bitCount(q.signs) < Integer.bitCount(best.signs)) {
+                best = q;
+            }
+        }
+        return best;
+    }
+
+    /** The annotation class that represents this point in source code. */
+    final Class<? extends Annotation> annotation;
+
+    /** The signs a value of this type may have: 0b100 negative, 0b010 zero, 0b001 positive. */
+    final int signs;
+
+    DivByZeroQualifier(Class<? extends Annotation> annotation, int signs) {
+        this.annotation = annotation;
+        this.signs = signs;
+    }
+
+    boolean isSubtypeOf(DivByZeroQualifier other) {
+        return SUBTYPE[ordinal()][other.ordinal()];
+    }
+
+    DivByZeroQualifier lub(DivByZeroQualifier other) {
+        return LUB[ordinal()][other.ordinal()];
+    }
+
+    DivByZeroQualifier glb(DivByZeroQualifier other) {
+        return GLB[ordinal()][other.ordinal()];
+    }
+
+}
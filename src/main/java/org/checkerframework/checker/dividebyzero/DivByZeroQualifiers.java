@@ -0,0 +1,82 @@
+package org.checkerframework.checker.dividebyzero;
+
+import org.checkerframework.javacutil.AnnotationBuilder;
+
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.util.Elements;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * The AnnotationMirror of every {@link DivByZeroQualifier}, built once per
+ * compilation. DivByZeroAnnotatedTypeFactory owns the registry; the transfer
+ * functions and the visitor get it from the factory, so all of them hand out
+ * the same mirror instances and never build new ones.
+ *
+ * <p>{@link #qualifierOf} maps an incoming mirror back to its lattice point by
+ * identity: first against the interned mirrors, then by the (unique per
+ * compilation) element of its annotation type. No annotation names are
+ * compared.
+ *
+ * <p>Not final, so that tests can compare it with building a new mirror on
+ * every lookup, as the checker did before there was a registry.
+ */
+class DivByZeroQualifiers {
+
+    private final AnnotationMirror[] mirrors = new AnnotationMirror[DivByZeroQualifier.VALUES.length];
+
+    private final Map<Element, DivByZeroQualifier> byAnnotationType = new IdentityHashMap<>();
+
+    DivByZeroQualifiers(Elements elements) {
+        for (DivByZeroQualifier q : DivByZeroQualifier.VALUES) {
+            AnnotationMirror m = AnnotationBuilder.fromClass(elements, q.annotation);
+            mirrors[q.ordinal()] = m;
+            byAnnotationType.put(m.getAnnotationType().asElement(), q);
+        }
+    }
+
+    /** The interned mirror for the given point in the lattice */
+    AnnotationMirror mirror(DivByZeroQualifier qualifier) {
+        return mirrors[qualifier.ordinal()];
+    }
+
+    AnnotationMirror top() {
+        return mirror(DivByZeroQualifier.TOP);
+    }
+
+    AnnotationMirror bottom() {
+        return mirror(DivByZeroQualifier.BOTTOM);
+    }
+
+    /**
+     * Find the point in the lattice that a mirror represents.
+     *
+     * @param m   any annotation mirror, possibly built by the framework rather than by this registry
+     * @return the matching qualifier, or null if m is not a divide-by-zero qualifier
+     */
+    DivByZeroQualifier qualifierOf(AnnotationMirror m) {
+        for (int i = 0; i < mirrors.length; i++) {
+            if (mirrors[i] == m) {
+                return DivByZeroQualifier.VALUES[i];
+            }
+        }
+        return byAnnotationType.get(m.getAnnotationType().asElement());
+    }
+
+    /**
+     * Find the divide-by-zero qualifier in a set of annotations.
+     *
+     * @return the first divide-by-zero qualifier in the set, or null if there is none
+     */
+    DivByZeroQualifier qualifierIn(Iterable<? extends AnnotationMirror> annotations) {
+        for (AnnotationMirror m : annotations) {
+            DivByZeroQualifier q = qualifierOf(m);
+            if (q != null) {
+                return q;
+            }
+        }
+        return null;
+    }
+}
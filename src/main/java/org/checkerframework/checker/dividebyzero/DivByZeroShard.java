@@ -0,0 +1,125 @@
+package org.checkerframework.checker.dividebyzero;
+
+import com.sun.source.tree.ClassTree;
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.tree.MethodTree;
+import com.sun.source.tree.Tree;
+import com.sun.source.util.SourcePositions;
+import org.checkerframework.javacutil.UserError;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * One of n checkers that split the methods of the same sources between them,
+ * enabled by {@code -Adbz.methodShard=i/n}. Every one of the n javac tasks
+ * parses and attributes all the files, but runs dataflow on and visits only
+ * the methods it owns, so the expensive part of checking one large class is
+ * spread over n threads or processes. {@link DivByZeroBatch} runs the tasks
+ * on its pool.
+ *
+ * <p>The methods that are split are those declared directly in a top-level
+ * or member class; everything inside one, including lambdas and local
+ * classes, goes with it. They are assigned to shards by size, largest first,
+ * each to the shard with the least source so far. Every task computes the
+ * same assignment, so each method is owned by exactly one. Everything
+ * outside those methods, such as field initializers and class declarations,
+ * is owned by shard 0. A diagnostic is reported only by the owner of the
+ * tree it is reported at, so the union of the shards' diagnostics is what a
+ * single checker reports.
+ */
+final class DivByZeroShard {
+
+    final int index;
+    final int count;
+
+    /** The unit the ranges are for */
+    private CompilationUnitTree unit;
+    /** Start and end positions of the unit's split methods, in source order, and the shard of each */
+    private long[] starts = new long[0];
+    private long[] ends = new long[0];
+    private int[] owners = new int[0];
+
+    DivByZeroShard(int index, int count) {
+        this.index = index;
+        this.count = count;
+    }
+
+    /** Parse {@code i/n}, with 0 &lt;= i &lt; n */
+    static DivByZeroShard parse(String spec) {
+        int slash = spec.indexOf('/');
+        try {
+            int i = Integer.parseInt(spec.substring(0, slash));
+            int n = Integer.parseInt(spec.substring(slash + 1));
+            if (i >= 0 && i < n) {
+                return new DivByZeroShard(i, n);
+            }
+        } catch (NumberFormatException | StringIndexOutOfBoundsException e) {
+            // reported below
+        }
+        throw new UserError("-A" + DivByZeroChecker.METHOD_SHARD_OPTION + " must be i/n with 0 <= i < n, not " + spec);
+    }
+
+    /** Whether this shard reports diagnostics at, and analyzes, the tree */
+    boolean owns(CompilationUnitTree root, Tree tree, SourcePositions positions) {
+        if (root != unit) {
+            assign(root, positions);
+        }
+        long pos = positions.getStartPosition(root, tree);
+        // the last method that starts at or before the tree
+        int i = Arrays.binarySearch(starts, pos);
+        if (i < 0) {
+            i = -i - 2;
+        }
+        int owner = i >= 0 && pos < ends[i] ? owners[i] : 0;
+        return owner == index;
+    }
+
+    private void assign(CompilationUnitTree root, SourcePositions positions) {
+        List<MethodTree> methods = new ArrayList<>();
+        for (Tree decl : root.getTypeDecls()) {
+            if (decl instanceof ClassTree) {
+                collect((ClassTree) decl, methods);
+            }
+        }
+        // generated constructors have no source range
+        methods.removeIf(m -> positions.getEndPosition(root, m) <= positions.getStartPosition(root, m));
+        methods.sort((a, b) -> Long.compare(positions.getStartPosition(root, a), positions.getStartPosition(root, b)));
+        int n = methods.size();
+        starts = new long[n];
+        ends = new long[n];
+        owners = new int[n];
+        Integer[] bySize = new Integer[n];
+        for (int m = 0; m < n; m++) {
+            starts[m] = positions.getStartPosition(root, methods.get(m));
+            ends[m] = positions.getEndPosition(root, methods.get(m));
+            bySize[m] = m;
+        }
+        Arrays.sort(bySize, (a, b) -> Long.compare(ends[b] - starts[b], ends[a] - starts[a]));
+        // {total size, shard}
+        PriorityQueue<long[]> smallest = new PriorityQueue<>(
+                (a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0]) : Long.compare(a[1], b[1]));
+        for (int s = 0; s < count; s++) {
+            smallest.add(new long[] {0, s});
+        }
+        for (int m : bySize) {
+            long[] shard = smallest.poll();
+            owners[m] = (int) shard[1];
+            shard[0] += ends[m] - starts[m];
+            smallest.add(shard);
+        }
+        unit = root;
+    }
+
+    private static void collect(ClassTree classTree, List<MethodTree> methods) {
+        for (Tree member : classTree.getMembers()) {
+            if (member instanceof MethodTree) {
+                methods.add((MethodTree) member);
+            } else if (member instanceof ClassTree) {
+                collect((ClassTree) member, methods);
+            }
+        }
+    }
+}
@@ -0,0 +1,337 @@
+package org.checkerframework.checker.dividebyzero;
+
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Types;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Return ranges of library methods whose source is not part of the
+ * compilation, such as {@code String.length()} and
+ * {@code Runtime.availableProcessors()}. A call to such a method gets the
+ * qualifier of its range, or with {@code -Adbz.domain=interval} the range
+ * itself, instead of Top.
+ *
+ * <p>The built-in stubs are {@code jdk.dbzstub}, a text file with one method
+ * per line:
+ * <pre>
+ * java.lang.String length() 0 MAX
+ * java.util.Random nextInt(int) 0 MAX
+ * </pre>
+ * Parameter types are erased and qualified. MIN and MAX are the bounds of
+ * the return type. An entry also applies to the methods that override it,
+ * so {@code java.util.Collection size()} covers {@code ArrayList.size()}.
+ * Constant fields such as {@code Integer.MAX_VALUE} need no stub; they are
+ * folded by {@link DivByZeroConstants}.
+ *
+ * <p>The build compiles the text into {@code jdk.dbzi}, an index in the
+ * checker's jar: the header {@code "DBZS"} and the count as ints, then one
+ * entry per method of three longs, a 64-bit hash of the class and signature
+ * and the bounds, sorted by hash, all big-endian. The index is loaded once
+ * per JVM, memory-mapped when it is a file and read whole from a jar, and
+ * searched in place, so only the entries of the methods actually called are
+ * ever decoded. Without the index, as when running from the IDE, the text is
+ * compiled at startup instead.
+ */
+final class DivByZeroStubs {
+
+    static final String SOURCE = "jdk.dbzstub";
+    static final String INDEX = "jdk.dbzi";
+
+    private static final int MAGIC = 0x44425a53;
+    private static final int HEADER_BYTES = 8;
+    private static final int ENTRY_BYTES = 24;
+
+    /** Remembered for methods without an entry */
+    private static final long[] NONE = new long[0];
+
+    /** The built-in index, loaded on first use */
+    private static final class BuiltIn {
+        static final ByteBuffer INDEX = loadBuiltIn();
+    }
+
+    private final ByteBuffer index;
+    private final int count;
+    private final Types types;
+
+    /** Ranges, or NONE, of the methods looked up so far */
+    private final Map<ExecutableElement, long[]> ranges = new IdentityHashMap<>();
+
+    DivByZeroStubs(ByteBuffer index, Types types) {
+        if (index.capacity() < HEADER_BYTES || index.getInt(0) != MAGIC) {
+            throw new IllegalArgumentException("not a divide-by-zero stub index");
+        }
+        this.index = index;
+        this.count = index.getInt(4);
+        this.types = types;
+    }
+
+    /** The built-in stubs for the JDK */
+    static DivByZeroStubs builtIn(Types types) {
+        return new DivByZeroStubs(BuiltIn.INDEX, types);
+    }
+
+    /** Number of methods with a stub */
+    int size() {
+        return count;
+    }
+
+    /**
+     * The qualifier of every value the method can return.
+     *
+     * @return the qualifier, or null if there is no stub or it says nothing the lattice can
+     */
+    DivByZeroQualifier returnQualifier(ExecutableElement method) {
+        long[] range = returnRange(method);
+        if (range == null) {
+            return null;
+        }
+        DivByZeroQualifier q = DivByZeroIntervals.qualifier(range[0], range[1]);
+        return q == DivByZeroQualifier.TOP ? null : q;
+    }
+
+    /**
+     * The bounds of every value the method can return. MIN and MAX are
+     * {@code Long.MIN_VALUE} and {@code Long.MAX_VALUE}, whatever the return type.
+     *
+     * @return {lo, hi}, or null if there is no stub for the method or one it overrides
+     */
+    long[] returnRange(ExecutableElement method) {
+        long[] range = ranges.get(method);
+        if (range == null) {
+            range = find(method);
+            ranges.put(method, range == null ? NONE : range);
+        }
+        return range == NONE ? null : range;
+    }
+
+    private long[] find(ExecutableElement method) {
+        if (count == 0 || !(method.getEnclosingElement() instanceof TypeElement)) {
+            return null;
+        }
+        String signature = signature(method);
+        TypeElement owner = (TypeElement) method.getEnclosingElement();
+        long[] range = lookup(owner.getQualifiedName() + " " + signature);
+        if (range != null || method.getModifiers().contains(Modifier.STATIC)
+                || method.getModifiers().contains(Modifier.PRIVATE)) {
+            return range;
+        }
+        // a stub of an overridden method
+        Set<Element> seen = new HashSet<>();
+        Deque<TypeMirror> pending = new ArrayDeque<>(types.directSupertypes(owner.asType()));
+        while (!pending.isEmpty()) {
+            TypeMirror type = pending.poll();
+            Element element = types.asElement(type);
+            if (!(element instanceof TypeElement) || !seen.add(element)) {
+                continue;
+            }
+            range = lookup(((TypeElement) element).getQualifiedName() + " " + signature);
+            if (range != null) {
+                return range;
+            }
+            pending.addAll(types.directSupertypes(type));
+        }
+        return null;
+    }
+
+    /** {@code name(type,type)}, with erased parameter types */
+    private String signature(ExecutableElement method) {
+        StringBuilder sb = new StringBuilder().append(method.getSimpleName()).append('(');
+        String sep = "";
+        for (VariableElement param : method.getParameters()) {
+            sb.append(sep).append(types.erasure(param.asType()));
+            sep = ",";
+        }
+        return sb.append(')').toString();
+    }
+
+    private long[] lookup(String key) {
+        long hash = hash(key);
+        int lo = 0;
+        int hi = count - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int at = HEADER_BYTES + mid * ENTRY_BYTES;
+            long v = index.getLong(at);
+            if (v < hash) {
+                lo = mid + 1;
+            } else if (v > hash) {
+                hi = mid - 1;
+            } else {
+                return new long[] {index.getLong(at + 8), index.getLong(at + 16)};
+            }
+        }
+        return null;
+    }
+
+    private static long hash(String key) {
+        return DivByZeroBaseline.hash(DivByZeroBaseline.FNV_OFFSET, key, 0, key.length(), false);
+    }
+
+    // ========================================================================
+    // Loading and compiling
+
+    private static ByteBuffer loadBuiltIn() {
+        try {
+            URL url = DivByZeroStubs.class.getResource(INDEX);
+            if (url != null && url.getProtocol().equals("file")) {
+                try (FileChannel channel = FileChannel.open(Paths.get(url.toURI()), StandardOpenOption.READ)) {
+                    // the mapping stays valid after the channel is closed
+                    return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).order(ByteOrder.BIG_ENDIAN);
+                }
+            }
+            if (url != null) {
+                // a jar entry cannot be mapped; the index is small enough to read
+                try (InputStream in = url.openStream()) {
+                    return ByteBuffer.wrap(readAll(in)).order(ByteOrder.BIG_ENDIAN);
+                }
+            }
+            try (InputStream in = DivByZeroStubs.class.getResourceAsStream(SOURCE)) {
+                if (in == null) {
+                    return ByteBuffer.wrap(compile(new StringReader(""), SOURCE));
+                }
+                return ByteBuffer.wrap(compile(new InputStreamReader(in, StandardCharsets.UTF_8), SOURCE));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (URISyntaxException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buf = new byte[8192];
+        for (int n; (n = in.read(buf)) > 0; ) {
+            out.write(buf, 0, n);
+        }
+        return out.toByteArray();
+    }
+
+    private static final Pattern LINE = Pattern.compile("(\\S+)\\s+(\\S+?\\s*\\([^)]*\\))\\s+(\\S+)\\s+(\\S+)");
+
+    /**
+     * Compile stubs in the text format into an index.
+     *
+     * @param name  the name of the text, for error messages
+     * @throws IllegalArgumentException if a line is malformed or a method appears twice
+     */
+    static byte[] compile(Reader text, String name) throws IOException {
+        long[] entries = new long[3 * 64];
+        int n = 0;
+        Map<Long, String> keys = new HashMap<>();
+        BufferedReader in = new BufferedReader(text);
+        int lineNumber = 0;
+        for (String line; (line = in.readLine()) != null; ) {
+            lineNumber++;
+            int comment = line.indexOf('#');
+            line = (comment < 0 ? line : line.substring(0, comment)).trim();
+            if (line.isEmpty()) {
+                continue;
+            }
+            Matcher m = LINE.matcher(line);
+            if (!m.matches()) {
+                throw new IllegalArgumentException(name + ":" + lineNumber + ": expected class method(types) lo hi");
+            }
+            String key = m.group(1) + " " + m.group(2).replaceAll("\\s", "");
+            long lo = bound(m.group(3), name, lineNumber);
+            long hi = bound(m.group(4), name, lineNumber);
+            if (lo > hi) {
+                throw new IllegalArgumentException(name + ":" + lineNumber + ": empty range");
+            }
+            long hash = hash(key);
+            String previous = keys.put(hash, key);
+            if (previous != null) {
+                throw new IllegalArgumentException(name + ":" + lineNumber + ": "
+                        + (previous.equals(key) ? "duplicate stub for " + key : "hash collision with " + previous));
+            }
+            if (3 * n == entries.length) {
+                entries = Arrays.copyOf(entries, 2 * entries.length);
+            }
+            entries[3 * n] = hash;
+            entries[3 * n + 1] = lo;
+            entries[3 * n + 2] = hi;
+            n++;
+        }
+
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        long[] sorted = entries;
+        Arrays.sort(order, (a, b) -> Long.compare(sorted[3 * a], sorted[3 * b]));
+        ByteBuffer buf = ByteBuffer.allocate(HEADER_BYTES + ENTRY_BYTES * n).order(ByteOrder.BIG_ENDIAN);
+        buf.putInt(MAGIC).putInt(n);
+        for (int i : order) {
+            buf.putLong(entries[3 * i]).putLong(entries[3 * i + 1]).putLong(entries[3 * i + 2]);
+        }
+        return buf.array();
+    }
+
+    private static long bound(String s, String name, int lineNumber) {
+        switch (s) {
+        case "MIN": return Long.MIN_VALUE;
+        case "MAX": return Long.MAX_VALUE;
+        default:
+            try {
+                return Long.parseLong(s);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException(name + ":" + lineNumber + ": bad bound " + s);
+            }
+        }
+    }
+
+    /**
+     * Compile a stub file into an index file; run by the build.
+     *
+     * <pre>DivByZeroStubs jdk.dbzstub build/stubIndex/.../jdk.dbzi</pre>
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("usage: DivByZeroStubs stubs.dbzstub index.dbzi");
+            System.exit(2);
+        }
+        Path source = Paths.get(args[0]);
+        Path target = Paths.get(args[1]);
+        byte[] index;
+        try (Reader in = Files.newBufferedReader(source, StandardCharsets.UTF_8)) {
+            index = compile(in, source.toString());
+        }
+        if (target.getParent() != null) {
+            Files.createDirectories(target.getParent());
+        }
+        Files.write(target, index);
+    }
+}
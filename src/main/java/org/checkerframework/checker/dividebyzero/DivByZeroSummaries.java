@@ -0,0 +1,685 @@
+package org.checkerframework.checker.dividebyzero;
+
+import com.sun.source.tree.*;
+import com.sun.source.util.TreeScanner;
+import com.sun.source.util.Trees;
+import org.checkerframework.checker.dividebyzero.DivByZeroTransfer.BinaryOperator;
+import org.checkerframework.checker.dividebyzero.DivByZeroTransfer.Comparison;
+import org.checkerframework.javacutil.TreeUtils;
+
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Return-qualifier summaries for methods that cannot be overridden: private,
+ * static and final methods, and methods of final classes, declared in the
+ * top-level class being checked. DivByZeroTransfer gives a call to such a
+ * method the summary of its body instead of Top, so {@code 1 / size()} is
+ * accepted when {@code size()} always returns a positive number.
+ *
+ * <p>Only the class being checked is summarized because it is the only one
+ * javac is sure to have attributed: the others in the compilation are
+ * attributed when their turn comes, in an order that depends on the command
+ * line, and a shard of DivByZeroBatch may only have their source on the
+ * source path. Calls into another top-level class are therefore always Top,
+ * or their stub's qualifier, so what is reported does not depend on the
+ * order of the files or on how they are split into shards.
+ *
+ * <p>A summary is computed from the method's tree the first time a call to
+ * it is analyzed, then kept while its top-level class is checked, so each
+ * body is evaluated once however many call sites it has. When the checker
+ * moves on to the next top-level class, the summaries are dropped: no call
+ * can use them any more, and otherwise they would grow with the module. The evaluation is a small
+ * abstract interpreter over locals: it applies the same arithmetic and
+ * comparison tables as DivByZeroTransfer, joins at branches, and iterates
+ * loops to a fixpoint. Parameters are Top. Anything it does not model (a
+ * switch, try, break or continue; a narrowing cast) makes the summary Top.
+ *
+ * <p>Recursive methods start from Bottom and are re-evaluated until their
+ * summary stops changing, for at most {@link #MAX_ROUNDS} rounds, after
+ * which they are Top. Methods evaluated while a recursive cycle is still
+ * open are provisional and are not kept.
+ *
+ * <p>A library method gets the qualifier of its stub, if it has one; see
+ * {@link DivByZeroStubs}.
+ */
+final class DivByZeroSummaries {
+
+    /** Evaluations of a recursive cycle before its summary is given up as Top */
+    private static final int MAX_ROUNDS = 8;
+
+    /** Thrown when the evaluator meets a construct it does not model */
+    private static final class Unsupported extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+        static final Unsupported INSTANCE = new Unsupported();
+        /** A tree javac has not attributed; not expected within the class being checked */
+        static final Unsupported UNATTRIBUTED = new Unsupported();
+
+        private Unsupported() {
+            super(null, null, false, false);
+        }
+    }
+
+    private static final class Summary {
+        /** Current approximation: final once done, otherwise a lower bound */
+        DivByZeroQualifier value = DivByZeroQualifier.BOTTOM;
+        boolean done;
+        /** Position on the evaluation stack while in progress */
+        final int depth;
+
+        Summary(int depth) {
+            this.depth = depth;
+        }
+    }
+
+    private final Trees trees;
+    private final DivByZeroConstants constants;
+    /** For the methods without source in this compilation */
+    private final DivByZeroStubs stubs;
+    private final Map<ExecutableElement, Summary> summaries = new IdentityHashMap<>();
+
+    /** The top-level class being checked; only its methods are summarized */
+    private TypeElement topLevel;
+
+    /** Depth of the evaluation stack */
+    private int depth;
+    /** Lowest stack depth of an in-progress summary read by the current evaluation */
+    private int lowestDependency = Integer.MAX_VALUE;
+
+    private int evaluations;
+
+    DivByZeroSummaries(Trees trees, DivByZeroConstants constants, DivByZeroStubs stubs) {
+        this.trees = trees;
+        this.constants = constants;
+        this.stubs = stubs;
+    }
+
+    /**
+     * Set the top-level class whose methods calls may be summarized from now
+     * on, and forget the summaries of the previous one
+     */
+    void setTopLevel(TypeElement topLevel) {
+        if (topLevel != this.topLevel) {
+            summaries.clear();
+        }
+        this.topLevel = topLevel;
+    }
+
+    /** Number of summaries kept, finished or not */
+    int size() {
+        return summaries.size();
+    }
+
+    /** Number of method bodies evaluated so far */
+    int getEvaluations() {
+        return evaluations;
+    }
+
+    /**
+     * The qualifier of every value the method can return.
+     *
+     * @return the summary, or null if the method is not summarized and has no stub
+     */
+    DivByZeroQualifier returnQualifier(ExecutableElement method) {
+        if (topLevel(method) != topLevel) {
+            return stubs.returnQualifier(method);
+        }
+        Summary s = summaries.get(method);
+        if (s != null) {
+            if (!s.done) {
+                // a recursive call: use the current approximation
+                lowestDependency = Math.min(lowestDependency, s.depth);
+            }
+            return s.value;
+        }
+        MethodTree tree = summarizable(method);
+        if (tree == null) {
+            return stubs.returnQualifier(method);
+        }
+
+        s = new Summary(depth);
+        summaries.put(method, s);
+        int outerLowest = lowestDependency;
+        depth++;
+        try {
+            for (int round = 0; ; round++) {
+                lowestDependency = Integer.MAX_VALUE;
+                DivByZeroQualifier result = evaluate(tree);
+                if (result == null) {
+                    summaries.remove(method);
+                    return DivByZeroQualifier.TOP;
+                }
+                DivByZeroQualifier v = s.value.lub(result);
+                if (lowestDependency < s.depth) {
+                    // part of a cycle opened further up; it will be evaluated again
+                    summaries.remove(method);
+                    outerLowest = Math.min(outerLowest, lowestDependency);
+                    return v;
+                }
+                if (v == s.value || lowestDependency > s.depth) {
+                    s.value = v;
+                    break;
+                }
+                s.value = v;
+                if (round == MAX_ROUNDS) {
+                    s.value = DivByZeroQualifier.TOP;
+                    break;
+                }
+            }
+            s.done = true;
+            return s.value;
+        } finally {
+            depth--;
+            lowestDependency = outerLowest;
+        }
+    }
+
+    /** Whether the method returns an int or long and no override can change what it returns */
+    static boolean isSummarizable(ExecutableElement method) {
+        TypeKind returns = method.getReturnType().getKind();
+        if (returns != TypeKind.INT && returns != TypeKind.LONG) {
+            return false;
+        }
+        return method.getModifiers().contains(Modifier.PRIVATE)
+                || method.getModifiers().contains(Modifier.STATIC)
+                || method.getModifiers().contains(Modifier.FINAL)
+                || method.getEnclosingElement().getModifiers().contains(Modifier.FINAL);
+    }
+
+    /** The top-level class that declares an element */
+    private static Element topLevel(Element element) {
+        while (element.getEnclosingElement() != null
+                && element.getEnclosingElement().getKind() != ElementKind.PACKAGE) {
+            element = element.getEnclosingElement();
+        }
+        return element;
+    }
+
+    /** The method's tree, if it is summarizable and has a body in this compilation */
+    private MethodTree summarizable(ExecutableElement method) {
+        if (!isSummarizable(method)) {
+            return null;
+        }
+        MethodTree tree = trees.getTree(method);
+        return tree == null || tree.getBody() == null ? null : tree;
+    }
+
+    /** @return what the method returns, or null if its body is not attributed */
+    private DivByZeroQualifier evaluate(MethodTree method) {
+        evaluations++;
+        Evaluator e = new Evaluator();
+        Map<Element, DivByZeroQualifier> env = new HashMap<>();
+        try {
+            for (VariableTree param : method.getParameters()) {
+                e.declare(env, param, DivByZeroQualifier.TOP);
+            }
+            e.exec(method.getBody(), env);
+        } catch (Unsupported ex) {
+            return ex == Unsupported.UNATTRIBUTED ? null : DivByZeroQualifier.TOP;
+        }
+        return e.returned;
+    }
+
+    // ========================================================================
+    // The evaluator. An environment maps each int or long local to what is
+    // known about it; a null environment means the point is unreachable.
+
+    private final class Evaluator {
+
+        /** Lub of every value returned so far */
+        DivByZeroQualifier returned = DivByZeroQualifier.BOTTOM;
+
+        void declare(Map<Element, DivByZeroQualifier> env, VariableTree var, DivByZeroQualifier q) {
+            VariableElement element = TreeUtils.elementFromDeclaration(var);
+            if (isTracked(element)) {
+                env.put(element, q);
+            }
+        }
+
+        Map<Element, DivByZeroQualifier> exec(StatementTree stmt, Map<Element, DivByZeroQualifier> env) {
+            if (env == null || stmt == null) {
+                return env;
+            }
+            switch (stmt.getKind()) {
+            case BLOCK:
+                for (StatementTree s : ((BlockTree) stmt).getStatements()) {
+                    env = exec(s, env);
+                }
+                return env;
+            case VARIABLE: {
+                VariableTree var = (VariableTree) stmt;
+                DivByZeroQualifier q = var.getInitializer() == null
+                        ? DivByZeroQualifier.TOP
+                        : eval(var.getInitializer(), env);
+                declare(env, var, q);
+                return env;
+            }
+            case EXPRESSION_STATEMENT:
+                eval(((ExpressionStatementTree) stmt).getExpression(), env);
+                return env;
+            case IF: {
+                IfTree s = (IfTree) stmt;
+                Map<Element, DivByZeroQualifier>[] branches = cond(s.getCondition(), env);
+                return lub(exec(s.getThenStatement(), branches[0]), exec(s.getElseStatement(), branches[1]));
+            }
+            case WHILE_LOOP: {
+                WhileLoopTree s = (WhileLoopTree) stmt;
+                return loop(env, s.getCondition(), s.getStatement(), null);
+            }
+            case FOR_LOOP: {
+                ForLoopTree s = (ForLoopTree) stmt;
+                env = copy(env);
+                for (StatementTree init : s.getInitializer()) {
+                    env = exec(init, env);
+                }
+                return loop(env, s.getCondition(), s.getStatement(), s.getUpdate());
+            }
+            case DO_WHILE_LOOP: {
+                DoWhileLoopTree s = (DoWhileLoopTree) stmt;
+                Map<Element, DivByZeroQualifier> head = copy(env);
+                for (int i = 0; ; i++) {
+                    Map<Element, DivByZeroQualifier> end = exec(s.getStatement(), copy(head));
+                    Map<Element, DivByZeroQualifier>[] branches = cond(s.getCondition(), end);
+                    Map<Element, DivByZeroQualifier> next = lub(head, branches[0]);
+                    if (next.equals(head)) {
+                        return branches[1];
+                    }
+                    head = next;
+                    checkIterations(i);
+                }
+            }
+            case ENHANCED_FOR_LOOP: {
+                EnhancedForLoopTree s = (EnhancedForLoopTree) stmt;
+                eval(s.getExpression(), env);
+                Map<Element, DivByZeroQualifier> head = copy(env);
+                for (int i = 0; ; i++) {
+                    Map<Element, DivByZeroQualifier> body = copy(head);
+                    declare(body, s.getVariable(), DivByZeroQualifier.TOP);
+                    Map<Element, DivByZeroQualifier> next = lub(head, exec(s.getStatement(), body));
+                    if (next.equals(head)) {
+                        return head;
+                    }
+                    head = next;
+                    checkIterations(i);
+                }
+            }
+            case RETURN: {
+                ExpressionTree e = ((ReturnTree) stmt).getExpression();
+                if (e != null) {
+                    returned = returned.lub(eval(e, env));
+                }
+                return null;
+            }
+            case THROW:
+                eval(((ThrowTree) stmt).getExpression(), env);
+                return null;
+            case SYNCHRONIZED:
+                eval(((SynchronizedTree) stmt).getExpression(), env);
+                return exec(((SynchronizedTree) stmt).getBlock(), env);
+            case ASSERT:
+                havoc(stmt, env);
+                return env;
+            case EMPTY_STATEMENT:
+            case CLASS:
+                return env;
+            default:
+                // switch, try, labeled statements, break and continue
+                throw Unsupported.INSTANCE;
+            }
+        }
+
+        /** A while or for loop: iterate the loop head to a fixpoint, then leave on the false branch */
+        private Map<Element, DivByZeroQualifier> loop(
+                Map<Element, DivByZeroQualifier> env,
+                ExpressionTree condition,
+                StatementTree body,
+                Iterable<? extends ExpressionStatementTree> update) {
+            Map<Element, DivByZeroQualifier> head = copy(env);
+            for (int i = 0; ; i++) {
+                Map<Element, DivByZeroQualifier>[] branches = condition == null
+                        ? pair(copy(head), null)
+                        : cond(condition, copy(head));
+                Map<Element, DivByZeroQualifier> end = exec(body, branches[0]);
+                if (update != null) {
+                    for (ExpressionStatementTree u : update) {
+                        end = exec(u, end);
+                    }
+                }
+                Map<Element, DivByZeroQualifier> next = lub(head, end);
+                if (next.equals(head)) {
+                    return branches[1];
+                }
+                head = next;
+                checkIterations(i);
+            }
+        }
+
+        private void checkIterations(int i) {
+            // the lattice has height 3, so this only trips on a bug
+            if (i > 1000) {
+                throw Unsupported.INSTANCE;
+            }
+        }
+
+        /** What is known about the value of an expression; updates env for assignments */
+        DivByZeroQualifier eval(ExpressionTree e, Map<Element, DivByZeroQualifier> env) {
+            if (env == null) {
+                return DivByZeroQualifier.BOTTOM;
+            }
+            DivByZeroQualifier folded = constants.qualifier(e);
+            if (folded != null) {
+                // a constant expression assigns nothing
+                return folded;
+            }
+            switch (e.getKind()) {
+            case INT_LITERAL:
+                return sign(((Integer) ((LiteralTree) e).getValue()).longValue());
+            case LONG_LITERAL:
+                return sign((Long) ((LiteralTree) e).getValue());
+            case PARENTHESIZED:
+                return eval(((ParenthesizedTree) e).getExpression(), env);
+            case IDENTIFIER:
+            case MEMBER_SELECT: {
+                if (e.getKind() == Tree.Kind.MEMBER_SELECT) {
+                    eval(((MemberSelectTree) e).getExpression(), env);
+                }
+                Element element = TreeUtils.elementFromUse(e);
+                DivByZeroQualifier q = env.get(element);
+                if (q != null) {
+                    return q;
+                }
+                if (element instanceof VariableElement) {
+                    Object constant = ((VariableElement) element).getConstantValue();
+                    if (constant instanceof Integer || constant instanceof Long) {
+                        return sign(((Number) constant).longValue());
+                    }
+                }
+                return DivByZeroQualifier.TOP;
+            }
+            case PLUS:
+            case MINUS:
+            case MULTIPLY:
+            case DIVIDE:
+            case REMAINDER: {
+                BinaryTree b = (BinaryTree) e;
+                DivByZeroQualifier l = eval(b.getLeftOperand(), env);
+                DivByZeroQualifier r = eval(b.getRightOperand(), env);
+                return isIntegral(e) ? DivByZeroTransfer.arithmetic(operator(e.getKind()), l, r) : DivByZeroQualifier.TOP;
+            }
+            case UNARY_MINUS: {
+                DivByZeroQualifier q = eval(((UnaryTree) e).getExpression(), env);
+                return DivByZeroTransfer.arithmetic(BinaryOperator.MINUS, DivByZeroQualifier.ZERO, q);
+            }
+            case UNARY_PLUS:
+                return eval(((UnaryTree) e).getExpression(), env);
+            case PREFIX_INCREMENT:
+            case POSTFIX_INCREMENT:
+            case PREFIX_DECREMENT:
+            case POSTFIX_DECREMENT: {
+                ExpressionTree target = ((UnaryTree) e).getExpression();
+                DivByZeroQualifier old = eval(target, env);
+                BinaryOperator op = e.getKind() == Tree.Kind.PREFIX_INCREMENT || e.getKind() == Tree.Kind.POSTFIX_INCREMENT
+                        ? BinaryOperator.PLUS
+                        : BinaryOperator.MINUS;
+                DivByZeroQualifier updated = DivByZeroTransfer.arithmetic(op, old, DivByZeroQualifier.POSITIVE);
+                assign(target, updated, env);
+                boolean prefix = e.getKind() == Tree.Kind.PREFIX_INCREMENT || e.getKind() == Tree.Kind.PREFIX_DECREMENT;
+                return prefix ? updated : old;
+            }
+            case ASSIGNMENT: {
+                AssignmentTree a = (AssignmentTree) e;
+                DivByZeroQualifier q = eval(a.getExpression(), env);
+                assign(a.getVariable(), q, env);
+                return q;
+            }
+            case PLUS_ASSIGNMENT:
+            case MINUS_ASSIGNMENT:
+            case MULTIPLY_ASSIGNMENT:
+            case DIVIDE_ASSIGNMENT:
+            case REMAINDER_ASSIGNMENT: {
+                CompoundAssignmentTree a = (CompoundAssignmentTree) e;
+                DivByZeroQualifier l = eval(a.getVariable(), env);
+                DivByZeroQualifier r = eval(a.getExpression(), env);
+                DivByZeroQualifier q = isIntegral(a.getVariable()) && isIntegral(a.getExpression())
+                        ? DivByZeroTransfer.arithmetic(operator(e.getKind()), l, r)
+                        : DivByZeroQualifier.TOP;
+                assign(a.getVariable(), q, env);
+                return q;
+            }
+            case CONDITIONAL_EXPRESSION: {
+                ConditionalExpressionTree c = (ConditionalExpressionTree) e;
+                Map<Element, DivByZeroQualifier>[] branches = cond(c.getCondition(), env);
+                DivByZeroQualifier t = eval(c.getTrueExpression(), branches[0]);
+                DivByZeroQualifier f = eval(c.getFalseExpression(), branches[1]);
+                replace(env, lub(branches[0], branches[1]));
+                return t.lub(f);
+            }
+            case TYPE_CAST: {
+                TypeCastTree c = (TypeCastTree) e;
+                DivByZeroQualifier q = eval(c.getExpression(), env);
+                TypeKind from = kind(c.getExpression());
+                TypeKind to = kind(c);
+                // widening keeps the value; narrowing can turn a nonzero long into 0
+                return from == to || (to == TypeKind.LONG && from == TypeKind.INT) ? q : DivByZeroQualifier.TOP;
+            }
+            case METHOD_INVOCATION: {
+                MethodInvocationTree call = (MethodInvocationTree) e;
+                havoc(call, env);
+                ExecutableElement callee = TreeUtils.elementFromUse(call);
+                if (callee == null) {
+                    throw Unsupported.UNATTRIBUTED;
+                }
+                DivByZeroQualifier q = returnQualifier(callee);
+                return q == null ? DivByZeroQualifier.TOP : q;
+            }
+            default:
+                havoc(e, env);
+                return DivByZeroQualifier.TOP;
+            }
+        }
+
+        /** The environments in which a condition is true and false */
+        Map<Element, DivByZeroQualifier>[] cond(ExpressionTree c, Map<Element, DivByZeroQualifier> env) {
+            if (env == null) {
+                return pair(null, null);
+            }
+            switch (c.getKind()) {
+            case PARENTHESIZED:
+                return cond(((ParenthesizedTree) c).getExpression(), env);
+            case BOOLEAN_LITERAL:
+                return Boolean.TRUE.equals(((LiteralTree) c).getValue()) ? pair(env, null) : pair(null, env);
+            case LOGICAL_COMPLEMENT: {
+                Map<Element, DivByZeroQualifier>[] inner = cond(((UnaryTree) c).getExpression(), env);
+                return pair(inner[1], inner[0]);
+            }
+            case CONDITIONAL_AND: {
+                BinaryTree b = (BinaryTree) c;
+                Map<Element, DivByZeroQualifier>[] l = cond(b.getLeftOperand(), env);
+                Map<Element, DivByZeroQualifier>[] r = cond(b.getRightOperand(), l[0]);
+                return pair(r[0], lub(l[1], r[1]));
+            }
+            case CONDITIONAL_OR: {
+                BinaryTree b = (BinaryTree) c;
+                Map<Element, DivByZeroQualifier>[] l = cond(b.getLeftOperand(), env);
+                Map<Element, DivByZeroQualifier>[] r = cond(b.getRightOperand(), l[1]);
+                return pair(lub(l[0], r[0]), r[1]);
+            }
+            case EQUAL_TO:
+            case NOT_EQUAL_TO:
+            case LESS_THAN:
+            case LESS_THAN_EQUAL:
+            case GREATER_THAN:
+            case GREATER_THAN_EQUAL: {
+                BinaryTree b = (BinaryTree) c;
+                DivByZeroQualifier l = eval(b.getLeftOperand(), env);
+                DivByZeroQualifier r = eval(b.getRightOperand(), env);
+                Comparison op = comparison(c.getKind());
+                Map<Element, DivByZeroQualifier> then = copy(env);
+                Map<Element, DivByZeroQualifier> otherwise = copy(env);
+                refine(then, b.getLeftOperand(), l, DivByZeroTransfer.comparison(op, l, r));
+                refine(then, b.getRightOperand(), r, DivByZeroTransfer.comparison(DivByZeroTransfer.flip(op), r, l));
+                Comparison negated = DivByZeroTransfer.negate(op);
+                refine(otherwise, b.getLeftOperand(), l, DivByZeroTransfer.comparison(negated, l, r));
+                refine(otherwise, b.getRightOperand(), r, DivByZeroTransfer.comparison(DivByZeroTransfer.flip(negated), r, l));
+                return pair(then, otherwise);
+            }
+            default:
+                eval(c, env);
+                return pair(env, copy(env));
+            }
+        }
+
+        /** As the dataflow store does: keep the refinement only if it is more specific */
+        private void refine(Map<Element, DivByZeroQualifier> env, ExpressionTree operand, DivByZeroQualifier old, DivByZeroQualifier refined) {
+            operand = TreeUtils.skipParens(operand);
+            if (operand.getKind() == Tree.Kind.IDENTIFIER && refined.isSubtypeOf(old)) {
+                Element element = TreeUtils.elementFromUse(operand);
+                if (env.containsKey(element)) {
+                    env.put(element, refined);
+                }
+            }
+        }
+
+        private void assign(ExpressionTree target, DivByZeroQualifier q, Map<Element, DivByZeroQualifier> env) {
+            target = TreeUtils.skipParens(target);
+            if (target.getKind() == Tree.Kind.IDENTIFIER) {
+                Element element = TreeUtils.elementFromUse(target);
+                if (env.containsKey(element)) {
+                    env.put(element, q);
+                }
+            } else {
+                havoc(target, env);
+            }
+        }
+
+        /** Forget what is known about every local the tree may assign */
+        private void havoc(Tree tree, Map<Element, DivByZeroQualifier> env) {
+            new TreeScanner<Void, Void>() {
+                @Override
+                public Void visitAssignment(AssignmentTree node, Void p) {
+                    forget(node.getVariable());
+                    return super.visitAssignment(node, p);
+                }
+
+                @Override
+                public Void visitCompoundAssignment(CompoundAssignmentTree node, Void p) {
+                    forget(node.getVariable());
+                    return super.visitCompoundAssignment(node, p);
+                }
+
+                @Override
+                public Void visitUnary(UnaryTree node, Void p) {
+                    forget(node.getExpression());
+                    return super.visitUnary(node, p);
+                }
+
+                private void forget(ExpressionTree target) {
+                    target = TreeUtils.skipParens(target);
+                    if (target.getKind() == Tree.Kind.IDENTIFIER) {
+                        Element element = TreeUtils.elementFromUse(target);
+                        if (env.containsKey(element)) {
+                            env.put(element, DivByZeroQualifier.TOP);
+                        }
+                    }
+                }
+            }.scan(tree, null);
+        }
+    }
+
+    // ========================================================================
+    // Helpers
+
+    private static boolean isTracked(VariableElement element) {
+        if (element == null || element.getKind() == ElementKind.FIELD) {
+            return false;
+        }
+        TypeKind kind = element.asType().getKind();
+        return kind == TypeKind.INT || kind == TypeKind.LONG;
+    }
+
+    private static boolean isIntegral(ExpressionTree e) {
+        TypeKind kind = kind(e);
+        return kind == TypeKind.INT || kind == TypeKind.LONG;
+    }
+
+    private static TypeKind kind(Tree tree) {
+        TypeMirror type = TreeUtils.typeOf(tree);
+        if (type == null) {
+            throw Unsupported.UNATTRIBUTED;
+        }
+        return type.getKind();
+    }
+
+    private static DivByZeroQualifier sign(long value) {
+        return value == 0 ? DivByZeroQualifier.ZERO
+             : value > 0 ? DivByZeroQualifier.POSITIVE
+             : DivByZeroQualifier.NEGATIVE;
+    }
+
+    private static BinaryOperator operator(Tree.Kind kind) {
+        switch (kind) {
+        case PLUS: case PLUS_ASSIGNMENT: return BinaryOperator.PLUS;
+        case MINUS: case MINUS_ASSIGNMENT: return BinaryOperator.MINUS;
+        case MULTIPLY: case MULTIPLY_ASSIGNMENT: return BinaryOperator.TIMES;
+        case DIVIDE: case DIVIDE_ASSIGNMENT: return BinaryOperator.DIVIDE;
+        case REMAINDER: case REMAINDER_ASSIGNMENT: return BinaryOperator.MOD;
+        default: throw new IllegalArgumentException(kind.toString());
+        }
+    }
+
+    private static Comparison comparison(Tree.Kind kind) {
+        switch (kind) {
+        case EQUAL_TO: return Comparison.EQ;
+        case NOT_EQUAL_TO: return Comparison.NE;
+        case LESS_THAN: return Comparison.LT;
+        case LESS_THAN_EQUAL: return Comparison.LE;
+        case GREATER_THAN: return Comparison.GT;
+        case GREATER_THAN_EQUAL: return Comparison.GE;
+        default: throw new IllegalArgumentException(kind.toString());
+        }
+    }
+
+    private static Map<Element, DivByZeroQualifier> copy(Map<Element, DivByZeroQualifier> env) {
+        return env == null ? null : new HashMap<>(env);
+    }
+
+    /** Pointwise lub over the locals in scope in both; null (unreachable) is the identity */
+    private static Map<Element, DivByZeroQualifier> lub(Map<Element, DivByZeroQualifier> a, Map<Element, DivByZeroQualifier> b) {
+        if (a == null) {
+            return copy(b);
+        }
+        if (b == null) {
+            return copy(a);
+        }
+        Map<Element, DivByZeroQualifier> result = new HashMap<>();
+        for (Map.Entry<Element, DivByZeroQualifier> e : a.entrySet()) {
+            DivByZeroQualifier other = b.get(e.getKey());
+            if (other != null) {
+                result.put(e.getKey(), e.getValue().lub(other));
+            }
+        }
+        return result;
+    }
+
+    private static void replace(Map<Element, DivByZeroQualifier> env, Map<Element, DivByZeroQualifier> with) {
+        env.clear();
+        if (with != null) {
+            env.putAll(with);
+        }
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Map<Element, DivByZeroQualifier>[] pair(Map<Element, DivByZeroQualifier> then, Map<Element, DivByZeroQualifier> otherwise) {
+        return new Map[] {then, otherwise};
+    }
+}
@@ -1,6 +1,5 @@
 package org.checkerframework.checker.dividebyzero;
 
-import org.checkerframework.framework.type.QualifierHierarchy;
 import org.checkerframework.framework.flow.CFTransfer;
 import org.checkerframework.framework.flow.CFValue;
 import org.checkerframework.framework.flow.CFStore;
@@ -11,15 +10,14 @@ import org.checkerframework.dataflow.analysis.TransferResult;
 import org.checkerframework.dataflow.analysis.RegularTransferResult;
 import org.checkerframework.dataflow.analysis.ConditionalTransferResult;
 import org.checkerframework.dataflow.analysis.FlowExpressions;
-import org.checkerframework.javacutil.AnnotationBuilder;
 import org.checkerframework.javacutil.AnnotationUtils;
 
 import javax.lang.model.element.AnnotationMirror;
-import java.lang.annotation.Annotation;
+import javax.lang.model.type.TypeKind;
 
 import java.util.Set;
 
-import org.checkerframework.checker.dividebyzero.qual.*;
+import static org.checkerframework.checker.dividebyzero.DivByZeroQualifier.*;
 
 public class DivByZeroTransfer extends CFTransfer {
 
@@ -67,67 +65,17 @@ public class DivByZeroTransfer extends CFTransfer {
      * @param rhs        the lattice point for the right-hand side of the comparison expression
      * @return a refined type for lhs
      */
-    private AnnotationMirror refineLhsOfComparison(
+    AnnotationMirror refineLhsOfComparison(
             Comparison operator,
             AnnotationMirror lhs,
             AnnotationMirror rhs) {
-        // TODO
-        if (operator == Comparison.EQ){
-            return rhs;
-        }
-        
-        // can't say anything about NE comparison with nonzero and Top. 
-        if (operator == Comparison.NE && AnnotationUtils.areSame(rhs, zero()) ){
-            return nonzero();
-        }
-
-        if (operator == Comparison.NE && AnnotationUtils.areSame(rhs, positive() ) ){
-            return negative();
-        }
-
-        if (operator == Comparison.NE && AnnotationUtils.areSame(rhs, negative() ) ){
-            return positive();
-        }
-
-
-        // if (operator == Comparison.NE && rhs == top()){
-        //     return nonzero();
-        // }
-
-        if (operator == Comparison.LT && AnnotationUtils.areSame(rhs, negative() ) ){
-            return negative();
-        }
-
-        if (operator == Comparison.LT && AnnotationUtils.areSame(rhs, zero() ) ){
-            return negative();
-        }
-
-        // Can't say anything for LT operator, with positive and nonzero classes. 
-
-        if (operator == Comparison.LE && AnnotationUtils.areSame(rhs, negative() ) ){
-            return negative();
-        }
-
-        // Can't say anything for LE operator, with positive, zero, and nonzero classes. 
-        
-
-        if (operator == Comparison.GT && AnnotationUtils.areSame(rhs, zero()) ){
-            return positive();
-        }
-
-        if (operator == Comparison.GT && AnnotationUtils.areSame(rhs, positive()) ){
-            return positive();
-        }
-
-        // Can't say anything for GT operator, with negative and nonzero classes. 
-
-        if (operator == Comparison.GE && AnnotationUtils.areSame(rhs, positive()) ){
-            return positive();
+        DivByZeroQualifier l = qualifierOf(lhs);
+        DivByZeroQualifier r = qualifierOf(rhs);
+        if (l == null || r == null) {
+            return lhs;
         }
-
-        // Can't say anything for GE operator, with negative, zero, and nonzero classes. 
-
-        return lhs;
+        DivByZeroQualifier result = comparison(operator, l, r);
+        return result == l ? lhs : mirror(result);
     }
 
     /**
@@ -144,227 +92,177 @@ public class DivByZeroTransfer extends CFTransfer {
      * @param rhs        the lattice point for the right-hand side of the expression
      * @return the lattice point for the result of the expression
      */
-    private AnnotationMirror arithmeticTransfer(
+    AnnotationMirror arithmeticTransfer(
             BinaryOperator operator,
             AnnotationMirror lhs,
             AnnotationMirror rhs) {
-        // TODO
-        // PLUS, MINUS, TIMES, DIVIDE, MOD
-        // Can't do this comparison, losing some completeness. Add something to non-zero can still be zero. 
-        /*
-            | +       | Top | Nonzero | Zero    | Positive  | Negative
-            |---------|-----|---------|---------|-----------|---------|
-            | Top     | Top | Top     | Top     | Top       |    Top  | 
-            | Nonzero | Top | Top     | Nonzero | Top       |    Top  | 
-            | Zero    | Top | Nonzero | Zero    | Positive  | Negative|  
-            | Positive| Top | Top     | Positive| Positive  |    Top  |
-            | Negative| Top | Top     | Negative| Top       | Negative|
-        */
-
-        if (operator == BinaryOperator.PLUS && ( AnnotationUtils.areSame(lhs, nonzero()) && AnnotationUtils.areSame(rhs, zero()) ) ){
-            return nonzero();
-        }
-
-        if (operator == BinaryOperator.PLUS && ( AnnotationUtils.areSame(lhs, zero()) && AnnotationUtils.areSame(rhs, nonzero()) ) ){
-            return nonzero();
+        DivByZeroQualifier l = qualifierOf(lhs);
+        DivByZeroQualifier r = qualifierOf(rhs);
+        if (l == null || r == null) {
+            return top();
         }
+        return mirror(arithmetic(operator, l, r));
+    }
 
-        if (operator == BinaryOperator.PLUS && ( AnnotationUtils.areSame(lhs, zero()) && AnnotationUtils.areSame(rhs, zero()) ) ){
-            return zero();
-        }
+    // ========================================================================
+    // Lattice tables
 
-        if (operator == BinaryOperator.PLUS && ( AnnotationUtils.areSame(lhs, zero()) && AnnotationUtils.areSame(rhs, positive()) ) ){
-            return positive();
-        }
+    /** Table-driven implementation of {@link #refineLhsOfComparison}. */
+    static DivByZeroQualifier comparison(Comparison operator, DivByZeroQualifier lhs, DivByZeroQualifier rhs) {
+        return COMPARISON_TABLE[operator.ordinal()][lhs.ordinal()][rhs.ordinal()];
+    }
 
-        if (operator == BinaryOperator.PLUS && ( AnnotationUtils.areSame(lhs, positive()) && AnnotationUtils.areSame(rhs, zero()) ) ){
-            return positive();
-        }
-        
-        if (operator == BinaryOperator.PLUS && ( AnnotationUtils.areSame(lhs, zero()) && AnnotationUtils.areSame(rhs, negative()) ) ){
-            return negative();
-        }
+    /** Table-driven implementation of {@link #arithmeticTransfer}. */
+    static DivByZeroQualifier arithmetic(BinaryOperator operator, DivByZeroQualifier lhs, DivByZeroQualifier rhs) {
+        return ARITHMETIC_TABLE[operator.ordinal()][lhs.ordinal()][rhs.ordinal()];
+    }
 
-        if (operator == BinaryOperator.PLUS && ( AnnotationUtils.areSame(lhs, negative()) && AnnotationUtils.areSame(rhs, zero()) ) ){
-            return negative();
-        }
+    /*
+        Truth tables for the arithmetic operators. Rows are the lhs, columns
+        the rhs. Bottom is not shown: any operation with a Bottom operand
+        yields Bottom. ARITHMETIC_TABLE below must agree with these tables;
+        DivByZeroTransferTablesTest checks that it does.
 
-        if (operator == BinaryOperator.PLUS && ( AnnotationUtils.areSame(lhs, positive()) && AnnotationUtils.areSame(rhs, positive()) ) ){
-            return positive();
-        }
+        Can't do this comparison, losing some completeness. Add something to non-zero can still be zero.
 
-        if (operator == BinaryOperator.PLUS && ( AnnotationUtils.areSame(lhs, negative()) && AnnotationUtils.areSame(rhs, negative()) ) ){
-            return negative();
-        }
+            | +       | Top | Nonzero | Zero    | Positive  | Negative
+            |---------|-----|---------|---------|-----------|---------|
+            | Top     | Top | Top     | Top     | Top       |    Top  |
+            | Nonzero | Top | Top     | Nonzero | Top       |    Top  |
+            | Zero    | Top | Nonzero | Zero    | Positive  | Negative|
+            | Positive| Top | Top     | Positive| Positive  |    Top  |
+            | Negative| Top | Top     | Negative| Top       | Negative|
 
-        /*
             | -       | Top | Nonzero | Zero    | Positive  | Negative
             |---------|-----|---------|---------|-----------|---------|
-            | Top     | Top | Top     | Top     | Top       |    Top  | 
-            | Nonzero | Top | Top     | Nonzero | Top       |    Top  | 
-            | Zero    | Top | Nonzero | Zero    | Negative  | Positive|  
+            | Top     | Top | Top     | Top     | Top       |    Top  |
+            | Nonzero | Top | Top     | Nonzero | Top       |    Top  |
+            | Zero    | Top | Nonzero | Zero    | Negative  | Positive|
             | Positive| Top | Top     | Positive| Top       | Positive|
             | Negative| Top | Top     | Negative| Negative  | Top     |
-        */
-
-        if (operator == BinaryOperator.MINUS && ( AnnotationUtils.areSame(lhs, nonzero()) && AnnotationUtils.areSame(rhs, zero()) ) ){
-            return nonzero();
-        }
-
-        if (operator == BinaryOperator.MINUS && ( AnnotationUtils.areSame(lhs, zero()) && AnnotationUtils.areSame(rhs, nonzero()) ) ){
-            return nonzero();
-        }
-
-        if (operator == BinaryOperator.MINUS && (AnnotationUtils.areSame(lhs, zero()) && AnnotationUtils.areSame(rhs, zero()) ) ){
-            return zero();
-        }
-
-        if (operator == BinaryOperator.MINUS && ( AnnotationUtils.areSame(lhs, positive()) && AnnotationUtils.areSame(rhs, zero()) ) ){
-            return positive();
-        }
-
-        if (operator == BinaryOperator.MINUS && ( AnnotationUtils.areSame(lhs, negative()) && AnnotationUtils.areSame(rhs, zero()) ) ){
-            return negative();
-        }
-        
-        if (operator == BinaryOperator.MINUS && ( AnnotationUtils.areSame(lhs, zero()) && AnnotationUtils.areSame(rhs, positive()) ) ){
-            return negative();
-        }
-
-        if (operator == BinaryOperator.MINUS && ( AnnotationUtils.areSame(lhs, zero()) && AnnotationUtils.areSame(rhs, negative()) ) ){
-            return positive();
-        }
-
-        if (operator == BinaryOperator.MINUS && ( AnnotationUtils.areSame(lhs, positive()) && AnnotationUtils.areSame(rhs, negative()) ) ){
-            return positive();
-        }
-
-        if (operator == BinaryOperator.MINUS && ( AnnotationUtils.areSame(lhs, negative()) && AnnotationUtils.areSame(rhs, positive()) ) ){
-            return negative();
-        }
-
-        /*
 
             | *       | Top | Nonzero | Zero    | Positive  | Negative
             |---------|-----|---------|---------|-----------|---------|
-            | Top     | Top | Top     | Zero    | Top       |    Top  | 
-            | Nonzero | Top | Nonzero | Zero    | Nonzero   | Nonzero | 
-            | Zero    | Zero| Zero    | Zero    | Zero      | Zero    |  
+            | Top     | Top | Top     | Zero    | Top       |    Top  |
+            | Nonzero | Top | Nonzero | Zero    | Nonzero   | Nonzero |
+            | Zero    | Zero| Zero    | Zero    | Zero      | Zero    |
             | Positive| Top | Nonzero | Zero    | Positive  | Negative|
             | Negative| Top | Nonzero | Zero    | Negative  | Positive|
-    
-        */
 
-        if (operator == BinaryOperator.TIMES && ( AnnotationUtils.areSame(lhs, zero()) || AnnotationUtils.areSame(rhs, zero()) ) ){
-            return zero();
-        }
-
-        if (operator == BinaryOperator.TIMES && ( AnnotationUtils.areSame(lhs, nonzero()) && AnnotationUtils.areSame(rhs, nonzero()) ) ){
-            return nonzero();
-        }
-
-        if (operator == BinaryOperator.TIMES && ( AnnotationUtils.areSame(lhs, positive()) && AnnotationUtils.areSame(rhs, nonzero()) ) ){
-            return nonzero();
-        }
-
-        if (operator == BinaryOperator.TIMES && ( AnnotationUtils.areSame(lhs, nonzero()) && AnnotationUtils.areSame(rhs, positive()) ) ){
-            return nonzero();
-        }
-
-        if (operator == BinaryOperator.TIMES && ( AnnotationUtils.areSame(lhs, negative()) && AnnotationUtils.areSame(rhs, nonzero()) ) ){
-            return nonzero();
-        }
-        
-        if (operator == BinaryOperator.TIMES && ( AnnotationUtils.areSame(lhs, nonzero()) && AnnotationUtils.areSame(rhs, negative()) ) ){
-            return nonzero();
-        }
-
-        if (operator == BinaryOperator.TIMES && ( AnnotationUtils.areSame(lhs, positive()) && AnnotationUtils.areSame(rhs, positive()) ) ){
-            return positive();
-        }
-
-        if (operator == BinaryOperator.TIMES && ( AnnotationUtils.areSame(lhs, positive()) && AnnotationUtils.areSame(rhs, negative()) ) ){
-            return negative();
-        }
-
-        if (operator == BinaryOperator.TIMES && ( AnnotationUtils.areSame(lhs, negative()) && AnnotationUtils.areSame(rhs, positive()) ) ){
-            return negative();
-        }
-
-        if (operator == BinaryOperator.TIMES && ( AnnotationUtils.areSame(lhs, negative()) && AnnotationUtils.areSame(rhs, negative()) ) ){
-            return positive();
-        }
-
-        /*
+        An "Error" cell is reported by DivByZeroVisitor. The table still needs
+        a value for it: a Zero dividend stays Zero, a Nonzero dividend of "/"
+        stays Nonzero, and everything else is Top.
 
             | /       | Top   | Nonzero | Zero    | Positive  | Negative
             |---------|-------|---------|---------|-----------|---------|
-            | Top     | Error | Top     | Error   | Top       |    Top  | 
-            | Nonzero | Error | Nonzero | Error   | Nonzero   | Nonzero | 
-            | Zero    | Error | Zero    | Error   | Zero      | Zero    |  
+            | Top     | Error | Top     | Error   | Top       |    Top  |
+            | Nonzero | Error | Nonzero | Error   | Nonzero   | Nonzero |
+            | Zero    | Error | Zero    | Error   | Zero      | Zero    |
             | Positive| Error | Nonzero | Error   | Positive  | Negative|
             | Negative| Error | Nonzero | Error   | Negative  | Positive|
 
-
-        */
-        // I don't care about rhs in case of divide, because that is already handled by div-by-zero case. 
-        if (operator == BinaryOperator.DIVIDE && AnnotationUtils.areSame(lhs, nonzero()) ){
-            return nonzero();
-        }
-        
-        if (operator == BinaryOperator.DIVIDE && AnnotationUtils.areSame(lhs, zero()) ){
-            return zero();
-        }
-
-        if (operator == BinaryOperator.DIVIDE && ( AnnotationUtils.areSame(lhs, positive()) && AnnotationUtils.areSame(rhs, nonzero()) ) ){
-            return nonzero();
-        }
-
-        if (operator == BinaryOperator.DIVIDE && ( AnnotationUtils.areSame(lhs, nonzero()) && AnnotationUtils.areSame(rhs, positive()) ) ){
-            return nonzero();
-        }
-
-        if (operator == BinaryOperator.DIVIDE && ( AnnotationUtils.areSame(lhs, negative()) && AnnotationUtils.areSame(rhs, nonzero()) ) ){
-            return nonzero();
-        }
-
-        if (operator == BinaryOperator.DIVIDE && ( AnnotationUtils.areSame(lhs, nonzero()) && AnnotationUtils.areSame(rhs, negative()) ) ){
-            return nonzero();
-        }
-
-        if (operator == BinaryOperator.DIVIDE && ( AnnotationUtils.areSame(lhs, positive()) && AnnotationUtils.areSame(rhs, positive()) ) ){
-            return positive();
-        }
-
-        if (operator == BinaryOperator.DIVIDE && ( AnnotationUtils.areSame(lhs, positive()) && AnnotationUtils.areSame(rhs, negative()) ) ){
-            return negative();
-        }
-
-        if (operator == BinaryOperator.DIVIDE && ( AnnotationUtils.areSame(lhs, negative()) && AnnotationUtils.areSame(rhs, positive()) ) ){
-            return negative();
-        }
-
-        if (operator == BinaryOperator.DIVIDE && ( AnnotationUtils.areSame(lhs, negative()) && AnnotationUtils.areSame(rhs, negative()) ) ){
-            return negative();
-        }
-
-
-        /*
-
             | %       | Top   | Nonzero | Zero    | Positive  | Negative
             |---------|-------|---------|---------|-----------|---------|
-            | Top     | Error | Top     | Error   | Top       |    Top  | 
-            | Nonzero | Error | Top     | Error   | Top       |    Top  | 
-            | Zero    | Error | Zero    | Error   | Zero      |    Zero |  
+            | Top     | Error | Top     | Error   | Top       |    Top  |
+            | Nonzero | Error | Top     | Error   | Top       |    Top  |
+            | Zero    | Error | Zero    | Error   | Zero      |    Zero |
             | Positive| Error | Top     | Error   | Top       |    Top  |
             | Negative| Error | Top     | Error   | Top       |    Top  |
+    */
+
+    /** Results of arithmetic, indexed by [BinaryOperator][lhs][rhs]. */
+    private static final DivByZeroQualifier[][][] ARITHMETIC_TABLE = {
+        { // PLUS
+            /* Top      */ { TOP,  TOP,     TOP,      TOP,      TOP,      BOTTOM },
+            /* Nonzero  */ { TOP,  TOP,     NONZERO,  TOP,      TOP,      BOTTOM },
+            /* Zero     */ { TOP,  NONZERO, ZERO,     POSITIVE, NEGATIVE, BOTTOM },
+            /* Positive */ { TOP,  TOP,     POSITIVE, POSITIVE, TOP,      BOTTOM },
+            /* Negative */ { TOP,  TOP,     NEGATIVE, TOP,      NEGATIVE, BOTTOM },
+            /* Bottom   */ { BOTTOM, BOTTOM, BOTTOM,  BOTTOM,   BOTTOM,   BOTTOM },
+        },
+        { // MINUS
+            /* Top      */ { TOP,  TOP,     TOP,      TOP,      TOP,      BOTTOM },
+            /* Nonzero  */ { TOP,  TOP,     NONZERO,  TOP,      TOP,      BOTTOM },
+            /* Zero     */ { TOP,  NONZERO, ZERO,     NEGATIVE, POSITIVE, BOTTOM },
+            /* Positive */ { TOP,  TOP,     POSITIVE, TOP,      POSITIVE, BOTTOM },
+            /* Negative */ { TOP,  TOP,     NEGATIVE, NEGATIVE, TOP,      BOTTOM },
+            /* Bottom   */ { BOTTOM, BOTTOM, BOTTOM,  BOTTOM,   BOTTOM,   BOTTOM },
+        },
+        { // TIMES
+            /* Top      */ { TOP,  TOP,     ZERO,     TOP,      TOP,      BOTTOM },
+            /* Nonzero  */ { TOP,  NONZERO, ZERO,     NONZERO,  NONZERO,  BOTTOM },
+            /* Zero     */ { ZERO, ZERO,    ZERO,     ZERO,     ZERO,     BOTTOM },
+            /* Positive */ { TOP,  NONZERO, ZERO,     POSITIVE, NEGATIVE, BOTTOM },
+            /* Negative */ { TOP,  NONZERO, ZERO,     NEGATIVE, POSITIVE, BOTTOM },
+            /* Bottom   */ { BOTTOM, BOTTOM, BOTTOM,  BOTTOM,   BOTTOM,   BOTTOM },
+        },
+        { // DIVIDE
+            /* Top      */ { TOP,     TOP,     TOP,     TOP,      TOP,      BOTTOM },
+            /* Nonzero  */ { NONZERO, NONZERO, NONZERO, NONZERO,  NONZERO,  BOTTOM },
+            /* Zero     */ { ZERO,    ZERO,    ZERO,    ZERO,     ZERO,     BOTTOM },
+            /* Positive */ { TOP,     NONZERO, TOP,     POSITIVE, NEGATIVE, BOTTOM },
+            /* Negative */ { TOP,     NONZERO, TOP,     NEGATIVE, POSITIVE, BOTTOM },
+            /* Bottom   */ { BOTTOM,  BOTTOM,  BOTTOM,  BOTTOM,   BOTTOM,   BOTTOM },
+        },
+        { // MOD
+            /* Top      */ { TOP,  TOP,  TOP,  TOP,  TOP,  BOTTOM },
+            /* Nonzero  */ { TOP,  TOP,  TOP,  TOP,  TOP,  BOTTOM },
+            /* Zero     */ { ZERO, ZERO, ZERO, ZERO, ZERO, BOTTOM },
+            /* Positive */ { TOP,  TOP,  TOP,  TOP,  TOP,  BOTTOM },
+            /* Negative */ { TOP,  TOP,  TOP,  TOP,  TOP,  BOTTOM },
+            /* Bottom   */ { BOTTOM, BOTTOM, BOTTOM, BOTTOM, BOTTOM, BOTTOM },
+        },
+    };
+
+    /** Results of refineLhsOfComparison, indexed by [Comparison][lhs][rhs]. */
+    private static final DivByZeroQualifier[][][] COMPARISON_TABLE = buildComparisonTable();
+
+    private static DivByZeroQualifier[][][] buildComparisonTable() {
+        int n = DivByZeroQualifier.VALUES.length;
+        DivByZeroQualifier[][][] table = new DivByZeroQualifier[Comparison.values().length][n][n];
+        for (Comparison op : Comparison.values()) {
+            for (DivByZeroQualifier lhs : DivByZeroQualifier.VALUES) {
+                for (DivByZeroQualifier rhs : DivByZeroQualifier.VALUES) {
+                    DivByZeroQualifier refined = refinement(op, rhs);
+                    table[op.ordinal()][lhs.ordinal()][rhs.ordinal()] = refined == null ? lhs : refined;
+                }
+            }
+        }
+        return table;
+    }
 
-        */
-
-        if (operator == BinaryOperator.MOD && AnnotationUtils.areSame(lhs, zero()) ){
-            return zero();
+    /**
+     * What `lhs op rhs` tells us about lhs, independent of what we knew before.
+     *
+     * @return the refined point, or null if the comparison teaches us nothing
+     */
+    private static DivByZeroQualifier refinement(Comparison operator, DivByZeroQualifier rhs) {
+        switch (operator) {
+            case EQ:
+                return rhs;
+            case NE:
+                // can't say anything about NE comparison with nonzero and Top.
+                switch (rhs) {
+                    case ZERO:     return NONZERO;
+                    case POSITIVE: return NEGATIVE;
+                    case NEGATIVE: return POSITIVE;
+                    default:       return null;
+                }
+            case LT:
+                // Can't say anything for LT operator, with positive and nonzero classes.
+                return rhs == NEGATIVE || rhs == ZERO ? NEGATIVE : null;
+            case LE:
+                // Can't say anything for LE operator, with positive, zero, and nonzero classes.
+                return rhs == NEGATIVE ? NEGATIVE : null;
+            case GT:
+                // Can't say anything for GT operator, with negative and nonzero classes.
+                return rhs == ZERO || rhs == POSITIVE ? POSITIVE : null;
+            case GE:
+                // Can't say anything for GE operator, with negative, zero, and nonzero classes.
+                return rhs == POSITIVE ? POSITIVE : null;
+            default:
+                throw new IllegalArgumentException(operator.toString());
         }
-        return top();
     }
 
     // ========================================================================
@@ -372,12 +270,12 @@ public class DivByZeroTransfer extends CFTransfer {
 
     /** Get the top of the lattice */
     private AnnotationMirror top() {
-        return analysis.getTypeFactory().getQualifierHierarchy().getTopAnnotations().iterator().next();
+        return qualifiers.top();
     }
 
     /** Get the bottom of the lattice */
     private AnnotationMirror bottom() {
-        return analysis.getTypeFactory().getQualifierHierarchy().getBottomAnnotations().iterator().next();
+        return qualifiers.bottom();
     }
 
     /** Compute the least-upper-bound of two points in the lattice */
@@ -390,27 +288,30 @@ public class DivByZeroTransfer extends CFTransfer {
         return analysis.getTypeFactory().getQualifierHierarchy().greatestLowerBound(x, y);
     }
 
-    /** Convert a "Class" object (e.g. "Top.class") to a point in the lattice */
-    private AnnotationMirror reflect(Class<? extends Annotation> qualifier) {
-        return AnnotationBuilder.fromClass(
-            analysis.getTypeFactory().getProcessingEnv().getElementUtils(),
-            qualifier);
-    }
-
     private AnnotationMirror nonzero() {
-        return reflect(Nonzero.class);
+        return mirror(NONZERO);
     }
 
     private AnnotationMirror positive() {
-        return reflect(Positive.class);
+        return mirror(POSITIVE);
     }
 
     private AnnotationMirror negative() {
-        return reflect(Negative.class);
+        return mirror(NEGATIVE);
     }
 
     private AnnotationMirror zero() {
-        return reflect(Zero.class);
+        return mirror(ZERO);
+    }
+
+    /** Convert a point in the lattice to its table index, or null if it is not in this lattice */
+    private DivByZeroQualifier qualifierOf(AnnotationMirror qualifier) {
+        return qualifiers.qualifierOf(qualifier);
+    }
+
+    /** Convert a table entry back to a point in the lattice */
+    private AnnotationMirror mirror(DivByZeroQualifier qualifier) {
+        return qualifiers.mirror(qualifier);
     }
 
     /** Determine whether two AnnotationMirrors are the same point in the lattice */
@@ -419,7 +320,7 @@ public class DivByZeroTransfer extends CFTransfer {
     }
 
     /** `x op y` == `y flip(op) x` */
-    private Comparison flip(Comparison op) {
+    static Comparison flip(Comparison op) {
         switch (op) {
             case EQ: return Comparison.EQ;
             case NE: return Comparison.NE;
@@ -432,7 +333,7 @@ public class DivByZeroTransfer extends CFTransfer {
     }
 
     /** `x op y` == `!(x negate(op) y)` */
-    private Comparison negate(Comparison op) {
+    static Comparison negate(Comparison op) {
         switch (op) {
             case EQ: return Comparison.NE;
             case NE: return Comparison.EQ;
@@ -447,53 +348,130 @@ public class DivByZeroTransfer extends CFTransfer {
     // ========================================================================
     // Checker Framework plumbing
 
+    /** The qualifier mirrors for this compilation, owned by the type factory */
+    private final DivByZeroQualifiers qualifiers;
+
+    /** Null unless metrics were requested */
+    private final DivByZeroMetrics metrics;
+
+    /** Null on a JVM without a flight recorder */
+    private final DivByZeroEvents events;
+
+    private final DivByZeroSummaries summaries;
+
+    private final DivByZeroConstants constants;
+
     public DivByZeroTransfer(CFAnalysis analysis) {
         super(analysis);
+        DivByZeroAnnotatedTypeFactory factory = (DivByZeroAnnotatedTypeFactory) analysis.getTypeFactory();
+        qualifiers = factory.getQualifiers();
+        metrics = factory.getMetrics();
+        events = factory.getEvents();
+        summaries = factory.getSummaries();
+        constants = factory.getConstants();
+    }
+
+    DivByZeroQualifiers getQualifiers() {
+        return qualifiers;
     }
 
+    /**
+     * Refine the operands of a comparison in the then and else stores. Only
+     * int and long operands are refined, since only they can be divisors; a
+     * store is copied only if one of its operands gets a new point, and each
+     * operand's flow expression is built at most once.
+     */
     private TransferResult<CFValue, CFStore> implementComparison(Comparison op, BinaryOperationNode n, TransferResult<CFValue, CFStore> out) {
-        QualifierHierarchy hierarchy = analysis.getTypeFactory().getQualifierHierarchy();
-        AnnotationMirror l = findAnnotation(analysis.getValue(n.getLeftOperand()).getAnnotations(), hierarchy);
-        AnnotationMirror r = findAnnotation(analysis.getValue(n.getRightOperand()).getAnnotations(), hierarchy);
+        Node left = n.getLeftOperand();
+        Node right = n.getRightOperand();
+        boolean refineLeft = isInt(left);
+        boolean refineRight = isInt(right);
+        if (!refineLeft && !refineRight) {
+            return out;
+        }
+        AnnotationMirror lm = findAnnotation(analysis.getValue(left).getAnnotations());
+        AnnotationMirror rm = findAnnotation(analysis.getValue(right).getAnnotations());
 
-        if (l == null || r == null) {
+        if (lm == null || rm == null) {
             // this can happen for generic types
             return out;
         }
 
-        CFStore thenStore = out.getThenStore().copy();
-        CFStore elseStore = out.getElseStore().copy();
-
-        thenStore.insertValue(
-            FlowExpressions.internalReprOf(analysis.getTypeFactory(), n.getLeftOperand()),
-            refineLhsOfComparison(op, l, r));
+        if (metrics != null) {
+            metrics.comparison(op);
+        }
+        DivByZeroQualifier l = qualifierOf(lm);
+        DivByZeroQualifier r = qualifierOf(rm);
+        // what each operand is when the comparison is true, and when it is false;
+        // the store keeps the more specific of the old and the new point anyway
+        DivByZeroQualifier lThen = refineLeft ? l.glb(comparison(op, l, r)) : l;
+        DivByZeroQualifier rThen = refineRight ? r.glb(comparison(flip(op), r, l)) : r;
+        DivByZeroQualifier lElse = refineLeft ? l.glb(comparison(negate(op), l, r)) : l;
+        DivByZeroQualifier rElse = refineRight ? r.glb(comparison(flip(negate(op)), r, l)) : r;
+        boolean thenChanges = lThen != l || rThen != r;
+        boolean elseChanges = lElse != l || rElse != r;
+        if (!thenChanges && !elseChanges) {
+            return out;
+        }
 
-        thenStore.insertValue(
-            FlowExpressions.internalReprOf(analysis.getTypeFactory(), n.getRightOperand()),
-            refineLhsOfComparison(flip(op), r, l));
+        FlowExpressions.Receiver leftReceiver = lThen != l || lElse != l
+                ? FlowExpressions.internalReprOf(analysis.getTypeFactory(), left) : null;
+        FlowExpressions.Receiver rightReceiver = rThen != r || rElse != r
+                ? FlowExpressions.internalReprOf(analysis.getTypeFactory(), right) : null;
 
-        elseStore.insertValue(
-            FlowExpressions.internalReprOf(analysis.getTypeFactory(), n.getLeftOperand()),
-            refineLhsOfComparison(negate(op), l, r));
+        CFStore thenStore = out.getThenStore();
+        if (thenChanges) {
+            thenStore = thenStore.copy();
+            refine(thenStore, leftReceiver, l, lThen);
+            refine(thenStore, rightReceiver, r, rThen);
+        }
+        CFStore elseStore = out.getElseStore();
+        if (elseChanges) {
+            elseStore = elseStore.copy();
+            refine(elseStore, leftReceiver, l, lElse);
+            refine(elseStore, rightReceiver, r, rElse);
+        }
+        if (metrics != null) {
+            metrics.storeCopies((thenChanges ? 1 : 0) + (elseChanges ? 1 : 0));
+        }
+        return new ConditionalTransferResult<>(out.getResultValue(), thenStore, elseStore);
+    }
 
-        elseStore.insertValue(
-            FlowExpressions.internalReprOf(analysis.getTypeFactory(), n.getRightOperand()),
-            refineLhsOfComparison(flip(negate(op)), r, l));
+    private void refine(CFStore store, FlowExpressions.Receiver receiver, DivByZeroQualifier before, DivByZeroQualifier after) {
+        if (after != before) {
+            store.insertValue(receiver, mirror(after));
+        }
+    }
 
-        return new ConditionalTransferResult<>(out.getResultValue(), thenStore, elseStore);
+    /** Uses javac's type of the operand, so it costs no annotated-type lookup */
+    private static boolean isInt(Node node) {
+        TypeKind kind = node.getType().getKind();
+        return kind == TypeKind.INT || kind == TypeKind.LONG;
     }
 
     private TransferResult<CFValue, CFStore> implementOperator(BinaryOperator op, BinaryOperationNode n, TransferResult<CFValue, CFStore> out) {
-        QualifierHierarchy hierarchy = analysis.getTypeFactory().getQualifierHierarchy();
-        AnnotationMirror l = findAnnotation(analysis.getValue(n.getLeftOperand()).getAnnotations(), hierarchy);
-        AnnotationMirror r = findAnnotation(analysis.getValue(n.getRightOperand()).getAnnotations(), hierarchy);
+        DivByZeroQualifier folded = constants.qualifier(n.getTree());
+        if (folded != null) {
+            // a constant expression: its exact value, whatever the operands' lattice points
+            CFValue constant = analysis.createSingleAnnotationValue(mirror(folded), out.getResultValue().getUnderlyingType());
+            return new RegularTransferResult<>(constant, out.getRegularStore());
+        }
+
+        AnnotationMirror l = findAnnotation(analysis.getValue(n.getLeftOperand()).getAnnotations());
+        AnnotationMirror r = findAnnotation(analysis.getValue(n.getRightOperand()).getAnnotations());
 
         if (l == null || r == null) {
             // this can happen for generic types
             return out;
         }
 
+        if (metrics != null) {
+            metrics.operator(op);
+        }
         AnnotationMirror res = arithmeticTransfer(op, l, r);
+        if (events != null && events.sampleTransfer()) {
+            events.transfer(op, qualifierOf(l), qualifierOf(r), qualifierOf(res));
+        }
         CFValue newResultValue = analysis.createSingleAnnotationValue(res, out.getResultValue().getUnderlyingType());
         return new RegularTransferResult<>(newResultValue, out.getRegularStore());
     }
@@ -563,13 +541,33 @@ public class DivByZeroTransfer extends CFTransfer {
         return implementOperator(BinaryOperator.MINUS, n, super.visitNumericalSubtraction(n, p));
     }
 
-    private static AnnotationMirror findAnnotation(
-            Set<AnnotationMirror> set, QualifierHierarchy hierarchy) {
-        if (set.size() == 0) {
-            return null;
+    /** A call to a method that cannot be overridden returns what its body returns */
+    @Override
+    public TransferResult<CFValue, CFStore> visitMethodInvocation(MethodInvocationNode n, TransferInput<CFValue, CFStore> p) {
+        TransferResult<CFValue, CFStore> out = super.visitMethodInvocation(n, p);
+        CFValue value = out.getResultValue();
+        if (value == null) {
+            return out;
+        }
+        DivByZeroQualifier summary = summaries.returnQualifier(n.getTarget().getMethod());
+        AnnotationMirror declared = findAnnotation(value.getAnnotations());
+        if (summary == null || declared == null) {
+            return out;
+        }
+        DivByZeroQualifier refined = qualifierOf(declared).glb(summary);
+        if (refined != qualifierOf(declared)) {
+            out.setResultValue(analysis.createSingleAnnotationValue(mirror(refined), value.getUnderlyingType()));
+        }
+        return out;
+    }
+
+    private AnnotationMirror findAnnotation(Set<AnnotationMirror> set) {
+        for (AnnotationMirror m : set) {
+            if (qualifiers.qualifierOf(m) != null) {
+                return m;
+            }
         }
-        Set<? extends AnnotationMirror> tops = hierarchy.getTopAnnotations();
-        return hierarchy.findAnnotationInSameHierarchy(set, tops.iterator().next());
+        return null;
     }
 
 }
@@ -3,20 +3,23 @@ package org.checkerframework.checker.dividebyzero;
 import org.checkerframework.common.basetype.BaseTypeChecker;
 import org.checkerframework.common.basetype.BaseTypeVisitor;
 import org.checkerframework.framework.source.Result;
+import org.checkerframework.framework.type.AnnotatedTypeMirror;
+import org.checkerframework.javacutil.TreeUtils;
 
 import javax.lang.model.type.TypeKind;
-import java.lang.annotation.Annotation;
 import com.sun.source.tree.*;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.Set;
 import java.util.EnumSet;
-
-import org.checkerframework.checker.dividebyzero.qual.*;
+import java.util.IdentityHashMap;
+import java.util.Map;
 
 public class DivByZeroVisitor extends BaseTypeVisitor<DivByZeroAnnotatedTypeFactory> {
 
-    /** Set of operators we care about */
-    private static final Set<Tree.Kind> DIVISION_OPERATORS = EnumSet.of(
+    /** Set of operators we care about; DivByZeroPrescan looks for the same ones */
+    static final Set<Tree.Kind> DIVISION_OPERATORS = EnumSet.of(
         /* x /  y */ Tree.Kind.DIVIDE,
         /* x /= y */ Tree.Kind.DIVIDE_ASSIGNMENT,
         /* x %  y */ Tree.Kind.REMAINDER,
@@ -31,13 +34,7 @@ public class DivByZeroVisitor extends BaseTypeVisitor<DivByZeroAnnotatedTypeFact
     private boolean errorAt(BinaryTree node) {
         // A BinaryTree represents a binary operator, like + or -.
         if (node.getKind() == Tree.Kind.DIVIDE || node.getKind() == Tree.Kind.REMAINDER) {
-            if(hasAnnotation(node.getRightOperand(), Zero.class)) {
-                return true;
-            }
-
-            if(hasAnnotation(node.getRightOperand(), Top.class)) {
-                return true;
-            }
+            return mayBeZero(classifyDivisor(node, node.getRightOperand()));
         }
         return false;
     }
@@ -52,17 +49,15 @@ public class DivByZeroVisitor extends BaseTypeVisitor<DivByZeroAnnotatedTypeFact
         // A CompoundAssignmentTree represents a binary operator plus assignment,
         // like "x += 10".
         if (node.getKind() == Tree.Kind.DIVIDE_ASSIGNMENT || node.getKind() == Tree.Kind.REMAINDER_ASSIGNMENT) {
-            if(hasAnnotation(node.getExpression(), Zero.class)) {
-                return true;
-            }
-
-            if(hasAnnotation(node.getExpression(), Top.class)) {
-                return true;
-            }
+            return mayBeZero(classifyDivisor(node, node.getExpression()));
         }
         return false;
     }
 
+    private static boolean mayBeZero(DivByZeroQualifier divisor) {
+        return divisor == DivByZeroQualifier.ZERO || divisor == DivByZeroQualifier.TOP;
+    }
+
     // ========================================================================
     // Useful helpers
 
@@ -70,26 +65,164 @@ public class DivByZeroVisitor extends BaseTypeVisitor<DivByZeroAnnotatedTypeFact
         TypeKind.INT,
         TypeKind.LONG);
 
+    /** Uses javac's type, so it costs no annotated-type lookup */
     private boolean isInt(Tree node) {
-        return INT_TYPES.contains(atypeFactory.getAnnotatedType(node).getKind());
+        return INT_TYPES.contains(TreeUtils.typeOf(node).getKind());
+    }
+
+    /** Divisor classifications for the current compilation unit, keyed by the division */
+    private final Map<Tree, DivByZeroQualifier> divisors = new IdentityHashMap<>();
+
+    /** Division nodes classified */
+    private long divisionsClassified;
+
+    /**
+     * Find the point in the lattice for the divisor of a division. The
+     * annotated type of the divisor, which already includes the dataflow
+     * result, is computed once and the answer is remembered for the division.
+     * With the interval domain on, a divisor that may be zero is also looked
+     * up in the intervals of the enclosing method.
+     */
+    private DivByZeroQualifier classifyDivisor(Tree division, ExpressionTree divisor) {
+        DivByZeroQualifier q = divisors.get(division);
+        if (q == null) {
+            divisionsClassified++;
+            AnnotatedTypeMirror type = atypeFactory.getAnnotatedType(divisor);
+            q = qualifiers.qualifierIn(type.getAnnotations());
+            if (q == null) {
+                // e.g. a type variable without a primary annotation
+                q = DivByZeroQualifier.TOP;
+            }
+            DivByZeroIntervals intervals = atypeFactory.getIntervals();
+            if (intervals != null && mayBeZero(q)) {
+                MethodTree method = TreeUtils.enclosingMethod(getCurrentPath());
+                DivByZeroQualifier range = method == null ? null : intervals.divisor(method, division);
+                if (range != null) {
+                    q = q.glb(range);
+                }
+            }
+            divisors.put(division, q);
+        }
+        return q;
     }
 
-    private boolean hasAnnotation(Tree node, Class<? extends Annotation> c) {
-        return atypeFactory.getAnnotatedType(node).hasAnnotation(c);
+    long getDivisionsClassified() {
+        return divisionsClassified;
     }
 
     // ========================================================================
     // Checker Framework plumbing
 
+    /** The qualifier mirrors for this compilation, owned by the type factory */
+    private final DivByZeroQualifiers qualifiers;
+
+    /** Null unless the checker was run with {@code -Adbz.metrics} */
+    private final DivByZeroMetrics metrics;
+
+    /** Null on a JVM without a flight recorder */
+    private final DivByZeroEvents events;
+
     public DivByZeroVisitor(BaseTypeChecker c) {
         super(c);
+        qualifiers = atypeFactory.getQualifiers();
+        metrics = atypeFactory.getMetrics();
+        events = atypeFactory.getEvents();
+        owner = c instanceof DivByZeroChecker ? (DivByZeroChecker) c : null;
+    }
+
+    DivByZeroQualifiers getQualifiers() {
+        return qualifiers;
+    }
+
+    /** The checker, if it is a DivByZeroChecker; it owns the baseline */
+    private final DivByZeroChecker owner;
+
+    /** Fingerprints divisions in the current unit; created on first use */
+    private DivByZeroBaseline.Fingerprinter fingerprinter;
+
+    /** Findings not reported because they are in the baseline */
+    private long baselined;
+
+    long getBaselined() {
+        return baselined;
+    }
+
+    private DivByZeroBaseline.Fingerprinter fingerprinter() {
+        if (fingerprinter == null) {
+            try {
+                fingerprinter = new DivByZeroBaseline.Fingerprinter(root, trees.getSourcePositions());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return fingerprinter;
+    }
+
+    /** The body of the method being visited, if it has nothing to report; see {@link DivByZeroPrescan} */
+    private Tree skippedBody;
+
+    @Override
+    public Void scan(Tree tree, Void p) {
+        if (tree != null && tree == skippedBody) {
+            return null;
+        }
+        return super.scan(tree, p);
+    }
+
+    @Override
+    public Void visitClass(ClassTree node, Void p) {
+        // every message in the class would be suppressed
+        if (atypeFactory.getPrescan().isSuppressed(TreeUtils.elementFromDeclaration(node))) {
+            return null;
+        }
+        return super.visitClass(node, p);
+    }
+
+    @Override
+    public Void visitMethod(MethodTree node, Void p) {
+        if (owner != null && owner.isOverBudget()) {
+            return null;
+        }
+        // the signature is still checked, e.g. against overridden methods
+        skippedBody = atypeFactory.getPrescan().canSkip(node) ? node.getBody() : null;
+        if (events == null) {
+            return measure(node, p);
+        }
+        Object event = events.beginVisit();
+        try {
+            return measure(node, p);
+        } finally {
+            if (event != null) {
+                events.endVisit(event, TreeUtils.enclosingClass(getCurrentPath()), node);
+            }
+        }
+    }
+
+    private Void measure(MethodTree node, Void p) {
+        if (metrics == null) {
+            return super.visitMethod(node, p);
+        }
+        long start = System.nanoTime();
+        try {
+            return super.visitMethod(node, p);
+        } finally {
+            metrics.visited(TreeUtils.enclosingClass(getCurrentPath()), node, System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public void setRoot(CompilationUnitTree root) {
+        divisors.clear();
+        fingerprinter = null;
+        super.setRoot(root);
     }
 
     @Override
     public Void visitBinary(BinaryTree node, Void p) {
-        if (isInt(node)) {
+        // Only divisions need a type lookup; every other operator returns here.
+        if (DIVISION_OPERATORS.contains(node.getKind()) && isInt(node)) {
             if (errorAt(node)) {
-                checker.report(Result.failure("divide.by.zero"), node);
+                reportDivision(node);
             }
         }
         return super.visitBinary(node, p);
@@ -97,12 +230,46 @@ public class DivByZeroVisitor extends BaseTypeVisitor<DivByZeroAnnotatedTypeFact
 
     @Override
     public Void visitCompoundAssignment(CompoundAssignmentTree node, Void p) {
-        if (isInt(node.getExpression())) {
+        if (DIVISION_OPERATORS.contains(node.getKind()) && isInt(node.getExpression())) {
             if (errorAt(node)) {
-                checker.report(Result.failure("divide.by.zero"), node);
+                reportDivision(node);
             }
         }
         return super.visitCompoundAssignment(node, p);
     }
 
+    /**
+     * Report a division whose divisor may be zero. The arguments, the divisor
+     * qualifier and the enclosing method, are not part of the message text;
+     * they are for {@link DivByZeroOutput}.
+     */
+    private void reportDivision(Tree division) {
+        if (owner != null && owner.isOverBudget()) {
+            // spent within this method
+            return;
+        }
+        MethodTree method = TreeUtils.enclosingMethod(getCurrentPath());
+        ClassTree enclosingClass = TreeUtils.enclosingClass(getCurrentPath());
+        long fingerprint = 0;
+        if (owner != null && (owner.getBaseline() != null || owner.isWritingBaseline())) {
+            fingerprint = fingerprinter().fingerprint(enclosingClass, method, division);
+            if (owner.getBaseline() != null && owner.getBaseline().contains(fingerprint)) {
+                baselined++;
+                return;
+            }
+        }
+        String where = DivByZeroMetrics.className(enclosingClass);
+        if (method != null) {
+            where += "." + DivByZeroMetrics.signature(method);
+        }
+        String divisor = divisors.get(division).annotation.getSimpleName();
+        Result result = Result.failure("divide.by.zero", divisor, where);
+        if (owner != null && owner.isWritingBaseline()) {
+            // recorded by the checker only if it issues the warning
+            owner.report(result, division, fingerprint);
+        } else {
+            checker.report(result, division);
+        }
+    }
+
 }
@@ -0,0 +1,470 @@
+package org.checkerframework.checker.dividebyzero;
+
+import com.sun.source.tree.ClassTree;
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.tree.IdentifierTree;
+import com.sun.source.tree.MemberSelectTree;
+import com.sun.source.tree.MethodTree;
+import com.sun.source.tree.Tree;
+import com.sun.source.tree.VariableTree;
+import com.sun.source.util.SourcePositions;
+import com.sun.source.util.TreePath;
+import com.sun.source.util.TreeScanner;
+import com.sun.source.util.Trees;
+import org.checkerframework.dataflow.cfg.ControlFlowGraph;
+import org.checkerframework.dataflow.cfg.UnderlyingAST;
+import org.checkerframework.dataflow.cfg.block.Block;
+import org.checkerframework.dataflow.cfg.block.ConditionalBlock;
+import org.checkerframework.dataflow.cfg.block.ExceptionBlock;
+import org.checkerframework.dataflow.cfg.block.RegularBlock;
+import org.checkerframework.dataflow.cfg.block.SingleSuccessorBlock;
+import org.checkerframework.dataflow.cfg.node.Node;
+import org.checkerframework.dataflow.cfg.node.VariableDeclarationNode;
+import org.checkerframework.javacutil.TreeUtils;
+
+import javax.lang.model.element.Element;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeKind;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * The loop-head stores of earlier runs, enabled by
+ * {@code -Adbz.warmStart=path}, used to start the dataflow of an unchanged
+ * method close to its fixpoint.
+ *
+ * <p>When the analysis of a method converges, the qualifier of each int and
+ * long local at each loop head is saved under a hash of everything the
+ * method's dataflow depends on: the checker's class files and the options
+ * that can change its results, as in {@link DivByZeroCache}; the enclosing
+ * class name and the method's source text; the source text of the methods
+ * and fields of the same compilation unit that it uses, and of those they
+ * use in turn, since their summaries and constant values come from that
+ * text; and the signature of every other type any of them refers to, with
+ * the annotations of its members. On a later run, when the hash matches,
+ * each of those locals is raised to its saved qualifier as the analysis
+ * first reaches the loop head, so the first pass over the body already
+ * computes the fixpoint, and the second only confirms it. Loop heads and
+ * locals are identified by their position in the method text, which the
+ * hash pins down.
+ *
+ * <p>The seed can only add values: what the analysis computes is joined with
+ * it, never replaced by it, and iteration then goes on to a fixpoint as
+ * usual. So the result is sound even when the seed is wrong; since the hash
+ * changes with anything that could change the fixpoint, a seed that matches
+ * is the fixpoint the analysis would reach anyway, and a stale one is never
+ * used. Stores at method exit are not saved; they follow from the loop heads
+ * in one pass.
+ *
+ * <p>The file is read whole when the checker starts and written, with the
+ * entries of this run added, when it ends: {@code "DBZW"}, the format
+ * version and the method count as ints, then per method its hash and loop
+ * head count, per head its key and local count, and per local its offset
+ * and qualifier ordinal, all big-endian. It is replaced atomically, so a
+ * checker that dies midway leaves the previous file.
+ */
+final class DivByZeroWarmStart {
+
+    private static final int MAGIC = 0x44425a57;
+    private static final int VERSION = 2;
+
+    /** Per method hash, per loop head key, per local offset, the converged qualifier */
+    private final Map<Long, Map<Long, Map<Integer, DivByZeroQualifier>>> seeds;
+
+    /** Hash of the checker classes and options, part of every method hash */
+    private final byte[] salt;
+    private final Trees trees;
+    /** Signature hashes of the types seen so far in this run */
+    private final Map<TypeElement, byte[]> signatures = new IdentityHashMap<>();
+
+    /** Methods seeded, and those whose seed was saved, in this run */
+    private int seeded;
+    private int saved;
+
+    private DivByZeroWarmStart(Map<Long, Map<Long, Map<Integer, DivByZeroQualifier>>> seeds, byte[] salt, Trees trees) {
+        this.seeds = seeds;
+        this.salt = salt;
+        this.trees = trees;
+    }
+
+    /**
+     * Read a warm-start file; a missing file is empty
+     *
+     * @param salt  a hash of the checker and of the options that can change its results; see
+     *              {@link DivByZeroCache#salt}
+     */
+    static DivByZeroWarmStart load(Path path, byte[] salt, Trees trees) throws IOException {
+        return new DivByZeroWarmStart(read(path), salt, trees);
+    }
+
+    /** Write the entries of all the given files to one, such as those of parallel runs */
+    static void merge(List<Path> parts, Path into) throws IOException {
+        Map<Long, Map<Long, Map<Integer, DivByZeroQualifier>>> seeds = new TreeMap<>();
+        for (Path part : parts) {
+            // equal hashes have equal entries
+            seeds.putAll(read(part));
+        }
+        write(seeds, into);
+    }
+
+    private static Map<Long, Map<Long, Map<Integer, DivByZeroQualifier>>> read(Path path) throws IOException {
+        Map<Long, Map<Long, Map<Integer, DivByZeroQualifier>>> seeds = new TreeMap<>();
+        ByteBuffer buf;
+        try {
+            buf = ByteBuffer.wrap(Files.readAllBytes(path));
+        } catch (NoSuchFileException e) {
+            return seeds;
+        }
+        try {
+            if (buf.getInt() != MAGIC) {
+                throw new IOException(path + " is not a divide-by-zero warm-start file");
+            }
+            if (buf.getInt() != VERSION) {
+                // written by another version of the checker; start cold
+                return seeds;
+            }
+            for (int m = buf.getInt(); m > 0; m--) {
+                Map<Long, Map<Integer, DivByZeroQualifier>> heads = new TreeMap<>();
+                seeds.put(buf.getLong(), heads);
+                for (int h = buf.getInt(); h > 0; h--) {
+                    Map<Integer, DivByZeroQualifier> locals = new TreeMap<>();
+                    heads.put(buf.getLong(), locals);
+                    for (int l = buf.getInt(); l > 0; l--) {
+                        int offset = buf.getInt();
+                        int ordinal = buf.get();
+                        if (ordinal < 0 || ordinal >= DivByZeroQualifier.VALUES.length) {
+                            throw new IOException(path + " is corrupt");
+                        }
+                        locals.put(offset, DivByZeroQualifier.VALUES[ordinal]);
+                    }
+                }
+            }
+        } catch (BufferUnderflowException e) {
+            throw new IOException(path + " is truncated");
+        }
+        return seeds;
+    }
+
+    void write(Path path) throws IOException {
+        write(seeds, path);
+    }
+
+    private static void write(Map<Long, Map<Long, Map<Integer, DivByZeroQualifier>>> seeds, Path path)
+            throws IOException {
+        int size = 12;
+        for (Map<Long, Map<Integer, DivByZeroQualifier>> heads : seeds.values()) {
+            size += 12;
+            for (Map<Integer, DivByZeroQualifier> locals : heads.values()) {
+                size += 12 + 5 * locals.size();
+            }
+        }
+        ByteBuffer buf = ByteBuffer.allocate(size);
+        buf.putInt(MAGIC).putInt(VERSION).putInt(seeds.size());
+        for (Map.Entry<Long, Map<Long, Map<Integer, DivByZeroQualifier>>> method : seeds.entrySet()) {
+            buf.putLong(method.getKey()).putInt(method.getValue().size());
+            for (Map.Entry<Long, Map<Integer, DivByZeroQualifier>> head : method.getValue().entrySet()) {
+                buf.putLong(head.getKey()).putInt(head.getValue().size());
+                for (Map.Entry<Integer, DivByZeroQualifier> local : head.getValue().entrySet()) {
+                    buf.putInt(local.getKey()).put((byte) local.getValue().ordinal());
+                }
+            }
+        }
+        Path dir = path.toAbsolutePath().getParent();
+        Files.createDirectories(dir);
+        Path tmp = Files.createTempFile(dir, path.getFileName().toString(), ".tmp");
+        try {
+            Files.write(tmp, buf.array());
+            Files.move(tmp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /** Methods whose analysis was seeded in this run */
+    int getSeeded() {
+        return seeded;
+    }
+
+    /** Methods whose converged loop-head stores were saved in this run */
+    int getSaved() {
+        return saved;
+    }
+
+    /**
+     * Identify the loop heads and locals of a method's control flow graph.
+     *
+     * @return null if the graph is not of a method with loops and source text
+     */
+    Method begin(ControlFlowGraph cfg, CompilationUnitTree root, SourcePositions positions) {
+        UnderlyingAST ast = cfg.getUnderlyingAST();
+        if (ast.getKind() != UnderlyingAST.Kind.METHOD || root == null) {
+            return null;
+        }
+        MethodTree tree = ((UnderlyingAST.CFGMethod) ast).getMethod();
+        ClassTree classTree = ((UnderlyingAST.CFGMethod) ast).getClassTree();
+        long start = positions.getStartPosition(root, tree);
+        long end = positions.getEndPosition(root, tree);
+        CharSequence source;
+        try {
+            source = root.getSourceFile().getCharContent(true);
+        } catch (IOException e) {
+            return null;
+        }
+        if (start < 0 || end <= start || end > source.length()) {
+            return null;
+        }
+        Method method = new Method(root, positions, start);
+        for (Block head : loopHeads(cfg)) {
+            Node first = head instanceof RegularBlock && !((RegularBlock) head).getContents().isEmpty()
+                    ? ((RegularBlock) head).getContents().get(0)
+                    : head instanceof ExceptionBlock ? ((ExceptionBlock) head).getNode() : null;
+            // a head without a tree of its own cannot be found again
+            if (first != null && first.getTree() != null) {
+                method.heads.put(head, method.offset(first.getTree()) << 32
+                        | (first.getClass().getSimpleName().hashCode() & 0xffffffffL));
+            }
+        }
+        if (method.heads.isEmpty()) {
+            return null;
+        }
+        for (VariableTree param : tree.getParameters()) {
+            method.addLocal(param);
+        }
+        for (Node node : cfg.getAllNodes()) {
+            if (node instanceof VariableDeclarationNode) {
+                method.addLocal(((VariableDeclarationNode) node).getTree());
+            }
+        }
+        TypeElement type = classTree == null ? null : TreeUtils.elementFromDeclaration(classTree);
+        method.key = key(type == null ? "" : type.getQualifiedName().toString(), tree, root, positions, source);
+        return method;
+    }
+
+    /** The hash of everything the dataflow of a method depends on; see the class comment */
+    private long key(String className, MethodTree tree, CompilationUnitTree root, SourcePositions positions,
+            CharSequence source) {
+        MessageDigest md = DivByZeroCache.sha256();
+        md.update(salt);
+        DivByZeroCache.update(md, className);
+        Set<Tree> declarations = Collections.newSetFromMap(new IdentityHashMap<>());
+        Map<String, byte[]> types = new TreeMap<>();
+        Deque<Tree> pending = new ArrayDeque<>();
+        declarations.add(tree);
+        pending.add(tree);
+        while (!pending.isEmpty()) {
+            Tree declaration = pending.poll();
+            long start = positions.getStartPosition(root, declaration);
+            long end = positions.getEndPosition(root, declaration);
+            if (start >= 0 && end >= start && end <= source.length()) {
+                DivByZeroCache.update(md, source.subSequence((int) start, (int) end).toString());
+            }
+            new TreeScanner<Void, Void>() {
+                @Override
+                public Void visitIdentifier(IdentifierTree t, Void p) {
+                    use(TreeUtils.elementFromUse(t));
+                    return super.visitIdentifier(t, p);
+                }
+
+                @Override
+                public Void visitMemberSelect(MemberSelectTree t, Void p) {
+                    use(TreeUtils.elementFromUse(t));
+                    return super.visitMemberSelect(t, p);
+                }
+
+                private void use(Element e) {
+                    if (e == null) {
+                        return;
+                    }
+                    switch (e.getKind()) {
+                    case METHOD:
+                    case CONSTRUCTOR:
+                    case FIELD:
+                    case ENUM_CONSTANT: {
+                        TreePath path = trees.getPath(e);
+                        if (path != null && path.getCompilationUnit() == root) {
+                            if (declarations.add(path.getLeaf())) {
+                                pending.add(path.getLeaf());
+                            }
+                            return;
+                        }
+                        break;
+                    }
+                    case LOCAL_VARIABLE:
+                    case PARAMETER:
+                    case EXCEPTION_PARAMETER:
+                    case RESOURCE_VARIABLE:
+                        // declared in text already hashed
+                        return;
+                    default:
+                        break;
+                    }
+                    while (e != null && !(e instanceof TypeElement)) {
+                        e = e.getEnclosingElement();
+                    }
+                    if (e != null) {
+                        TypeElement t = (TypeElement) e;
+                        types.put(t.getQualifiedName().toString(), DivByZeroCache.signature(t, signatures));
+                    }
+                }
+            }.scan(declaration, null);
+        }
+        for (Map.Entry<String, byte[]> t : types.entrySet()) {
+            DivByZeroCache.update(md, t.getKey());
+            md.update(t.getValue());
+        }
+        return ByteBuffer.wrap(md.digest()).getLong();
+    }
+
+    /**
+     * The saved qualifiers of a method's locals, by loop head
+     *
+     * @return the seeds, or an empty map if there is no entry for the method as it is now
+     */
+    Map<Block, Map<VariableElement, DivByZeroQualifier>> seeds(Method method) {
+        Map<Long, Map<Integer, DivByZeroQualifier>> heads = seeds.get(method.key);
+        if (heads == null) {
+            return Collections.emptyMap();
+        }
+        Map<Block, Map<VariableElement, DivByZeroQualifier>> result = new IdentityHashMap<>();
+        for (Map.Entry<Block, Long> head : method.heads.entrySet()) {
+            Map<Integer, DivByZeroQualifier> locals = heads.get(head.getValue());
+            if (locals == null) {
+                continue;
+            }
+            Map<VariableElement, DivByZeroQualifier> seed = new HashMap<>();
+            for (Map.Entry<Integer, DivByZeroQualifier> local : locals.entrySet()) {
+                VariableElement element = method.locals.get(local.getKey());
+                if (element != null) {
+                    seed.put(element, local.getValue());
+                }
+            }
+            result.put(head.getKey(), seed);
+        }
+        if (!result.isEmpty()) {
+            seeded++;
+        }
+        return result;
+    }
+
+    /** Save the converged qualifiers of the method's locals, by loop head */
+    void save(Method method, Map<Block, Map<VariableElement, DivByZeroQualifier>> converged) {
+        Map<VariableElement, Integer> offsets = new IdentityHashMap<>();
+        for (Map.Entry<Integer, VariableElement> local : method.locals.entrySet()) {
+            offsets.put(local.getValue(), local.getKey());
+        }
+        Map<Long, Map<Integer, DivByZeroQualifier>> heads = new TreeMap<>();
+        for (Map.Entry<Block, Map<VariableElement, DivByZeroQualifier>> head : converged.entrySet()) {
+            Map<Integer, DivByZeroQualifier> locals = new TreeMap<>();
+            for (Map.Entry<VariableElement, DivByZeroQualifier> local : head.getValue().entrySet()) {
+                Integer offset = offsets.get(local.getKey());
+                if (offset != null) {
+                    locals.put(offset, local.getValue());
+                }
+            }
+            if (!locals.isEmpty()) {
+                heads.put(method.heads.get(head.getKey()), locals);
+            }
+        }
+        if (!heads.isEmpty()) {
+            seeds.put(method.key, heads);
+            saved++;
+        }
+    }
+
+    /** The blocks that a back edge leads to */
+    private static Set<Block> loopHeads(ControlFlowGraph cfg) {
+        // iterative depth-first search; a successor still on the path is a loop head
+        Set<Block> heads = Collections.newSetFromMap(new IdentityHashMap<>());
+        Set<Block> onPath = Collections.newSetFromMap(new IdentityHashMap<>());
+        Set<Block> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        Deque<Block> path = new ArrayDeque<>();
+        Deque<List<Block>> pending = new ArrayDeque<>();
+        seen.add(cfg.getEntryBlock());
+        onPath.add(cfg.getEntryBlock());
+        path.push(cfg.getEntryBlock());
+        pending.push(successors(cfg.getEntryBlock()));
+        while (!path.isEmpty()) {
+            List<Block> next = pending.peek();
+            if (next.isEmpty()) {
+                onPath.remove(path.pop());
+                pending.pop();
+                continue;
+            }
+            Block b = next.remove(next.size() - 1);
+            if (onPath.contains(b)) {
+                heads.add(b);
+            } else if (seen.add(b)) {
+                onPath.add(b);
+                path.push(b);
+                pending.push(successors(b));
+            }
+        }
+        return heads;
+    }
+
+    private static List<Block> successors(Block b) {
+        List<Block> successors = new ArrayList<>();
+        if (b instanceof SingleSuccessorBlock && ((SingleSuccessorBlock) b).getSuccessor() != null) {
+            successors.add(((SingleSuccessorBlock) b).getSuccessor());
+        }
+        if (b instanceof ConditionalBlock) {
+            successors.add(((ConditionalBlock) b).getThenSuccessor());
+            successors.add(((ConditionalBlock) b).getElseSuccessor());
+        }
+        if (b instanceof ExceptionBlock) {
+            for (Set<Block> handlers : ((ExceptionBlock) b).getExceptionalSuccessors().values()) {
+                successors.addAll(handlers);
+            }
+        }
+        return successors;
+    }
+
+    /** One method's hash, loop heads and locals */
+    static final class Method {
+        private final CompilationUnitTree root;
+        private final SourcePositions positions;
+        private final long start;
+
+        long key;
+        /** Key of each loop head: its first node's offset in the method, and the node's kind */
+        final Map<Block, Long> heads = new IdentityHashMap<>();
+        /** Int and long locals and parameters by the offset of their declaration */
+        final Map<Integer, VariableElement> locals = new HashMap<>();
+
+        private Method(CompilationUnitTree root, SourcePositions positions, long start) {
+            this.root = root;
+            this.positions = positions;
+            this.start = start;
+        }
+
+        private long offset(Tree tree) {
+            return positions.getStartPosition(root, tree) - start;
+        }
+
+        private void addLocal(VariableTree tree) {
+            VariableElement element = TreeUtils.elementFromDeclaration(tree);
+            TypeKind kind = element == null ? null : element.asType().getKind();
+            if (kind == TypeKind.INT || kind == TypeKind.LONG) {
+                locals.put((int) offset(tree), element);
+            }
+        }
+    }
+}
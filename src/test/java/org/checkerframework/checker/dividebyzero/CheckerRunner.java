@@ -0,0 +1,77 @@
+package org.checkerframework.checker.dividebyzero;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+/**
+ * Runs a checker instance through an in-process javac, for tests that inspect the checker's
+ * internal state after a run. {@code DivideByZeroTest} covers the diagnostics themselves.
+ */
+final class CheckerRunner {
+
+    private CheckerRunner() {}
+
+    /** All Java files directly inside the given test directory, in name order. */
+    static List<File> testFiles(String directory) {
+        File[] files = new File(directory).listFiles((dir, name) -> name.endsWith(".java"));
+        if (files == null) {
+            throw new IllegalArgumentException("not a directory: " + directory);
+        }
+        Arrays.sort(files);
+        return Arrays.asList(files);
+    }
+
+    /**
+     * Type-check the given files with the given checker instance.
+     *
+     * @return the diagnostics javac reported
+     */
+    static List<Diagnostic<? extends JavaFileObject>> run(
+            DivByZeroChecker checker, List<File> files, String... options) throws IOException {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        try (StandardJavaFileManager fileManager =
+                compiler.getStandardFileManager(diagnostics, Locale.ROOT, StandardCharsets.UTF_8)) {
+            List<String> args = new ArrayList<>();
+            args.add("-proc:only");
+            args.add("-classpath");
+            args.add(System.getProperty("java.class.path"));
+            args.add("-Anomsgtext");
+            args.addAll(Arrays.asList(options));
+            JavaCompiler.CompilationTask task =
+                    compiler.getTask(
+                            null,
+                            fileManager,
+                            diagnostics,
+                            args,
+                            null,
+                            fileManager.getJavaFileObjectsFromFiles(files));
+            task.setProcessors(Collections.singletonList(checker));
+            task.call();
+        }
+        return diagnostics.getDiagnostics();
+    }
+
+    /** Count the diagnostics with the given message key, e.g. "divide.by.zero". */
+    static int count(List<Diagnostic<? extends JavaFileObject>> diagnostics, String key) {
+        int n = 0;
+        for (Diagnostic<? extends JavaFileObject> d : diagnostics) {
+            if (d.getMessage(Locale.ROOT).contains(key)) {
+                n++;
+            }
+        }
+        return n;
+    }
+}
@@ -0,0 +1,501 @@
+package org.checkerframework.checker.dividebyzero;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import org.checkerframework.checker.dividebyzero.DivByZeroTransfer.BinaryOperator;
+import org.checkerframework.checker.dividebyzero.DivByZeroTransfer.Comparison;
+
+/**
+ * Writes synthetic Java classes for scaling tests and benchmarks of the checker. Each class has
+ * one large method made of straight-line arithmetic, chains of nested {@code if (p != 0)}
+ * guards, and loop nests with {@code /=} updates, in proportions set by a {@link Shape}.
+ *
+ * <p>Each generated class carries {@code // :: error: divide.by.zero} markers, so it can be
+ * checked like the files in {@code tests/dividebyzero}. The markers are computed by running the
+ * generated statements through the checker's own lattice tables ({@link
+ * DivByZeroTransfer#arithmetic}, {@link DivByZeroTransfer#comparison} and {@link
+ * DivByZeroQualifier#lub}), iterating each loop to its fixpoint the way dataflow does. A
+ * right-hand side made of two literals is folded to the qualifier of its value, as {@link
+ * DivByZeroConstants} does. Guards only test parameters that are still Top, so every refinement
+ * is below the value it replaces.
+ *
+ * <p>From the command line:
+ *
+ * <pre>
+ * ./gradlew generateCorpus -Pcorpus.args="--out=build/corpus --files=4 --statements=5000"
+ * </pre>
+ */
+public final class CorpusGenerator {
+
+    /** The parameters of a generated class. */
+    static final class Shape {
+        /** Arithmetic statements in the method, not counting declarations */
+        int statements = 200;
+        /** Depth of each chain of nested guards; 0 for no guards */
+        int branchDepth = 2;
+        /** Depth of each loop nest; 0 for no loops */
+        int loopNesting = 1;
+        /** Number of local int variables */
+        int variables = 8;
+        /** Fraction of statements that divide: /, %, /= or %= */
+        double divisionDensity = 0.25;
+        long seed = 1;
+
+        Shape copy() {
+            Shape s = new Shape();
+            s.statements = statements;
+            s.branchDepth = branchDepth;
+            s.loopNesting = loopNesting;
+            s.variables = variables;
+            s.divisionDensity = divisionDensity;
+            s.seed = seed;
+            return s;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(
+                    Locale.ROOT,
+                    "statements=%d branchDepth=%d loopNesting=%d variables=%d divisionDensity=%.2f seed=%d",
+                    statements, branchDepth, loopNesting, variables, divisionDensity, seed);
+        }
+    }
+
+    /** A generated class, and the number of divide.by.zero errors the checker should report in it */
+    static final class Generated {
+        final String className;
+        final String source;
+        final int errors;
+
+        Generated(String className, String source, int errors) {
+            this.className = className;
+            this.source = source;
+            this.errors = errors;
+        }
+    }
+
+    static final String MARKER = "// :: error: divide.by.zero";
+
+    /** Statements in each straight run, and in the innermost block of a guard chain or loop nest */
+    private static final int CHUNK = 8;
+
+    /** Iterations of each generated loop; dataflow does not depend on it */
+    private static final int LOOP_BOUND = 4;
+
+    private static final int[] LITERALS = {0, 1, 2, 3, 7, -1, -4};
+    private static final int[] DIVISOR_LITERALS = {1, 2, 3, 7, -1, -4};
+
+    private static final BinaryOperator[] NON_DIVISIONS = {
+        BinaryOperator.PLUS, BinaryOperator.MINUS, BinaryOperator.TIMES
+    };
+
+    private final Shape shape;
+    private final Random random;
+    private final int params;
+
+    private CorpusGenerator(Shape shape) {
+        if (shape.variables < 1 || shape.statements < 0 || shape.branchDepth < 0 || shape.loopNesting < 0) {
+            throw new IllegalArgumentException("bad shape: " + shape);
+        }
+        this.shape = shape;
+        this.random = new Random(shape.seed);
+        this.params = Math.max(1, shape.branchDepth);
+    }
+
+    /** Generate one class with the given shape. */
+    static Generated generate(Shape shape, String className) {
+        return new CorpusGenerator(shape).generate(className);
+    }
+
+    /**
+     * Write {@code files} classes named Gen0, Gen1, ... into the given directory. Class i uses the
+     * seed {@code shape.seed + i}.
+     */
+    static List<Generated> write(Shape shape, File directory, int files) throws IOException {
+        Files.createDirectories(directory.toPath());
+        List<Generated> result = new ArrayList<>();
+        for (int i = 0; i < files; i++) {
+            Shape s = shape.copy();
+            s.seed = shape.seed + i;
+            Generated g = generate(s, "Gen" + i);
+            Files.write(new File(directory, g.className + ".java").toPath(), g.source.getBytes(StandardCharsets.UTF_8));
+            result.add(g);
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    private Generated generate(String className) {
+        // slots 0..variables-1 are the locals v0..., the rest are the parameters p0...
+        DivByZeroQualifier[] state = new DivByZeroQualifier[shape.variables + params];
+        List<Operand> initializers = new ArrayList<>();
+        for (int p = 0; p < params; p++) {
+            state[shape.variables + p] = DivByZeroQualifier.TOP;
+        }
+        for (int v = 0; v < shape.variables; v++) {
+            Operand init = random.nextInt(4) == 0 ? param(random.nextInt(params)) : literal(pick(LITERALS));
+            initializers.add(init);
+            state[v] = init.value(state);
+        }
+
+        List<Stmt> body = new ArrayList<>();
+        int remaining = shape.statements;
+        for (int segment = 0; remaining > 0; segment++) {
+            int n = Math.min(CHUNK, remaining);
+            remaining -= n;
+            if (segment % 3 == 1 && shape.branchDepth > 0) {
+                body.add(guardChain(0, n));
+            } else if (segment % 3 == 2 && shape.loopNesting > 0) {
+                body.add(loopNest(0, n));
+            } else {
+                body.addAll(statements(n, false, -1));
+            }
+        }
+
+        for (Stmt s : body) {
+            s.exec(state);
+        }
+
+        StringBuilder out = new StringBuilder();
+        out.append("// Generated by CorpusGenerator: ").append(shape).append('\n');
+        out.append("class ").append(className).append(" {\n\n");
+        out.append("    static int run(");
+        for (int p = 0; p < params; p++) {
+            out.append(p == 0 ? "" : ", ").append("int p").append(p);
+        }
+        out.append(") {\n");
+        for (int v = 0; v < shape.variables; v++) {
+            out.append("        int v").append(v).append(" = ").append(initializers.get(v).text).append(";\n");
+        }
+        int errors = 0;
+        for (Stmt s : body) {
+            errors += s.write(out, 2);
+        }
+        out.append("        return v0;\n");
+        out.append("    }\n");
+        out.append("}\n");
+        return new Generated(className, out.toString(), errors);
+    }
+
+    private Stmt guardChain(int level, int n) {
+        int p = level;
+        List<Stmt> body =
+                level + 1 < shape.branchDepth
+                        ? Collections.<Stmt>singletonList(guardChain(level + 1, n))
+                        : statements(n, false, shape.variables + p);
+        return new Guard(shape.variables + p, body);
+    }
+
+    private Stmt loopNest(int level, int n) {
+        List<Stmt> body =
+                level + 1 < shape.loopNesting
+                        ? Collections.<Stmt>singletonList(loopNest(level + 1, n))
+                        : statements(n, true, -1);
+        return new Loop(level, body);
+    }
+
+    /**
+     * Random arithmetic statements.
+     *
+     * @param inLoop   prefer compound division updates, as in {@code v /= w}
+     * @param guarded  a parameter slot known to be nonzero here, used as the first divisor; or -1
+     */
+    private List<Stmt> statements(int n, boolean inLoop, int guarded) {
+        List<Stmt> result = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            int target = random.nextInt(shape.variables);
+            boolean divides = random.nextDouble() < shape.divisionDensity;
+            BinaryOperator op =
+                    divides
+                            ? (random.nextBoolean() ? BinaryOperator.DIVIDE : BinaryOperator.MOD)
+                            : NON_DIVISIONS[random.nextInt(NON_DIVISIONS.length)];
+            Operand rhs;
+            if (divides && guarded >= 0 && i == 0) {
+                rhs = param(guarded - shape.variables);
+            } else if (divides) {
+                rhs = random.nextInt(4) == 0 ? literal(pick(DIVISOR_LITERALS)) : slot();
+            } else {
+                rhs = random.nextInt(3) == 0 ? literal(pick(LITERALS)) : slot();
+            }
+            boolean compound = inLoop ? divides || random.nextBoolean() : random.nextInt(4) == 0;
+            Operand lhs = compound ? local(target) : (random.nextInt(4) == 0 ? literal(pick(LITERALS)) : slot());
+            result.add(new Assign(target, lhs, op, rhs, compound));
+        }
+        return result;
+    }
+
+    private int pick(int[] values) {
+        return values[random.nextInt(values.length)];
+    }
+
+    private Operand slot() {
+        int s = random.nextInt(shape.variables + params);
+        return s < shape.variables ? local(s) : param(s - shape.variables);
+    }
+
+    private Operand local(int v) {
+        return new Operand("v" + v, v, 0);
+    }
+
+    private Operand param(int p) {
+        return new Operand("p" + p, shape.variables + p, 0);
+    }
+
+    private static Operand literal(int value) {
+        return new Operand(Integer.toString(value), -1, value);
+    }
+
+    private static DivByZeroQualifier qualifierOf(int value) {
+        return value == 0 ? DivByZeroQualifier.ZERO
+             : value > 0 ? DivByZeroQualifier.POSITIVE
+             : DivByZeroQualifier.NEGATIVE;
+    }
+
+    /** Same test as DivByZeroVisitor */
+    private static boolean mayBeZero(DivByZeroQualifier divisor) {
+        return divisor == DivByZeroQualifier.ZERO || divisor == DivByZeroQualifier.TOP;
+    }
+
+    /** The value the store keeps when a comparison refines {@code old} to {@code refined} */
+    private static DivByZeroQualifier refine(DivByZeroQualifier old, DivByZeroQualifier refined) {
+        return refined.isSubtypeOf(old) ? refined : old;
+    }
+
+    private static void lubInto(DivByZeroQualifier[] into, DivByZeroQualifier[] other) {
+        for (int i = 0; i < into.length; i++) {
+            into[i] = into[i].lub(other[i]);
+        }
+    }
+
+    private static int indent(StringBuilder out, int level) {
+        for (int i = 0; i < level; i++) {
+            out.append("    ");
+        }
+        return level;
+    }
+
+    // ========================================================================
+    // The statements of a generated method
+
+    /** A local, a parameter, or an int literal */
+    private static final class Operand {
+        final String text;
+        /** index into the state, or -1 for a literal */
+        final int slot;
+        /** the value of a literal */
+        final int literal;
+
+        Operand(String text, int slot, int literal) {
+            this.text = text;
+            this.slot = slot;
+            this.literal = literal;
+        }
+
+        DivByZeroQualifier value(DivByZeroQualifier[] state) {
+            return slot < 0 ? qualifierOf(literal) : state[slot];
+        }
+    }
+
+    private abstract static class Stmt {
+        /** Apply this statement to what the checker knows about each slot. */
+        abstract void exec(DivByZeroQualifier[] state);
+
+        /** @return the number of error markers written */
+        abstract int write(StringBuilder out, int level);
+    }
+
+    /** {@code v = lhs op rhs}, or {@code v op= rhs} */
+    private static final class Assign extends Stmt {
+        final int target;
+        final Operand lhs;
+        final BinaryOperator op;
+        final Operand rhs;
+        final boolean compound;
+        /** Whether the checker reports this statement; set by the last, i.e. fixpoint, exec */
+        boolean error;
+
+        Assign(int target, Operand lhs, BinaryOperator op, Operand rhs, boolean compound) {
+            this.target = target;
+            this.lhs = lhs;
+            this.op = op;
+            this.rhs = rhs;
+            this.compound = compound;
+        }
+
+        @Override
+        void exec(DivByZeroQualifier[] state) {
+            DivByZeroQualifier r = rhs.value(state);
+            error = (op == BinaryOperator.DIVIDE || op == BinaryOperator.MOD) && mayBeZero(r);
+            if (!compound && lhs.slot < 0 && rhs.slot < 0) {
+                // a constant expression: the checker folds it, so 3 - 3 is Zero, not Top
+                state[target] = qualifierOf(fold(lhs.literal, rhs.literal));
+            } else {
+                state[target] = DivByZeroTransfer.arithmetic(op, lhs.value(state), r);
+            }
+        }
+
+        /** int arithmetic, as at run time; the divisor literals are never 0 */
+        private int fold(int l, int r) {
+            switch (op) {
+                case PLUS: return l + r;
+                case MINUS: return l - r;
+                case TIMES: return l * r;
+                case DIVIDE: return l / r;
+                case MOD: return l % r;
+                default: throw new IllegalArgumentException(op.toString());
+            }
+        }
+
+        @Override
+        int write(StringBuilder out, int level) {
+            if (error) {
+                indent(out, level);
+                out.append(MARKER).append('\n');
+            }
+            indent(out, level);
+            out.append('v').append(target);
+            if (compound) {
+                out.append(' ').append(symbol()).append("= ").append(rhs.text);
+            } else {
+                out.append(" = ").append(lhs.text).append(' ').append(symbol()).append(' ').append(rhs.text);
+            }
+            out.append(";\n");
+            return error ? 1 : 0;
+        }
+
+        private char symbol() {
+            switch (op) {
+                case PLUS: return '+';
+                case MINUS: return '-';
+                case TIMES: return '*';
+                case DIVIDE: return '/';
+                case MOD: return '%';
+                default: throw new IllegalArgumentException(op.toString());
+            }
+        }
+    }
+
+    /** {@code if (p != 0) { body }}, with no else branch */
+    private final class Guard extends Stmt {
+        final int param;
+        final List<Stmt> body;
+
+        Guard(int param, List<Stmt> body) {
+            this.param = param;
+            this.body = body;
+        }
+
+        @Override
+        void exec(DivByZeroQualifier[] state) {
+            DivByZeroQualifier q = state[param];
+            DivByZeroQualifier[] elseState = state.clone();
+            state[param] = refine(q, DivByZeroTransfer.comparison(Comparison.NE, q, DivByZeroQualifier.ZERO));
+            elseState[param] = refine(q, DivByZeroTransfer.comparison(Comparison.EQ, q, DivByZeroQualifier.ZERO));
+            for (Stmt s : body) {
+                s.exec(state);
+            }
+            lubInto(state, elseState);
+        }
+
+        @Override
+        int write(StringBuilder out, int level) {
+            indent(out, level);
+            out.append("if (p").append(param - shape.variables).append(" != 0) {\n");
+            int errors = 0;
+            for (Stmt s : body) {
+                errors += s.write(out, level + 1);
+            }
+            indent(out, level);
+            out.append("}\n");
+            return errors;
+        }
+    }
+
+    /** {@code for (int iN = 0; iN < bound; iN++) { body }} */
+    private static final class Loop extends Stmt {
+        final int level;
+        final List<Stmt> body;
+
+        Loop(int level, List<Stmt> body) {
+            this.level = level;
+            this.body = body;
+        }
+
+        @Override
+        void exec(DivByZeroQualifier[] state) {
+            // state is the store at the loop head; iterate until the back edge adds nothing
+            while (true) {
+                DivByZeroQualifier[] end = state.clone();
+                for (Stmt s : body) {
+                    s.exec(end);
+                }
+                DivByZeroQualifier[] head = state.clone();
+                lubInto(head, end);
+                if (Arrays.equals(head, state)) {
+                    return;
+                }
+                System.arraycopy(head, 0, state, 0, state.length);
+            }
+        }
+
+        @Override
+        int write(StringBuilder out, int level) {
+            indent(out, level);
+            out.append("for (int i").append(this.level).append(" = 0; i").append(this.level)
+                    .append(" < ").append(LOOP_BOUND).append("; i").append(this.level).append("++) {\n");
+            int errors = 0;
+            for (Stmt s : body) {
+                errors += s.write(out, level + 1);
+            }
+            indent(out, level);
+            out.append("}\n");
+            return errors;
+        }
+    }
+
+    // ========================================================================
+    // Command line
+
+    private static final String USAGE =
+            "usage: CorpusGenerator --out=DIR [--files=N] [--statements=N] [--branch-depth=N]"
+                    + " [--loop-nesting=N] [--variables=N] [--division-density=D] [--seed=N]";
+
+    public static void main(String[] args) throws IOException {
+        Shape shape = new Shape();
+        File out = null;
+        int files = 1;
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (!arg.startsWith("--") || eq < 0) {
+                throw new IllegalArgumentException(USAGE);
+            }
+            String value = arg.substring(eq + 1);
+            switch (arg.substring(2, eq)) {
+                case "out": out = new File(value); break;
+                case "files": files = Integer.parseInt(value); break;
+                case "statements": shape.statements = Integer.parseInt(value); break;
+                case "branch-depth": shape.branchDepth = Integer.parseInt(value); break;
+                case "loop-nesting": shape.loopNesting = Integer.parseInt(value); break;
+                case "variables": shape.variables = Integer.parseInt(value); break;
+                case "division-density": shape.divisionDensity = Double.parseDouble(value); break;
+                case "seed": shape.seed = Long.parseLong(value); break;
+                default: throw new IllegalArgumentException(USAGE);
+            }
+        }
+        if (out == null) {
+            throw new IllegalArgumentException(USAGE);
+        }
+        int errors = 0;
+        for (Generated g : write(shape, out, files)) {
+            errors += g.errors;
+        }
+        System.out.printf("wrote %d files to %s (%s), %d expected errors%n", files, out, shape, errors);
+    }
+}
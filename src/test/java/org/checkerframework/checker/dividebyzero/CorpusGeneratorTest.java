@@ -0,0 +1,75 @@
+package org.checkerframework.checker.dividebyzero;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.TreeSet;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+import org.junit.Test;
+
+/** Checks that the checker reports exactly the errors that CorpusGenerator predicts. */
+public class CorpusGeneratorTest {
+
+    @Test
+    public void markersMatchTheChecker() throws IOException {
+        CorpusGenerator.Shape straight = new CorpusGenerator.Shape();
+        straight.branchDepth = 0;
+        straight.loopNesting = 0;
+        CorpusGenerator.Shape guards = new CorpusGenerator.Shape();
+        guards.branchDepth = 4;
+        guards.loopNesting = 0;
+        CorpusGenerator.Shape loops = new CorpusGenerator.Shape();
+        loops.branchDepth = 0;
+        loops.loopNesting = 3;
+        loops.divisionDensity = 0.5;
+
+        for (CorpusGenerator.Shape shape : Arrays.asList(straight, guards, loops, new CorpusGenerator.Shape())) {
+            File dir = Files.createTempDirectory("dbz-corpus").toFile();
+            List<CorpusGenerator.Generated> generated = CorpusGenerator.write(shape, dir, 2);
+            for (int i = 0; i < generated.size(); i++) {
+                File file = new File(dir, generated.get(i).className + ".java");
+                List<Diagnostic<? extends JavaFileObject>> diagnostics =
+                        CheckerRunner.run(new DivByZeroChecker(), Arrays.asList(file));
+                TreeSet<Long> reported = new TreeSet<>();
+                for (Diagnostic<? extends JavaFileObject> d : diagnostics) {
+                    if (d.getMessage(Locale.ROOT).contains("divide.by.zero")) {
+                        reported.add(d.getLineNumber());
+                    }
+                }
+                assertEquals(shape + " " + file, expectedLines(file), reported);
+                assertEquals(generated.get(i).errors, reported.size());
+            }
+        }
+    }
+
+    @Test
+    public void shapeControlsTheOutput() {
+        CorpusGenerator.Shape shape = new CorpusGenerator.Shape();
+        shape.statements = 1000;
+        shape.branchDepth = 6;
+        String source = CorpusGenerator.generate(shape, "Big").source;
+        assertTrue(source.contains("if (p5 != 0)"));
+        assertTrue(source.contains("for (int i0 = 0;"));
+        assertEquals(source, CorpusGenerator.generate(shape, "Big").source);
+    }
+
+    /** The line after each marker */
+    private static TreeSet<Long> expectedLines(File file) throws IOException {
+        TreeSet<Long> lines = new TreeSet<>();
+        List<String> source = new ArrayList<>(Files.readAllLines(file.toPath()));
+        for (int i = 0; i < source.size(); i++) {
+            if (source.get(i).trim().equals(CorpusGenerator.MARKER)) {
+                lines.add((long) i + 2);
+            }
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,89 @@
+package org.checkerframework.checker.dividebyzero;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+import org.junit.Test;
+
+/** Checks baseline files, and that baselined findings survive line shifts. */
+public class DivByZeroBaselineTest {
+
+    @Test
+    public void lookupFindsWrittenFingerprints() throws IOException {
+        Random random = new Random(16);
+        long[] fingerprints = new long[200_000];
+        for (int i = 0; i < fingerprints.length; i++) {
+            fingerprints[i] = random.nextLong();
+        }
+        long[] copy = fingerprints.clone();
+        Path file = Files.createTempFile("dbz-baseline", ".bin");
+        DivByZeroBaseline.write(file, copy, copy.length);
+
+        DivByZeroBaseline baseline = DivByZeroBaseline.load(file);
+        assertEquals(fingerprints.length, baseline.size());
+        for (int i = 0; i < fingerprints.length; i += 97) {
+            assertTrue(baseline.contains(fingerprints[i]));
+            assertFalse(baseline.contains(fingerprints[i] + 1));
+        }
+    }
+
+    @Test
+    public void baselinedFindingsAreNotReported() throws IOException {
+        File dir = Files.createTempDirectory("dbz-baseline").toFile();
+        File source = new File(dir, "Legacy.java");
+        write(source, "class Legacy {\n    int f(int a, int b) {\n        return a / b;\n    }\n}\n");
+        List<File> files = Collections.singletonList(source);
+        File baseline = new File(dir, "baseline.bin");
+
+        assertEquals(1, errors(CheckerRunner.run(new DivByZeroChecker(), files, "-Adbz.writeBaseline=" + baseline)));
+        assertEquals(1, DivByZeroBaseline.load(baseline.toPath()).size());
+        assertEquals(0, errors(CheckerRunner.run(new DivByZeroChecker(), files, "-Adbz.baseline=" + baseline)));
+
+        // moved down and reformatted: still accepted; a new division is reported
+        write(source, "// header\n\nclass Legacy {\n    int g(int c) {\n        return 1 % c;\n    }\n"
+                + "    int f(int a, int b) {\n        return a/b;\n    }\n}\n");
+        assertEquals(1, errors(CheckerRunner.run(new DivByZeroChecker(), files, "-Adbz.baseline=" + baseline)));
+    }
+
+    @Test
+    public void droppedFindingsAreNotWritten() throws IOException {
+        File dir = Files.createTempDirectory("dbz-baseline").toFile();
+        File source = new File(dir, "Mixed.java");
+        write(source, "class Mixed {\n"
+                + "    @SuppressWarnings(\"dividebyzero\")\n"
+                + "    int quiet(int a, int b) {\n        return a / b;\n    }\n"
+                + "    int loud(int a, int b) {\n        return a % b;\n    }\n"
+                + "    int other(int a, int b) {\n        return a / b;\n    }\n}\n");
+        List<File> files = Collections.singletonList(source);
+        File baseline = new File(dir, "baseline.bin");
+        File changes = new File(dir, "changes.txt");
+        write(changes, source.getPath() + ":1-8\n");
+
+        // quiet is suppressed and other is outside the change: only loud is issued
+        assertEquals(1, errors(CheckerRunner.run(new DivByZeroChecker(), files,
+                "-Adbz.writeBaseline=" + baseline, "-Adbz.changedLines=" + changes)));
+        assertEquals(1, DivByZeroBaseline.load(baseline.toPath()).size());
+
+        // so a full run against that baseline still reports other
+        assertEquals(1, errors(CheckerRunner.run(new DivByZeroChecker(), files, "-Adbz.baseline=" + baseline)));
+    }
+
+    private static int errors(List<Diagnostic<? extends JavaFileObject>> diagnostics) {
+        return CheckerRunner.count(diagnostics, "divide.by.zero");
+    }
+
+    private static void write(File file, String text) throws IOException {
+        Files.write(file.toPath(), text.getBytes(StandardCharsets.UTF_8));
+    }
+}
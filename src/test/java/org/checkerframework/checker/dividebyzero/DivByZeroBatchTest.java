@@ -0,0 +1,162 @@
+package org.checkerframework.checker.dividebyzero;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.stream.Stream;
+import org.junit.Test;
+
+/** Checks the shard assignment and the merged output of {@link DivByZeroBatch}. */
+public class DivByZeroBatchTest {
+
+    @Test
+    public void shardsAreBalanced() throws IOException {
+        Path dir = Files.createTempDirectory("dbz-batch");
+        List<Path> files = new ArrayList<>();
+        int[] sizes = {900, 500, 400, 300, 300, 200, 200, 100};
+        for (int i = 0; i < sizes.length; i++) {
+            Path file = dir.resolve("F" + i + ".java");
+            Files.write(file, new byte[sizes[i]]);
+            files.add(file);
+        }
+
+        List<List<Path>> shards = DivByZeroBatch.shards(files, 3);
+        assertEquals(3, shards.size());
+        List<Path> all = new ArrayList<>();
+        for (List<Path> shard : shards) {
+            long total = 0;
+            for (Path file : shard) {
+                total += Files.size(file);
+            }
+            // 2900 bytes over 3 shards; LPT keeps every shard within one file of 967
+            assertTrue(shards.toString(), total >= 900 && total <= 1000);
+            all.addAll(shard);
+        }
+        Collections.sort(all);
+        assertEquals(files, all);
+
+        assertEquals(2, DivByZeroBatch.shards(files.subList(0, 2), 8).size());
+    }
+
+    @Test
+    public void parallelOutputMatchesSerial() throws Exception {
+        DivByZeroBatch batch = new DivByZeroBatch(
+                Arrays.asList(Paths.get("tests/dividebyzero")), "", Collections.<String>emptyList());
+        List<String> serial = format(batch.check(1));
+        assertTrue(serial.toString(), serial.stream().anyMatch(m -> m.contains("divide.by.zero")));
+        assertEquals(serial, format(batch.check(2)));
+        assertEquals(serial, format(batch.check(8)));
+    }
+
+    @Test
+    public void methodShardsMatchSerial() throws Exception {
+        DivByZeroBatch batch = new DivByZeroBatch(
+                Arrays.asList(Paths.get("tests/dividebyzero")), "", Collections.<String>emptyList());
+        List<String> serial = format(batch.check(1));
+        assertEquals(serial, format(batch.check(1, 3)));
+        assertEquals(serial, format(batch.check(2, 2)));
+    }
+
+    @Test
+    public void crossFileCallsMatchSerial() throws Exception {
+        Path dir = Files.createTempDirectory("dbz-batch");
+        Files.write(dir.resolve("Caller.java"), ("class Caller {\n"
+                + "    int f(int n) {\n        return n / Callee.positive();\n    }\n}\n").getBytes(StandardCharsets.UTF_8));
+        Files.write(dir.resolve("Callee.java"), ("class Callee {\n"
+                + "    static int positive() {\n        return 3;\n    }\n"
+                + "    int g(int n) {\n        return n / positive();\n    }\n}\n").getBytes(StandardCharsets.UTF_8));
+        DivByZeroBatch batch = new DivByZeroBatch(
+                Arrays.asList(dir), "", Collections.<String>emptyList());
+
+        // one file per shard: each shard has the other file only on its source path
+        List<String> serial = format(batch.check(1));
+        assertEquals(serial, format(batch.check(2)));
+        assertEquals(serial, format(batch.check(2, 2)));
+        assertEquals(serial.toString(), 1, serial.stream().filter(m -> m.contains("divide.by.zero")).count());
+    }
+
+    @Test
+    public void budgetsApplyToTheMergedOutput() throws Exception {
+        List<String> options = Arrays.asList("-Adbz.maxErrors=2");
+        DivByZeroBatch batch = new DivByZeroBatch(Arrays.asList(Paths.get("tests/dividebyzero")), "", options);
+        for (int shards : new int[] {1, 3, 8}) {
+            List<String> lines = format(batch.check(shards));
+            assertEquals(lines.toString(), 2, lines.stream().filter(m -> m.contains("divide.by.zero")).count());
+            assertEquals(lines.toString(), 1, lines.stream().filter(m -> m.contains("cut short")).count());
+        }
+
+        batch = new DivByZeroBatch(Arrays.asList(Paths.get("tests/dividebyzero")), "",
+                Arrays.asList("-Adbz.maxErrorsPerFile=1"));
+        // the methods of each file are split between two tasks, which each have the budget
+        List<String> files = new ArrayList<>();
+        for (String m : format(batch.check(2, 2))) {
+            if (m.contains("divide.by.zero")) {
+                files.add(m.substring(0, m.indexOf(':')));
+            }
+        }
+        assertEquals(files.toString(), files.size(), new HashSet<>(files).size());
+    }
+
+    @Test
+    public void budgetsCountOnlyTheCheckersErrorsInEveryFormat() throws Exception {
+        for (String format : new String[] {"-Anomsgtext", "-Adetailedmsgtext"}) {
+            DivByZeroBatch batch = new DivByZeroBatch(Arrays.asList(Paths.get("tests/dividebyzero")), "",
+                    Arrays.asList("-Adbz.maxErrors=2", format));
+            for (int shards : new int[] {1, 3}) {
+                List<DivByZeroBatch.Message> messages = batch.check(shards);
+                assertEquals(format + " " + messages, 2,
+                        messages.stream().filter(m -> "divide.by.zero".equals(m.key)).count());
+            }
+        }
+
+        assertEquals("divide.by.zero", DivByZeroBatch.messageKey("compiler.err.proc.messager",
+                "[divide.by.zero] The denominator of this expression could be zero."));
+        assertEquals("divide.by.zero", DivByZeroBatch.messageKey("compiler.err.proc.messager", "(divide.by.zero)"));
+        assertEquals("divide.by.zero", DivByZeroBatch.messageKey("compiler.err.proc.messager",
+                "(divide.by.zero) $$ 2 $$ TOP $$ f $$ ( 40, 45 ) $$ The denominator of this expression could be zero."));
+        assertEquals("divide.by.zero", DivByZeroBatch.messageKey("compiler.err.proc.messager",
+                "[dividebyzero:divide.by.zero] The denominator of this expression could be zero."));
+        // javac's own errors are not the checker's, whatever their text
+        assertNull(DivByZeroBatch.messageKey("compiler.err.cant.resolve", "[deprecation] cannot find symbol"));
+        assertNull(DivByZeroBatch.messageKey(null, "(divide.by.zero)"));
+    }
+
+    @Test
+    public void warmStartsOfShardsMergeToTheSerialOne() throws Exception {
+        Path dir = Files.createTempDirectory("dbz-batch");
+        Path serial = dir.resolve("serial.dbzw");
+        Path sharded = dir.resolve("sharded.dbzw");
+        new DivByZeroBatch(Arrays.asList(Paths.get("tests/dividebyzero")), "",
+                Arrays.asList("-Adbz.warmStart=" + serial)).check(1);
+        DivByZeroBatch batch = new DivByZeroBatch(Arrays.asList(Paths.get("tests/dividebyzero")), "",
+                Arrays.asList("-Adbz.warmStart=" + sharded));
+        batch.check(3);
+        assertArrayEquals(Files.readAllBytes(serial), Files.readAllBytes(sharded));
+        // a second sharded run starts from the merged file and adds nothing new
+        batch.check(2, 2);
+        assertArrayEquals(Files.readAllBytes(serial), Files.readAllBytes(sharded));
+        try (Stream<Path> left = Files.list(dir)) {
+            assertEquals(2, left.count());
+        }
+    }
+
+    private static List<String> format(List<DivByZeroBatch.Message> messages) {
+        List<String> lines = new ArrayList<>();
+        for (DivByZeroBatch.Message m : messages) {
+            lines.add(m.toString());
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,61 @@
+package org.checkerframework.checker.dividebyzero;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+import org.junit.Test;
+
+/** Checks that the error budgets stop the run early and say so. */
+public class DivByZeroBudgetTest {
+
+    private static final List<File> FILES = CheckerRunner.testFiles("tests/dividebyzero");
+
+    @Test
+    public void globalBudgetStopsTheRun() throws IOException {
+        assertTrue(CheckerRunner.count(CheckerRunner.run(new DivByZeroChecker(), FILES), "divide.by.zero") > 2);
+
+        List<Diagnostic<? extends JavaFileObject>> diagnostics =
+                CheckerRunner.run(new DivByZeroChecker(), FILES, "-Adbz.maxErrors=2");
+        assertEquals(2, CheckerRunner.count(diagnostics, "divide.by.zero"));
+        assertEquals(1, CheckerRunner.count(diagnostics, "cut short"));
+    }
+
+    @Test
+    public void fileBudgetSkipsTheRestOfEachFile() throws IOException {
+        Map<String, Integer> all = errorsPerFile(CheckerRunner.run(new DivByZeroChecker(), FILES));
+        List<Diagnostic<? extends JavaFileObject>> diagnostics =
+                CheckerRunner.run(new DivByZeroChecker(), FILES, "-Adbz.maxErrorsPerFile=1");
+        Map<String, Integer> limited = errorsPerFile(diagnostics);
+
+        assertEquals(all.keySet(), limited.keySet());
+        for (int n : limited.values()) {
+            assertEquals(1, n);
+        }
+        assertEquals(1, CheckerRunner.count(diagnostics, "cut short"));
+    }
+
+    @Test
+    public void noWarningWithinBudget() throws IOException {
+        List<Diagnostic<? extends JavaFileObject>> diagnostics =
+                CheckerRunner.run(new DivByZeroChecker(), FILES, "-Adbz.maxErrors=100000");
+        assertEquals(0, CheckerRunner.count(diagnostics, "cut short"));
+    }
+
+    private static Map<String, Integer> errorsPerFile(List<Diagnostic<? extends JavaFileObject>> diagnostics) {
+        Map<String, Integer> counts = new TreeMap<>();
+        for (Diagnostic<? extends JavaFileObject> d : diagnostics) {
+            if (d.getSource() != null && d.getMessage(Locale.ROOT).contains("divide.by.zero")) {
+                counts.merge(d.getSource().getName(), 1, Integer::sum);
+            }
+        }
+        return counts;
+    }
+}
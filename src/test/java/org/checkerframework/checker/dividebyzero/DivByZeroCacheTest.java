@@ -0,0 +1,65 @@
+package org.checkerframework.checker.dividebyzero;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+import org.junit.Test;
+
+/** Checks that {@code -Adbz.cache} replays diagnostics for unchanged units instead of checking them. */
+public class DivByZeroCacheTest {
+
+    @Test
+    public void unchangedUnitsAreReplayed() throws IOException {
+        File dir = Files.createTempDirectory("dbz-cache").toFile();
+        File source = copyOfFoo();
+        String option = "-Adbz.cache=" + dir;
+
+        RecordingChecker first = new RecordingChecker();
+        List<String> fresh = errors(CheckerRunner.run(first, Arrays.asList(source), option));
+        assertEquals(0, first.getCache().getHits());
+        assertEquals(1, first.getCache().getMisses());
+        assertTrue(first.getRecordedVisitor().getDivisionsClassified() > 0);
+
+        RecordingChecker second = new RecordingChecker();
+        List<String> replayed = errors(CheckerRunner.run(second, Arrays.asList(source), option));
+        assertEquals(1, second.getCache().getHits());
+        assertEquals("a replayed unit is not visited", 0, second.getRecordedVisitor().getDivisionsClassified());
+        assertEquals(fresh, replayed);
+
+        // Any edit to the unit is a miss.
+        Files.write(source.toPath(), "// edited\n".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+        RecordingChecker third = new RecordingChecker();
+        assertEquals(fresh, errors(CheckerRunner.run(third, Arrays.asList(source), option)));
+        assertEquals(1, third.getCache().getMisses());
+    }
+
+    private static File copyOfFoo() throws IOException {
+        File dir = Files.createTempDirectory("dbz-src").toFile();
+        File copy = new File(dir, "Foo.java");
+        Files.copy(new File("tests/dividebyzero/Foo.java").toPath(), copy.toPath());
+        return copy;
+    }
+
+    /** "line:message" for each divide.by.zero error */
+    private static List<String> errors(List<Diagnostic<? extends JavaFileObject>> diagnostics) {
+        List<String> result = new ArrayList<>();
+        for (Diagnostic<? extends JavaFileObject> d : diagnostics) {
+            String message = d.getMessage(Locale.ROOT);
+            if (message.contains("divide.by.zero")) {
+                result.add(d.getLineNumber() + ":" + d.getColumnNumber() + ":" + message);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,130 @@
+package org.checkerframework.checker.dividebyzero;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+import org.junit.Test;
+
+/** Checks that {@code -Adbz.changedLines} limits checking to the changed members and those that depend on them. */
+public class DivByZeroChangedLinesTest {
+
+    private static final String CHANGED =
+            "class Changed {\n"                                   // 1
+            + "    static int zero() {\n"                         // 2
+            + "        return 0;\n"                               // 3
+            + "    }\n"                                           // 4
+            + "    int usesZero(int x) {\n"                       // 5
+            + "        return x / zero();\n"                      // 6
+            + "    }\n"                                           // 7
+            + "    int unchanged(int x) {\n"                      // 8
+            + "        return x / 0;\n"                           // 9
+            + "    }\n"                                           // 10
+            + "    int edited(int x) {\n"                         // 11
+            + "        return x % 0;\n"                           // 12
+            + "    }\n"                                           // 13
+            + "}\n";
+
+    private static final String UNCHANGED =
+            "class Unchanged {\n"
+            + "    int f(int x) {\n"
+            + "        return x / 0;\n"
+            + "    }\n"
+            + "}\n";
+
+    @Test
+    public void onlyChangedMethodsAndTheirCallersAreReported() throws IOException {
+        File dir = Files.createTempDirectory("dbz-changed").toFile();
+        List<File> files = Arrays.asList(write(dir, "Changed.java", CHANGED), write(dir, "Unchanged.java", UNCHANGED));
+        assertEquals(4, CheckerRunner.count(CheckerRunner.run(new DivByZeroChecker(), files), "divide.by.zero"));
+
+        // zero() now returns 0, and edited() was changed
+        File diff = new File(dir, "changes.diff");
+        Files.write(diff.toPath(), ("diff --git a/src/Changed.java b/src/Changed.java\n"
+                + "--- a/src/Changed.java\n"
+                + "+++ b/src/Changed.java\n"
+                + "@@ -3 +3 @@\n"
+                + "-        return 1;\n"
+                + "+        return 0;\n"
+                + "@@ -12 +12 @@\n"
+                + "-        return x % 2;\n"
+                + "+        return x % 0;\n").getBytes(StandardCharsets.UTF_8));
+
+        List<Diagnostic<? extends JavaFileObject>> diagnostics =
+                CheckerRunner.run(new DivByZeroChecker(), files, "-Adbz.changedLines=" + diff);
+        assertEquals(new TreeSet<>(Arrays.asList("Changed.java:6", "Changed.java:12")), lines(diagnostics));
+    }
+
+    @Test
+    public void deletionsAndRangesMarkTheLinesAround() throws IOException {
+        File dir = Files.createTempDirectory("dbz-changed").toFile();
+        List<File> files = Arrays.asList(write(dir, "Changed.java", CHANGED), write(dir, "Unchanged.java", UNCHANGED));
+
+        // a line removed after line 12, and a range in the other form
+        File diff = new File(dir, "changes.diff");
+        Files.write(diff.toPath(), ("+++ b/src/Changed.java\n"
+                + "@@ -13 +12,0 @@\n"
+                + "-        // was here\n"
+                + "src/Unchanged.java:2-3\n").getBytes(StandardCharsets.UTF_8));
+
+        List<Diagnostic<? extends JavaFileObject>> diagnostics =
+                CheckerRunner.run(new DivByZeroChecker(), files, "-Adbz.changedLines=" + diff);
+        assertEquals(new TreeSet<>(Arrays.asList("Changed.java:12", "Unchanged.java:3")), lines(diagnostics));
+    }
+
+    @Test
+    public void usersOfAChangedConstantAreReported() throws IOException {
+        File dir = Files.createTempDirectory("dbz-changed").toFile();
+        List<File> files = Arrays.asList(write(dir, "Constants.java",
+                "class Constants {\n"                         // 1
+                + "    static final int K = 0;\n"             // 2
+                + "    static final int J = K * 2;\n"         // 3
+                + "    int usesK(int x) {\n"                  // 4
+                + "        return x / K;\n"                   // 5
+                + "    }\n"                                   // 6
+                + "    int usesJ(int x) {\n"                  // 7
+                + "        return x % J;\n"                   // 8
+                + "    }\n"                                   // 9
+                + "    int unchanged(int x) {\n"              // 10
+                + "        return x / 0;\n"                   // 11
+                + "    }\n"                                   // 12
+                + "}\n"));
+
+        // K was 1; usesK and usesJ fold it, through J for usesJ
+        File diff = new File(dir, "changes.diff");
+        Files.write(diff.toPath(), ("+++ b/src/Constants.java\n"
+                + "@@ -2 +2 @@\n"
+                + "-    static final int K = 1;\n"
+                + "+    static final int K = 0;\n").getBytes(StandardCharsets.UTF_8));
+
+        List<Diagnostic<? extends JavaFileObject>> diagnostics =
+                CheckerRunner.run(new DivByZeroChecker(), files, "-Adbz.changedLines=" + diff);
+        assertEquals(new TreeSet<>(Arrays.asList("Constants.java:5", "Constants.java:8")), lines(diagnostics));
+    }
+
+    private static File write(File dir, String name, String source) throws IOException {
+        File src = new File(dir, "src");
+        src.mkdirs();
+        File file = new File(src, name);
+        Files.write(file.toPath(), source.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private static Set<String> lines(List<Diagnostic<? extends JavaFileObject>> diagnostics) {
+        Set<String> lines = new TreeSet<>();
+        for (Diagnostic<? extends JavaFileObject> d : diagnostics) {
+            if (d.getSource() != null && d.getKind() == Diagnostic.Kind.ERROR) {
+                lines.add(new File(d.getSource().getName()).getName() + ":" + d.getLineNumber());
+            }
+        }
+        return lines;
+    }
+}
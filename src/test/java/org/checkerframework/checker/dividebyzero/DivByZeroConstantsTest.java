@@ -0,0 +1,34 @@
+package org.checkerframework.checker.dividebyzero;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import org.checkerframework.checker.dividebyzero.DivByZeroTransfer.BinaryOperator;
+import org.junit.Test;
+
+/** Checks that constant expressions bypass the lattice arithmetic in the transfer functions. */
+public class DivByZeroConstantsTest {
+
+    @Test
+    public void constantArithmeticIsFolded() throws IOException {
+        File report = File.createTempFile("dbz-metrics", ".json");
+        RecordingChecker checker = new RecordingChecker();
+        CheckerRunner.run(checker, Arrays.asList(new File("tests/dividebyzero/Foo.java")), "-Adbz.metrics=" + report);
+
+        DivByZeroMetrics.Method h = null;
+        for (DivByZeroMetrics.Method m : checker.getMetrics().getMethods()) {
+            if (m.name.equals("h()")) {
+                h = m;
+            }
+        }
+        assertTrue("no record for Foo.h()", h != null);
+        // 0 + 0 - 0 * 0 and 0 * 1 + 1 are folded; the two divisions by locals are not
+        assertEquals(0, h.operators[BinaryOperator.PLUS.ordinal()]);
+        assertEquals(0, h.operators[BinaryOperator.MINUS.ordinal()]);
+        assertEquals(0, h.operators[BinaryOperator.TIMES.ordinal()]);
+        assertEquals(2, h.operators[BinaryOperator.DIVIDE.ordinal()]);
+    }
+}
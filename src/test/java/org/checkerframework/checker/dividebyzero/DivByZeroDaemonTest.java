@@ -0,0 +1,160 @@
+package org.checkerframework.checker.dividebyzero;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Test;
+
+/** Checks that {@link DivByZeroDaemon} answers like a batch run, request after request, and only its owner. */
+public class DivByZeroDaemonTest {
+
+    @Test
+    public void repeatedRequestsMatchBatch() throws Exception {
+        List<String> expected = new ArrayList<>();
+        DivByZeroBatch batch = new DivByZeroBatch(
+                Arrays.asList(Paths.get("tests/dividebyzero")), "", Collections.<String>emptyList());
+        boolean failed = false;
+        for (DivByZeroBatch.Message m : batch.check(1)) {
+            expected.add(m.toString().replace('\n', ' '));
+            failed |= m.error;
+        }
+        expected.add("exit " + (failed ? 1 : 0));
+
+        List<String> files = new ArrayList<>();
+        for (File f : CheckerRunner.testFiles("tests/dividebyzero")) {
+            files.add(f.getPath());
+        }
+        Path tokenFile = tokenFile();
+        try (DivByZeroDaemon daemon = new DivByZeroDaemon(0, tokenFile)) {
+            Thread server = new Thread(daemon::serve);
+            server.start();
+            for (int i = 0; i < 3; i++) {
+                assertEquals(expected, DivByZeroDaemon.request(
+                        daemon.getPort(), token(tokenFile), "", Collections.<String>emptyList(), files));
+            }
+        }
+    }
+
+    @Test
+    public void tokenFileIsOwnerOnly() throws Exception {
+        Path tokenFile = tokenFile();
+        try (DivByZeroDaemon daemon = new DivByZeroDaemon(0, tokenFile)) {
+            if (tokenFile.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+                assertEquals("rw-------", PosixFilePermissions.toString(Files.getPosixFilePermissions(tokenFile)));
+            }
+            assertEquals(64, token(tokenFile).length());
+            assertTrue(daemon.getPort() > 0);
+        }
+    }
+
+    @Test
+    public void rejectsRequestsWithoutTheToken() throws Exception {
+        Path tokenFile = tokenFile();
+        try (DivByZeroDaemon daemon = new DivByZeroDaemon(0, tokenFile)) {
+            new Thread(daemon::serve).start();
+            assertEquals(Arrays.asList("error: missing or wrong token", "exit 2"),
+                    send(daemon, "shutdown"));
+            assertEquals(Arrays.asList("error: missing or wrong token", "exit 2"),
+                    send(daemon, "token 0123456789abcdef", "shutdown"));
+            // still serving
+            List<String> answer = DivByZeroDaemon.request(daemon.getPort(), token(tokenFile), "",
+                    Collections.<String>emptyList(), Collections.singletonList("tests/dividebyzero/Foo.java"));
+            assertTrue(answer.toString(), answer.get(answer.size() - 1).startsWith("exit "));
+        }
+    }
+
+    @Test
+    public void rejectsOptionsOtherThanTheCheckers() throws Exception {
+        assertTrue(DivByZeroDaemon.isAllowed("-Adbz.maxErrors=1"));
+        assertTrue(DivByZeroDaemon.isAllowed("-Adbz.text"));
+        assertFalse(DivByZeroDaemon.isAllowed("-Adbz.noSuchOption=1"));
+        assertFalse(DivByZeroDaemon.isAllowed("-AsuppressWarnings=dividebyzero"));
+        assertFalse(DivByZeroDaemon.isAllowed("-processorpath"));
+        assertFalse(DivByZeroDaemon.isAllowed("-Xplugin:Evil"));
+
+        Path tokenFile = tokenFile();
+        try (DivByZeroDaemon daemon = new DivByZeroDaemon(0, tokenFile)) {
+            new Thread(daemon::serve).start();
+            assertEquals(Arrays.asList("error: option not allowed: -processor", "exit 2"),
+                    send(daemon, "token " + token(tokenFile), "option -processor", "option Evil", "check"));
+        }
+    }
+
+    @Test
+    public void rejectsUnknownRequests() throws Exception {
+        Path tokenFile = tokenFile();
+        try (DivByZeroDaemon daemon = new DivByZeroDaemon(0, tokenFile)) {
+            new Thread(daemon::serve).start();
+            assertEquals(Arrays.asList("error: unknown request line: compile Foo.java", "exit 2"),
+                    send(daemon, "token " + token(tokenFile), "compile Foo.java"));
+        }
+    }
+
+    @Test
+    public void failedChecksAnswerWithExitStatus2() throws Exception {
+        Path tokenFile = tokenFile();
+        try (DivByZeroDaemon daemon = new DivByZeroDaemon(0, tokenFile)) {
+            new Thread(daemon::serve).start();
+            // javac's file manager throws IllegalArgumentException for a directory
+            List<String> answer = send(daemon, "token " + token(tokenFile), "file tests/dividebyzero", "check");
+            assertEquals(answer.toString(), 2, answer.size());
+            assertTrue(answer.get(0), answer.get(0).startsWith("error: java.lang.IllegalArgumentException"));
+            assertEquals("exit 2", answer.get(1));
+            // the worker survived
+            answer = DivByZeroDaemon.request(daemon.getPort(), token(tokenFile), "",
+                    Collections.<String>emptyList(), Collections.singletonList("tests/dividebyzero/Foo.java"));
+            assertTrue(answer.toString(), answer.get(answer.size() - 1).startsWith("exit "));
+        }
+    }
+
+    @Test
+    public void answerWithoutExitLineIsAFailure() {
+        assertEquals(0, DivByZeroDaemon.exitStatus(Arrays.asList("exit 0")));
+        assertEquals(1, DivByZeroDaemon.exitStatus(Arrays.asList("Foo.java:3:16: error: [divide.by.zero]", "exit 1")));
+        assertEquals(2, DivByZeroDaemon.exitStatus(Arrays.asList("error: option not allowed: -processor", "exit 2")));
+        assertEquals(2, DivByZeroDaemon.exitStatus(Arrays.asList("Foo.java:3:16: error: [divide.by.zero]")));
+        assertEquals(2, DivByZeroDaemon.exitStatus(Collections.<String>emptyList()));
+    }
+
+    private static Path tokenFile() throws Exception {
+        return Files.createTempDirectory("dbz-daemon").resolve("token");
+    }
+
+    private static String token(Path tokenFile) throws Exception {
+        return new String(Files.readAllBytes(tokenFile), StandardCharsets.UTF_8);
+    }
+
+    /** Send raw request lines and read the whole answer */
+    private static List<String> send(DivByZeroDaemon daemon, String... lines) throws Exception {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), daemon.getPort());
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             Writer out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8)) {
+            for (String line : lines) {
+                out.write(line + "\n");
+            }
+            out.flush();
+            List<String> answer = new ArrayList<>();
+            for (String line; (line = in.readLine()) != null; ) {
+                answer.add(line);
+            }
+            return answer;
+        }
+    }
+}
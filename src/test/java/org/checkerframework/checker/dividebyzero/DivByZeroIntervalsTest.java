@@ -0,0 +1,99 @@
+package org.checkerframework.checker.dividebyzero;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+import org.junit.Test;
+
+/** Checks the divisors the interval domain accepts, and that its loop analysis is bounded. */
+public class DivByZeroIntervalsTest {
+
+    private static final String SOURCE =
+            String.join(
+                    "\n",
+                    "class Ranges {",
+                    "    int shifted(int n) {",
+                    "        if (n > 1) {",
+                    "            return 1 / (n - 1);",
+                    "        }",
+                    "        return 0;",
+                    "    }",
+                    "    int counted(int n) {",
+                    "        int sum = 0;",
+                    "        for (int i = 0; i < n; i++) {",
+                    "            sum += n / (i + 1);",
+                    "        }",
+                    "        return sum;",
+                    "    }",
+                    "    int nested(int n) {",
+                    "        int k = 0;",
+                    "        for (int i = 0; i < n; i++) {",
+                    "            for (int j = 2; j <= i; j++) {",
+                    "                k = k + i % (j - 1);",
+                    "            }",
+                    "        }",
+                    "        return k;",
+                    "    }",
+                    "    int remainder(int n) {",
+                    "        int r = n % 10;",
+                    "        if (r < 0) {",
+                    "            r = -r;",
+                    "        }",
+                    "        return 100 / (r + 1);",
+                    "    }",
+                    "    int stillZero(int n) {",
+                    "        int d = n;",
+                    "        while (d > -5) {",
+                    "            d--;",
+                    "        }",
+                    "        return 1 / (d + 5);",
+                    "    }",
+                    "    int mayBeZero(int n) {",
+                    "        if (n >= 0) {",
+                    "            return 1 / n;",
+                    "        }",
+                    "        return 0;",
+                    "    }",
+                    "}",
+                    "");
+
+    @Test
+    public void intervalsAcceptGuardedDivisors() throws IOException {
+        File dir = Files.createTempDirectory("dbz-intervals").toFile();
+        File file = new File(dir, "Ranges.java");
+        Files.write(file.toPath(), SOURCE.getBytes(StandardCharsets.UTF_8));
+        List<File> files = Collections.singletonList(file);
+
+        // the sign lattice alone rejects all six
+        List<Diagnostic<? extends JavaFileObject>> sign = CheckerRunner.run(new DivByZeroChecker(), files);
+        assertEquals(6, CheckerRunner.count(sign, "divide.by.zero"));
+
+        RecordingChecker checker = new RecordingChecker();
+        List<Diagnostic<? extends JavaFileObject>> interval =
+                CheckerRunner.run(checker, files, "-Adbz.domain=interval");
+        assertEquals(Arrays.asList(36L, 40L), errorLines(interval));
+
+        int iterations = checker.getRecordedFactory().getIntervals().getMaxLoopIterations();
+        int bound = DivByZeroIntervals.WIDENING_DELAY + DivByZeroIntervals.MAX_WIDENINGS + DivByZeroIntervals.NARROWINGS + 2;
+        assertTrue("loop head iterated " + iterations + " times", iterations > 0 && iterations <= bound);
+    }
+
+    private static List<Long> errorLines(List<Diagnostic<? extends JavaFileObject>> diagnostics) {
+        Long[] lines = diagnostics.stream()
+                .filter(d -> d.getMessage(Locale.ROOT).contains("divide.by.zero"))
+                .map(Diagnostic::getLineNumber)
+                .sorted()
+                .toArray(Long[]::new);
+        return Arrays.asList(lines);
+    }
+}
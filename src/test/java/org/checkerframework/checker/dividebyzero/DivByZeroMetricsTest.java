@@ -0,0 +1,63 @@
+package org.checkerframework.checker.dividebyzero;
+
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import org.checkerframework.checker.dividebyzero.DivByZeroTransfer.BinaryOperator;
+import org.checkerframework.checker.dividebyzero.DivByZeroTransfer.Comparison;
+import org.junit.Test;
+
+/** Checks the report written for {@code -Adbz.metrics}. */
+public class DivByZeroMetricsTest {
+
+    @Test
+    public void reportCoversEveryMethod() throws IOException {
+        File report = File.createTempFile("dbz-metrics", ".json");
+        RecordingChecker checker = new RecordingChecker();
+        CheckerRunner.run(checker, CheckerRunner.testFiles("tests/dividebyzero"), "-Adbz.metrics=" + report);
+
+        DivByZeroMetrics.Method g = null;
+        for (DivByZeroMetrics.Method m : checker.getMetrics().getMethods()) {
+            if (m.className.equals("Foo") && m.name.equals("g(int)")) {
+                g = m;
+            }
+        }
+        assertTrue("no record for Foo.g(int)", g != null);
+        assertTrue(g.dataflowNanos > 0);
+        assertTrue(g.visitorNanos > 0);
+        assertTrue(g.cfgNodes > 0);
+        assertTrue(g.nodeVisits >= g.cfgNodes);
+        assertTrue(g.operators[BinaryOperator.DIVIDE.ordinal()] > 0);
+        // g has two == and two != comparisons
+        assertTrue(g.comparisons[Comparison.EQ.ordinal()] >= 2);
+        assertTrue(g.comparisons[Comparison.NE.ordinal()] >= 2);
+        // stores are copied only for a branch that learns something: every
+        // comparison refines y in one branch, but y < 0 teaches nothing when false
+        assertTrue(g.storeCopies >= sum(g.comparisons));
+        assertTrue(g.storeCopies < 2 * sum(g.comparisons));
+
+        String json = new String(Files.readAllBytes(report.toPath()), StandardCharsets.UTF_8);
+        assertTrue(json, json.contains("\"slowest\": ["));
+        assertTrue(json, json.contains("{\"name\": \"g(int)\", \"dataflowNanos\": "));
+    }
+
+    @Test
+    public void offByDefault() throws IOException {
+        RecordingChecker checker = new RecordingChecker();
+        CheckerRunner.run(checker, CheckerRunner.testFiles("tests/dividebyzero"));
+        assertNull(checker.getMetrics());
+        assertNull(checker.getRecordedFactory().getMetrics());
+    }
+
+    private static long sum(long[] counts) {
+        long n = 0;
+        for (long c : counts) {
+            n += c;
+        }
+        return n;
+    }
+}
@@ -0,0 +1,55 @@
+package org.checkerframework.checker.dividebyzero;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+import org.junit.Test;
+
+/** Checks that diagnostics streamed to a file match those javac prints. */
+public class DivByZeroOutputTest {
+
+    private static final List<File> FILES = Arrays.asList(new File("tests/dividebyzero/Foo.java"));
+
+    @Test
+    public void jsonLinesReplaceText() throws IOException {
+        int expected = CheckerRunner.count(CheckerRunner.run(new DivByZeroChecker(), FILES), "divide.by.zero");
+        assertTrue(expected > 0);
+
+        File out = File.createTempFile("dbz-output", ".jsonl");
+        List<Diagnostic<? extends JavaFileObject>> diagnostics =
+                CheckerRunner.run(new DivByZeroChecker(), FILES, "-Adbz.output=" + out, "-Adbz.text=false");
+        assertEquals(0, CheckerRunner.count(diagnostics, "divide.by.zero"));
+
+        List<String> lines = Files.readAllLines(out.toPath(), StandardCharsets.UTF_8);
+        assertEquals(expected, lines.size());
+        for (String line : lines) {
+            assertTrue(line, line.startsWith("{\"file\": \"file:") && line.endsWith("}"));
+            assertTrue(line, line.contains("\"rule\": \"divide.by.zero\""));
+            assertTrue(line, line.matches(".*\"divisor\": \"(Top|Zero)\".*"));
+            assertTrue(line, line.contains("\"method\": \"Foo."));
+        }
+    }
+
+    @Test
+    public void sarifLogIsComplete() throws IOException {
+        File out = File.createTempFile("dbz-output", ".sarif");
+        List<Diagnostic<? extends JavaFileObject>> diagnostics =
+                CheckerRunner.run(new DivByZeroChecker(), FILES, "-Adbz.output=" + out, "-Adbz.outputFormat=sarif");
+        // text is still printed by default
+        int expected = CheckerRunner.count(diagnostics, "divide.by.zero");
+        assertTrue(expected > 0);
+
+        String log = new String(Files.readAllBytes(out.toPath()), StandardCharsets.UTF_8);
+        assertTrue(log, log.startsWith("{\"$schema\"") && log.trim().endsWith("]}"));
+        assertTrue(log, log.contains("\"version\": \"2.1.0\""));
+        assertEquals(expected, log.split("\"ruleId\"", -1).length - 1);
+    }
+}
@@ -0,0 +1,36 @@
+package org.checkerframework.checker.dividebyzero;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import org.junit.Test;
+
+/** Checks that dataflow runs only on the methods {@link DivByZeroPrescan} cannot skip. */
+public class DivByZeroPrescanTest {
+
+    @Test
+    public void dataflowSkipsMethodsWithNothingToReport() throws IOException {
+        File report = File.createTempFile("dbz-metrics", ".json");
+        RecordingChecker checker = new RecordingChecker();
+        CheckerRunner.run(checker, Arrays.asList(new File("tests/dividebyzero/Prescan.java")), "-Adbz.metrics=" + report);
+
+        assertEquals(0, dataflowNanos(checker, "Prescan", "plain(int)"));
+        assertEquals(0, dataflowNanos(checker, "Prescan", "suppressed(int)"));
+        assertEquals(0, dataflowNanos(checker, "PrescanSuppressed", "f(int)"));
+        assertTrue(dataflowNanos(checker, "Prescan", "annotated(int)") > 0);
+        assertTrue(dataflowNanos(checker, "Prescan", "refined(int)") > 0);
+        assertTrue(checker.getRecordedFactory().getPrescan().getMethodsSkipped() >= 3);
+    }
+
+    private static long dataflowNanos(RecordingChecker checker, String className, String method) {
+        for (DivByZeroMetrics.Method m : checker.getMetrics().getMethods()) {
+            if (m.className.equals(className) && m.name.equals(method)) {
+                return m.dataflowNanos;
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,64 @@
+package org.checkerframework.checker.dividebyzero;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.annotation.Annotation;
+import org.checkerframework.framework.qual.SubtypeOf;
+import org.junit.Test;
+
+/**
+ * Checks the precomputed subtype, lub and glb tables of {@link DivByZeroQualifier} against the
+ * {@code @SubtypeOf} declarations in the qual package.
+ */
+public class DivByZeroQualifierTest {
+
+    @Test
+    public void subtypeTableMatchesSubtypeOfDeclarations() {
+        for (DivByZeroQualifier sub : DivByZeroQualifier.VALUES) {
+            for (DivByZeroQualifier sup : DivByZeroQualifier.VALUES) {
+                assertEquals(
+                        sub + " <: " + sup,
+                        declaredSubtype(sub.annotation, sup.annotation),
+                        sub.isSubtypeOf(sup));
+            }
+        }
+    }
+
+    @Test
+    public void lubAndGlbAreBounds() {
+        for (DivByZeroQualifier a : DivByZeroQualifier.VALUES) {
+            for (DivByZeroQualifier b : DivByZeroQualifier.VALUES) {
+                DivByZeroQualifier lub = a.lub(b);
+                DivByZeroQualifier glb = a.glb(b);
+                assertEquals(lub, b.lub(a));
+                assertEquals(glb, b.glb(a));
+                assertTrue(a + " lub " + b, a.isSubtypeOf(lub) && b.isSubtypeOf(lub));
+                assertTrue(a + " glb " + b, glb.isSubtypeOf(a) && glb.isSubtypeOf(b));
+                for (DivByZeroQualifier c : DivByZeroQualifier.VALUES) {
+                    if (a.isSubtypeOf(c) && b.isSubtypeOf(c)) {
+                        assertTrue(a + " lub " + b + " is least", lub.isSubtypeOf(c));
+                    }
+                    if (c.isSubtypeOf(a) && c.isSubtypeOf(b)) {
+                        assertTrue(a + " glb " + b + " is greatest", c.isSubtypeOf(glb));
+                    }
+                }
+            }
+        }
+    }
+
+    /** Reflexive, transitive closure of the {@code @SubtypeOf} meta-annotations. */
+    private static boolean declaredSubtype(
+            Class<? extends Annotation> sub, Class<? extends Annotation> sup) {
+        if (sub == sup) {
+            return true;
+        }
+        SubtypeOf declared = sub.getAnnotation(SubtypeOf.class);
+        for (Class<? extends Annotation> parent : declared.value()) {
+            if (declaredSubtype(parent, sup)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,202 @@
+package org.checkerframework.checker.dividebyzero;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.sun.source.tree.CompilationUnitTree;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.util.Elements;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+import org.checkerframework.framework.flow.CFAbstractAnalysis;
+import org.checkerframework.framework.flow.CFStore;
+import org.checkerframework.framework.flow.CFTransfer;
+import org.checkerframework.framework.flow.CFValue;
+import org.checkerframework.javacutil.AnnotationBuilder;
+import org.junit.Test;
+
+/** Checks that the registry hands out one interned mirror per qualifier, maps mirrors back, and saves allocations. */
+public class DivByZeroQualifiersTest {
+
+    @Test
+    public void mirrorsAreInternedAndRoundTrip() throws IOException {
+        RecordingChecker checker = new RecordingChecker();
+        CheckerRunner.run(checker, CheckerRunner.testFiles("tests/dividebyzero"));
+        DivByZeroAnnotatedTypeFactory factory = checker.getRecordedFactory();
+        DivByZeroQualifiers qualifiers = factory.getQualifiers();
+        Elements elements = factory.getProcessingEnv().getElementUtils();
+
+        for (DivByZeroQualifier q : DivByZeroQualifier.VALUES) {
+            AnnotationMirror m = qualifiers.mirror(q);
+            assertEquals(q.annotation.getCanonicalName(),
+                    ((TypeElement) m.getAnnotationType().asElement()).getQualifiedName().toString());
+            // a mirror built elsewhere maps back to the interned one
+            AnnotationMirror fresh = AnnotationBuilder.fromClass(elements, q.annotation);
+            assertSame(q.toString(), m, qualifiers.mirror(qualifiers.qualifierOf(fresh)));
+            assertEquals(q, qualifiers.qualifierOf(m));
+        }
+        assertSame(qualifiers.mirror(DivByZeroQualifier.TOP), qualifiers.top());
+        assertSame(qualifiers.mirror(DivByZeroQualifier.BOTTOM), qualifiers.bottom());
+        assertSame(DivByZeroQualifier.BOTTOM, qualifiers.qualifierIn(Arrays.asList(qualifiers.bottom(), qualifiers.top())));
+        assertNull(qualifiers.qualifierIn(Collections.<AnnotationMirror>emptyList()));
+    }
+
+    @Test
+    public void mirrorsBuiltElsewhereMapByAnnotationType() throws IOException {
+        RecordingChecker checker = new RecordingChecker();
+        CheckerRunner.run(checker, CheckerRunner.testFiles("tests/dividebyzero"));
+        DivByZeroAnnotatedTypeFactory factory = checker.getRecordedFactory();
+        DivByZeroQualifiers qualifiers = factory.getQualifiers();
+        Elements elements = factory.getProcessingEnv().getElementUtils();
+
+        for (DivByZeroQualifier q : DivByZeroQualifier.VALUES) {
+            AnnotationMirror fresh = AnnotationBuilder.fromClass(elements, q.annotation);
+            assertNotSame(qualifiers.mirror(q), fresh);
+            assertEquals(q, qualifiers.qualifierOf(fresh));
+        }
+        AnnotationMirror other = AnnotationBuilder.fromClass(elements, Deprecated.class);
+        assertNull(qualifiers.qualifierOf(other));
+    }
+
+    @Test
+    public void factoryTransferAndVisitorShareOneRegistry() throws IOException {
+        MeasuringChecker checker = new MeasuringChecker(false);
+        CheckerRunner.run(checker, CheckerRunner.testFiles("tests/dividebyzero"));
+        DivByZeroQualifiers qualifiers = checker.getRecordedFactory().getQualifiers();
+        assertNotNull(checker.transfer);
+        assertSame(qualifiers, checker.transfer.getQualifiers());
+        assertSame(qualifiers, checker.getRecordedVisitor().getQualifiers());
+    }
+
+    /**
+     * Checks tests/dividebyzero twice: with the registry, and building a new mirror on every
+     * lookup, as the checker did before the registry. Each lookup in the second run is one
+     * AnnotationBuilder mirror the registry saves; per unit, both runs look up the same
+     * qualifiers, and the second allocates more.
+     */
+    @Test
+    public void registrySavesAMirrorPerLookupInEveryUnit() throws IOException {
+        List<File> files = CheckerRunner.testFiles("tests/dividebyzero");
+        // warm up, so that the two measured runs are compiled alike
+        CheckerRunner.run(new MeasuringChecker(true), files);
+        MeasuringChecker interned = new MeasuringChecker(false);
+        List<Diagnostic<? extends JavaFileObject>> internedDiagnostics = CheckerRunner.run(interned, files);
+        interned.endUnit();
+        MeasuringChecker fresh = new MeasuringChecker(true);
+        List<Diagnostic<? extends JavaFileObject>> freshDiagnostics = CheckerRunner.run(fresh, files);
+        fresh.endUnit();
+
+        assertEquals(messages(internedDiagnostics), messages(freshDiagnostics));
+        assertEquals(interned.units, fresh.units);
+        StringBuilder report = new StringBuilder(
+                String.format(Locale.ROOT, "%-24s %10s %16s %16s%n", "unit", "mirrors", "bytes interned", "bytes fresh"));
+        long lookups = 0;
+        long saved = 0;
+        for (int i = 0; i < interned.units.size(); i++) {
+            report.append(String.format(Locale.ROOT, "%-24s %10d %16d %16d%n", interned.units.get(i),
+                    fresh.lookups.get(i), interned.bytes.get(i), fresh.bytes.get(i)));
+            assertEquals(interned.lookups.get(i), fresh.lookups.get(i));
+            lookups += fresh.lookups.get(i);
+            saved += fresh.bytes.get(i) - interned.bytes.get(i);
+        }
+        for (long l : fresh.lookups) {
+            assertTrue(report.toString(), l > 0);
+        }
+        if (DivByZeroScalingTest.allocatedBytes() >= 0) {
+            // a mirror, its builder and their maps are far more than 16 bytes
+            assertTrue(report.toString(), saved > 16 * lookups);
+        }
+    }
+
+    private static List<String> messages(List<Diagnostic<? extends JavaFileObject>> diagnostics) {
+        List<String> messages = new ArrayList<>();
+        for (Diagnostic<? extends JavaFileObject> d : diagnostics) {
+            messages.add(d.getLineNumber() + ":" + d.getColumnNumber() + " " + d.getMessage(Locale.ROOT));
+        }
+        return messages;
+    }
+
+    /** Counts qualifier lookups; with fresh mirrors, builds a new one for each */
+    private static final class CountingQualifiers extends DivByZeroQualifiers {
+        private final Elements elements;
+        private final boolean fresh;
+        long lookups;
+
+        CountingQualifiers(Elements elements, boolean fresh) {
+            super(elements);
+            this.elements = elements;
+            this.fresh = fresh;
+        }
+
+        @Override
+        AnnotationMirror mirror(DivByZeroQualifier qualifier) {
+            lookups++;
+            return fresh ? AnnotationBuilder.fromClass(elements, qualifier.annotation) : super.mirror(qualifier);
+        }
+    }
+
+    /** Records, per compilation unit, the qualifier lookups and the bytes this thread allocated */
+    private static final class MeasuringChecker extends RecordingChecker {
+        private final boolean fresh;
+        final List<String> units = new ArrayList<>();
+        final List<Long> lookups = new ArrayList<>();
+        final List<Long> bytes = new ArrayList<>();
+        private CountingQualifiers counting;
+        private long unitLookups;
+        private long unitBytes;
+        DivByZeroTransfer transfer;
+
+        MeasuringChecker(boolean fresh) {
+            this.fresh = fresh;
+        }
+
+        @Override
+        protected DivByZeroAnnotatedTypeFactory createTypeFactory() {
+            return new DivByZeroAnnotatedTypeFactory(this) {
+                @Override
+                DivByZeroQualifiers createQualifiers() {
+                    counting = new CountingQualifiers(getProcessingEnv().getElementUtils(), fresh);
+                    return counting;
+                }
+
+                @Override
+                public CFTransfer createFlowTransferFunction(CFAbstractAnalysis<CFValue, CFStore, CFTransfer> analysis) {
+                    transfer = (DivByZeroTransfer) super.createFlowTransferFunction(analysis);
+                    return transfer;
+                }
+
+                @Override
+                public void setRoot(CompilationUnitTree root) {
+                    if (root != null && root != getRoot()) {
+                        endUnit();
+                        units.add(new File(root.getSourceFile().getName()).getName());
+                    }
+                    super.setRoot(root);
+                }
+            };
+        }
+
+        /** Close the measurement of the current unit, if there is one */
+        void endUnit() {
+            long allocated = DivByZeroScalingTest.allocatedBytes();
+            if (lookups.size() < units.size()) {
+                lookups.add(counting.lookups - unitLookups);
+                bytes.add(allocated - unitBytes);
+            }
+            unitLookups = counting == null ? 0 : counting.lookups;
+            unitBytes = allocated;
+        }
+    }
+}
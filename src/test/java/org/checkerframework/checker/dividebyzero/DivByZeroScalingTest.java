@@ -0,0 +1,196 @@
+package org.checkerframework.checker.dividebyzero;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.BiConsumer;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+import org.junit.Test;
+
+/**
+ * Checks that the checker's time and allocation grow within stated bounds as one dimension of a
+ * generated method grows and the others stay fixed. {@code DivideByZeroTest} covers what the
+ * checker reports; this catches a change that makes it, say, quadratic in the method size.
+ *
+ * <p>Each dimension is measured at a few sizes, doubling each time, and the growth exponent is the
+ * least-squares slope of log(cost) over log(size): 1 is linear, 2 quadratic. Time is the fastest
+ * of {@link #RUNS} runs, after a warm-up run; allocation is that of the test thread, where javac
+ * runs. The cost of checking an empty method, mostly javac's own start-up, is subtracted first so
+ * that it does not hide the growth. A failure names every dimension that regressed, with the
+ * measurements.
+ *
+ * <p>Only the allocation bounds are checked by default, since they do not depend on the machine.
+ * Wall-clock time on a shared machine is too noisy to fail a build on; it is reported, and its
+ * bounds are checked too when the system property {@value #CHECK_TIME} is true, as with {@code
+ * ./gradlew test -Pscaling.time}.
+ */
+public class DivByZeroScalingTest {
+
+    /** The system property that turns on the time bounds */
+    static final String CHECK_TIME = "dbz.scaling.time";
+
+    /** Runs per size; the fastest counts */
+    private static final int RUNS = 3;
+
+    /** One dimension of the generated code, the sizes it is measured at, and its bounds */
+    private static final class Dimension {
+        final String name;
+        final int[] sizes;
+        final BiConsumer<CorpusGenerator.Shape, Integer> set;
+        final double maxTimeExponent;
+        final double maxBytesExponent;
+
+        Dimension(String name, int[] sizes, BiConsumer<CorpusGenerator.Shape, Integer> set,
+                double maxTimeExponent, double maxBytesExponent) {
+            this.name = name;
+            this.sizes = sizes;
+            this.set = set;
+            this.maxTimeExponent = maxTimeExponent;
+            this.maxBytesExponent = maxBytesExponent;
+        }
+    }
+
+    private static final List<Dimension> DIMENSIONS = new ArrayList<>();
+
+    static {
+        // near-linear in the number of statements
+        DIMENSIONS.add(new Dimension("statements", new int[] {500, 1000, 2000, 4000},
+                (s, n) -> s.statements = n, 1.4, 1.2));
+        // a guard chain adds one store per level; the statements stay the same
+        DIMENSIONS.add(new Dimension("branch depth", new int[] {2, 4, 8, 16},
+                (s, n) -> s.branchDepth = n, 1.4, 1.2));
+        // every store holds every variable, so up to linear in the variables
+        DIMENSIONS.add(new Dimension("variables", new int[] {4, 8, 16, 32},
+                (s, n) -> s.variables = n, 1.4, 1.2));
+    }
+
+    /** The shape the dimensions are varied from */
+    private static CorpusGenerator.Shape base() {
+        CorpusGenerator.Shape shape = new CorpusGenerator.Shape();
+        shape.statements = 1000;
+        shape.branchDepth = 4;
+        shape.loopNesting = 1;
+        shape.variables = 8;
+        return shape;
+    }
+
+    @Test
+    public void costGrowsWithinBounds() throws IOException {
+        File dir = Files.createTempDirectory("dbz-scaling").toFile();
+        boolean countBytes = allocatedBytes() >= 0;
+        boolean checkTime = Boolean.getBoolean(CHECK_TIME);
+        measure(dir, base());
+        CorpusGenerator.Shape empty = base();
+        empty.statements = 0;
+        empty.branchDepth = 0;
+        empty.loopNesting = 0;
+        long[] overhead = measure(dir, empty);
+
+        StringBuilder regressions = new StringBuilder();
+        StringBuilder report = new StringBuilder(
+                String.format(Locale.ROOT, "%-14s %8s %10s %12s%n", "dimension", "size", "time ms", "allocated MB"));
+        for (Dimension d : DIMENSIONS) {
+            double[] times = new double[d.sizes.length];
+            double[] bytes = new double[d.sizes.length];
+            for (int i = 0; i < d.sizes.length; i++) {
+                CorpusGenerator.Shape shape = base();
+                d.set.accept(shape, d.sizes[i]);
+                long[] cost = measure(dir, shape);
+                times[i] = cost[0] - overhead[0];
+                bytes[i] = cost[1] - overhead[1];
+                report.append(String.format(Locale.ROOT, "%-14s %8d %10.1f %12.1f%n",
+                        d.name, d.sizes[i], cost[0] / 1e6, cost[1] / 1e6));
+            }
+            double timeExponent = exponent(d.sizes, times);
+            double bytesExponent = exponent(d.sizes, bytes);
+            report.append(String.format(Locale.ROOT, "%-14s exponents: time %.2f (max %.2f%s), allocation %s%n",
+                    d.name, timeExponent, d.maxTimeExponent, checkTime ? "" : ", not checked",
+                    countBytes ? String.format(Locale.ROOT, "%.2f (max %.2f)", bytesExponent, d.maxBytesExponent) : "not measured"));
+            if (checkTime && timeExponent > d.maxTimeExponent) {
+                regressions.append(String.format(Locale.ROOT, "%n  %s: time grows as size^%.2f, bound %.2f",
+                        d.name, timeExponent, d.maxTimeExponent));
+            }
+            if (countBytes && bytesExponent > d.maxBytesExponent) {
+                regressions.append(String.format(Locale.ROOT, "%n  %s: allocation grows as size^%.2f, bound %.2f",
+                        d.name, bytesExponent, d.maxBytesExponent));
+            }
+        }
+        if (regressions.length() > 0) {
+            fail("scaling regressed in:" + regressions + "\n\n" + report);
+        }
+    }
+
+    /**
+     * Check one generated class.
+     *
+     * @return {nanoseconds, allocated bytes} of the fastest run
+     */
+    private static long[] measure(File dir, CorpusGenerator.Shape shape) throws IOException {
+        CorpusGenerator.Generated g = CorpusGenerator.generate(shape, "Scaled");
+        File file = new File(dir, g.className + ".java");
+        Files.write(file.toPath(), g.source.getBytes(StandardCharsets.UTF_8));
+        List<File> files = Collections.singletonList(file);
+
+        long[] best = {Long.MAX_VALUE, Long.MAX_VALUE};
+        for (int run = 0; run < RUNS; run++) {
+            long bytes = allocatedBytes();
+            long start = System.nanoTime();
+            List<Diagnostic<? extends JavaFileObject>> diagnostics = CheckerRunner.run(new DivByZeroChecker(), files);
+            long time = System.nanoTime() - start;
+            bytes = allocatedBytes() - bytes;
+            // a checker that got fast by checking less would pass otherwise
+            assertEquals(shape.toString(), g.errors, CheckerRunner.count(diagnostics, "divide.by.zero"));
+            best[0] = Math.min(best[0], time);
+            best[1] = Math.min(best[1], bytes);
+        }
+        return best;
+    }
+
+    /** The least-squares slope of log(cost) over log(size) */
+    static double exponent(int[] sizes, double[] costs) {
+        int n = sizes.length;
+        double mx = 0;
+        double my = 0;
+        for (int i = 0; i < n; i++) {
+            mx += Math.log(sizes[i]) / n;
+            my += Math.log(Math.max(1, costs[i])) / n;
+        }
+        double sxy = 0;
+        double sxx = 0;
+        for (int i = 0; i < n; i++) {
+            double dx = Math.log(sizes[i]) - mx;
+            sxy += dx * (Math.log(Math.max(1, costs[i])) - my);
+            sxx += dx * dx;
+        }
+        return sxy / sxx;
+    }
+
+    /** Bytes allocated by this thread so far, or -1 if the JVM cannot tell */
+    static long allocatedBytes() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean sun = (com.sun.management.ThreadMXBean) bean;
+            if (sun.isThreadAllocatedMemorySupported() && sun.isThreadAllocatedMemoryEnabled()) {
+                return sun.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1;
+    }
+
+    @Test
+    public void exponentOfKnownGrowth() {
+        int[] sizes = {1, 2, 4, 8};
+        assertEquals(1.0, exponent(sizes, new double[] {10, 20, 40, 80}), 1e-9);
+        assertEquals(2.0, exponent(sizes, new double[] {10, 40, 160, 640}), 1e-9);
+    }
+}
@@ -0,0 +1,94 @@
+package org.checkerframework.checker.dividebyzero;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+import org.junit.Test;
+
+/** Checks the stub index format and that the interval domain uses the stubs' ranges. */
+public class DivByZeroStubsTest {
+
+    private static final String SOURCE =
+            String.join(
+                    "\n",
+                    "import java.io.InputStream;",
+                    "import java.io.IOException;",
+                    "class Library {",
+                    "    int read(InputStream in, int n) throws IOException {",
+                    "        return n / (in.read() + 2);",
+                    "    }",
+                    "    int bits(int n) {",
+                    "        return n / (Integer.bitCount(n) + 1);",
+                    "    }",
+                    "    int index(String s, int n) {",
+                    "        return n / (s.indexOf('x') + 1);",
+                    "    }",
+                    "}",
+                    "");
+
+    @Test
+    public void indexHasOneEntryPerStub() throws IOException {
+        byte[] index = DivByZeroStubs.compile(new StringReader(String.join("\n",
+                "# comment",
+                "java.lang.String length() 0 MAX",
+                "",
+                "java.util.Random nextInt( int ) 0 MAX   # spaces in the signature are ignored")), "test");
+        DivByZeroStubs stubs = new DivByZeroStubs(ByteBuffer.wrap(index), null);
+        assertEquals(2, stubs.size());
+        assertEquals(8 + 2 * 24, index.length);
+    }
+
+    @Test
+    public void malformedStubsAreRejected() throws IOException {
+        for (String text : Arrays.asList(
+                "java.lang.String length 0 MAX",
+                "java.lang.String length() 1 0",
+                "java.lang.String length() 0 LOTS",
+                "java.lang.String length() 0 MAX\njava.lang.String length() 1 MAX")) {
+            try {
+                DivByZeroStubs.compile(new StringReader(text), "test");
+                fail("accepted " + text);
+            } catch (IllegalArgumentException e) {
+                assertTrue(e.getMessage(), e.getMessage().startsWith("test:"));
+            }
+        }
+    }
+
+    @Test
+    public void intervalsUseStubRanges() throws IOException {
+        File dir = Files.createTempDirectory("dbz-stubs").toFile();
+        File file = new File(dir, "Library.java");
+        Files.write(file.toPath(), SOURCE.getBytes(StandardCharsets.UTF_8));
+        List<File> files = Collections.singletonList(file);
+
+        List<Diagnostic<? extends JavaFileObject>> sign = CheckerRunner.run(new DivByZeroChecker(), files);
+        assertEquals(3, CheckerRunner.count(sign, "divide.by.zero"));
+
+        // read() is at least -1 and bitCount() at least 0; indexOf() + 1 can be 0
+        List<Diagnostic<? extends JavaFileObject>> interval =
+                CheckerRunner.run(new DivByZeroChecker(), files, "-Adbz.domain=interval");
+        assertEquals(Collections.singletonList(11L), errorLines(interval));
+    }
+
+    private static List<Long> errorLines(List<Diagnostic<? extends JavaFileObject>> diagnostics) {
+        Long[] lines = diagnostics.stream()
+                .filter(d -> d.getMessage(Locale.ROOT).contains("divide.by.zero"))
+                .map(Diagnostic::getLineNumber)
+                .sorted()
+                .toArray(Long[]::new);
+        return Arrays.asList(lines);
+    }
+}
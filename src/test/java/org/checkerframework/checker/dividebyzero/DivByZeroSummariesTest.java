@@ -0,0 +1,100 @@
+package org.checkerframework.checker.dividebyzero;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+import org.junit.Test;
+
+/** Checks that summaries, and so the diagnostics, do not depend on the order of the files, and are not kept. */
+public class DivByZeroSummariesTest {
+
+    private static final String CALLER =
+            "class Caller {\n"
+            + "    int viaOther(int n) {\n"
+            + "        return n / Callee.positive();\n"
+            + "    }\n"
+            + "    int viaOwn(int n) {\n"
+            + "        return n / own();\n"
+            + "    }\n"
+            + "    private static int own() {\n"
+            + "        return 4;\n"
+            + "    }\n"
+            + "}\n";
+
+    private static final String CALLEE =
+            "class Callee {\n"
+            + "    static int positive() {\n"
+            + "        return 3;\n"
+            + "    }\n"
+            + "    int local(int n) {\n"
+            + "        return n / positive();\n"
+            + "    }\n"
+            + "}\n";
+
+    @Test
+    public void crossFileCallsDoNotDependOnOrder() throws IOException {
+        File dir = Files.createTempDirectory("dbz-summaries").toFile();
+        File caller = write(dir, "Caller.java", CALLER);
+        File callee = write(dir, "Callee.java", CALLEE);
+
+        List<String> calleeFirst = errors(CheckerRunner.run(new DivByZeroChecker(), Arrays.asList(callee, caller)));
+        List<String> callerFirst = errors(CheckerRunner.run(new DivByZeroChecker(), Arrays.asList(caller, callee)));
+        assertEquals(calleeFirst, callerFirst);
+        // only calls within the class being checked are summarized
+        assertEquals(Arrays.asList("Caller.java:3"), callerFirst);
+    }
+
+    @Test
+    public void summariesAreDroppedWithTheirClass() throws IOException {
+        File dir = Files.createTempDirectory("dbz-summaries").toFile();
+        // two top-level classes in one unit; Second is checked after First
+        File file = write(dir, "First.java", "class First {\n"
+                + "    private static int four() {\n"
+                + "        return 4;\n"
+                + "    }\n"
+                + "    int f(int n) {\n"
+                + "        return n / four();\n"
+                + "    }\n"
+                + "}\n"
+                + "class Second {\n"
+                + "    int g(int n) {\n"
+                + "        return n / (n - n);\n"
+                + "    }\n"
+                + "}\n");
+
+        RecordingChecker checker = new RecordingChecker();
+        List<String> errors = errors(CheckerRunner.run(checker, Arrays.asList(file)));
+        assertEquals(Arrays.asList("First.java:11"), errors);
+        DivByZeroSummaries summaries = checker.getRecordedFactory().getSummaries();
+        // four() was summarized while First was checked, and dropped when Second was
+        assertEquals(1, summaries.getEvaluations());
+        assertEquals(0, summaries.size());
+    }
+
+    private static File write(File dir, String name, String source) throws IOException {
+        File file = new File(dir, name);
+        Files.write(file.toPath(), source.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    /** file:line of each divide.by.zero error, sorted */
+    private static List<String> errors(List<Diagnostic<? extends JavaFileObject>> diagnostics) {
+        List<String> errors = new ArrayList<>();
+        for (Diagnostic<? extends JavaFileObject> d : diagnostics) {
+            if (d.getKind() == Diagnostic.Kind.ERROR && d.getMessage(Locale.ROOT).contains("divide.by.zero")) {
+                errors.add(new File(d.getSource().getName()).getName() + ":" + d.getLineNumber());
+            }
+        }
+        errors.sort(null);
+        return errors;
+    }
+}
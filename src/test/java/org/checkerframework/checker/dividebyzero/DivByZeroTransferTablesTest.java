@@ -0,0 +1,160 @@
+package org.checkerframework.checker.dividebyzero;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import org.checkerframework.checker.dividebyzero.DivByZeroTransfer.BinaryOperator;
+import org.checkerframework.checker.dividebyzero.DivByZeroTransfer.Comparison;
+import org.junit.Test;
+
+/**
+ * Checks the lookup tables in {@link DivByZeroTransfer} against the ASCII truth tables in the
+ * comments of that file, so that the documentation and the implementation cannot drift apart.
+ */
+public class DivByZeroTransferTablesTest {
+
+    private static final String TRANSFER_SOURCE =
+            "src/main/java/org/checkerframework/checker/dividebyzero/DivByZeroTransfer.java";
+
+    private static final DivByZeroQualifier[] COLUMNS = {
+        DivByZeroQualifier.TOP,
+        DivByZeroQualifier.NONZERO,
+        DivByZeroQualifier.ZERO,
+        DivByZeroQualifier.POSITIVE,
+        DivByZeroQualifier.NEGATIVE
+    };
+
+    @Test
+    public void arithmeticTableMatchesComments() throws IOException {
+        Map<BinaryOperator, String[][]> documented = parseTruthTables();
+        assertEquals("truth tables in comments", BinaryOperator.values().length, documented.size());
+
+        for (Map.Entry<BinaryOperator, String[][]> entry : documented.entrySet()) {
+            BinaryOperator op = entry.getKey();
+            String[][] rows = entry.getValue();
+            for (int i = 0; i < COLUMNS.length; i++) {
+                for (int j = 0; j < COLUMNS.length; j++) {
+                    DivByZeroQualifier lhs = COLUMNS[i];
+                    DivByZeroQualifier rhs = COLUMNS[j];
+                    String cell = rows[i][j];
+                    DivByZeroQualifier expected =
+                            cell.equals("Error") ? errorCell(op, lhs) : parse(cell);
+                    assertEquals(
+                            lhs + " " + op + " " + rhs,
+                            expected,
+                            DivByZeroTransfer.arithmetic(op, lhs, rhs));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void bottomIsAbsorbing() {
+        for (BinaryOperator op : BinaryOperator.values()) {
+            for (DivByZeroQualifier q : DivByZeroQualifier.VALUES) {
+                assertEquals(DivByZeroQualifier.BOTTOM, DivByZeroTransfer.arithmetic(op, q, DivByZeroQualifier.BOTTOM));
+                assertEquals(DivByZeroQualifier.BOTTOM, DivByZeroTransfer.arithmetic(op, DivByZeroQualifier.BOTTOM, q));
+            }
+        }
+    }
+
+    @Test
+    public void comparisonRefinements() {
+        DivByZeroQualifier top = DivByZeroQualifier.TOP;
+        assertEquals(DivByZeroQualifier.NONZERO, DivByZeroTransfer.comparison(Comparison.NE, top, DivByZeroQualifier.ZERO));
+        assertEquals(DivByZeroQualifier.ZERO, DivByZeroTransfer.comparison(Comparison.EQ, top, DivByZeroQualifier.ZERO));
+        assertEquals(DivByZeroQualifier.NEGATIVE, DivByZeroTransfer.comparison(Comparison.LT, top, DivByZeroQualifier.ZERO));
+        assertEquals(top, DivByZeroTransfer.comparison(Comparison.LE, top, DivByZeroQualifier.ZERO));
+        assertEquals(DivByZeroQualifier.POSITIVE, DivByZeroTransfer.comparison(Comparison.GT, top, DivByZeroQualifier.ZERO));
+        assertEquals(top, DivByZeroTransfer.comparison(Comparison.GE, top, DivByZeroQualifier.ZERO));
+        // Nothing is learned from a comparison against Top.
+        for (Comparison op : Comparison.values()) {
+            if (op != Comparison.EQ) {
+                for (DivByZeroQualifier lhs : DivByZeroQualifier.VALUES) {
+                    assertEquals(lhs, DivByZeroTransfer.comparison(op, lhs, top));
+                }
+            }
+        }
+    }
+
+    /** The documented value of an "Error" cell; see the comment above the "/" table. */
+    private static DivByZeroQualifier errorCell(BinaryOperator op, DivByZeroQualifier lhs) {
+        if (lhs == DivByZeroQualifier.ZERO) {
+            return DivByZeroQualifier.ZERO;
+        }
+        if (op == BinaryOperator.DIVIDE && lhs == DivByZeroQualifier.NONZERO) {
+            return DivByZeroQualifier.NONZERO;
+        }
+        return DivByZeroQualifier.TOP;
+    }
+
+    private static DivByZeroQualifier parse(String cell) {
+        return DivByZeroQualifier.valueOf(cell.toUpperCase(Locale.ROOT));
+    }
+
+    /**
+     * Find every table of the form
+     *
+     * <pre>
+     * | +       | Top | Nonzero | ...
+     * |---------|-----|---------| ...
+     * | Top     | Top | Top     | ...
+     * </pre>
+     *
+     * in the transfer source and return its cells, indexed by [row][column].
+     */
+    private static Map<BinaryOperator, String[][]> parseTruthTables() throws IOException {
+        List<String> lines = Files.readAllLines(Paths.get(TRANSFER_SOURCE), StandardCharsets.UTF_8);
+        Map<BinaryOperator, String[][]> tables = new EnumMap<>(BinaryOperator.class);
+        for (int i = 0; i < lines.size(); i++) {
+            String[] header = cells(lines.get(i));
+            BinaryOperator op = header.length == 0 ? null : operator(header[0]);
+            if (op == null) {
+                continue;
+            }
+            String[][] rows = new String[COLUMNS.length][];
+            for (int r = 0; r < COLUMNS.length; r++) {
+                // skip the header and the "|-----|" separator line
+                String[] row = cells(lines.get(i + 2 + r));
+                assertEquals(op + " row " + r, COLUMNS[r], parse(row[0]));
+                assertTrue(op + " row " + r, row.length > COLUMNS.length);
+                rows[r] = new String[COLUMNS.length];
+                System.arraycopy(row, 1, rows[r], 0, COLUMNS.length);
+            }
+            tables.put(op, rows);
+            i += 1 + COLUMNS.length;
+        }
+        return tables;
+    }
+
+    private static String[] cells(String line) {
+        String trimmed = line.trim();
+        if (!trimmed.startsWith("|")) {
+            return new String[0];
+        }
+        String[] parts = trimmed.substring(1).split("\\|");
+        for (int i = 0; i < parts.length; i++) {
+            parts[i] = parts[i].trim();
+        }
+        return parts;
+    }
+
+    private static BinaryOperator operator(String symbol) {
+        switch (symbol) {
+            case "+": return BinaryOperator.PLUS;
+            case "-": return BinaryOperator.MINUS;
+            case "*": return BinaryOperator.TIMES;
+            case "/": return BinaryOperator.DIVIDE;
+            case "%": return BinaryOperator.MOD;
+            default: return null;
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package org.checkerframework.checker.dividebyzero;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.sun.source.tree.BinaryTree;
+import com.sun.source.tree.ClassTree;
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.tree.CompoundAssignmentTree;
+import com.sun.source.tree.LambdaExpressionTree;
+import com.sun.source.tree.Tree;
+import com.sun.source.util.TreeScanner;
+import java.io.File;
+import java.io.IOException;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import javax.lang.model.element.VariableElement;
+import org.checkerframework.common.basetype.BaseTypeChecker;
+import org.checkerframework.dataflow.cfg.UnderlyingAST;
+import org.checkerframework.framework.flow.CFStore;
+import org.checkerframework.framework.flow.CFValue;
+import org.checkerframework.framework.type.AnnotatedTypeMirror;
+import org.checkerframework.javacutil.Pair;
+import org.junit.Test;
+
+/** Checks that the visitor looks up the annotated type of each divisor exactly once. */
+public class DivByZeroVisitorTest {
+
+    @Test
+    public void oneTypeLookupPerDivision() throws IOException {
+        List<File> units = CheckerRunner.testFiles("tests/dividebyzero");
+        LookupCountingChecker checker = new LookupCountingChecker();
+        CheckerRunner.run(checker, units);
+
+        LookupCountingFactory factory = checker.factory;
+        long divisions = checker.getRecordedVisitor().getDivisionsClassified();
+        assertTrue("the test files should contain divisions", divisions > 0);
+        assertEquals("divisors looked up", divisions, factory.divisorsLookedUp);
+        assertEquals("lookups of a divisor already looked up", 0, factory.repeatedLookups);
+    }
+
+    private static final class LookupCountingChecker extends RecordingChecker {
+
+        LookupCountingFactory factory;
+
+        @Override
+        protected DivByZeroAnnotatedTypeFactory createTypeFactory() {
+            factory = new LookupCountingFactory(this);
+            return factory;
+        }
+    }
+
+    /**
+     * Counts the annotated-type lookups of divisors made outside dataflow,
+     * which are the visitor's.
+     */
+    private static final class LookupCountingFactory extends DivByZeroAnnotatedTypeFactory {
+
+        /** The divisors of the current compilation unit, and whether each was looked up */
+        private Map<Tree, Boolean> divisors;
+
+        private boolean analyzing;
+
+        long divisorsLookedUp;
+        long repeatedLookups;
+
+        LookupCountingFactory(BaseTypeChecker c) {
+            super(c);
+        }
+
+        @Override
+        public void setRoot(CompilationUnitTree root) {
+            if (divisors == null || root != getRoot()) {
+                divisors = new IdentityHashMap<>();
+                if (root != null) {
+                    root.accept(new TreeScanner<Void, Void>() {
+                        @Override
+                        public Void visitBinary(BinaryTree node, Void p) {
+                            if (node.getKind() == Tree.Kind.DIVIDE || node.getKind() == Tree.Kind.REMAINDER) {
+                                divisors.put(node.getRightOperand(), false);
+                            }
+                            return super.visitBinary(node, p);
+                        }
+
+                        @Override
+                        public Void visitCompoundAssignment(CompoundAssignmentTree node, Void p) {
+                            if (node.getKind() == Tree.Kind.DIVIDE_ASSIGNMENT
+                                    || node.getKind() == Tree.Kind.REMAINDER_ASSIGNMENT) {
+                                divisors.put(node.getExpression(), false);
+                            }
+                            return super.visitCompoundAssignment(node, p);
+                        }
+                    }, null);
+                }
+            }
+            super.setRoot(root);
+        }
+
+        @Override
+        protected void analyze(
+                Queue<ClassTree> queue,
+                Queue<Pair<LambdaExpressionTree, CFStore>> lambdaQueue,
+                UnderlyingAST ast,
+                List<Pair<VariableElement, CFValue>> fieldValues,
+                ClassTree currentClass,
+                boolean isInitializationCode,
+                boolean updateInitializationStore,
+                boolean isStatic,
+                CFStore capturedStore) {
+            boolean outer = analyzing;
+            analyzing = true;
+            try {
+                super.analyze(queue, lambdaQueue, ast, fieldValues, currentClass,
+                        isInitializationCode, updateInitializationStore, isStatic, capturedStore);
+            } finally {
+                analyzing = outer;
+            }
+        }
+
+        @Override
+        public AnnotatedTypeMirror getAnnotatedType(Tree tree) {
+            Boolean seen = analyzing || divisors == null ? null : divisors.get(tree);
+            if (seen != null) {
+                if (seen) {
+                    repeatedLookups++;
+                } else {
+                    divisorsLookedUp++;
+                    divisors.put(tree, true);
+                }
+            }
+            return super.getAnnotatedType(tree);
+        }
+    }
+}
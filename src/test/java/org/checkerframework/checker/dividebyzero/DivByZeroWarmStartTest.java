@@ -0,0 +1,138 @@
+package org.checkerframework.checker.dividebyzero;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+import org.junit.Test;
+
+/** Checks that {@code -Adbz.warmStart} saves work on unchanged loops and changes nothing reported. */
+public class DivByZeroWarmStartTest {
+
+    /** a and b only reach Top on the second pass over each loop */
+    private static final String LOOPS =
+            "class Loops {\n"
+            + "    int nested(int n) {\n"
+            + "        int a = 0;\n"
+            + "        int b = 1;\n"
+            + "        for (int i = 0; i < n; i++) {\n"
+            + "            for (int j = 0; j < n; j++) {\n"
+            + "                b *= -1;\n"
+            + "                a += 1;\n"
+            + "            }\n"
+            + "            a /= 2;\n"
+            + "        }\n"
+            + "        int d = n / b;\n"
+            + "        return n / a;\n"
+            + "    }\n"
+            + "}\n";
+
+    @Test
+    public void warmRunReportsTheSameWithFewerVisits() throws IOException {
+        File dir = Files.createTempDirectory("dbz-warm").toFile();
+        List<File> files = Collections.singletonList(write(dir, LOOPS));
+        File seeds = new File(dir, "warm.dbzw");
+        File report = new File(dir, "metrics.json");
+
+        RecordingChecker cold = new RecordingChecker();
+        List<String> coldErrors = errors(CheckerRunner.run(cold, files,
+                "-Adbz.warmStart=" + seeds, "-Adbz.metrics=" + report));
+        assertTrue(seeds.isFile());
+        assertEquals(0, cold.getWarmStart().getSeeded());
+        assertEquals(1, cold.getWarmStart().getSaved());
+
+        RecordingChecker warm = new RecordingChecker();
+        List<String> warmErrors = errors(CheckerRunner.run(warm, files,
+                "-Adbz.warmStart=" + seeds, "-Adbz.metrics=" + report));
+        assertEquals(coldErrors, warmErrors);
+        assertEquals(1, warm.getWarmStart().getSeeded());
+        assertTrue(visits(warm) + " >= " + visits(cold), visits(warm) < visits(cold));
+    }
+
+    @Test
+    public void changedMethodStartsCold() throws IOException {
+        File dir = Files.createTempDirectory("dbz-warm").toFile();
+        File seeds = new File(dir, "warm.dbzw");
+        CheckerRunner.run(new RecordingChecker(), Collections.singletonList(write(dir, LOOPS)),
+                "-Adbz.warmStart=" + seeds);
+
+        List<File> changed = Collections.singletonList(write(dir, LOOPS.replace("a /= 2", "a /= 3")));
+        RecordingChecker checker = new RecordingChecker();
+        CheckerRunner.run(checker, changed, "-Adbz.warmStart=" + seeds);
+        assertEquals(0, checker.getWarmStart().getSeeded());
+        assertEquals(1, checker.getWarmStart().getSaved());
+    }
+
+    /** nested, but dividing by a constant and by a call, both declared outside the method */
+    private static final String WITH_DEPENDENCIES = LOOPS
+            .replace("class Loops {\n", "class Loops {\n    static final int K = 2;\n")
+            .replace("a /= 2", "a /= K + step()")
+            .replace("        return n / a;\n    }\n", "        return n / a;\n    }\n    int step() {\n        return 1;\n    }\n");
+
+    @Test
+    public void changedDependencyStartsCold() throws IOException {
+        for (String change : new String[] {"K = 2", "return 1"}) {
+            File dir = Files.createTempDirectory("dbz-warm").toFile();
+            File seeds = new File(dir, "warm.dbzw");
+            CheckerRunner.run(new RecordingChecker(), Collections.singletonList(write(dir, WITH_DEPENDENCIES)),
+                    "-Adbz.warmStart=" + seeds);
+
+            RecordingChecker same = new RecordingChecker();
+            CheckerRunner.run(same, Collections.singletonList(write(dir, WITH_DEPENDENCIES)), "-Adbz.warmStart=" + seeds);
+            assertEquals(1, same.getWarmStart().getSeeded());
+
+            // nested's own text is unchanged, but what it divides by is not
+            String changed = WITH_DEPENDENCIES.replace(change, change.replace("2", "-2").replace("1", "-1"));
+            RecordingChecker checker = new RecordingChecker();
+            CheckerRunner.run(checker, Collections.singletonList(write(dir, changed)), "-Adbz.warmStart=" + seeds);
+            assertEquals(change, 0, checker.getWarmStart().getSeeded());
+        }
+    }
+
+    @Test
+    public void changedDomainStartsCold() throws IOException {
+        File dir = Files.createTempDirectory("dbz-warm").toFile();
+        List<File> files = Collections.singletonList(write(dir, LOOPS));
+        File seeds = new File(dir, "warm.dbzw");
+        CheckerRunner.run(new RecordingChecker(), files, "-Adbz.warmStart=" + seeds);
+
+        RecordingChecker checker = new RecordingChecker();
+        CheckerRunner.run(checker, files, "-Adbz.warmStart=" + seeds, "-Adbz.domain=interval");
+        assertEquals(0, checker.getWarmStart().getSeeded());
+    }
+
+    private static File write(File dir, String source) throws IOException {
+        File file = new File(dir, "Loops.java");
+        Files.write(file.toPath(), source.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private static List<String> errors(List<Diagnostic<? extends JavaFileObject>> diagnostics) {
+        List<String> errors = new ArrayList<>();
+        for (Diagnostic<? extends JavaFileObject> d : diagnostics) {
+            if (d.getKind() == Diagnostic.Kind.ERROR) {
+                errors.add(d.getLineNumber() + ":" + d.getColumnNumber() + " " + d.getMessage(Locale.ROOT));
+            }
+        }
+        return errors;
+    }
+
+    private static long visits(RecordingChecker checker) {
+        long visits = 0;
+        for (DivByZeroMetrics.Method m : checker.getMetrics().getMethods()) {
+            if (m.name.startsWith("nested")) {
+                visits += m.nodeVisits;
+            }
+        }
+        return visits;
+    }
+}
@@ -0,0 +1,35 @@
+package org.checkerframework.checker.dividebyzero;
+
+import org.checkerframework.common.basetype.BaseTypeVisitor;
+import org.checkerframework.framework.qual.RelevantJavaTypes;
+
+/** A DivByZeroChecker that keeps a handle on its visitor, so tests can inspect it after a run. */
+@RelevantJavaTypes({Integer.class, Long.class})
+class RecordingChecker extends DivByZeroChecker {
+
+    private DivByZeroVisitor visitor;
+
+    @Override
+    protected BaseTypeVisitor<?> createSourceVisitor() {
+        visitor = new DivByZeroVisitor(this) {
+            @Override
+            protected DivByZeroAnnotatedTypeFactory createTypeFactory() {
+                return RecordingChecker.this.createTypeFactory();
+            }
+        };
+        return visitor;
+    }
+
+    /** Tests override this to check with an instrumented factory */
+    protected DivByZeroAnnotatedTypeFactory createTypeFactory() {
+        return new DivByZeroAnnotatedTypeFactory(this);
+    }
+
+    DivByZeroVisitor getRecordedVisitor() {
+        return visitor;
+    }
+
+    DivByZeroAnnotatedTypeFactory getRecordedFactory() {
+        return visitor.getTypeFactory();
+    }
+}
@@ -0,0 +1,38 @@
+import org.checkerframework.checker.dividebyzero.qual.*;
+
+// Constant expressions get the qualifier of their exact value.
+class Constants {
+
+    static final int ZERO = 0;
+    static final int ONE = 1;
+    static final long BIG = 1L << 40;
+    static final int WRAPS = Integer.MAX_VALUE + 1;
+
+    void divisors(int n) {
+        // not provable in the sign lattice alone
+        int a = n / (2 - 1);
+        // :: error: divide.by.zero
+        int b = n / (ONE - 1);
+        int c = n / ONE;
+        // :: error: divide.by.zero
+        int d = n / ZERO;
+
+        final int k = 3 * 4 - 12;
+        // :: error: divide.by.zero
+        int e = n / k;
+        final int m = 7 % 4;
+        int f = n / m;
+
+        long g = n / (BIG >>> 40);
+        // int overflow: MIN_VALUE, which is negative
+        int h = n / WRAPS;
+        // :: error: divide.by.zero
+        int i = n / (int) (1L << 32);
+        // the shift distance is taken mod 32
+        int j = n / (1 << 33);
+        int l = n / ('a' - 96);
+        int o = n / (ONE > 0 ? 1 : 0);
+        // :: error: divide.by.zero
+        int p = n / (ONE < 0 ? 1 : 0);
+    }
+}
@@ -0,0 +1,41 @@
+import org.checkerframework.checker.dividebyzero.qual.*;
+
+// Methods with nothing to report are skipped; suppressed code is not checked.
+class Prescan {
+
+    @SuppressWarnings("dividebyzero")
+    int suppressed(int y) {
+        return 1 / y;
+    }
+
+    int plain(int y) {
+        int z = y + 1;
+        return z * 2;
+    }
+
+    void annotated(int y) {
+        // :: error: assignment.type.incompatible
+        @Positive int p = y;
+    }
+
+    void passes(int y) {
+        // :: error: argument.type.incompatible
+        takesPositive(y);
+    }
+
+    void refined(int y) {
+        if (y > 0) {
+            takesPositive(y);
+        }
+    }
+
+    static void takesPositive(@Positive int x) {
+    }
+}
+
+@SuppressWarnings("dividebyzero")
+class PrescanSuppressed {
+    int f(int y) {
+        return 1 / y;
+    }
+}
@@ -0,0 +1,23 @@
+import java.util.ArrayList;
+
+// Calls to JDK methods get the qualifier of their built-in stub.
+class Stubs {
+
+    int processors(int n) {
+        return n / Runtime.getRuntime().availableProcessors();
+    }
+
+    int priority(int n) {
+        return n % Thread.currentThread().getPriority();
+    }
+
+    int length(String s, int n) {
+        // :: error: divide.by.zero
+        return n / s.length();
+    }
+
+    int size(ArrayList<String> list, int n) {
+        // :: error: divide.by.zero
+        return n / list.size();
+    }
+}
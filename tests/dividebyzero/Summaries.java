@@ -0,0 +1,43 @@
+import org.checkerframework.checker.dividebyzero.qual.*;
+
+// Calls to private, static and final methods get the qualifier their body
+// returns; calls to methods a subclass could override stay Top.
+class Summaries {
+
+    private int four() {
+        return 4;
+    }
+
+    static int none() {
+        return 0;
+    }
+
+    static int pos(int n) {
+        if (n <= 1) {
+            return 1;
+        }
+        return pos(n - 1) + 1;
+    }
+
+    static int sign(int n) {
+        int s = -1;
+        if (n > 0) {
+            s = 1;
+        }
+        return s;
+    }
+
+    public int open() {
+        return 4;
+    }
+
+    void calls(int n) {
+        int a = n / four();
+        // :: error: divide.by.zero
+        int b = n / none();
+        int c = n / pos(n);
+        int d = n / sign(n);
+        // :: error: divide.by.zero
+        int e = n / open();
+    }
+}